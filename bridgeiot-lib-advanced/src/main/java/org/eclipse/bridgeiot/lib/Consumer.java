@@ -20,6 +20,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 import org.eclipse.bridgeiot.lib.exceptions.FailedDiscoveryException;
@@ -29,12 +30,21 @@ import org.eclipse.bridgeiot.lib.exceptions.InvalidOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.NotRegisteredException;
 import org.eclipse.bridgeiot.lib.handlers.DiscoverResponseErrorHandler;
 import org.eclipse.bridgeiot.lib.handlers.DiscoverResponseHandler;
+import org.eclipse.bridgeiot.lib.misc.AsyncMarketplaceClient;
 import org.eclipse.bridgeiot.lib.misc.BridgeIotProperties;
+import org.eclipse.bridgeiot.lib.misc.GraphQLQueries;
 import org.eclipse.bridgeiot.lib.misc.Helper;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
+import org.eclipse.bridgeiot.lib.offering.AccessResponse;
+import org.eclipse.bridgeiot.lib.offering.BulkSubscriptionResult;
+import org.eclipse.bridgeiot.lib.offering.HedgedAccess;
 import org.eclipse.bridgeiot.lib.offering.Offering;
+import org.eclipse.bridgeiot.lib.offering.OfferingCore;
 import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bridgeiot.lib.offering.SubscribableOfferingDescriptionCore;
+import org.eclipse.bridgeiot.lib.offering.SubscriptionRenewalManager;
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
 import org.eclipse.bridgeiot.lib.query.IOfferingQuery;
 import org.eclipse.bridgeiot.lib.query.OfferingQueryChain;
 import org.slf4j.Logger;
@@ -130,16 +140,34 @@ public class Consumer extends ConsumerCore implements IConsumer {
      */
     public CompletableFuture<List<SubscribableOfferingDescription>> discover(IOfferingQuery offeringQuery) {
 
-        return CompletableFuture.supplyAsync(() -> {
-            String jsonString = null;
-            try {
-                jsonString = discoverCall(offeringQuery);
-                return discoverAndDecode(jsonString, SubscribableOfferingDescription.class, offeringQuery.getId());
-            } catch (NotRegisteredException | FailedDiscoveryException | IOException e) {
-                logger.error(e.getMessage(), e);
-            }
-            return null;
-        });
+        if (getMarketplaceClient() == null) {
+            logger.error("Discovery failed - consumer is not authenticated at the marketplace");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final AsyncMarketplaceClient asyncMarketplaceClient = AsyncMarketplaceClient.create(getMarketplaceClient());
+        final CompletableFuture<String> discoverResponse;
+        if (isCreatedQuery(offeringQuery)) {
+            discoverResponse = asyncMarketplaceClient
+                    .requestString(GraphQLQueries.getFindMatchingOfferingsRequest(offeringQuery.getId()));
+        } else {
+            // create the offering query and select the matching offerings in a single request
+            final String fingerprint = offeringQuery.getFingerprint();
+            discoverResponse = asyncMarketplaceClient.request(offeringQuery.toDiscoveryQueryString(clientId))
+                    .thenApply(response -> {
+                        try {
+                            return processDiscoverResponse(offeringQuery, fingerprint, response);
+                        } catch (IOException | FailedDiscoveryException e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+        }
+
+        return discoverResponse.thenApply(jsonString -> discoverAndDecode(jsonString,
+                SubscribableOfferingDescription.class, offeringQuery.getId())).exceptionally(e -> {
+                    logger.error(e.getMessage(), e);
+                    return null;
+                });
 
     }
 
@@ -277,6 +305,34 @@ public class Consumer extends ConsumerCore implements IConsumer {
         return consumableOfferingDescription.subscribe();
     }
 
+    /**
+     * Accesses equivalent offerings in a hedged manner: the best offering is accessed first and the next one only if
+     * no response arrived within the 95th latency percentile of the first. The first response wins and the slower
+     * access is cancelled. See {@link HedgedAccess} for further options.
+     *
+     * @param offerings
+     *            subscribed offerings serving the same data
+     * @param accessParameters
+     * @return
+     */
+    public CompletableFuture<AccessResponse> accessHedged(List<Offering> offerings,
+            AccessParameters accessParameters) {
+        return HedgedAccess.create(offerings).accessOneTime(accessParameters);
+    }
+
+    /**
+     * Subscribes to a set of offerings with a single batched request to the marketplace. The call is non-blocking and
+     * returns a CompletableFuture on the subscribed offerings and the failures per offering.
+     *
+     * @param offeringDescriptions
+     * @return
+     */
+    @Override
+    public CompletableFuture<BulkSubscriptionResult<OfferingCore>> subscribeAll(
+            List<? extends SubscribableOfferingDescriptionCore> offeringDescriptions) {
+        return CompletableFuture.supplyAsync(() -> subscribeAllBlocking(offeringDescriptions), executorPool);
+    }
+
     /**
      * Subscribes to an offering. The call is blocking and returns an Offering.
      * 
@@ -302,18 +358,42 @@ public class Consumer extends ConsumerCore implements IConsumer {
      * @throws ExecutionException
      */
     public CompletableFuture<Offering> subscribeByOfferingId(final String offeringId) {
-        return CompletableFuture.supplyAsync(() -> {
-            Offering offering = null;
-            try {
-                offering = subscribeByOfferingIdBlocking(offeringId);
-            } catch (IllegalEndpointException | IncompleteOfferingDescriptionException | InvalidOfferingException
-                    | IOException e) {
-                logger.error(e.getMessage(), e);
+        return fetchOfferingDescription(offeringId).thenCompose(fetchedOfferingDescription -> {
+            if ((fetchedOfferingDescription.getActivation() != null)
+                    && fetchedOfferingDescription.getActivation().getStatus()) {
+                // if offering is active, set the Consumer instance
+                SubscribableOfferingDescription subscribableOffering = SubscribableOfferingDescription.create(this);
+                subscribableOffering.updateOfferingDescription(fetchedOfferingDescription);
+                return subscribableOffering.subscribe();
             }
-            return offering;
+            logger.warn("Offering with ID={} is inactive - subscription failed!", offeringId);
+            return CompletableFuture.completedFuture(null);
+        }).exceptionally(e -> {
+            logger.error(e.getMessage(), e);
+            return null;
         });
     }
 
+    /**
+     * Returns a future on an offering description, which completes immediately if the description is cached
+     */
+    private CompletableFuture<OfferingDescription> fetchOfferingDescription(String offeringId) {
+        if ((offeringDescriptionCache != null) && (offeringDescriptionCache.getEntry(offeringId) != null)) {
+            try {
+                return CompletableFuture.completedFuture(getOfferingDescription(offeringId));
+            } catch (InvalidOfferingException | IOException e) {
+                logger.warn("Cached offering description {} cannot be used: {}", offeringId, e.getMessage());
+            }
+        }
+        return AsyncMarketplaceClient.create(getMarketplaceClient()).getOfferingDescription(offeringId)
+                .thenApply(fetchedOfferingDescription -> {
+                    if (offeringDescriptionCache != null) {
+                        offeringDescriptionCache.put(fetchedOfferingDescription);
+                    }
+                    return fetchedOfferingDescription;
+                });
+    }
+
     /**
      * Subscribes to an offering. The call is blocking and returns an OfferingCore.
      *
@@ -328,7 +408,7 @@ public class Consumer extends ConsumerCore implements IConsumer {
     public Offering subscribeByOfferingIdBlocking(String offeringId) throws IllegalEndpointException,
             IncompleteOfferingDescriptionException, InvalidOfferingException, IOException {
 
-        OfferingDescription fetchedOfferingDescription = marketplaceClient.getOfferingDescription(offeringId);
+        OfferingDescription fetchedOfferingDescription = getOfferingDescription(offeringId);
 
         if ((fetchedOfferingDescription != null) && (fetchedOfferingDescription.getActivation() != null)
                 && fetchedOfferingDescription.getActivation().getStatus()) {
@@ -364,4 +444,9 @@ public class Consumer extends ConsumerCore implements IConsumer {
 
         return (Consumer) super.withClientSecret(clientSecret);
     }
+
+    @Override
+    public Consumer withSubscriptionRenewalManager(SubscriptionRenewalManager subscriptionRenewalManager) {
+        return (Consumer) super.withSubscriptionRenewalManager(subscriptionRenewalManager);
+    }
 }
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.handlers;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+
+/**
+ * Handles incoming Offering requests asynchronously by returning a future of the response, e.g.
+ *
+ * <pre>
+ * offeringDescription.withAsyncAccessRequestHandler(
+ *         (CompletableAccessRequestHandler) (od, inputData, subscriptionId, sessionId) -&gt; database
+ *                 .queryAsync(inputData).thenApply(result -&gt; BridgeIotHttpResponse.okay().withBody(result)));
+ * </pre>
+ */
+@FunctionalInterface
+public interface CompletableAccessRequestHandler extends AsyncAccessRequestHandler {
+
+    /**
+     * Process incoming Offering requests
+     * 
+     * @param offeringDescription
+     *            Reference to OfferingDescription
+     * @param inputData
+     *            Input parameter list
+     * @return future completed with the response
+     */
+    CompletableFuture<BridgeIotHttpResponse> processRequest(OfferingDescription offeringDescription,
+            Map<String, Object> inputData, String subscriptionId, String sessionId);
+
+    @Override
+    default void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+            String subscriptionId, String sessionId, ResponseCallback callback) {
+        processRequest(offeringDescription, inputData, subscriptionId, sessionId).whenComplete((response, failure) -> {
+            if (failure != null) {
+                callback.onFailure((failure instanceof CompletionException) && (failure.getCause() != null)
+                        ? failure.getCause() : failure);
+            } else {
+                callback.onResponse(response);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import org.eclipse.bridgeiot.lib.exceptions.HttpErrorException;
+import org.eclipse.bridgeiot.lib.exceptions.InvalidOfferingException;
+import org.eclipse.bridgeiot.lib.exceptions.NotRegisteredException;
+import org.eclipse.bridgeiot.lib.offering.LegacyOfferingDescription;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.eclipse.bridgeiot.lib.offering.RegisteredOffering;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescriptionChain;
+import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking API of the {@link MarketplaceClient} based on CompletableFutures. Requests are enqueued at the HTTP
+ * client instead of blocking the calling thread, so that e.g. a provider can register a large number of offerings at
+ * once with a bounded number of threads. Requests still pass the admission control of the marketplace client.
+ * <p>
+ * Continuations of the returned futures are executed on the HTTP client threads and should not block.
+ */
+public class AsyncMarketplaceClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncMarketplaceClient.class);
+
+    private final MarketplaceClient marketplaceClient;
+
+    private AsyncMarketplaceClient(MarketplaceClient marketplaceClient) {
+        this.marketplaceClient = marketplaceClient;
+    }
+
+    public static AsyncMarketplaceClient create(MarketplaceClient marketplaceClient) {
+        return new AsyncMarketplaceClient(marketplaceClient);
+    }
+
+    public MarketplaceClient getMarketplaceClient() {
+        return marketplaceClient;
+    }
+
+    /**
+     * Sends a request to the marketplace
+     *
+     * @param request
+     * @return future on the response, which has to be closed by the caller
+     */
+    public CompletableFuture<Response> request(RequestBody request) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        marketplaceClient.request(request, completing(future));
+        return future;
+    }
+
+    /**
+     * Sends a request to the marketplace
+     *
+     * @param request
+     *            request as JSON string
+     * @return future on the response, which has to be closed by the caller
+     */
+    public CompletableFuture<Response> request(String request) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        marketplaceClient.request(request, completing(future));
+        return future;
+    }
+
+    /**
+     * Sends a request to the marketplace and returns the response body. The future completes exceptionally with a
+     * {@link HttpErrorException} if the request was not successful.
+     *
+     * @param request
+     * @return
+     */
+    public CompletableFuture<String> requestString(RequestBody request) {
+        return request(request).thenApply(AsyncMarketplaceClient::bodyOf);
+    }
+
+    public CompletableFuture<String> requestString(String request) {
+        return request(request).thenApply(AsyncMarketplaceClient::bodyOf);
+    }
+
+    /**
+     * Sends a query to the marketplace and unmarshalls the result of the query
+     *
+     * @param request
+     * @param queryName
+     *            name of the query result in the response
+     * @param type
+     * @return
+     */
+    public <T> CompletableFuture<T> query(RequestBody request, String queryName, Class<T> type) {
+        return requestString(request)
+                .thenApply(responseString -> Helper.unmarshallSingleFromQueryResponse(queryName, responseString, type));
+    }
+
+    public <T> CompletableFuture<T> query(String request, String queryName, Class<T> type) {
+        return requestString(request)
+                .thenApply(responseString -> Helper.unmarshallSingleFromQueryResponse(queryName, responseString, type));
+    }
+
+    /**
+     * Fetches an offering description. The future completes exceptionally with an {@link InvalidOfferingException} if
+     * the offering cannot be fetched.
+     *
+     * @param offeringId
+     * @return
+     */
+    public CompletableFuture<OfferingDescription> getOfferingDescription(String offeringId) {
+        return query(GraphQLQueries.getOfferingDescriptionRequest(offeringId), "offering",
+                LegacyOfferingDescription.class).handle((legacyOfferingDescription, e) -> {
+                    if (e != null) {
+                        logger.error("Fetching Offering Description with ID={} failed!", offeringId);
+                        throw new CompletionException(new InvalidOfferingException(unwrap(e)));
+                    }
+                    OfferingDescription offeringDescription = new OfferingDescription();
+                    offeringDescription.copyFromLegacy(legacyOfferingDescription);
+                    return offeringDescription;
+                });
+    }
+
+    /**
+     * Registers an offering at the marketplace and deploys its A1 interface if applicable. As for the blocking
+     * registration, a failed registration request is retried in the background.
+     *
+     * @param offeringDescription
+     *            offering description bound to a provider
+     * @return future on the RegisteredOffering object for lifecycle operations
+     */
+    public CompletableFuture<RegisteredOffering> register(RegistrableOfferingDescription offeringDescription) {
+        final RequestBody registration;
+        try {
+            registration = offeringDescription.prepareRegistration();
+        } catch (Exception e) {
+            return failed(e);
+        }
+        return request(registration).handle((response, e) -> {
+            try {
+                return offeringDescription.completeRegistration(response, (e != null) ? toIOException(e) : null);
+            } catch (NotRegisteredException e1) {
+                throw new CompletionException(e1);
+            }
+        });
+    }
+
+    /**
+     * Activates an offering at the marketplace
+     *
+     * @param offeringId
+     * @return future on the activated offering description
+     */
+    public CompletableFuture<RegistrableOfferingDescriptionChain> activate(String offeringId) {
+        return query(GraphQLQueries.getActivationRequestFullResponse(offeringId), "activateOffering",
+                RegistrableOfferingDescriptionChain.class);
+    }
+
+    /**
+     * Sends accounting reports to the marketplace
+     *
+     * @param accountingReports
+     * @return
+     */
+    public CompletableFuture<Void> reportAccounting(List<AccountingReport> accountingReports) {
+        return requestString(GraphQLQueries.getAccountingReportRequest(accountingReports))
+                .thenAccept(responseString -> logger.debug("Accounting Report Response: {}", responseString));
+    }
+
+    private static Callback completing(final CompletableFuture<Response> future) {
+        return new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                future.complete(response);
+            }
+        };
+    }
+
+    private static String bodyOf(Response response) {
+        try {
+            String responseString = response.body().string();
+            if (!response.isSuccessful()) {
+                throw new CompletionException(new HttpErrorException(response.code(), responseString));
+            }
+            return responseString;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return ((e instanceof CompletionException) && (e.getCause() != null)) ? e.getCause() : e;
+    }
+
+    private static IOException toIOException(Throwable e) {
+        Throwable cause = unwrap(e);
+        return (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics.EndpointStatistics;
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hedged one-time access across equivalent offerings (e.g. same category and region). The access is sent to the best
+ * offering first. If no response arrives within the hedge delay, the access is also sent to the next candidate. The
+ * first successful response wins and the HTTP calls still in flight are cancelled. A failed access triggers the next
+ * candidate immediately.
+ * <p>
+ * Candidates are ranked by the access statistics of the consumer (lowest error rate, then lowest mean latency);
+ * candidates without statistics keep their order after the measured ones. The hedge delay is the configured latency
+ * percentile of the best candidate, or the default delay if it has not been measured yet.
+ * <p>
+ * Only calls actually sent are accounted.
+ */
+public class HedgedAccess {
+
+    public static final double DEFAULT_HEDGE_PERCENTILE = 95.0;
+    public static final long DEFAULT_HEDGE_DELAY_MILLIS = 500;
+    public static final int DEFAULT_MAX_ATTEMPTS = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgedAccess.class);
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "hedged-access");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Offering> candidates;
+    private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+    private long defaultDelayMillis = DEFAULT_HEDGE_DELAY_MILLIS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private HedgedAccess(List<Offering> candidates) {
+        this.candidates = new ArrayList<>(candidates);
+    }
+
+    public static HedgedAccess create(List<Offering> candidates) {
+        return new HedgedAccess(candidates);
+    }
+
+    /**
+     * Sets the latency percentile of the best candidate after which the next candidate is accessed
+     *
+     * @param hedgePercentile
+     *            percentile between 0 and 100
+     */
+    public HedgedAccess withHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+        return this;
+    }
+
+    /**
+     * Sets the hedge delay used as long as the best candidate has not been measured
+     *
+     * @param defaultDelayMillis
+     */
+    public HedgedAccess withDefaultDelay(long defaultDelayMillis) {
+        this.defaultDelayMillis = defaultDelayMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of candidates accessed
+     *
+     * @param maxAttempts
+     */
+    public HedgedAccess withMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Performs the hedged access. The returned future completes with the first successful response, or exceptionally
+     * if all accessed candidates failed.
+     *
+     * @param accessParameters
+     * @return
+     */
+    public CompletableFuture<AccessResponse> accessOneTime(AccessParameters accessParameters) {
+        final List<Offering> ranked = rank(candidates);
+        final Execution execution = new Execution(ranked.subList(0, Math.min(Math.max(1, maxAttempts), ranked.size())),
+                accessParameters, hedgeDelay(ranked));
+        if (ranked.isEmpty()) {
+            execution.result.completeExceptionally(new BridgeIoTException("No offering to access"));
+        } else {
+            execution.launchNext();
+        }
+        return execution.result;
+    }
+
+    long hedgeDelay(List<Offering> ranked) {
+        if (!ranked.isEmpty()) {
+            final EndpointStatistics statistics = statisticsOf(ranked.get(0));
+            if (statistics != null) {
+                final long percentile = statistics.getLatencyPercentile(hedgePercentile);
+                if (percentile >= 0) {
+                    return percentile;
+                }
+            }
+        }
+        return defaultDelayMillis;
+    }
+
+    static List<Offering> rank(List<Offering> offerings) {
+        final List<Offering> ranked = new ArrayList<>(offerings);
+        ranked.sort(Comparator.comparingDouble((Offering o) -> {
+            final EndpointStatistics statistics = statisticsOf(o);
+            return (statistics != null && statistics.getSampleCount() > 0) ? statistics.getErrorRate()
+                    : Double.MAX_VALUE;
+        }).thenComparingDouble(o -> {
+            final EndpointStatistics statistics = statisticsOf(o);
+            final double latency = (statistics != null) ? statistics.getMeanLatency() : -1;
+            return (latency >= 0) ? latency : Double.MAX_VALUE;
+        }));
+        return ranked;
+    }
+
+    static EndpointStatistics statisticsOf(Offering offering) {
+        final AccessStatistics accessStatistics = offering.getAccessStatistics();
+        final SubscribableOfferingDescription offeringDescription = offering.getOfferingDescription();
+        if (accessStatistics == null || offeringDescription == null || offeringDescription.getEndpoints() == null
+                || offeringDescription.getEndpoints().isEmpty()) {
+            return null;
+        }
+        return accessStatistics.get(offeringDescription.getEndpoints().get(0).getUri());
+    }
+
+    /**
+     * State of a single hedged access
+     */
+    private static class Execution {
+
+        final CompletableFuture<AccessResponse> result = new CompletableFuture<>();
+        final List<Offering> ranked;
+        final AccessParameters accessParameters;
+        final long hedgeDelayMillis;
+        final List<Call> calls = new ArrayList<>();
+        final String accessSessionId = String.valueOf(System.currentTimeMillis());
+        int launched = 0;
+        int failed = 0;
+        ScheduledFuture<?> hedgeTimer;
+
+        Execution(List<Offering> ranked, AccessParameters accessParameters, long hedgeDelayMillis) {
+            this.ranked = ranked;
+            this.accessParameters = accessParameters;
+            this.hedgeDelayMillis = hedgeDelayMillis;
+        }
+
+        synchronized void launchNext() {
+            if (result.isDone() || launched >= ranked.size()) {
+                return;
+            }
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+                hedgeTimer = null;
+            }
+
+            final Offering offering = ranked.get(launched++);
+            logger.debug("Hedged access #{} to {}", launched, offering.getOfferingDescription().getId());
+            try {
+                final Call call = offering.enqueueAccess(accessSessionId, accessParameters,
+                        (reference, response) -> onSuccess(response), (reference, response) -> onFailure());
+                if (call != null) {
+                    calls.add(call);
+                }
+            } catch (Exception e) {
+                logger.error("Hedged access to {} failed: {}", offering.getOfferingDescription().getId(),
+                        e.getMessage());
+                failed++;
+                if (checkAllFailed()) {
+                    return;
+                }
+                launchNext();
+                return;
+            }
+
+            if (launched < ranked.size()) {
+                hedgeTimer = scheduler.schedule(this::launchNext, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void onSuccess(AccessResponse response) {
+            final List<Call> losers;
+            synchronized (this) {
+                if (!result.complete(response)) {
+                    return;
+                }
+                if (hedgeTimer != null) {
+                    hedgeTimer.cancel(false);
+                }
+                losers = new ArrayList<>(calls);
+            }
+            for (final Call call : losers) {
+                call.cancel();
+            }
+        }
+
+        void onFailure() {
+            synchronized (this) {
+                failed++;
+                if (checkAllFailed()) {
+                    return;
+                }
+            }
+            launchNext();
+        }
+
+        private boolean checkAllFailed() {
+            if (failed >= ranked.size()) {
+                result.completeExceptionally(new BridgeIoTException("Hedged access failed on all candidates"));
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
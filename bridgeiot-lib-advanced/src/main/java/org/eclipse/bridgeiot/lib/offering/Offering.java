@@ -19,8 +19,15 @@ package org.eclipse.bridgeiot.lib.offering;
 import java.util.LinkedList;
 import java.util.concurrent.CompletableFuture;
 
+import okhttp3.Call;
+
 import org.eclipse.bridgeiot.lib.Consumer;
+import org.eclipse.bridgeiot.lib.exceptions.AccessToNonActivatedOfferingException;
+import org.eclipse.bridgeiot.lib.exceptions.AccessToNonSubscribedOfferingException;
+import org.eclipse.bridgeiot.lib.exceptions.IllegalAccessParameterException;
 import org.eclipse.bridgeiot.lib.feed.AccessFeed;
+import org.eclipse.bridgeiot.lib.handlers.AccessResponseFailureHandler;
+import org.eclipse.bridgeiot.lib.handlers.AccessResponseSuccessHandler;
 import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +54,29 @@ public abstract class Offering extends OfferingCore implements IOffering {
     @Override
     public abstract CompletableFuture<AccessResponse> accessOneTime(AccessParameters accessParameters);
 
+    /**
+     * Starts a one-time access and returns the underlying HTTP call, or null if the access cannot be cancelled on HTTP
+     * level. The default implementation is based on {@link #accessOneTime(AccessParameters)}.
+     */
+    protected Call enqueueAccess(String accessSessionId, AccessParameters accessParameters,
+            AccessResponseSuccessHandler onSuccess, AccessResponseFailureHandler onFailure)
+            throws IllegalAccessParameterException, AccessToNonActivatedOfferingException,
+            AccessToNonSubscribedOfferingException {
+        accessOneTime(accessParameters).whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                try {
+                    onSuccess.processResponseOnSuccess(this, response);
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+            } else if (onFailure != null) {
+                onFailure.processResponseOnFailure(this,
+                        new AccessResponse("{ \"error\": \"Access request failed\" }", getOfferingDescription()));
+            }
+        });
+        return null;
+    }
+
     /**
      * Returns corresponding Offering Description
      */
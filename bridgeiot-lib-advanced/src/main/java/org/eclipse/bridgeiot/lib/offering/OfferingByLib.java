@@ -20,6 +20,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import okhttp3.Call;
+
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonActivatedOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonSubscribedOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.IllegalAccessParameterException;
@@ -30,7 +32,6 @@ import org.eclipse.bridgeiot.lib.handlers.AccessResponseFailureHandler;
 import org.eclipse.bridgeiot.lib.handlers.AccessResponseSuccessHandler;
 import org.eclipse.bridgeiot.lib.handlers.FeedNotificationFailureHandler;
 import org.eclipse.bridgeiot.lib.handlers.FeedNotificationSuccessHandler;
-import org.eclipse.bridgeiot.lib.misc.HttpClient;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
 import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
 
@@ -41,8 +42,7 @@ import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
  */
 public class OfferingByLib extends Offering {
 
-    private HttpClient httpClient;
-    private OfferingCore offeringCore;
+    private OfferingCoreByLib offeringCore;
 
     protected OfferingByLib() {
         super();
@@ -51,9 +51,7 @@ public class OfferingByLib extends Offering {
     protected OfferingByLib(SubscribableOfferingDescription offeringDescription, String offeringToken)
             throws IllegalEndpointException, IncompleteOfferingDescriptionException {
         super(offeringDescription, null);
-        final OfferingCoreByLib offeringCoreByLib = new OfferingCoreByLib(offeringDescription, offeringToken);
-        this.httpClient = offeringCoreByLib.getHttpClient();
-        this.offeringCore = offeringCoreByLib;
+        this.offeringCore = new OfferingCoreByLib(offeringDescription, offeringToken);
     }
 
     /**
@@ -68,10 +66,7 @@ public class OfferingByLib extends Offering {
         return CompletableFuture.supplyAsync(() -> {
 
             final String accessSessionId = String.valueOf(new Date().getTime());
-            final String responseString = OfferingCoreByLib.accessOneTimeInternal(httpClient, offeringDescription,
-                    accessParameters, accessSessionId, offeringAccessToken);
-            offeringCore.addAccountingEvent(accessSessionId, responseString);
-            return new AccessResponse(responseString, offeringDescription);
+            return offeringCore.accessOneTimeBlocking(accessSessionId, accessParameters, offeringAccessToken);
         });
 
     }
@@ -168,6 +163,41 @@ public class OfferingByLib extends Offering {
         offeringCore.accessOneTimeWithSessionId(accessSessionId, accessParameters, onAccessSuccess, onAccessFailure);
     }
 
+    @Override
+    public OfferingCore withResponseCache(ResponseCache responseCache) {
+        offeringCore.withResponseCache(responseCache);
+        return this;
+    }
+
+    @Override
+    public ResponseCache getResponseCache() {
+        return offeringCore.getResponseCache();
+    }
+
+    @Override
+    public OfferingCore withRequestCoalescing(boolean requestCoalescing) {
+        offeringCore.withRequestCoalescing(requestCoalescing);
+        return this;
+    }
+
+    @Override
+    public boolean isRequestCoalescing() {
+        return offeringCore.isRequestCoalescing();
+    }
+
+    @Override
+    public long getCoalescedAccessCount() {
+        return offeringCore.getCoalescedAccessCount();
+    }
+
+    @Override
+    protected Call enqueueAccess(String accessSessionId, AccessParameters accessParameters,
+            AccessResponseSuccessHandler onSuccess, AccessResponseFailureHandler onFailure)
+            throws IllegalAccessParameterException, AccessToNonActivatedOfferingException,
+            AccessToNonSubscribedOfferingException {
+        return offeringCore.enqueueAccess(accessSessionId, accessParameters, onSuccess, onFailure);
+    }
+
     @Override
     public String getOfferingToken() {
         return offeringCore.getOfferingToken();
@@ -15,7 +15,7 @@
  */
 package org.eclipse.bridgeiot.lib.offering;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -23,7 +23,7 @@ import org.slf4j.LoggerFactory;
 
 public class OfferingSelector {
 
-    LinkedList<SelectionCriteria> orderedCriteria = new LinkedList<>();
+    List<SelectionCriteria> orderedCriteria = new ArrayList<>();
 
     static final Logger logger = LoggerFactory.getLogger(OfferingSelector.class);
 
@@ -46,14 +46,38 @@ public class OfferingSelector {
         return this;
     }
 
+    /**
+     * Prefers offerings with the lowest mean access latency observed by the consumer
+     */
+    public OfferingSelector fastest() {
+        orderedCriteria.add(new SelectionCriteria.Fastest());
+        return this;
+    }
+
+    /**
+     * Prefers offerings with the lowest access error rate observed by the consumer
+     */
+    public OfferingSelector mostReliable() {
+        orderedCriteria.add(new SelectionCriteria.MostReliable());
+        return this;
+    }
+
+    /**
+     * Prefers offerings with the lowest weighted score of normalized latency, error rate and price
+     *
+     * @param latencyWeight
+     * @param errorRateWeight
+     * @param priceWeight
+     */
+    public OfferingSelector weighted(double latencyWeight, double errorRateWeight, double priceWeight) {
+        orderedCriteria.add(new SelectionCriteria.Weighted(latencyWeight, errorRateWeight, priceWeight));
+        return this;
+    }
+
     public SubscribableOfferingDescription select(List<SubscribableOfferingDescription> initialSet) {
         // if(initialSet== null) return null;
 
-        List<SubscribableOfferingDescription> remainingOfferingDescriptions = new LinkedList<>();
-
-        for (final SubscribableOfferingDescription subscribableOfferingDescription : initialSet) {
-            remainingOfferingDescriptions.add(subscribableOfferingDescription);
-        }
+        List<SubscribableOfferingDescription> remainingOfferingDescriptions = new ArrayList<>(initialSet);
 
         if (logger.isInfoEnabled()) {
             logger.info("Applying selection criteria on {} offering description{}",
@@ -15,11 +15,15 @@
  */
 package org.eclipse.bridgeiot.lib.offering;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.LicenseType;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics.EndpointStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -137,6 +141,170 @@ public abstract class SelectionCriteria {
 
     }
 
+    /**
+     * Keeps the offerings with the lowest mean access latency as observed by the consumer. Offerings which have not
+     * been accessed yet are kept as well, so that they get a chance to be measured. Offerings whose accesses all
+     * failed rank last.
+     */
+    public static class Fastest extends SelectionCriteria {
+
+        @Override
+        public List<SubscribableOfferingDescription> filter(
+                List<SubscribableOfferingDescription> offeringDescriptions) {
+            return keepLowest(offeringDescriptions, e -> {
+                EndpointStatistics statistics = statisticsOf(e);
+                if (statistics == null || statistics.getSampleCount() == 0) {
+                    return -1;
+                }
+                // no successful access to measure the latency of
+                return (statistics.getMeanLatency() >= 0) ? statistics.getMeanLatency() : Double.POSITIVE_INFINITY;
+            }, "latency");
+        }
+
+        @Override
+        public String toString() {
+            return "fastest";
+        }
+
+    }
+
+    /**
+     * Keeps the offerings with the lowest access error rate as observed by the consumer. Offerings which have not been
+     * accessed yet are kept as well.
+     */
+    public static class MostReliable extends SelectionCriteria {
+
+        @Override
+        public List<SubscribableOfferingDescription> filter(
+                List<SubscribableOfferingDescription> offeringDescriptions) {
+            return keepLowest(offeringDescriptions, e -> {
+                EndpointStatistics statistics = statisticsOf(e);
+                return (statistics != null && statistics.getSampleCount() > 0) ? statistics.getErrorRate() : -1;
+            }, "error rate");
+        }
+
+        @Override
+        public String toString() {
+            return "most reliable";
+        }
+
+    }
+
+    /**
+     * Scores offerings by a weighted sum of their normalized mean latency, error rate and price and keeps the
+     * offerings with the lowest score. Each value is normalized to [0, 1] relative to the best and worst offering of
+     * the set; unknown values score neutral (0.5).
+     */
+    public static class Weighted extends SelectionCriteria {
+
+        private final double latencyWeight;
+        private final double errorRateWeight;
+        private final double priceWeight;
+
+        public Weighted(double latencyWeight, double errorRateWeight, double priceWeight) {
+            this.latencyWeight = latencyWeight;
+            this.errorRateWeight = errorRateWeight;
+            this.priceWeight = priceWeight;
+        }
+
+        @Override
+        public List<SubscribableOfferingDescription> filter(
+                List<SubscribableOfferingDescription> offeringDescriptions) {
+            if (offeringDescriptions.size() < 2) {
+                return offeringDescriptions;
+            }
+
+            final int size = offeringDescriptions.size();
+            final double[] latencies = new double[size];
+            final double[] errorRates = new double[size];
+            final double[] prices = new double[size];
+            for (int i = 0; i < size; i++) {
+                final SubscribableOfferingDescription offeringDescription = offeringDescriptions.get(i);
+                final EndpointStatistics statistics = statisticsOf(offeringDescription);
+                latencies[i] = (statistics != null) ? statistics.getMeanLatency() : -1;
+                errorRates[i] = (statistics != null && statistics.getSampleCount() > 0) ? statistics.getErrorRate()
+                        : -1;
+                prices[i] = (offeringDescription.getPrice() != null
+                        && offeringDescription.getPrice().getMoney() != null)
+                                ? offeringDescription.getPrice().getAmount()
+                                : -1;
+            }
+
+            final double[] scores = new double[size];
+            double lowest = Double.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                scores[i] = latencyWeight * normalize(latencies, i) + errorRateWeight * normalize(errorRates, i)
+                        + priceWeight * normalize(prices, i);
+                lowest = Math.min(lowest, scores[i]);
+            }
+
+            final List<SubscribableOfferingDescription> selected = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (scores[i] == lowest) {
+                    selected.add(offeringDescriptions.get(i));
+                }
+            }
+            return selected;
+        }
+
+        private static double normalize(double[] values, int index) {
+            if (values[index] < 0) {
+                return 0.5;
+            }
+            double min = Double.MAX_VALUE;
+            double max = -1;
+            for (final double value : values) {
+                if (value >= 0) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            return (max > min) ? (values[index] - min) / (max - min) : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return "weighted (latency " + latencyWeight + ", error rate " + errorRateWeight + ", price " + priceWeight
+                    + ")";
+        }
+
+    }
+
+    /**
+     * Returns the access statistics of the first endpoint of an offering or null if it has not been accessed yet
+     */
+    static EndpointStatistics statisticsOf(SubscribableOfferingDescription offeringDescription) {
+        if (offeringDescription.getConsumer() == null || offeringDescription.getEndpoints() == null
+                || offeringDescription.getEndpoints().isEmpty()) {
+            return null;
+        }
+        final AccessStatistics accessStatistics = offeringDescription.getConsumer().getAccessStatistics();
+        return (accessStatistics != null)
+                ? accessStatistics.get(offeringDescription.getEndpoints().get(0).getUri())
+                : null;
+    }
+
+    /**
+     * Keeps the offerings with the lowest known value plus the offerings without a known (negative) value. Offerings
+     * with an infinite value are only kept if no other offering is left.
+     */
+    static List<SubscribableOfferingDescription> keepLowest(
+            List<SubscribableOfferingDescription> offeringDescriptions,
+            ToDoubleFunction<SubscribableOfferingDescription> valueFunction, String name) {
+        final double lowest = offeringDescriptions.stream().mapToDouble(valueFunction)
+                .filter(v -> v >= 0 && v < Double.POSITIVE_INFINITY).min().orElse(-1);
+        if (lowest < 0) {
+            final List<SubscribableOfferingDescription> unknown = offeringDescriptions.stream()
+                    .filter(e -> valueFunction.applyAsDouble(e) < 0).collect(Collectors.toList());
+            logger.debug("Cannot select w.r.t. {} as no offering has a known {}", name, name);
+            return unknown.isEmpty() ? offeringDescriptions : unknown;
+        }
+        return offeringDescriptions.stream().filter(e -> {
+            final double value = valueFunction.applyAsDouble(e);
+            return value < 0 || value == lowest;
+        }).collect(Collectors.toList());
+    }
+
     public abstract List<SubscribableOfferingDescription> filter(List<SubscribableOfferingDescription> e);
 
 }
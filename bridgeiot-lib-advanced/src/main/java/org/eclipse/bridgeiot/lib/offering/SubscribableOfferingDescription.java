@@ -16,10 +16,14 @@
 package org.eclipse.bridgeiot.lib.offering;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.exceptions.IllegalEndpointException;
 import org.eclipse.bridgeiot.lib.exceptions.IncompleteOfferingDescriptionException;
+import org.eclipse.bridgeiot.lib.misc.AsyncMarketplaceClient;
+import org.eclipse.bridgeiot.lib.model.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,24 +44,36 @@ public class SubscribableOfferingDescription extends SubscribableOfferingDescrip
         return new SubscribableOfferingDescription(consumer);
     }
 
+    /**
+     * Subscribes to the offering without blocking a thread while waiting for the marketplace
+     *
+     * @return future on the subscribed offering or on null if the subscription failed
+     */
     public CompletableFuture<Offering> subscribe() {
 
-        return CompletableFuture.supplyAsync(() -> {
-
-            Offering offering = null;
-            try {
-                offering = subscribeBlocking();
-            } catch (IllegalEndpointException | IncompleteOfferingDescriptionException e) {
-                logger.error(e.getMessage(), e);
-            }
-            return offering;
+        final String subscriptionRequest = getSubscriptionRequest();
+        logger.info("Subscription Request: {}", subscriptionRequest);
 
-        }).exceptionally(e -> {
-            logger.error(e.getMessage(), e);
-            if (e instanceof RuntimeException) {
-            }
-            return null;
-        });
+        return AsyncMarketplaceClient.create(consumer.getMarketplaceClient())
+                .query(subscriptionRequest, getSubscriptionQueryName(), Subscription.class)
+                .thenApply(subscription -> {
+                    final String offeringToken = acceptSubscription(subscription);
+                    if (offeringToken == null) {
+                        throw new BridgeIoTException(
+                                "Subscription failed - no valid OfferingAccessToken obtained from Marketplace!");
+                    }
+                    logger.info("You are subscribed to {}", this.getId());
+                    try {
+                        Offering subscribedOffering = createOffering(offeringToken);
+                        consumer.addSubscribedOffering(subscribedOffering);
+                        return subscribedOffering;
+                    } catch (IllegalEndpointException | IncompleteOfferingDescriptionException e) {
+                        throw new CompletionException(e);
+                    }
+                }).exceptionally(e -> {
+                    logger.error(e.getMessage(), e);
+                    return null;
+                });
     }
 
     /**
@@ -70,16 +86,20 @@ public class SubscribableOfferingDescription extends SubscribableOfferingDescrip
     @Override
     public Offering subscribeBlocking() throws IllegalEndpointException, IncompleteOfferingDescriptionException {
         final String offeringToken = subscribeAtMarketplace();
+        Offering subscribedOffering = createOffering(offeringToken);
+        consumer.addSubscribedOffering(subscribedOffering);
+        return subscribedOffering;
+    }
+
+    @Override
+    protected Offering createOffering(String offeringToken)
+            throws IllegalEndpointException, IncompleteOfferingDescriptionException {
         switch (getAccessInterfaceType()) {
         case BRIDGEIOT_LIB:
         case BRIDGEIOT_PROXY:
-            OfferingByLib subscribedOffering = new OfferingByLib(this, offeringToken);
-            consumer.addSubscribedOffering(subscribedOffering);
-            return subscribedOffering;
+            return new OfferingByLib(this, offeringToken);
         case EXTERNAL:
-            OfferingByExternal subscribedOfferingByExternal = new OfferingByExternal(this);
-            consumer.addSubscribedOffering(subscribedOfferingByExternal);
-            return subscribedOfferingByExternal;
+            return new OfferingByExternal(this);
         default:
             throw new RuntimeException(
                     "Cannot create Offering Access Object due to unsupported or unspecified integration mode");
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
+import org.eclipse.bridgeiot.lib.offering.Offering;
+import org.eclipse.bridgeiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bridgeiot.lib.query.OfferingQuery;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConsumerTest {
+
+    MarketplaceClient marketplaceClientMock;
+    Consumer consumerUnderTest;
+
+    @Before
+    public void setUp() {
+        marketplaceClientMock = mock(MarketplaceClient.class);
+        consumerUnderTest = new Consumer("consumer", "marketplace");
+        consumerUnderTest.marketplaceClient = marketplaceClientMock;
+    }
+
+    @Test
+    public void discoverCreatesQueryOnceAndReusesIt() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            invocation.<Callback> getArgument(1).onResponse(null,
+                    response(200, "{ \"data\": { \"addOfferingQuery\": { \"id\": \"Consumer-Query\", "
+                            + "\"matchingOfferings\": [ ] } } }"));
+            return null;
+        }).when(marketplaceClientMock).request(anyString(), any(Callback.class));
+        doAnswer(invocation -> {
+            invocation.<Callback> getArgument(1).onResponse(null,
+                    response(200, "{ \"data\": { \"matchingOfferings\": [ ] } }"));
+            return null;
+        }).when(marketplaceClientMock).request(any(RequestBody.class), any(Callback.class));
+        OfferingQuery query = OfferingQuery.create("Parking");
+
+        // Act
+        List<SubscribableOfferingDescription> created = consumerUnderTest.discover(query).get(5, TimeUnit.SECONDS);
+        List<SubscribableOfferingDescription> reused = consumerUnderTest.discover(query).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(created).isEmpty();
+        assertThat(reused).isEmpty();
+        assertThat(query.getId()).isEqualTo("Consumer-Query");
+        verify(marketplaceClientMock, times(1)).request(anyString(), any(Callback.class));
+        verify(marketplaceClientMock, times(1)).request(any(RequestBody.class), any(Callback.class));
+    }
+
+    @Test
+    public void discoverCompletesWithNullWhenMarketplaceFails() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            invocation.<Callback> getArgument(1).onFailure(null, new IOException("connection refused"));
+            return null;
+        }).when(marketplaceClientMock).request(anyString(), any(Callback.class));
+
+        // Act
+        List<SubscribableOfferingDescription> result = consumerUnderTest.discover(OfferingQuery.create("Parking"))
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    public void subscribeByOfferingIdCompletesWithNullWhenOfferingCannotBeFetched() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            invocation.<Callback> getArgument(1).onResponse(null, response(500, "unavailable"));
+            return null;
+        }).when(marketplaceClientMock).request(any(RequestBody.class), any(Callback.class));
+
+        // Act
+        Offering offering = consumerUnderTest.subscribeByOfferingId("Provider-Offering").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(offering).isNull();
+    }
+
+    static Response response(int code, String body) {
+        return new Response.Builder().request(new Request.Builder().url("http://localhost/graphql").build())
+                .protocol(Protocol.HTTP_1_1).code(code).message("status " + code)
+                .body(ResponseBody.create(MediaType.parse("application/json"), body)).build();
+    }
+
+}
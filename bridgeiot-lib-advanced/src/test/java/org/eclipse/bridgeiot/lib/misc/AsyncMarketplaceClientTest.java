@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.eclipse.bridgeiot.lib.exceptions.HttpErrorException;
+import org.eclipse.bridgeiot.lib.exceptions.InvalidOfferingException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncMarketplaceClientTest {
+
+    MarketplaceClient marketplaceClientMock;
+    AsyncMarketplaceClient clientUnderTest;
+
+    @Before
+    public void setUp() {
+        marketplaceClientMock = mock(MarketplaceClient.class);
+        clientUnderTest = AsyncMarketplaceClient.create(marketplaceClientMock);
+    }
+
+    @Test
+    public void requestStringCompletesWithResponseBody() throws Exception {
+        // Arrange
+        answerStringRequest(200, "{ \"data\": { } }");
+
+        // Act
+        String responseString = clientUnderTest.requestString("{ \"query\": \"query q1 { }\" }").get(5,
+                TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(responseString).isEqualTo("{ \"data\": { } }");
+    }
+
+    @Test
+    public void requestStringFailsOnUnsuccessfulResponse() throws Exception {
+        // Arrange
+        answerStringRequest(500, "unavailable");
+
+        // Act
+        Throwable failure = failureOf(clientUnderTest.requestString("{ \"query\": \"query q1 { }\" }"));
+
+        // Assert
+        assertThat(failure).isInstanceOf(HttpErrorException.class);
+    }
+
+    @Test
+    public void offeringDescriptionFailsWithInvalidOfferingException() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            invocation.<Callback> getArgument(1).onFailure(null, new IOException("connection refused"));
+            return null;
+        }).when(marketplaceClientMock).request(any(RequestBody.class), any(Callback.class));
+
+        // Act
+        Throwable failure = failureOf(clientUnderTest.getOfferingDescription("Provider-Offering"));
+
+        // Assert
+        assertThat(failure).isInstanceOf(InvalidOfferingException.class);
+        assertThat(failure.getCause()).isInstanceOf(IOException.class).hasMessage("connection refused");
+    }
+
+    void answerStringRequest(int code, String body) {
+        doAnswer(invocation -> {
+            invocation.<Callback> getArgument(1).onResponse(null, response(code, body));
+            return null;
+        }).when(marketplaceClientMock).request(anyString(), any(Callback.class));
+    }
+
+    static Response response(int code, String body) {
+        return new Response.Builder().request(new Request.Builder().url("http://localhost/graphql").build())
+                .protocol(Protocol.HTTP_1_1).code(code).message("status " + code)
+                .body(ResponseBody.create(MediaType.parse("application/json"), body)).build();
+    }
+
+    static Throwable failureOf(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("Future has not failed");
+        return null;
+    }
+
+}
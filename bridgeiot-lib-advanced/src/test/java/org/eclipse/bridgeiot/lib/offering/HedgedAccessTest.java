@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.handlers.AccessResponseFailureHandler;
+import org.eclipse.bridgeiot.lib.handlers.AccessResponseSuccessHandler;
+import org.eclipse.bridgeiot.lib.misc.HttpClient;
+import org.eclipse.bridgeiot.lib.model.Activation;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
+import org.eclipse.bridgeiot.lib.model.EndPoint;
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
+import org.junit.Test;
+
+public class HedgedAccessTest {
+
+    @Test
+    public void hedgesAfterDelayAndCancelsLoser() throws Exception {
+        // Arrange
+        Call slowCall = mock(Call.class);
+        Offering slow = offering("Slow");
+        doAnswer(invocation -> slowCall).when(slow).enqueueAccess(anyString(), any(), any(), any());
+        Call fastCall = mock(Call.class);
+        Offering fast = offering("Fast");
+        AccessResponse response = new AccessResponse("[ \"fast\" ]", null);
+        AtomicLong hedgedAt = new AtomicLong();
+        doAnswer(invocation -> {
+            hedgedAt.set(System.currentTimeMillis());
+            invocation.<AccessResponseSuccessHandler>getArgument(2).processResponseOnSuccess(fast, response);
+            return fastCall;
+        }).when(fast).enqueueAccess(anyString(), any(), any(), any());
+        HedgedAccess accessUnderTest = HedgedAccess.create(Arrays.asList(slow, fast)).withDefaultDelay(200);
+
+        // Act
+        long start = System.currentTimeMillis();
+        CompletableFuture<AccessResponse> result = accessUnderTest.accessOneTime(AccessParameters.create());
+        AccessResponse winner = result.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(winner).isSameAs(response);
+        assertThat(hedgedAt.get() - start).isGreaterThanOrEqualTo(200);
+        verify(slowCall, timeout(1000)).cancel();
+    }
+
+    @Test
+    public void doesNotHedgeWhenBestCandidateRespondsInTime() throws Exception {
+        // Arrange
+        Offering best = offering("Best");
+        AccessResponse response = new AccessResponse("[ \"best\" ]", null);
+        doAnswer(invocation -> {
+            invocation.<AccessResponseSuccessHandler>getArgument(2).processResponseOnSuccess(best, response);
+            return mock(Call.class);
+        }).when(best).enqueueAccess(anyString(), any(), any(), any());
+        Offering next = offering("Next");
+        HedgedAccess accessUnderTest = HedgedAccess.create(Arrays.asList(best, next)).withDefaultDelay(50);
+
+        // Act
+        AccessResponse winner = accessUnderTest.accessOneTime(AccessParameters.create()).get(5, TimeUnit.SECONDS);
+        Thread.sleep(150);
+
+        // Assert
+        assertThat(winner).isSameAs(response);
+        verify(next, never()).enqueueAccess(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void failsWhenAllCandidatesFail() throws Exception {
+        // Arrange
+        Offering first = failingOffering("First");
+        Offering second = failingOffering("Second");
+        HedgedAccess accessUnderTest = HedgedAccess.create(Arrays.asList(first, second)).withDefaultDelay(10000);
+
+        // Act
+        CompletableFuture<AccessResponse> result = accessUnderTest.accessOneTime(AccessParameters.create());
+
+        // Assert
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Hedged access did not fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(BridgeIoTException.class)
+                    .hasMessage("Hedged access failed on all candidates");
+        }
+        verify(second).enqueueAccess(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void cancelledHedgedAccessIsTakenOverByCoalescedAccess() throws Exception {
+        // Arrange HttpClient keeping the calls pending until cancelled
+        HttpClient httpClientMock = mock(HttpClient.class);
+        List<Callback> callbacks = new ArrayList<>();
+        List<Map<String, String>> headers = new ArrayList<>();
+        Call slowCall = mock(Call.class);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CountDownLatch resent = new CountDownLatch(1);
+        when(slowCall.isCanceled()).thenAnswer(invocation -> cancelled.get());
+        doAnswer(invocation -> {
+            cancelled.set(true);
+            callbacks.get(0).onFailure(slowCall, new IOException("Canceled"));
+            return null;
+        }).when(slowCall).cancel();
+        doAnswer(invocation -> {
+            headers.add(invocation.getArgument(1));
+            callbacks.add(invocation.getArgument(2));
+            if (callbacks.size() == 1) {
+                return slowCall;
+            }
+            resent.countDown();
+            return mock(Call.class);
+        }).when(httpClientMock).get(anyString(), any(), any(Callback.class));
+        // Arrange slow offering with request coalescing and fast offering
+        OfferingCoreByLib slowCore = new OfferingCoreByLib(offeringDescription("Slow"), "token", httpClientMock);
+        slowCore.withRequestCoalescing(true);
+        Offering slow = offering("Slow");
+        doAnswer(invocation -> slowCore.enqueueAccess(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2), invocation.getArgument(3))).when(slow).enqueueAccess(anyString(), any(),
+                        any(), any());
+        Offering fast = offering("Fast");
+        AccessResponse response = new AccessResponse("[ \"fast\" ]", null);
+        doAnswer(invocation -> {
+            invocation.<AccessResponseSuccessHandler>getArgument(2).processResponseOnSuccess(fast, response);
+            return mock(Call.class);
+        }).when(fast).enqueueAccess(anyString(), any(), any(), any());
+        AccessResponseSuccessHandler joinerSuccess = mock(AccessResponseSuccessHandler.class);
+        AccessResponseFailureHandler joinerFailure = mock(AccessResponseFailureHandler.class);
+        HedgedAccess accessUnderTest = HedgedAccess.create(Arrays.asList(slow, fast)).withDefaultDelay(100);
+
+        // Act
+        CompletableFuture<AccessResponse> result = accessUnderTest.accessOneTime(AccessParameters.create());
+        slowCore.accessOneTimeWithSessionId("joiner", AccessParameters.create(), joinerSuccess, joinerFailure);
+        AccessResponse winner = result.get(5, TimeUnit.SECONDS);
+        assertThat(resent.await(5, TimeUnit.SECONDS)).isTrue();
+        callbacks.get(1).onResponse(null, okResponse("[ \"slow\" ]"));
+
+        // Assert
+        assertThat(winner).isSameAs(response);
+        assertThat(callbacks).hasSize(2);
+        assertThat(headers.get(1)).containsEntry("AccessSessionId", "joiner");
+        assertThat(slowCore.getCoalescedAccessCount()).isEqualTo(1);
+        verify(joinerSuccess).processResponseOnSuccess(any(), any());
+        verify(joinerFailure, never()).processResponseOnFailure(any(), any());
+    }
+
+    private static SubscribableOfferingDescriptionCore offeringDescription(String id) {
+        SubscribableOfferingDescriptionCore offeringDescription = SubscribableOfferingDescriptionCore
+                .create(mock(IConsumer.class));
+        offeringDescription.setId(id);
+        offeringDescription.setAccessInterfaceType(AccessInterfaceType.BRIDGEIOT_LIB);
+        offeringDescription.setEndpoints(Arrays.asList(
+                new EndPoint(EndpointType.HTTP_GET, AccessInterfaceType.BRIDGEIOT_LIB, "http://localhost:1/" + id)));
+        offeringDescription.setActivation(new Activation(true, 0L));
+        return offeringDescription;
+    }
+
+    private static Response okResponse(String body) {
+        return new Response.Builder().request(new Request.Builder().url("http://localhost:1/Slow").build())
+                .protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                .body(ResponseBody.create(MediaType.parse("application/json"), body)).build();
+    }
+
+    private static Offering offering(String id) {
+        SubscribableOfferingDescription offeringDescriptionMock = mock(SubscribableOfferingDescription.class);
+        when(offeringDescriptionMock.getId()).thenReturn(id);
+        Offering offeringMock = mock(Offering.class);
+        when(offeringMock.getOfferingDescription()).thenReturn(offeringDescriptionMock);
+        return offeringMock;
+    }
+
+    private static Offering failingOffering(String id) throws Exception {
+        Offering offeringMock = offering(id);
+        doAnswer(invocation -> {
+            invocation.<AccessResponseFailureHandler>getArgument(3).processResponseOnFailure(offeringMock,
+                    new AccessResponse("{ \"error\": \"Access request failed\" }", null));
+            return mock(Call.class);
+        }).when(offeringMock).enqueueAccess(anyString(), any(), any(), any());
+        return offeringMock;
+    }
+
+}
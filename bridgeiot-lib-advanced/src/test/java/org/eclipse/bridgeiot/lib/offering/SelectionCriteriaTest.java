@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
+import org.eclipse.bridgeiot.lib.model.EndPoint;
+import org.eclipse.bridgeiot.lib.model.Price;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SelectionCriteriaTest {
+
+    AccessStatistics accessStatistics;
+    IConsumer consumerMock;
+
+    @Before
+    public void setUp() {
+        accessStatistics = AccessStatistics.create();
+        consumerMock = mock(IConsumer.class);
+        when(consumerMock.getAccessStatistics()).thenReturn(accessStatistics);
+    }
+
+    @Test
+    public void fastestKeepsLowestLatencyAndOfferingsWithoutSamples() {
+        // Arrange
+        SubscribableOfferingDescription slow = offering("http://slow.org", null);
+        SubscribableOfferingDescription fast = offering("http://fast.org", null);
+        SubscribableOfferingDescription unmeasured = offering("http://unmeasured.org", null);
+        SubscribableOfferingDescription failing = offering("http://failing.org", null);
+        record("http://slow.org", 100, true);
+        record("http://fast.org", 20, true);
+        record("http://fast.org", 40, true);
+        record("http://failing.org", 10, false);
+
+        // Act
+        List<SubscribableOfferingDescription> selected = new SelectionCriteria.Fastest()
+                .filter(Arrays.asList(slow, fast, unmeasured, failing));
+
+        // Assert
+        assertThat(selected).containsExactly(fast, unmeasured);
+    }
+
+    @Test
+    public void fastestKeepsTies() {
+        // Arrange
+        SubscribableOfferingDescription first = offering("http://first.org", null);
+        SubscribableOfferingDescription second = offering("http://second.org", null);
+        SubscribableOfferingDescription slow = offering("http://slow.org", null);
+        record("http://first.org", 30, true);
+        record("http://second.org", 30, true);
+        record("http://slow.org", 90, true);
+
+        // Act
+        List<SubscribableOfferingDescription> selected = new SelectionCriteria.Fastest()
+                .filter(Arrays.asList(first, second, slow));
+
+        // Assert
+        assertThat(selected).containsExactly(first, second);
+    }
+
+    @Test
+    public void fastestPrefersUnmeasuredOverFailingOfferings() {
+        // Arrange
+        SubscribableOfferingDescription failing = offering("http://failing.org", null);
+        SubscribableOfferingDescription unmeasured = offering("http://unmeasured.org", null);
+        record("http://failing.org", 10, false);
+        accessStatistics.recordTransfer("http://unmeasured.org", 10, 10);
+
+        // Act
+        List<SubscribableOfferingDescription> selected = new SelectionCriteria.Fastest()
+                .filter(Arrays.asList(failing, unmeasured));
+
+        // Assert
+        assertThat(accessStatistics.get("http://failing.org").getMeanLatency()).isEqualTo(-1);
+        assertThat(accessStatistics.get("http://unmeasured.org").getMeanLatency()).isEqualTo(-1);
+        assertThat(selected).containsExactly(unmeasured);
+    }
+
+    @Test
+    public void fastestKeepsFailingOfferingsIfNoneElse() {
+        // Arrange
+        SubscribableOfferingDescription failing = offering("http://failing.org", null);
+        SubscribableOfferingDescription alsoFailing = offering("http://also-failing.org", null);
+        record("http://failing.org", 10, false);
+        record("http://also-failing.org", 10, false);
+
+        // Act
+        List<SubscribableOfferingDescription> selected = new SelectionCriteria.Fastest()
+                .filter(Arrays.asList(failing, alsoFailing));
+
+        // Assert
+        assertThat(selected).containsExactly(failing, alsoFailing);
+    }
+
+    @Test
+    public void mostReliableKeepsLowestErrorRateAndOfferingsWithoutSamples() {
+        // Arrange
+        SubscribableOfferingDescription flaky = offering("http://flaky.org", null);
+        SubscribableOfferingDescription reliable = offering("http://reliable.org", null);
+        SubscribableOfferingDescription alsoReliable = offering("http://also-reliable.org", null);
+        SubscribableOfferingDescription unmeasured = offering("http://unmeasured.org", null);
+        record("http://flaky.org", 10, true);
+        record("http://flaky.org", 10, false);
+        record("http://reliable.org", 500, true);
+        record("http://also-reliable.org", 5, true);
+        accessStatistics.recordTransfer("http://unmeasured.org", 10, 10);
+
+        // Act
+        List<SubscribableOfferingDescription> selected = new SelectionCriteria.MostReliable()
+                .filter(Arrays.asList(flaky, reliable, alsoReliable, unmeasured));
+
+        // Assert
+        assertThat(selected).containsExactly(reliable, alsoReliable, unmeasured);
+    }
+
+    @Test
+    public void weightedSelectsLowestScore() {
+        // Arrange
+        SubscribableOfferingDescription cheapAndSlow = offering("http://cheap.org", new Price(0.001, "EUR"));
+        SubscribableOfferingDescription expensiveAndFast = offering("http://expensive.org", new Price(0.01, "EUR"));
+        record("http://cheap.org", 200, true);
+        record("http://expensive.org", 20, true);
+        List<SubscribableOfferingDescription> offerings = Arrays.asList(cheapAndSlow, expensiveAndFast);
+
+        // Act
+        List<SubscribableOfferingDescription> latencyFirst = new SelectionCriteria.Weighted(2, 0, 1)
+                .filter(offerings);
+        List<SubscribableOfferingDescription> priceFirst = new SelectionCriteria.Weighted(1, 0, 2).filter(offerings);
+
+        // Assert
+        assertThat(latencyFirst).containsExactly(expensiveAndFast);
+        assertThat(priceFirst).containsExactly(cheapAndSlow);
+    }
+
+    @Test
+    public void weightedScoresOfferingsWithoutSamplesNeutral() {
+        // Arrange
+        SubscribableOfferingDescription fast = offering("http://fast.org", null);
+        SubscribableOfferingDescription slow = offering("http://slow.org", null);
+        SubscribableOfferingDescription unmeasured = offering("http://unmeasured.org", null);
+        record("http://fast.org", 10, true);
+        record("http://slow.org", 110, true);
+
+        // Act
+        List<SubscribableOfferingDescription> bestKnown = new SelectionCriteria.Weighted(1, 1, 1)
+                .filter(Arrays.asList(slow, unmeasured, fast));
+        List<SubscribableOfferingDescription> withoutFast = new SelectionCriteria.Weighted(1, 1, 1)
+                .filter(Arrays.asList(slow, unmeasured));
+
+        // Assert
+        assertThat(bestKnown).containsExactly(fast);
+        assertThat(withoutFast).containsExactly(slow);
+    }
+
+    @Test
+    public void weightedKeepsTies() {
+        // Arrange
+        SubscribableOfferingDescription first = offering("http://first.org", new Price(0.01, "EUR"));
+        SubscribableOfferingDescription second = offering("http://second.org", new Price(0.01, "EUR"));
+        record("http://first.org", 50, true);
+        record("http://second.org", 50, true);
+
+        // Act
+        List<SubscribableOfferingDescription> selected = new SelectionCriteria.Weighted(1, 1, 1)
+                .filter(Arrays.asList(first, second));
+
+        // Assert
+        assertThat(selected).containsExactly(first, second);
+    }
+
+    private SubscribableOfferingDescription offering(String uri, Price price) {
+        SubscribableOfferingDescription offeringDescriptionMock = mock(SubscribableOfferingDescription.class);
+        when(offeringDescriptionMock.getConsumer()).thenReturn(consumerMock);
+        when(offeringDescriptionMock.getEndpoints()).thenReturn(
+                Arrays.asList(new EndPoint(EndpointType.HTTP_GET, AccessInterfaceType.BRIDGEIOT_LIB, uri)));
+        when(offeringDescriptionMock.getPrice()).thenReturn(price);
+        return offeringDescriptionMock;
+    }
+
+    private void record(String uri, long latencyMillis, boolean success) {
+        accessStatistics.record(uri, latencyMillis, success);
+    }
+
+}
@@ -28,6 +28,7 @@ import okhttp3.Response;
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.misc.Constants;
 import org.eclipse.bridgeiot.lib.misc.GraphQLQueries;
+import org.eclipse.bridgeiot.lib.misc.GraphQLRequest;
 import org.eclipse.bridgeiot.lib.misc.Helper;
 import org.eclipse.bridgeiot.lib.misc.HttpClient;
 import org.eclipse.bridgeiot.lib.misc.LogFile;
@@ -226,13 +227,13 @@ public abstract class BridgeIotAPI {
             return;
         }
 
-        String accountingString = GraphQLQueries.getAccountingReportString(accountingReportList);
-        logger.info("Accounting Report: {}", accountingString);
+        GraphQLRequest accountingRequest = GraphQLQueries.getAccountingReportRequest(accountingReportList);
+        logger.debug("Accounting Report: {}", accountingRequest);
 
         // Send Accounting Report to Marketplace
         try {
 
-            Response response = marketplaceClient.request(accountingString);
+            Response response = marketplaceClient.request(accountingRequest);
 
             if (!response.isSuccessful()) {
                 throw new BridgeIoTException("Activation request to eXchange was not successful!");
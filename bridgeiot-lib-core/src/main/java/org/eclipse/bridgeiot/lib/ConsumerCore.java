@@ -15,6 +15,7 @@
  */
 package org.eclipse.bridgeiot.lib;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
@@ -23,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -43,22 +45,32 @@ import org.eclipse.bridgeiot.lib.exceptions.NotRegisteredException;
 import org.eclipse.bridgeiot.lib.handlers.DiscoverFailureException;
 import org.eclipse.bridgeiot.lib.handlers.DiscoverResponseErrorHandler;
 import org.eclipse.bridgeiot.lib.handlers.DiscoverResponseHandler;
+import org.eclipse.bridgeiot.lib.handlers.FeedNotificationFailureHandler;
+import org.eclipse.bridgeiot.lib.handlers.FeedNotificationSuccessHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
 import org.eclipse.bridgeiot.lib.misc.GraphQLQueries;
 import org.eclipse.bridgeiot.lib.misc.Helper;
+import org.eclipse.bridgeiot.lib.offering.BulkSubscriptionResult;
 import org.eclipse.bridgeiot.lib.offering.OfferingCore;
 import org.eclipse.bridgeiot.lib.offering.OfferingCoreByLib;
 import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.SubscribableOfferingDescriptionCore;
+import org.eclipse.bridgeiot.lib.offering.SubscriptionRenewalManager;
+import org.eclipse.bridgeiot.lib.offering.SubscriptionSnapshot;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
+import org.eclipse.bridgeiot.lib.offering.internal.OfferingDescriptionCache;
 import org.eclipse.bridgeiot.lib.offering.parameters.Parameter;
 import org.eclipse.bridgeiot.lib.query.IOfferingQuery;
+import org.eclipse.bridgeiot.lib.query.OfferingCatalog;
 import org.eclipse.bridgeiot.lib.query.OfferingQueryChain;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Enables basic lifecycle operations on offerings for consumer. Consumer foresees discovery operations for offering
@@ -81,8 +93,21 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
     // Scheduled execture for continous discovery
     private Map<String, ScheduledExecutorService> discoveryExecutorMap;
     private Map<String, IOfferingQuery> offeringQueryMap;
+    private Map<String, String> offeringQueryFingerprintMap = new ConcurrentHashMap<>();
     protected Map<String, OfferingCore> subscribedOfferingMap;
 
+    // Local catalog of all discovered offering descriptions
+    protected OfferingCatalog<SubscribableOfferingDescriptionCore> offeringCatalog = OfferingCatalog.create();
+
+    // Latency and error rate statistics of all accessed offering endpoints
+    protected AccessStatistics accessStatistics = AccessStatistics.create();
+
+    // Persistent cache of offering descriptions (null if offering descriptions are always fetched)
+    protected OfferingDescriptionCache offeringDescriptionCache = null;
+
+    // Batched renewal of offering subscriptions (null if subscriptions are renewed individually)
+    protected SubscriptionRenewalManager subscriptionRenewalManager = SubscriptionRenewalManager.create(this);
+
     protected static final int DEFAULT_DISCOVER_INTERVAL = 600; // in seconds (= 10 mins)
     protected static final int MIN_DISCOVER_INTERVAL = 5; // in seconds
 
@@ -315,9 +340,35 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
         }
 
         initializeSubscribableOfferingDescription(offeringDescriptions, queryId);
+        if (queryId != null) {
+            offeringCatalog.replaceQueryResult(queryId, offeringDescriptions);
+        } else {
+            offeringCatalog.addAll(offeringDescriptions);
+        }
         return offeringDescriptions;
     }
 
+    /**
+     * Evaluates an offering query on the offering descriptions discovered so far. The call is blocking, but does not
+     * contact the marketplace.
+     *
+     * @param offeringQuery
+     *            Offering query used for the local discovery
+     * @return List of previously discovered Offering Descriptions matching Offering Query
+     */
+    public List<SubscribableOfferingDescriptionCore> discoverLocal(OfferingQueryChain offeringQuery) {
+        return offeringCatalog.query(offeringQuery);
+    }
+
+    /**
+     * Returns the local catalog of all discovered offering descriptions
+     *
+     * @return
+     */
+    public OfferingCatalog<SubscribableOfferingDescriptionCore> getOfferingCatalog() {
+        return offeringCatalog;
+    }
+
     protected String discoverCall(IOfferingQuery offeringQuery)
             throws IOException, NotRegisteredException, FailedDiscoveryException {
 
@@ -326,52 +377,126 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
         }
 
         String responseString = "";
-        String queryId = offeringQuery.getId();
 
         // check if offering query has already been created
-        if ((queryId != null) && offeringQueryMap.containsKey(queryId)
-                && offeringQueryMap.get(queryId).sameQuery(offeringQuery)) {
+        if (isCreatedQuery(offeringQuery)) {
 
-            responseString = discoverByIdCall(queryId);
+            responseString = discoverByIdCall(offeringQuery.getId());
 
         } else {
 
-            // if offering query is new or has been updated
-            String offeringQueryString = offeringQuery.toOfferingQueryString(clientId);
+            // if offering query is new or has been updated, the query is created and the matching offerings are
+            // selected in a single request
+            final String fingerprint = offeringQuery.getFingerprint();
+            String offeringQueryString = offeringQuery.toDiscoveryQueryString(clientId);
             logger.info("New Discovery Query: {}", offeringQueryString);
 
             try {
                 Response response = marketplaceClient.request(offeringQueryString);
+                responseString = processDiscoverResponse(offeringQuery, fingerprint, response);
+            } catch (IOException e) {
+                logger.error("Discover Request to eXchange failed: {}", e.getMessage());
+                throw new FailedDiscoveryException(e);
+            }
 
-                String firstResponseString = response.body().string();
-                if (!response.isSuccessful()) {
-                    logger.error("Discover Request to eXchange was not successful: {}", firstResponseString);
-                    throw new FailedDiscoveryException();
-                }
+        }
 
-                response.close();
+        return responseString;
 
-                JsonNode rootNode = mapper.reader().readTree(firstResponseString);
-                String rootName = rootNode.fieldNames().next();
-                JsonNode queryResult = rootNode.get(rootName).get("addOfferingQuery");
-                String newQueryId = queryResult.get("id").asText();
+    }
 
-                offeringQuery.setId(newQueryId);
+    /**
+     * Processes the response of a discovery request creating a new offering query (see
+     * {@link IOfferingQuery#toDiscoveryQueryString(BridgeIotClientId)}). The created query is stored and the matching
+     * offerings are returned as discover response.
+     *
+     * @param offeringQuery
+     * @param fingerprint
+     *            fingerprint of the offering query at the time the request was created
+     * @param response
+     * @return discover response
+     * @throws IOException
+     * @throws FailedDiscoveryException
+     */
+    protected String processDiscoverResponse(IOfferingQuery offeringQuery, String fingerprint, Response response)
+            throws IOException, FailedDiscoveryException {
 
-                // Store created Offering Query in hash map
-                offeringQueryMap.put(newQueryId, offeringQuery);
+        String firstResponseString = response.body().string();
+        if (!response.isSuccessful()) {
+            logger.error("Discover Request to eXchange was not successful: {}", firstResponseString);
+            throw new FailedDiscoveryException();
+        }
 
-                responseString = discoverByIdCall(newQueryId);
+        response.close();
 
-            } catch (IOException e) {
-                logger.error("Discover Request to eXchange failed: {}", e.getMessage());
-                throw new FailedDiscoveryException(e);
-            }
+        JsonNode rootNode = mapper.reader().readTree(firstResponseString);
+        String rootName = rootNode.fieldNames().next();
+        JsonNode queryResult = rootNode.get(rootName).get("addOfferingQuery");
+        if ((queryResult == null) || (queryResult.get("id") == null)) {
+            logger.error("Discover Request to eXchange was not successful: {}", firstResponseString);
+            throw new FailedDiscoveryException();
+        }
+        String newQueryId = queryResult.get("id").asText();
+
+        // A modified query replaces the query created before
+        String previousQueryId = offeringQuery.getId();
+        if ((previousQueryId != null) && !previousQueryId.equals(newQueryId)
+                && (offeringQueryMap.get(previousQueryId) == offeringQuery)) {
+            offeringQueryMap.remove(previousQueryId);
+            offeringQueryFingerprintMap.remove(previousQueryId);
+        }
+
+        offeringQuery.setId(newQueryId);
 
+        // Store created Offering Query in hash map
+        offeringQueryMap.put(newQueryId, offeringQuery);
+        if (fingerprint != null) {
+            offeringQueryFingerprintMap.put(newQueryId, fingerprint);
         }
 
-        return responseString;
+        JsonNode matchingOfferings = queryResult.get("matchingOfferings");
+        if ((matchingOfferings != null) && matchingOfferings.isArray()) {
+            return toDiscoverResponse(rootName, matchingOfferings);
+        }
+        // Marketplace did not resolve the matching offerings together with the new query
+        return discoverByIdCall(newQueryId);
+    }
 
+    /**
+     * Checks if the offering query has already been created at the marketplace and has not been modified since
+     */
+    protected boolean isCreatedQuery(IOfferingQuery offeringQuery) {
+        String queryId = offeringQuery.getId();
+        if (queryId == null) {
+            return false;
+        }
+        if (!offeringQueryMap.containsKey(queryId)) {
+            // query has been deleted
+            offeringQueryFingerprintMap.remove(queryId);
+            return false;
+        }
+        return isCreatedQuery(queryId, offeringQuery);
+    }
+
+    /**
+     * Checks if the offering query has been created at the marketplace with the same content. The fingerprint of the
+     * query at creation time is compared, so that also modifications of the same query instance are detected.
+     */
+    private boolean isCreatedQuery(String queryId, IOfferingQuery offeringQuery) {
+        String createdFingerprint = offeringQueryFingerprintMap.get(queryId);
+        if (createdFingerprint != null) {
+            return createdFingerprint.equals(offeringQuery.getFingerprint());
+        }
+        return offeringQueryMap.get(queryId).sameQuery(offeringQuery);
+    }
+
+    private String toDiscoverResponse(String rootName, JsonNode matchingOfferings)
+            throws JsonProcessingException {
+        ObjectNode data = mapper.createObjectNode();
+        data.set("matchingOfferings", matchingOfferings);
+        ObjectNode root = mapper.createObjectNode();
+        root.set(rootName, data);
+        return mapper.writeValueAsString(root);
     }
 
     protected String discoverByIdCall(String queryId) throws IOException, FailedDiscoveryException {
@@ -409,6 +534,37 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
         discover(offeringQuery, onSuccessDiscover, null);
     }
 
+    /**
+     * Subscribes to a set of offerings with a single batched request to the marketplace. The call is non-blocking and
+     * returns a future on the subscribed offerings and the failures per offering.
+     *
+     * @param offeringDescriptions
+     * @return
+     */
+    public Future<BulkSubscriptionResult<OfferingCore>> subscribeAll(
+            final List<? extends SubscribableOfferingDescriptionCore> offeringDescriptions) {
+        return executorPool.submit(new Callable<BulkSubscriptionResult<OfferingCore>>() {
+            @Override
+            public BulkSubscriptionResult<OfferingCore> call() {
+                return subscribeAllBlocking(offeringDescriptions);
+            }
+        });
+    }
+
+    /**
+     * Subscribes to a set of offerings with a single batched request to the marketplace. The call is blocking.
+     *
+     * @param offeringDescriptions
+     * @return subscribed offerings and failures per offering
+     */
+    public BulkSubscriptionResult<OfferingCore> subscribeAllBlocking(
+            List<? extends SubscribableOfferingDescriptionCore> offeringDescriptions) {
+        for (SubscribableOfferingDescriptionCore offeringDescription : offeringDescriptions) {
+            offeringDescription.setConsumer(this);
+        }
+        return SubscribableOfferingDescriptionCore.subscribeAllBlocking(offeringDescriptions);
+    }
+
     /**
      * Subscribes to an offering. The call is non-blocking and returns a future on an OfferingCore.
      *
@@ -441,7 +597,7 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
     public OfferingCore subscribeByOfferingIdBlocking(String offeringId) throws InvalidOfferingException, IOException,
             IllegalEndpointException, IncompleteOfferingDescriptionException {
 
-        OfferingDescription fetchedOfferingDescription = marketplaceClient.getOfferingDescription(offeringId);
+        OfferingDescription fetchedOfferingDescription = getOfferingDescription(offeringId);
 
         if ((fetchedOfferingDescription != null) && (fetchedOfferingDescription.getActivation() != null)
                 && fetchedOfferingDescription.getActivation().getStatus()) {
@@ -453,6 +609,59 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
         return null;
     }
 
+    /**
+     * Returns an offering description. If an offering description cache is set, a cached description is returned
+     * immediately and revalidated against the marketplace in the background.
+     *
+     * @param offeringId
+     * @return
+     * @throws InvalidOfferingException
+     * @throws IOException
+     */
+    protected OfferingDescription getOfferingDescription(String offeringId)
+            throws InvalidOfferingException, IOException {
+
+        if (offeringDescriptionCache == null) {
+            return marketplaceClient.getOfferingDescription(offeringId);
+        }
+
+        OfferingDescription cachedOfferingDescription = offeringDescriptionCache.get(offeringId);
+        if (cachedOfferingDescription == null) {
+            OfferingDescription fetchedOfferingDescription = marketplaceClient.getOfferingDescription(offeringId);
+            offeringDescriptionCache.put(fetchedOfferingDescription);
+            return fetchedOfferingDescription;
+        }
+
+        logger.debug("Offering description {} served from cache", offeringId);
+        if (offeringDescriptionCache.needsRevalidation(offeringId)) {
+            revalidateOfferingDescription(offeringId);
+        }
+        return cachedOfferingDescription;
+    }
+
+    private void revalidateOfferingDescription(final String offeringId) {
+        executorPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OfferingDescription fetchedOfferingDescription = marketplaceClient
+                            .getOfferingDescription(offeringId);
+                    if (!offeringDescriptionCache.put(fetchedOfferingDescription)) {
+                        return;
+                    }
+                    logger.info("Cached offering description {} has changed", offeringId);
+                    OfferingCore offering = subscribedOfferingMap.get(offeringId);
+                    if (offering != null) {
+                        offering.getOfferingDescription().updateOfferingDescription(fetchedOfferingDescription);
+                    }
+                } catch (InvalidOfferingException | IOException e) {
+                    logger.warn("Revalidation of cached offering description {} failed: {}", offeringId,
+                            e.getMessage());
+                }
+            }
+        });
+    }
+
     /**
      * Subscribes to an offering. The call is blocking and returns an OfferingCore.
      * 
@@ -469,6 +678,43 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
         return subscribableOffering.subscribeBlocking();
     }
 
+    /**
+     * Writes a snapshot of all subscribed offerings (incl. offering access tokens, feeds and accounting state) to a
+     * file, so that a restarted consumer can restore its subscriptions without the marketplace
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void saveSnapshot(File file) throws IOException {
+        SubscriptionSnapshot.create(subscribedOfferingMap.values()).write(file);
+    }
+
+    /**
+     * Restores the subscriptions of a snapshot without resuming their feeds
+     *
+     * @param file
+     * @return restored offerings
+     * @throws IOException
+     */
+    public List<OfferingCore> restoreSnapshot(File file) throws IOException {
+        return restoreSnapshot(file, null, null);
+    }
+
+    /**
+     * Restores the subscriptions of a snapshot. Valid offering access tokens are reused and feeds are resumed with the
+     * given handlers at once; expired tokens are renewed in the background.
+     *
+     * @param file
+     * @param onSuccess
+     * @param onFailure
+     * @return restored offerings
+     * @throws IOException
+     */
+    public List<OfferingCore> restoreSnapshot(File file, FeedNotificationSuccessHandler onSuccess,
+            FeedNotificationFailureHandler onFailure) throws IOException {
+        return SubscriptionSnapshot.read(file).restore(this, onSuccess, onFailure);
+    }
+
     /**
      * @param offeringDescriptions
      * @param queryId
@@ -506,6 +752,14 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
             s.shutdownNow();
         }
 
+        if (subscriptionRenewalManager != null) {
+            subscriptionRenewalManager.terminate();
+        }
+
+        if (offeringDescriptionCache != null) {
+            offeringDescriptionCache.close();
+        }
+
         marketplaceClient.close();
     }
 
@@ -585,6 +839,51 @@ public class ConsumerCore extends BridgeIotAPI implements IConsumer {
         }
     }
 
+    /**
+     * Returns the latency and error rate statistics of all offering endpoints accessed by this consumer
+     *
+     * @return
+     */
+    @Override
+    public AccessStatistics getAccessStatistics() {
+        return accessStatistics;
+    }
+
+    /**
+     * Returns the manager for batched renewal of subscriptions or null if subscriptions are renewed individually
+     */
+    @Override
+    public SubscriptionRenewalManager getSubscriptionRenewalManager() {
+        return subscriptionRenewalManager;
+    }
+
+    /**
+     * Sets a persistent cache of offering descriptions, so that subscriptions by offering ID do not need to wait for
+     * the marketplace after a restart
+     *
+     * @param offeringDescriptionCache
+     * @return
+     */
+    public ConsumerCore withOfferingDescriptionCache(OfferingDescriptionCache offeringDescriptionCache) {
+        this.offeringDescriptionCache = offeringDescriptionCache;
+        return this;
+    }
+
+    public OfferingDescriptionCache getOfferingDescriptionCache() {
+        return offeringDescriptionCache;
+    }
+
+    /**
+     * Sets the manager for batched renewal of subscriptions. If set to null, each offering renews its subscription
+     * individually. Applies to subsequently subscribed offerings.
+     *
+     * @param subscriptionRenewalManager
+     */
+    public ConsumerCore withSubscriptionRenewalManager(SubscriptionRenewalManager subscriptionRenewalManager) {
+        this.subscriptionRenewalManager = subscriptionRenewalManager;
+        return this;
+    }
+
     @Override
     public ConsumerCore withAutoProxy(String proxyHost, int proxyPort) {
         return (ConsumerCore) super.withAutoProxy(proxyHost, proxyPort);
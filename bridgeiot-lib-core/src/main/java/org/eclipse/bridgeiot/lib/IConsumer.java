@@ -26,6 +26,8 @@ import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
 import org.eclipse.bridgeiot.lib.offering.OfferingCore;
 import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.SubscribableOfferingDescriptionCore;
+import org.eclipse.bridgeiot.lib.offering.SubscriptionRenewalManager;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
 import org.eclipse.bridgeiot.lib.query.IOfferingQuery;
 
 /**
@@ -163,4 +165,11 @@ public interface IConsumer {
 
     MarketplaceClient getMarketplaceClient();
 
+    AccessStatistics getAccessStatistics();
+
+    /**
+     * Returns the manager for batched renewal of subscriptions or null if subscriptions are renewed individually
+     */
+    SubscriptionRenewalManager getSubscriptionRenewalManager();
+
 }
\ No newline at end of file
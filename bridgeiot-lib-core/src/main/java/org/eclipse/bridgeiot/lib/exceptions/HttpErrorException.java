@@ -54,4 +54,12 @@ public class HttpErrorException extends BridgeIoTCheckedException {
         this.status = status;
     }
 
+    public int getStatus() {
+        return status;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
 }
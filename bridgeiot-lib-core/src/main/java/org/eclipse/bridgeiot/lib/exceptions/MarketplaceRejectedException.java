@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Request to the marketplace was rejected locally by the admission control of the marketplace client, i.e. it was not
+ * sent at all. As the rejection is transient, it is signaled as {@link IOException} like any other failed marketplace
+ * interaction.
+ */
+public class MarketplaceRejectedException extends IOException {
+
+    /**
+     * serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        RATE_LIMIT, CONCURRENCY_LIMIT, CIRCUIT_OPEN
+    }
+
+    private static final String ERROR_MSG = "Marketplace request rejected: %s";
+
+    private final Reason reason;
+
+    /**
+     * Constructor with rejection reason
+     * 
+     * @param reason
+     */
+    public MarketplaceRejectedException(Reason reason) {
+        super(String.format(ERROR_MSG, reason));
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+}
@@ -85,6 +85,10 @@ public class AccessFeedSync extends AccessFeed {
                 this.interval);
     }
 
+    public AccessParameters getAccessParameters() {
+        return accessParameters;
+    }
+
     /**
      * Set lifetime of feed with duration. After that the feed is automatically terminated.
      * 
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.handlers;
+
+import java.util.Map;
+
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+
+/**
+ * Handles incoming Offering requests asynchronously. In contrast to the {@link AccessRequestHandler}, the handler
+ * returns immediately and hands over the response to the callback as soon as it is available, e.g. when the reply of
+ * a remote backend arrives. Server wrappers with asynchronous request processing (EmbeddedNio) do not hold a thread
+ * while the response is pending; the others wait on the request thread (see
+ * {@link org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer#addRoute(String, AsyncAccessRequestHandler,
+ * org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription, boolean)}).
+ */
+@FunctionalInterface
+public interface AsyncAccessRequestHandler {
+
+    /**
+     * Receives the result of an asynchronously processed Offering request. Exactly one of the methods has to be
+     * called once.
+     */
+    public interface ResponseCallback {
+
+        void onResponse(BridgeIotHttpResponse response);
+
+        void onFailure(Throwable failure);
+
+    }
+
+    /**
+     * Process incoming Offering requests
+     * 
+     * @param offeringDescription
+     *            Reference to OfferingDescription
+     * @param inputData
+     *            Input parameter list
+     * @param callback
+     *            Callback receiving the response
+     */
+    public void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+            String subscriptionId, String sessionId, ResponseCallback callback);
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker isolating the marketplace client from an unavailable marketplace. After a number of consecutive
+ * failures the breaker opens and requests fail fast. When the open period has elapsed, the breaker turns half-open
+ * and lets a single probe request pass. A successful probe closes the breaker again, a failed probe re-opens it.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 30000L;
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean probeInFlight = false;
+    private long openCount = 0;
+    private long rejectionCount = 0;
+
+    private CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public static CircuitBreaker create() {
+        return new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Creates a circuit breaker
+     *
+     * @param failureThreshold
+     *            number of consecutive failures opening the breaker
+     * @param openMillis
+     *            time in milliseconds before an open breaker lets a probe request pass
+     */
+    public static CircuitBreaker create(int failureThreshold, long openMillis) {
+        if ((failureThreshold < 1) || (openMillis < 0)) {
+            throw new IllegalArgumentException("Invalid circuit breaker configuration");
+        }
+        return new CircuitBreaker(failureThreshold, openMillis);
+    }
+
+    /**
+     * Checks if a request may pass. In half-open state only a single probe request passes at a time.
+     *
+     * @return true if the request may be sent
+     */
+    public synchronized boolean allowRequest() {
+        if ((state == State.OPEN) && (System.currentTimeMillis() - openedAt >= openMillis)) {
+            logger.info("Circuit breaker half-open - probing marketplace");
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if ((state == State.HALF_OPEN) && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejectionCount++;
+        return false;
+    }
+
+    /**
+     * Withdraws a permission granted by {@link #allowRequest()} for a request that has not been sent
+     */
+    public synchronized void cancel() {
+        probeInFlight = false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            logger.info("Circuit breaker closed - marketplace available again");
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if ((state == State.HALF_OPEN) || ((state == State.CLOSED) && (consecutiveFailures >= failureThreshold))) {
+            logger.warn("Circuit breaker open after {} consecutive failures - marketplace requests fail fast for {} ms",
+                    consecutiveFailures, openMillis);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            openCount++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the time in milliseconds until an open breaker lets a probe request pass, or 0 if it is not open
+     */
+    public synchronized long getRemainingOpenMillis() {
+        return (state == State.OPEN) ? Math.max(0, openMillis - (System.currentTimeMillis() - openedAt)) : 0;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Returns how often the breaker has opened
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Returns the number of requests rejected while the breaker was open
+     */
+    public synchronized long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker[state=" + state + ", consecutiveFailures=" + consecutiveFailures + ", openCount="
+                + openCount + ", rejections=" + rejectionCount + "]";
+    }
+
+}
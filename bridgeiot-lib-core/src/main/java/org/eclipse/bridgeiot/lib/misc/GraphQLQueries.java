@@ -15,11 +15,15 @@
  */
 package org.eclipse.bridgeiot.lib.misc;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
+import okio.Buffer;
+
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.misc.GraphQLWriter.Fragment;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.PricingModel;
 import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
@@ -34,6 +38,23 @@ public class GraphQLQueries {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphQLQueries.class);
 
+    private static final String MUTATION_PREFIX = "{ \"query\" : \"mutation ";
+    private static final String REQUEST_SUFFIX = "\" }";
+
+    // @formatter:off
+    private static final String MATCHING_OFFERING_FIELDS = " { id "
+            + "name "
+            + "rdfAnnotation { uri } "
+            + "spatialExtent { city boundary { l1 { lng lat } l2 { lng lat } } } "
+            + "endpoints { uri endpointType accessInterfaceType } "
+            + "license "
+            + "temporalExtent { from to } "
+            + "price { pricingModel money { amount currency } } "
+            + "activation { status expirationTime } "
+            + "extension1"
+            + " }";
+    // @formatter:on
+
     /**
      * private constructor
      */
@@ -48,25 +69,38 @@ public class GraphQLQueries {
      * @return Message for Offering registration
      */
     public static String getRegistrationString(RegistrableOfferingDescription offering) {
+        return getRegistrationRequest(offering).toString();
+    }
 
+    /**
+     * Generates a registration request, which is streamed into the request body
+     *
+     * @param offering
+     * @return Request for Offering registration
+     */
+    public static GraphQLRequest getRegistrationRequest(final RegistrableOfferingDescription offering) {
         final Long expirationTime = new Date().getTime() + offering.getExpirationInterval();
+        return new GraphQLRequest("addOffering") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                writeRegistration(writer, offering, expirationTime);
+            }
+        };
+    }
 
-        String registration = "{ \"query\" : \"mutation addOffering { addOffering ( input: { "
-                // + "semanticContext: {context: \\\"http://w3c.github.io/bigiot/offering-context.jsonld\\\"} "
-                + Helper.formatString("id: \\\"%s\\\" ", offering.getProviderId())
-                + Helper.formatString("localId: \\\"%s\\\" ", offering.getLocalId())
-                + Helper.formatString("name: \\\"%s\\\" ", offering.getDescription().getName())
-                // + Helper.formatString("active: %s ", true)
-                + Helper.formatString("activation: {status: %s, expirationTime: %d} ", true, expirationTime)
-                + Helper.formatString("rdfUri: \\\"%s\\\" ", offering.getDescription().getRdfType().getUri());
+    private static void writeRegistration(GraphQLWriter writer, RegistrableOfferingDescription offering,
+            long expirationTime) throws IOException {
+
+        writer.raw(MUTATION_PREFIX).raw("addOffering { addOffering ( input: { ")
+                .field("id", offering.getProviderId())
+                .field("localId", offering.getLocalId())
+                .field("name", offering.getDescription().getName())
+                .raw("activation: {status: ").raw(true).raw(", expirationTime: ").raw(expirationTime).raw("} ")
+                .field("rdfUri", offering.getDescription().getRdfType().getUri());
 
         // Marketplace only array of object members below inputs
         if (offering.getInputs() instanceof ObjectParameter) {
-            String inputDataString = Helper
-                    .convertJsonToGraphQl(
-                            Helper.getPojoAsJsonCompact(((ObjectParameter) offering.getInputs()).getMembers()))
-                    .replaceAll("'", "\\\\'").replaceAll("\"", "\\\\\"");
-            registration += Helper.formatString("inputs: ") + inputDataString + Helper.formatString(" ");
+            writer.raw("inputs: ").inputObject(((ObjectParameter) offering.getInputs()).getMembers()).raw(" ");
         } else {
             logger.warn(
                     "Marketplace supports only object type parameters. Offering description has input parameters modelled as {}",
@@ -75,61 +109,60 @@ public class GraphQLQueries {
 
         // Marketplace only array of object members below outputs
         if (offering.getOutputs() instanceof ObjectParameter) {
-            String outputDataString = Helper
-                    .convertJsonToGraphQl(
-                            Helper.getPojoAsJsonCompact(((ObjectParameter) offering.getOutputs()).getMembers()))
-                    .replaceAll("'", "\\\\'").replaceAll("\"", "\\\\\"");
-            registration += Helper.formatString("outputs: ") + outputDataString + Helper.formatString(" ");
+            writer.raw("outputs: ").inputObject(((ObjectParameter) offering.getOutputs()).getMembers()).raw(" ");
         } else {
             logger.warn(
                     "Marketplace supports only object type parameters. Offering description has output parameters modelled as {}",
                     offering.getOutputs().getClass().getName());
         }
 
-        registration += Helper.formatString("endpoints: {uri: \\\"%s\\\", endpointType: %s, accessInterfaceType: %s} ",
-                offering.getEndpoints().get(0).getUri(), offering.getEndpoints().get(0).getEndpointType().toString(),
-                offering.getEndpoints().get(0).getAccessInterfaceType().toString());
+        writer.raw("endpoints: {uri: ").string(offering.getEndpoints().get(0).getUri())
+                .raw(", endpointType: ").raw(offering.getEndpoints().get(0).getEndpointType().toString())
+                .raw(", accessInterfaceType: ").raw(offering.getEndpoints().get(0).getAccessInterfaceType().toString())
+                .raw("} ");
 
-        registration += Helper.formatString("license: %s ", offering.getLicense().toString());
+        writer.raw("license: ").raw(offering.getLicense().toString()).raw(" ");
 
         if (offering.getPrice().getPricingModel() != PricingModel.FREE) {
             // TODO: EUR once Marketplace supports others:
-            registration += Helper.formatString("price: {money: {amount: %f, currency: EUR}, pricingModel: %s } ",
-                    offering.getPrice().getAmount(), offering.getPrice().getPricingModel().toString());
+            writer.raw("price: {money: {amount: ").decimal(offering.getPrice().getAmount())
+                    .raw(", currency: EUR}, pricingModel: ").raw(offering.getPrice().getPricingModel().toString())
+                    .raw(" } ");
         } else {
-            registration += Helper.formatString("price: { pricingModel: %s } ",
-                    offering.getPrice().getPricingModel().toString());
+            writer.raw("price: { pricingModel: ").raw(offering.getPrice().getPricingModel().toString()).raw(" } ");
         }
 
         if (offering.getTimePeriod() != null) {
-            registration += offering.getTimePeriod().toQueryElement() + " ";
+            writer.raw(offering.getTimePeriod().toQueryElement()).raw(" ");
         }
 
         if (offering.getRegion() != null) {
-            registration += offering.getRegion().toQueryElement() + " ";
+            writer.raw(offering.getRegion().toQueryElement()).raw(" ");
         }
 
         if (offering.getAccessList() != null) {
-            registration += offering.getAccessList().toQueryElement() + " ";
+            writer.raw(offering.getAccessList().toQueryElement()).raw(" ");
         }
 
         if (offering.getExtension1() != null) {
-            registration += Helper.formatString("extension1: \\\"%s\\\" ",
-                    offering.getExtension1().replaceAll("\"", "\\" + Constants.DOUBLE_QUOTE_ESCAPE).replaceAll("\\\\",
-                            "\\" + Constants.BACKSLASH_ESCAPE));
+            writer.raw("extension1: ").marketplaceString(offering.getExtension1()).raw(" ");
         }
-        Helper.getPojoAsJson(offering.getInputs());
-
-        registration += " } ) { id activation { status expirationTime } } " + "}\" }";
 
-        return registration;
+        writer.raw(" } ) { id activation { status expirationTime } } ").raw("}").raw(REQUEST_SUFFIX);
     }
 
     // DELETE
     public static String toIODataString(Parameter complexParameter) {
+        Buffer buffer = new Buffer();
+        try {
+            writeIOData(GraphQLWriter.create(buffer), complexParameter);
+        } catch (IOException e) {
+            throw new BridgeIoTException("Cannot render GraphQL request", e);
+        }
+        return buffer.readUtf8();
+    }
 
-        StringBuilder stringBuilder = new StringBuilder();
-
+    static void writeIOData(GraphQLWriter writer, Parameter complexParameter) throws IOException {
         if (complexParameter instanceof ObjectParameter) {
             ObjectParameter objectParameter = (ObjectParameter) complexParameter;
             for (ObjectMember member : objectParameter.getMembers()) {
@@ -137,18 +170,16 @@ public class GraphQLQueries {
                     logger.warn("Deep structure of complex parameter '{}' is not visible on marketplace!",
                             member.getName());
                 }
-                String valueType = Helper.convertJsonToGraphQl(Helper.getPojoAsJsonCompact(member.getValue()))
-                        .replaceAll("'", "\\\\'").replaceAll("\"", "\\\\\"");
-                String name = (member.getName() != null) ? Helper.formatString("name: \\\"%s\\\",", member.getName())
-                        : "";
-                stringBuilder.append(Helper.formatString("{ %s rdfUri: \\\"%s\\\", value: %s } ", name,
-                        member.getRdfUri(), valueType));
+                writer.raw("{ ");
+                if (member.getName() != null) {
+                    writer.raw("name: ").string(member.getName()).raw(",");
+                }
+                writer.raw(" rdfUri: ").string(member.getRdfUri()).raw(", value: ").inputObject(member.getValue())
+                        .raw(" } ");
             }
         } else {
             throw new BridgeIoTException("Only objects are supported as top input parameter");
         }
-
-        return stringBuilder.toString();
     }
 
     /**
@@ -157,42 +188,69 @@ public class GraphQLQueries {
      * @return Activation message
      */
     public static String getActivationString(String offeringId) {
-        // @formatter:off
-        return "{ \"query\" : \"mutation activateOffering { activateOffering ( input: { "
-                + Helper.formatString("id: \\\"%s\\\" ", offeringId)
-                + " } )"
-                + " { id } "
-                + " }\" }";
-        // @formatter:on
+        return getActivationRequest(offeringId).toString();
+    }
+
+    public static GraphQLRequest getActivationRequest(final String offeringId) {
+        return new GraphQLRequest("activateOffering") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw(MUTATION_PREFIX).raw("activateOffering { activateOffering ( input: { ")
+                        .field("id", offeringId)
+                        .raw(" } )")
+                        .raw(" { id } ")
+                        .raw(" }").raw(REQUEST_SUFFIX);
+                // @formatter:on
+            }
+        };
     }
 
     public static String getActivationStringFullResponse(String offeringId) {
-        // @formatter:off
-        return "{ \"query\" : \"mutation activateOffering { activateOffering ( input: { "
-                + Helper.formatString("id: \\\"%s\\\" ", offeringId)
-                + " } )"
-                + " {"
-                   + " id name rdfAnnotation { uri } endpoints { uri endpointType accessInterfaceType } }"
-                + " }\" }";
-        // @formatter:on
+        return getActivationRequestFullResponse(offeringId).toString();
+    }
+
+    public static GraphQLRequest getActivationRequestFullResponse(final String offeringId) {
+        return new GraphQLRequest("activateOffering") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw(MUTATION_PREFIX).raw("activateOffering { activateOffering ( input: { ")
+                        .field("id", offeringId)
+                        .raw(" } )")
+                        .raw(" {")
+                           .raw(" id name rdfAnnotation { uri } endpoints { uri endpointType accessInterfaceType } }")
+                        .raw(" }").raw(REQUEST_SUFFIX);
+                // @formatter:on
+            }
+        };
     }
 
     public static String getOfferingDescriptionString(String offeringId) {
-        // @formatter:off
-        return "{ \"query\" : \"query offering { offering ( "
-                + Helper.formatString("id: \\\"%s\\\"", offeringId)
-                + " )"
-                + " {"
-                   + " id name rdfAnnotation { uri } license"
-                   + " price { pricingModel money { amount currency } }"
-                   + " inputs { name rdfAnnotation { uri } }"
-                   + " outputs { name rdfAnnotation { uri } }"
-                   + " endpoints { uri endpointType accessInterfaceType }"
-                   + " temporalExtent { from to }"
-                   + " spatialExtent { city boundary { l1 { lng lat } l2 { lng lat } } }"
-                   + " activation { status expirationTime }"
-                + " } }\" }";
-        // @formatter:on
+        return getOfferingDescriptionRequest(offeringId).toString();
+    }
+
+    public static GraphQLRequest getOfferingDescriptionRequest(final String offeringId) {
+        return new GraphQLRequest("offering") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw("{ \"query\" : \"query offering { offering ( ")
+                        .raw("id: ").string(offeringId)
+                        .raw(" )")
+                        .raw(" {")
+                           .raw(" id name rdfAnnotation { uri } license")
+                           .raw(" price { pricingModel money { amount currency } }")
+                           .raw(" inputs { name rdfAnnotation { uri } }")
+                           .raw(" outputs { name rdfAnnotation { uri } }")
+                           .raw(" endpoints { uri endpointType accessInterfaceType }")
+                           .raw(" temporalExtent { from to }")
+                           .raw(" spatialExtent { city boundary { l1 { lng lat } l2 { lng lat } } }")
+                           .raw(" activation { status expirationTime }")
+                        .raw(" } }").raw(REQUEST_SUFFIX);
+                // @formatter:on
+            }
+        };
     }
 
     /**
@@ -201,13 +259,7 @@ public class GraphQLQueries {
      * @return Message for Offering subscription
      */
     public static String getSubscribtionWithQueryString(String offeringId, String queryId) {
-        // @formatter:off
-        return "{ \"query\" : \"mutation subscribeQueryToOffering { subscribeQueryToOffering ( input: { "
-                + Helper.formatString("id: \\\"%s\\\" ", queryId)
-                + Helper.formatString("offeringId: \\\"%s\\\" ", offeringId)
-                + " } ) { id accessToken } "
-                + "}\" }";
-        // @formatter:on
+        return getSubscriptionRequest("subscribeQueryToOffering", offeringId, queryId).toString();
     }
 
     /**
@@ -216,13 +268,98 @@ public class GraphQLQueries {
      * @return Message for Offering subscription
      */
     public static String getSubscribtionWithConsumerString(String offeringId, String consumerId) {
-        // @formatter:off
-        return "{ \"query\" : \"mutation subscribeConsumerToOffering { subscribeConsumerToOffering ( input: { "
-                + Helper.formatString("id: \\\"%s\\\" ", consumerId)
-                + Helper.formatString("offeringId: \\\"%s\\\" ", offeringId)
-                + " } ) { id accessToken } "
-                + "}\" }";
-        // @formatter:on
+        return getSubscriptionRequest("subscribeConsumerToOffering", offeringId, consumerId).toString();
+    }
+
+    private static GraphQLRequest getSubscriptionRequest(final String mutation, final String offeringId,
+            final String subscriberId) {
+        return new GraphQLRequest(mutation) {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw(MUTATION_PREFIX).raw(mutation).raw(" { ").raw(mutation).raw(" ( input: { ")
+                        .field("id", subscriberId)
+                        .field("offeringId", offeringId)
+                        .raw(" } ) { id accessToken } ")
+                        .raw("}").raw(REQUEST_SUFFIX);
+                // @formatter:on
+            }
+        };
+    }
+
+    /**
+     * Generates an aliased subscription field (based on a query) for a batched mutation
+     *
+     * @return Field of a batched subscription mutation
+     */
+    public static String getSubscriptionWithQueryField(String alias, String offeringId, String queryId) {
+        return toString(getSubscriptionWithQueryFragment(alias, offeringId, queryId));
+    }
+
+    public static Fragment getSubscriptionWithQueryFragment(String alias, String offeringId, String queryId) {
+        return getSubscriptionFragment(alias, "subscribeQueryToOffering", offeringId, queryId);
+    }
+
+    /**
+     * Generates an aliased subscription field (based on a consumer) for a batched mutation
+     *
+     * @return Field of a batched subscription mutation
+     */
+    public static String getSubscriptionWithConsumerField(String alias, String offeringId, String consumerId) {
+        return toString(getSubscriptionWithConsumerFragment(alias, offeringId, consumerId));
+    }
+
+    public static Fragment getSubscriptionWithConsumerFragment(String alias, String offeringId, String consumerId) {
+        return getSubscriptionFragment(alias, "subscribeConsumerToOffering", offeringId, consumerId);
+    }
+
+    private static Fragment getSubscriptionFragment(final String alias, final String mutation,
+            final String offeringId, final String subscriberId) {
+        return new Fragment() {
+            @Override
+            public void writeTo(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw(alias).raw(": ").raw(mutation).raw(" ( input: { ")
+                        .field("id", subscriberId)
+                        .field("offeringId", offeringId)
+                        .raw(" } ) { id accessToken } ");
+                // @formatter:on
+            }
+        };
+    }
+
+    /**
+     * Combines aliased mutation fields into a single batched mutation message
+     *
+     * @return Message for a batched mutation
+     */
+    public static String getBatchedMutationString(String mutationName, List<String> fields) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(MUTATION_PREFIX).append(mutationName).append(" { ");
+        for (String field : fields) {
+            sb.append(field);
+        }
+        sb.append("}").append(REQUEST_SUFFIX);
+        return sb.toString();
+    }
+
+    /**
+     * Combines aliased mutation fields into a single batched mutation request
+     *
+     * @return Request for a batched mutation
+     */
+    public static GraphQLRequest getBatchedMutationRequest(final String mutationName,
+            final List<? extends Fragment> fields) {
+        return new GraphQLRequest(mutationName) {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                writer.raw(MUTATION_PREFIX).raw(mutationName).raw(" { ");
+                for (Fragment field : fields) {
+                    writer.fragment(field);
+                }
+                writer.raw("}").raw(REQUEST_SUFFIX);
+            }
+        };
     }
 
     /**
@@ -231,14 +368,24 @@ public class GraphQLQueries {
      * @return Message for Offering subscription
      */
     public static String getUnsubscribtionString(String offeringId) {
-        // @formatter:off
-        return "{ \"query\" : \"mutation unsubscribeQueryFromOffering { unsubscribeQueryFromOffering ( input: { "
-                + Helper.formatString("id: \\\"%s\\\" ", "Bosch_CR-TestConsumer-ParkingQuery")
-                // TODO Remove QueryId all together as soon Martin fixes the eXchange
-                + Helper.formatString("offeringId: \\\"%s\\\" ", offeringId)
-                + " } ) { id subscriptions { id } }"
-                + "}\" }";
-        // @formatter:on
+        return getUnsubscriptionRequest(offeringId).toString();
+    }
+
+    public static GraphQLRequest getUnsubscriptionRequest(final String offeringId) {
+        return new GraphQLRequest("unsubscribeQueryFromOffering") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw(MUTATION_PREFIX)
+                        .raw("unsubscribeQueryFromOffering { unsubscribeQueryFromOffering ( input: { ")
+                        .field("id", "Bosch_CR-TestConsumer-ParkingQuery")
+                        // TODO Remove QueryId all together as soon Martin fixes the eXchange
+                        .field("offeringId", offeringId)
+                        .raw(" } ) { id subscriptions { id } }")
+                        .raw("}").raw(REQUEST_SUFFIX);
+                // @formatter:on
+            }
+        };
     }
 
     /**
@@ -247,12 +394,21 @@ public class GraphQLQueries {
      * @return Deactivation message
      */
     public static String getDeactivationString(String offeringId) {
-        // @formatter:off
-        return "{ \"query\" : \"mutation deactivateOffering { deactivateOffering ( input: { "
-                + Helper.formatString("id: \\\"%s\\\" ", offeringId)
-                + " } ) { id }"
-                + "}\" }";
-        // @formatter:on
+        return getDeactivationRequest(offeringId).toString();
+    }
+
+    public static GraphQLRequest getDeactivationRequest(final String offeringId) {
+        return new GraphQLRequest("deactivateOffering") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                // @formatter:off
+                writer.raw(MUTATION_PREFIX).raw("deactivateOffering { deactivateOffering ( input: { ")
+                        .field("id", offeringId)
+                        .raw(" } ) { id }")
+                        .raw("}").raw(REQUEST_SUFFIX);
+                // @formatter:on
+            }
+        };
     }
 
     /*
@@ -269,20 +425,17 @@ public class GraphQLQueries {
      */
 
     public static String getFindMatchingOfferingsString(String queryId) {
-        // @formatter:off
-        return "{\"query\": \"query q { matchingOfferings(queryId: \\\"" + queryId + "\\\")" +
-                " { id " +
-                "name " +
-                "rdfAnnotation { uri } " +
-                "spatialExtent { city boundary { l1 { lng lat } l2 { lng lat } } } " +
-                "endpoints { uri endpointType accessInterfaceType } " +
-                "license " +
-                "temporalExtent { from to } " +
-                "price { pricingModel money { amount currency } } " +
-                "activation { status expirationTime } " +
-                "extension1" +
-                " } }\" }";
-        // @formatter:on
+        return getFindMatchingOfferingsRequest(queryId).toString();
+    }
+
+    public static GraphQLRequest getFindMatchingOfferingsRequest(final String queryId) {
+        return new GraphQLRequest("q") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                writer.raw("{\"query\": \"query q { matchingOfferings(queryId: ").string(queryId).raw(")")
+                        .raw(MATCHING_OFFERING_FIELDS).raw(" }").raw(REQUEST_SUFFIX);
+            }
+        };
     }
 
     // @formatter:off
@@ -302,48 +455,80 @@ public class GraphQLQueries {
         // @formatter:on
     }
 
+    /**
+     * Template of an offering query mutation, which also selects the offerings matching the new query
+     */
+    public static String getQueryWithMatchingOfferingsTemplateString() {
+        // @formatter:off
+        return "{ \"query\" : \"mutation addOfferingQuery { addOfferingQuery ( input : "
+                + "{ %%queryElements } "
+                + ") { id matchingOfferings" + MATCHING_OFFERING_FIELDS + " } }\" }";
+        // @formatter:on
+    }
+
     public static String getAccountingReportString(List<AccountingReport> accountingReportList) {
+        return getAccountingReportRequest(accountingReportList).toString();
+    }
+
+    public static GraphQLRequest getAccountingReportRequest(final List<AccountingReport> accountingReportList) {
+        return new GraphQLRequest("accountingReport") {
+            @Override
+            protected void write(GraphQLWriter writer) throws IOException {
+                writeAccountingReport(writer, accountingReportList);
+            }
+        };
+    }
+
+    private static void writeAccountingReport(GraphQLWriter writer, List<AccountingReport> accountingReportList)
+            throws IOException {
         // @formatter:off
-        StringBuilder strBuilder = new StringBuilder()
-                .append("{ \"query\" : \"mutation accountingReport { trackProviderAccess ( input : ")
-                   .append("{ accesses: [ ");
-        
+        writer.raw(MUTATION_PREFIX).raw("accountingReport { trackProviderAccess ( input : ")
+                   .raw("{ accesses: [ ");
+
         Iterator<AccountingReport> it = accountingReportList.iterator();
         boolean firstRecord = true;
         while (it.hasNext()) {
             AccountingReport report = it.next();
-            if (! report.getSubscriptionId().equals(Constants.UNKNOWN_SUBSCRIPTION_ID)) { 
+            if (! report.getSubscriptionId().equals(Constants.UNKNOWN_SUBSCRIPTION_ID)) {
                 if (firstRecord) {
                     firstRecord = false;
                 }
                 else {
-                    strBuilder.append(", ");
+                    writer.raw(", ");
                 }
-                strBuilder.append("{ ")
-                            .append("id: \\\"").append(report.getSubscriptionId()).append("\\\" ")
-                            .append("accessSessionId: \\\"").append(report.getAccessSessionId()).append("\\\" ")
-                            .append("report: { ")
-                                .append("accesses: ").append(report.getRecord().getCurrentAccesses()).append(" ")
-                                .append("records: ").append(report.getRecord().getCurrentDataRecords()).append(" ")
-                                .append("inputBytes: 0 ")         // accouting for input data is not yet supported
-                                .append("outputBytes: ").append(report.getRecord().getCurrentBytes()).append(" ")
-                                .append("totalAccesses: ").append(report.getRecord().getTotalAccesses()).append(" ")
-                                .append("totalRecords: ").append(report.getRecord().getTotalDataRecords()).append(" ")
-                                .append("totalInputBytes: 0 ")    // accouting for input data is not yet supported
-                                .append("totalOutputBytes: ").append(report.getRecord().getTotalBytes()).append(" ")
-                            .append("} ")
-                            .append("time: { ")
-                                .append("start: ").append(report.getRecord().getTsLastReport()).append(" ")
-                                .append("end: ").append(report.getRecord().getTsCurrentReport()).append(" ")
-                            .append("} ")
-                          .append("}");
+                writer.raw("{ ")
+                            .raw("id: ").string(report.getSubscriptionId()).raw(" ")
+                            .raw("accessSessionId: ").string(report.getAccessSessionId()).raw(" ")
+                            .raw("report: { ")
+                                .raw("accesses: ").raw(report.getRecord().getCurrentAccesses()).raw(" ")
+                                .raw("records: ").raw(report.getRecord().getCurrentDataRecords()).raw(" ")
+                                .raw("inputBytes: 0 ")         // accouting for input data is not yet supported
+                                .raw("outputBytes: ").raw(report.getRecord().getCurrentBytes()).raw(" ")
+                                .raw("totalAccesses: ").raw(report.getRecord().getTotalAccesses()).raw(" ")
+                                .raw("totalRecords: ").raw(report.getRecord().getTotalDataRecords()).raw(" ")
+                                .raw("totalInputBytes: 0 ")    // accouting for input data is not yet supported
+                                .raw("totalOutputBytes: ").raw(report.getRecord().getTotalBytes()).raw(" ")
+                            .raw("} ")
+                            .raw("time: { ")
+                                .raw("start: ").raw(report.getRecord().getTsLastReport()).raw(" ")
+                                .raw("end: ").raw(report.getRecord().getTsCurrentReport()).raw(" ")
+                            .raw("} ")
+                          .raw("}");
             }
         }
-                   
-        strBuilder.append(" ] } ) { id } }\" }");
-        // @formatter:off
-        
-        return strBuilder.toString();
+
+        writer.raw(" ] } ) { id } }").raw(REQUEST_SUFFIX);
+        // @formatter:on
+    }
+
+    private static String toString(Fragment fragment) {
+        Buffer buffer = new Buffer();
+        try {
+            fragment.writeTo(GraphQLWriter.create(buffer));
+        } catch (IOException e) {
+            throw new BridgeIoTException("Cannot render GraphQL request", e);
+        }
+        return buffer.readUtf8();
     }
 
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+
+/**
+ * GraphQL request to the marketplace, which is streamed into the HTTP request body by a {@link GraphQLWriter} instead
+ * of being built as string upfront. The request is written anew on each (re)transmission.
+ */
+public abstract class GraphQLRequest extends RequestBody {
+
+    private final String operationName;
+
+    protected GraphQLRequest() {
+        this(null);
+    }
+
+    /**
+     * @param operationName
+     *            name of the GraphQL operation, which determines the priority of the request at the marketplace client
+     */
+    protected GraphQLRequest(String operationName) {
+        this.operationName = operationName;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return HttpClient.MEDIA_TYPE_JSON;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        write(GraphQLWriter.create(sink));
+    }
+
+    /**
+     * Writes the request
+     *
+     * @param writer
+     * @throws IOException
+     */
+    protected abstract void write(GraphQLWriter writer) throws IOException;
+
+    /**
+     * Renders the request as string, e.g. for logging
+     */
+    @Override
+    public String toString() {
+        Buffer buffer = new Buffer();
+        try {
+            writeTo(buffer);
+        } catch (IOException e) {
+            throw new BridgeIoTException("Cannot render GraphQL request", e);
+        }
+        return buffer.readUtf8();
+    }
+
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import okio.BufferedSink;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Writes GraphQL documents wrapped in a JSON request (<code>{ "query" : "..." }</code>) directly into an OkHttp
+ * {@link BufferedSink}. Values are escaped on the fly, i.e. no intermediate strings are built for the document or its
+ * values.
+ * <p>
+ * Everything written by this writer ends up inside the JSON string of the query. Hence, string values are escaped
+ * twice: once as GraphQL string literal and once as part of the JSON string.
+ */
+public class GraphQLWriter {
+
+    /**
+     * Part of a GraphQL document, e.g. an aliased field of a batched mutation
+     */
+    public interface Fragment {
+
+        void writeTo(GraphQLWriter writer) throws IOException;
+
+    }
+
+    // Serializes POJOs as GraphQL input objects, i.e. JSON with unquoted field names
+    private static final ObjectWriter inputObjectWriter = Helper.mapper.writer()
+            .without(JsonGenerator.Feature.QUOTE_FIELD_NAMES).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final BufferedSink sink;
+
+    private GraphQLWriter(BufferedSink sink) {
+        this.sink = sink;
+    }
+
+    public static GraphQLWriter create(BufferedSink sink) {
+        return new GraphQLWriter(sink);
+    }
+
+    /**
+     * Writes GraphQL syntax as it is. The text must not contain characters which need escaping in JSON strings.
+     */
+    public GraphQLWriter raw(String text) throws IOException {
+        sink.writeUtf8(text);
+        return this;
+    }
+
+    public GraphQLWriter raw(long number) throws IOException {
+        sink.writeDecimalLong(number);
+        return this;
+    }
+
+    public GraphQLWriter raw(Long number) throws IOException {
+        if (number == null) {
+            sink.writeUtf8("null");
+        } else {
+            sink.writeDecimalLong(number);
+        }
+        return this;
+    }
+
+    public GraphQLWriter raw(boolean value) throws IOException {
+        sink.writeUtf8(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a decimal number with six fraction digits
+     */
+    public GraphQLWriter decimal(double number) throws IOException {
+        sink.writeUtf8(Helper.formatString("%f", number));
+        return this;
+    }
+
+    /**
+     * Writes a GraphQL string literal
+     */
+    public GraphQLWriter string(String value) throws IOException {
+        sink.writeUtf8("\\\"");
+        if (value == null) {
+            sink.writeUtf8("null");
+        } else {
+            escape(value);
+        }
+        sink.writeUtf8("\\\"");
+        return this;
+    }
+
+    /**
+     * Writes an input field with a GraphQL string literal followed by a blank, e.g. <code>id: "value" </code>
+     */
+    public GraphQLWriter field(String name, String value) throws IOException {
+        return raw(name).raw(": ").string(value).raw(" ");
+    }
+
+    /**
+     * Writes a GraphQL string literal in the marketplace specific encoding for embedded JSON documents: double quotes
+     * are replaced by {@link Constants#DOUBLE_QUOTE_ESCAPE} and backslashes by {@link Constants#BACKSLASH_ESCAPE}.
+     */
+    public GraphQLWriter marketplaceString(String value) throws IOException {
+        sink.writeUtf8("\\\"");
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c == '"') || (c == '\\')) {
+                sink.writeUtf8(value, start, i);
+                sink.writeUtf8((c == '"') ? Constants.DOUBLE_QUOTE_ESCAPE : Constants.BACKSLASH_ESCAPE);
+                start = i + 1;
+            }
+        }
+        sink.writeUtf8(value, start, value.length());
+        sink.writeUtf8("\\\"");
+        return this;
+    }
+
+    /**
+     * Writes a POJO as GraphQL input object
+     */
+    public GraphQLWriter inputObject(Object pojo) throws IOException {
+        inputObjectWriter.writeValue(new EscapingOutputStream(sink), pojo);
+        return this;
+    }
+
+    public GraphQLWriter fragment(Fragment fragment) throws IOException {
+        fragment.writeTo(this);
+        return this;
+    }
+
+    private void escape(String value) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\\\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\\\\\";
+            } else if (c == '\n') {
+                replacement = "\\\\n";
+            } else if (c == '\r') {
+                replacement = "\\\\r";
+            } else if (c == '\t') {
+                replacement = "\\\\t";
+            } else if (c < 0x20) {
+                replacement = "\\\\u00" + HEX[c >> 4] + HEX[c & 0xF];
+            } else {
+                continue;
+            }
+            sink.writeUtf8(value, start, i);
+            sink.writeUtf8(replacement);
+            start = i + 1;
+        }
+        sink.writeUtf8(value, start, value.length());
+    }
+
+    /**
+     * Escapes the JSON produced by Jackson for embedding it into the JSON string of the query. The escaped characters
+     * are ASCII and thus never part of a multi-byte UTF-8 sequence.
+     */
+    private static class EscapingOutputStream extends OutputStream {
+
+        private final BufferedSink sink;
+
+        EscapingOutputStream(BufferedSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if ((b == '"') || (b == '\'') || (b == '\\')) {
+                sink.writeByte('\\');
+            }
+            sink.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            int start = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                byte b = bytes[i];
+                if ((b == '"') || (b == '\'') || (b == '\\')) {
+                    sink.write(bytes, start, i - start);
+                    sink.writeByte('\\');
+                    start = i;
+                }
+            }
+            sink.write(bytes, start, end - start);
+        }
+
+    }
+
+}
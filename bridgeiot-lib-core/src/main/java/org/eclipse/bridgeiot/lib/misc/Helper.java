@@ -44,6 +44,8 @@ import org.eclipse.bridgeiot.lib.offering.mapping.OutputMapping;
 import org.eclipse.bridgeiot.lib.offering.mapping.OutputMappingElement;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
@@ -87,6 +89,9 @@ public class Helper {
     public static final int Minute = 60 * Second;
     public static final int Hour = 60 * Minute;
 
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormat
+            .forPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'").withZoneUTC().withLocale(Locale.US);
+
     private Helper() {
     }
 
@@ -166,6 +171,37 @@ public class Helper {
         }
     }
 
+    /**
+     * Return the results of an aliased (batched) marketplace query as map from alias to domain object. Aliases without
+     * result (e.g. due to a partial error) are omitted.
+     * 
+     * @param jsonString
+     * @param tClass
+     * 
+     * @return
+     */
+    public static <T extends Object> Map<String, T> unmarshallAliasesFromQueryResponse(String jsonString,
+            Class<T> tClass) {
+        try {
+            Map<String, T> results = new HashMap<>();
+            JsonNode dataNode = mapper.reader().readTree(jsonString).get("data");
+            if (dataNode == null) {
+                return results;
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = dataNode.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!field.getValue().isNull()) {
+                    results.put(field.getKey(), mapper.reader().forType(tClass).<T> readValue(field.getValue()));
+                }
+            }
+            return results;
+        } catch (IOException e) {
+            logger.error(unmarshallQueryErrorMsg);
+            throw new BridgeIoTException(unmarshallQueryErrorMsg, e);
+        }
+    }
+
     /**
      * Pretty print of list of Offering Description
      * 
@@ -217,6 +253,24 @@ public class Helper {
         return date.toString(format);
     }
 
+    /**
+     * Formats a timestamp as HTTP date (RFC 7231), e.g. for the Last-Modified header
+     */
+    public static String formatHttpDate(long timeMillis) {
+        return HTTP_DATE_FORMAT.print(timeMillis);
+    }
+
+    /**
+     * Parses an HTTP date (RFC 7231)
+     *
+     * @return timestamp in milliseconds
+     * @throws IllegalArgumentException
+     *             if the date is invalid
+     */
+    public static long parseHttpDate(String httpDate) {
+        return HTTP_DATE_FORMAT.parseMillis(httpDate.trim());
+    }
+
     public static void printDeltaTime(DateTime start) {
         printDeltaTime("", start);
     }
@@ -438,12 +438,32 @@ public class HttpClient {
         return execute(HttpCommand.GET, url, null, addedHeaders);
     }
 
-    public void get(String url, Callback callback) {
-        get(url, (Map<String, String>) null, callback);
+    /**
+     * Executes HTTP GET on URL asynchronously
+     * 
+     * @param url
+     *            URL as String
+     * @param callback
+     *            Callback for the response
+     * @return Call which can be used to cancel the request
+     */
+    public Call get(String url, Callback callback) {
+        return get(url, (Map<String, String>) null, callback);
     }
 
-    public void get(String url, Map<String, String> addedHeaders, Callback callback) {
-        execute(HttpCommand.GET, url, null, addedHeaders, callback);
+    /**
+     * Executes HTTP GET on URL with Headers asynchronously
+     * 
+     * @param url
+     *            URL as String
+     * @param addedHeaders
+     *            HTTP headers
+     * @param callback
+     *            Callback for the response
+     * @return Call which can be used to cancel the request
+     */
+    public Call get(String url, Map<String, String> addedHeaders, Callback callback) {
+        return execute(HttpCommand.GET, url, null, addedHeaders, callback);
     }
 
     /**
@@ -482,6 +502,26 @@ public class HttpClient {
         execute(HttpCommand.POST, url, jsonBody, addedHeaders, callback);
     }
 
+    /**
+     * Executes HTTP POST on URL with Headers and a request body, which is written by OkHttp directly into the
+     * connection (e.g. a streamed {@link GraphQLRequest})
+     *
+     * @param url
+     *            URL as String
+     * @param addedHeaders
+     *            HTTP headers
+     * @param body
+     *            Body
+     * @return Response
+     */
+    public Response post(String url, Map<String, String> addedHeaders, RequestBody body) throws IOException {
+        return createCall(HttpCommand.POST, url, body, addedHeaders).execute();
+    }
+
+    public void post(String url, Map<String, String> addedHeaders, Callback callback, RequestBody body) {
+        createCall(HttpCommand.POST, url, body, addedHeaders).enqueue(callback);
+    }
+
     /**
      * Executes HTTP PUT on URL
      * 
@@ -548,10 +588,11 @@ public class HttpClient {
         execute(HttpCommand.DELETE, url, null, addedHeaders, callback);
     }
 
-    private void execute(HttpCommand command, String url, String body, Map<String, String> addedHeaders,
+    private Call execute(HttpCommand command, String url, String body, Map<String, String> addedHeaders,
             Callback callback) {
         Call call = createCall(command, url, body, addedHeaders);
         call.enqueue(callback);
+        return call;
     }
 
     private Response execute(HttpCommand command, String url, String body, Map<String, String> addedHeaders)
@@ -562,6 +603,11 @@ public class HttpClient {
     }
 
     private Call createCall(HttpCommand command, String url, String body, Map<String, String> addedHeaders) {
+        return createCall(command, url, (body != null) ? RequestBody.create(MEDIA_TYPE_JSON, body) : null,
+                addedHeaders);
+    }
+
+    private Call createCall(HttpCommand command, String url, RequestBody body, Map<String, String> addedHeaders) {
 
         Request.Builder requestBuilder = new Request.Builder()
                 // .header("x-cr-api-token", apiToken)
@@ -581,16 +627,26 @@ public class HttpClient {
             requestBuilder = requestBuilder.delete();
             break;
         case POST:
-            requestBuilder = requestBuilder.post(RequestBody.create(MEDIA_TYPE_JSON, body));
+            requestBuilder = requestBuilder.post(body);
             break;
         case PUT:
-            requestBuilder = requestBuilder.put(RequestBody.create(MEDIA_TYPE_JSON, body));
+            requestBuilder = requestBuilder.put(body);
             break;
         }
 
         return okHttpClient.newCall(requestBuilder.build());
     }
 
+    /**
+     * Runs a task on the executor which calls back asynchronous calls, e.g. to deliver a response served without a
+     * call on the same kind of thread
+     *
+     * @param task
+     */
+    public void dispatch(Runnable task) {
+        okHttpClient.dispatcher().executorService().execute(task);
+    }
+
     public void close() {
         okHttpClient.dispatcher().cancelAll();
         okHttpClient.connectionPool().evictAll();
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content negotiation and coding of compressed HTTP bodies (gzip and deflate) on the A1 interface
+ */
+public class HttpCompression {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String IDENTITY = "identity";
+
+    /**
+     * Accept-Encoding header value sent by consumers
+     */
+    public static final String ACCEPT_ENCODING = GZIP + ", " + DEFLATE;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private HttpCompression() {
+    }
+
+    /**
+     * Selects the content coding of a response body
+     *
+     * @param acceptEncoding
+     *            Accept-Encoding header of the request (may be null)
+     * @param contentLength
+     *            size of the body or -1 if unknown (streamed bodies are always compressed)
+     * @param threshold
+     *            minimum size of a body to be compressed (negative to disable compression)
+     * @return {@link #GZIP}, {@link #DEFLATE} or null if the body is sent uncompressed
+     */
+    public static String selectEncoding(String acceptEncoding, long contentLength, int threshold) {
+        if ((threshold < 0) || (contentLength == 0) || ((contentLength > 0) && (contentLength < threshold))) {
+            return null;
+        }
+        return negotiate(acceptEncoding);
+    }
+
+    /**
+     * Returns the supported content coding with the highest quality value in an Accept-Encoding header (gzip is
+     * preferred over deflate on equal quality values)
+     *
+     * @param acceptEncoding
+     * @return {@link #GZIP}, {@link #DEFLATE} or null if none is accepted
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzipQuality = -1;
+        double deflateQuality = -1;
+        double wildcardQuality = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                gzipQuality = quality;
+            } else if (DEFLATE.equals(coding)) {
+                deflateQuality = quality;
+            } else if ("*".equals(coding)) {
+                wildcardQuality = quality;
+            }
+        }
+        if (gzipQuality < 0) {
+            gzipQuality = wildcardQuality;
+        }
+        if (deflateQuality < 0) {
+            deflateQuality = wildcardQuality;
+        }
+        if ((gzipQuality <= 0) && (deflateQuality <= 0)) {
+            return null;
+        }
+        return (gzipQuality >= deflateQuality) ? GZIP : DEFLATE;
+    }
+
+    /**
+     * Wraps an output stream to compress the data written to it. The returned stream has to be closed (or finished)
+     * to write the trailer of the compressed data.
+     *
+     * @param out
+     * @param contentEncoding
+     *            {@link #GZIP}, {@link #DEFLATE} or null
+     * @return
+     * @throws IOException
+     */
+    public static OutputStream encode(OutputStream out, String contentEncoding) throws IOException {
+        if (GZIP.equals(contentEncoding)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        } else if (DEFLATE.equals(contentEncoding)) {
+            return new DeflaterOutputStream(out);
+        }
+        return out;
+    }
+
+    /**
+     * Wraps an input stream to decompress the data read from it
+     *
+     * @param in
+     * @param contentEncoding
+     *            Content-Encoding header of the response (may be null)
+     * @return
+     * @throws IOException
+     *             if the content coding is not supported
+     */
+    public static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if ((contentEncoding == null) || contentEncoding.trim().isEmpty()) {
+            return in;
+        }
+        String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        } else if (DEFLATE.equals(coding)) {
+            return new InflaterInputStream(in);
+        } else if (IDENTITY.equals(coding)) {
+            return in;
+        }
+        throw new IOException("Unsupported content encoding " + contentEncoding);
+    }
+
+    /**
+     * Decompresses a complete body
+     *
+     * @param body
+     * @param contentEncoding
+     *            Content-Encoding header of the response (may be null)
+     * @return
+     * @throws IOException
+     */
+    public static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        InputStream in = decode(new ByteArrayInputStream(body), contentEncoding);
+        if (in instanceof ByteArrayInputStream) {
+            return body;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,502 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.bridgeiot.lib.exceptions.MarketplaceRejectedException;
+import org.eclipse.bridgeiot.lib.exceptions.MarketplaceRejectedException.Reason;
+
+/**
+ * Admission control for requests to the marketplace. A request is admitted if
+ * <ul>
+ * <li>the {@link CircuitBreaker} lets it pass</li>
+ * <li>a token of the token bucket rate limiter is available</li>
+ * <li>a slot of the bounded number of concurrent requests is free</li>
+ * </ul>
+ * Requests are admitted in the order of their {@link Priority}. Additionally, a number of concurrency slots is
+ * reserved for higher priorities, so that registrations and subscription renewals keep their offerings alive even if
+ * discovery and accounting requests saturate the marketplace. A request not admitted within the maximum wait time is
+ * rejected with a {@link MarketplaceRejectedException}.
+ * <p>
+ * Asynchronous requests wait in a queue per priority instead of on a thread. They are admitted in FIFO order whenever
+ * a slot is released or a token becomes available, i.e. a request waiting for admission never holds back requests
+ * queued behind it for longer than it waits itself.
+ */
+public class MarketplaceAdmission {
+
+    public static final double DEFAULT_RATE_PER_SECOND = 20.0;
+    public static final int DEFAULT_BURST = 40;
+    public static final int DEFAULT_MAX_CONCURRENT = 16;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30000L;
+
+    private static final Pattern OPERATION_PATTERN = Pattern
+            .compile("\\{\\s*\"query\"\\s*:\\s*\"\\s*(?:mutation|query)\\s+(\\w+)");
+    private static final int OPERATION_PREFIX_LENGTH = 128;
+
+    /**
+     * Priority classes of marketplace requests
+     */
+    public enum Priority {
+        /** Registrations, activations and subscription renewals, which keep offerings alive */
+        HIGH,
+        /** Subscriptions and all other requests */
+        NORMAL,
+        /** Discovery and accounting */
+        LOW
+    }
+
+    /**
+     * Callback of a request waiting asynchronously for admission. The callbacks must not block, since they run on the
+     * thread releasing a slot or on the shared admission timer.
+     */
+    public interface AdmissionCallback {
+
+        /**
+         * Called when the request is admitted. The request has to be released by {@link #release(boolean)}.
+         */
+        void onAdmitted();
+
+        /**
+         * Called when the request is not admitted within the maximum wait time or the circuit breaker is open
+         *
+         * @param e
+         */
+        void onRejected(MarketplaceRejectedException e);
+
+    }
+
+    private static class AsyncWaiter {
+
+        final AdmissionCallback callback;
+        final long deadline;
+        MarketplaceRejectedException rejection = null;
+
+        AsyncWaiter(AdmissionCallback callback, long deadline) {
+            this.callback = callback;
+            this.deadline = deadline;
+        }
+
+    }
+
+    private static final Map<String, Priority> operationPriorities = new HashMap<>();
+
+    // wakes up asynchronous waiters when a token becomes available or their wait time expires
+    private static ScheduledThreadPoolExecutor admissionTimer = null;
+
+    static {
+        operationPriorities.put("addOffering", Priority.HIGH);
+        operationPriorities.put("activateOffering", Priority.HIGH);
+        operationPriorities.put("renewSubscriptions", Priority.HIGH);
+        operationPriorities.put("addOfferingQuery", Priority.LOW);
+        operationPriorities.put("q", Priority.LOW);
+        operationPriorities.put("accountingReport", Priority.LOW);
+    }
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxConcurrent;
+    private final int reservedPerPriority;
+    private final long maxWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    private double tokens;
+    private long lastRefill;
+    private int inFlight = 0;
+    private final int[] waiting = new int[Priority.values().length];
+    private final long[] admitted = new long[Priority.values().length];
+    private long rateLimitRejections = 0;
+    private long concurrencyRejections = 0;
+    private final List<ArrayDeque<AsyncWaiter>> asyncWaiters = new ArrayList<>();
+    private ScheduledFuture<?> asyncWakeup = null;
+
+    private MarketplaceAdmission(double ratePerSecond, int burst, int maxConcurrent, long maxWaitMillis,
+            CircuitBreaker circuitBreaker) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxConcurrent = maxConcurrent;
+        this.reservedPerPriority = Math.max(1, maxConcurrent / 4);
+        this.maxWaitMillis = maxWaitMillis;
+        this.circuitBreaker = circuitBreaker;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+        for (int i = 0; i < Priority.values().length; i++) {
+            asyncWaiters.add(new ArrayDeque<AsyncWaiter>());
+        }
+    }
+
+    public static MarketplaceAdmission create() {
+        return new MarketplaceAdmission(DEFAULT_RATE_PER_SECOND, DEFAULT_BURST, DEFAULT_MAX_CONCURRENT,
+                DEFAULT_MAX_WAIT_MILLIS, CircuitBreaker.create());
+    }
+
+    /**
+     * Creates an admission control
+     *
+     * @param ratePerSecond
+     *            sustained number of requests per second
+     * @param burst
+     *            capacity of the token bucket
+     * @param maxConcurrent
+     *            maximum number of concurrent requests
+     * @param maxWaitMillis
+     *            maximum time in milliseconds a request waits for admission
+     * @param circuitBreaker
+     */
+    public static MarketplaceAdmission create(double ratePerSecond, int burst, int maxConcurrent, long maxWaitMillis,
+            CircuitBreaker circuitBreaker) {
+        if ((ratePerSecond <= 0) || (burst < 1) || (maxConcurrent < 1) || (maxWaitMillis < 0)
+                || (circuitBreaker == null)) {
+            throw new IllegalArgumentException("Invalid marketplace admission configuration");
+        }
+        return new MarketplaceAdmission(ratePerSecond, burst, maxConcurrent, maxWaitMillis, circuitBreaker);
+    }
+
+    /**
+     * Returns the priority class of a marketplace operation
+     *
+     * @param operationName
+     *            name of the GraphQL operation, e.g. addOffering
+     * @return
+     */
+    public static Priority priorityOf(String operationName) {
+        Priority priority = (operationName != null) ? operationPriorities.get(operationName) : null;
+        return (priority != null) ? priority : Priority.NORMAL;
+    }
+
+    /**
+     * Returns the name of the GraphQL operation of a marketplace request or null if it cannot be determined
+     *
+     * @param request
+     *            marketplace request as JSON string
+     * @return
+     */
+    public static String operationName(String request) {
+        if (request == null) {
+            return null;
+        }
+        Matcher matcher = OPERATION_PATTERN
+                .matcher(request.substring(0, Math.min(request.length(), OPERATION_PREFIX_LENGTH)));
+        return matcher.lookingAt() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Returns true if a marketplace response indicates that the marketplace is not available or overloaded
+     *
+     * @param httpStatus
+     * @return
+     */
+    public static boolean isFailure(int httpStatus) {
+        return (httpStatus >= 500) || (httpStatus == 429);
+    }
+
+    /**
+     * Waits for admission of a request. Each admitted request has to be released by {@link #release(boolean)}.
+     *
+     * @param priority
+     * @throws MarketplaceRejectedException
+     *             if the request is not admitted within the maximum wait time or the circuit breaker is open
+     * @throws InterruptedIOException
+     *             if the calling thread is interrupted while waiting
+     */
+    public void acquire(Priority priority) throws IOException {
+        acquire(priority, maxWaitMillis);
+    }
+
+    /**
+     * Admits a request only if this is possible without waiting, e.g. for asynchronous requests
+     *
+     * @param priority
+     * @throws MarketplaceRejectedException
+     */
+    public void acquireNow(Priority priority) throws IOException {
+        acquire(priority, 0);
+    }
+
+    /**
+     * Queues a request for admission without blocking the calling thread. The callback is notified once the request
+     * is admitted or rejected.
+     *
+     * @param priority
+     * @param callback
+     */
+    public void acquireAsync(Priority priority, AdmissionCallback callback) {
+        if (!circuitBreaker.allowRequest()) {
+            callback.onRejected(new MarketplaceRejectedException(Reason.CIRCUIT_OPEN));
+            return;
+        }
+        synchronized (this) {
+            asyncWaiters.get(priority.ordinal())
+                    .add(new AsyncWaiter(callback, System.currentTimeMillis() + maxWaitMillis));
+            waiting[priority.ordinal()]++;
+        }
+        admitAsyncWaiters();
+    }
+
+    private void acquire(Priority priority, long waitMillis) throws IOException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new MarketplaceRejectedException(Reason.CIRCUIT_OPEN);
+        }
+        try {
+            admit(priority, waitMillis);
+        } catch (IOException e) {
+            circuitBreaker.cancel();
+            throw e;
+        } finally {
+            // a lower priority may have been held back by this request
+            admitAsyncWaiters();
+        }
+    }
+
+    private synchronized void admit(Priority priority, long waitMillis) throws IOException {
+        int index = priority.ordinal();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        waiting[index]++;
+        try {
+            while (true) {
+                refill();
+                boolean slot = inFlight < concurrencyLimit(priority);
+                boolean token = tokens >= 1.0;
+                if (slot && token && !higherPriorityWaiting(index)) {
+                    tokens -= 1.0;
+                    inFlight++;
+                    admitted[index]++;
+                    return;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    if (slot && !token) {
+                        rateLimitRejections++;
+                        throw new MarketplaceRejectedException(Reason.RATE_LIMIT);
+                    }
+                    concurrencyRejections++;
+                    throw new MarketplaceRejectedException(Reason.CONCURRENCY_LIMIT);
+                }
+                wait(Math.max(1, token ? remaining : Math.min(remaining, millisUntilNextToken())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for marketplace admission");
+        } finally {
+            waiting[index]--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Releases an admitted request and records its outcome at the circuit breaker
+     *
+     * @param success
+     *            false if the marketplace failed or was not reachable
+     */
+    public void release(boolean success) {
+        synchronized (this) {
+            inFlight--;
+            notifyAll();
+        }
+        if (success) {
+            circuitBreaker.recordSuccess();
+        } else {
+            circuitBreaker.recordFailure();
+        }
+        admitAsyncWaiters();
+    }
+
+    /**
+     * Admits queued asynchronous requests in the order of their priority, rejects expired ones and notifies their
+     * callbacks outside of the lock
+     */
+    private void admitAsyncWaiters() {
+        List<AsyncWaiter> completed = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            refill();
+            for (Priority priority : Priority.values()) {
+                int index = priority.ordinal();
+                ArrayDeque<AsyncWaiter> queue = asyncWaiters.get(index);
+                while (!queue.isEmpty()) {
+                    AsyncWaiter waiter = queue.peek();
+                    boolean slot = inFlight < concurrencyLimit(priority);
+                    boolean token = tokens >= 1.0;
+                    if (slot && token && !higherPriorityWaiting(index)) {
+                        tokens -= 1.0;
+                        inFlight++;
+                        admitted[index]++;
+                    } else if (waiter.deadline <= now) {
+                        if (slot && !token) {
+                            rateLimitRejections++;
+                            waiter.rejection = new MarketplaceRejectedException(Reason.RATE_LIMIT);
+                        } else {
+                            concurrencyRejections++;
+                            waiter.rejection = new MarketplaceRejectedException(Reason.CONCURRENCY_LIMIT);
+                        }
+                    } else {
+                        break;
+                    }
+                    queue.poll();
+                    waiting[index]--;
+                    completed.add(waiter);
+                }
+            }
+            if (!completed.isEmpty()) {
+                notifyAll();
+            }
+            scheduleAsyncWakeup(now);
+        }
+
+        for (AsyncWaiter waiter : completed) {
+            if (waiter.rejection == null) {
+                waiter.callback.onAdmitted();
+            } else {
+                circuitBreaker.cancel();
+                waiter.callback.onRejected(waiter.rejection);
+            }
+        }
+    }
+
+    private void scheduleAsyncWakeup(long now) {
+        if (asyncWakeup != null) {
+            asyncWakeup.cancel(false);
+            asyncWakeup = null;
+        }
+        long delay = Long.MAX_VALUE;
+        for (ArrayDeque<AsyncWaiter> queue : asyncWaiters) {
+            if (!queue.isEmpty()) {
+                delay = Math.min(delay, queue.peek().deadline - now);
+                if (tokens < 1.0) {
+                    delay = Math.min(delay, millisUntilNextToken());
+                }
+            }
+        }
+        if (delay == Long.MAX_VALUE) {
+            return;
+        }
+        asyncWakeup = getAdmissionTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                admitAsyncWaiters();
+            }
+        }, Math.max(1, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getAdmissionTimer() {
+        if (admissionTimer == null) {
+            admissionTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "marketplace-admission");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            admissionTimer.setRemoveOnCancelPolicy(true);
+        }
+        return admissionTimer;
+    }
+
+    private int concurrencyLimit(Priority priority) {
+        return Math.max(1, maxConcurrent - priority.ordinal() * reservedPerPriority);
+    }
+
+    private boolean higherPriorityWaiting(int index) {
+        for (int i = 0; i < index; i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / 1e9);
+        lastRefill = now;
+    }
+
+    private long millisUntilNextToken() {
+        return (long) Math.ceil((1.0 - tokens) * 1000.0 / ratePerSecond);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    /**
+     * Returns the number of requests of a priority currently waiting for admission
+     */
+    public synchronized int getWaitingCount(Priority priority) {
+        return waiting[priority.ordinal()];
+    }
+
+    public synchronized long getAdmittedCount(Priority priority) {
+        return admitted[priority.ordinal()];
+    }
+
+    /**
+     * Returns the number of requests rejected for a reason
+     *
+     * @param reason
+     * @return
+     */
+    public long getRejectionCount(Reason reason) {
+        switch (reason) {
+        case CIRCUIT_OPEN:
+            return circuitBreaker.getRejectionCount();
+        case RATE_LIMIT:
+            synchronized (this) {
+                return rateLimitRejections;
+            }
+        default:
+            synchronized (this) {
+                return concurrencyRejections;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MarketplaceAdmission[inFlight=" + getInFlight() + ", tokens="
+                + String.format("%.1f", getAvailableTokens()) + ", rateLimitRejections="
+                + getRejectionCount(Reason.RATE_LIMIT) + ", concurrencyRejections="
+                + getRejectionCount(Reason.CONCURRENCY_LIMIT) + ", " + circuitBreaker + "]";
+    }
+
+}
@@ -22,16 +22,21 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 
 import org.eclipse.bridgeiot.lib.BridgeIotClientId;
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.exceptions.InvalidOfferingException;
+import org.eclipse.bridgeiot.lib.exceptions.MarketplaceRejectedException;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceAdmission.Priority;
 import org.eclipse.bridgeiot.lib.offering.LegacyOfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
 import org.eclipse.bridgeiot.lib.security.AccessToken;
@@ -51,6 +56,7 @@ public class MarketplaceClient {
     private String clientSecret = null;
     private String clientAccessToken = null;
     private HttpClient httpClient = null;
+    private MarketplaceAdmission admission = MarketplaceAdmission.create();
 
     // scheduled executor to update marketplace token prior to expiration
     @JsonIgnore
@@ -156,24 +162,134 @@ public class MarketplaceClient {
 
     }
 
-    public void request(String json, Callback callback) {
-        if (clientAccessToken == null) {
-            httpClient.post(marketplaceGraphQLUri, callback, json);
-        } else {
-            final HashMap<String, String> addHeaders = new HashMap<>();
-            addHeaders.put("Authorization", "Bearer " + clientAccessToken);
-            httpClient.post(marketplaceGraphQLUri, addHeaders, callback, json);
-        }
+    /**
+     * Sends a request to the marketplace without blocking the calling thread. The request waits for admission in the
+     * background, i.e. any number of requests can be issued with a bounded number of threads.
+     *
+     * @param json
+     * @param callback
+     */
+    public void request(final String json, Callback callback) {
+        admitAsync(MarketplaceAdmission.priorityOf(MarketplaceAdmission.operationName(json)), callback,
+                new AdmittedRequest() {
+                    @Override
+                    public void send(Callback admittedCallback) {
+                        if (clientAccessToken == null) {
+                            httpClient.post(marketplaceGraphQLUri, admittedCallback, json);
+                        } else {
+                            final HashMap<String, String> addHeaders = new HashMap<>();
+                            addHeaders.put("Authorization", "Bearer " + clientAccessToken);
+                            httpClient.post(marketplaceGraphQLUri, addHeaders, admittedCallback, json);
+                        }
+                    }
+                });
     }
 
     public Response request(String json) throws IOException {
+        admission.acquire(MarketplaceAdmission.priorityOf(MarketplaceAdmission.operationName(json)));
+        boolean success = false;
+        try {
+            Response response;
+            if (clientAccessToken == null) {
+                response = httpClient.post(marketplaceGraphQLUri, json);
+            } else {
+                final HashMap<String, String> addHeaders = new HashMap<>();
+                addHeaders.put("Authorization", "Bearer " + clientAccessToken);
+                response = httpClient.post(marketplaceGraphQLUri, addHeaders, json);
+            }
+            success = !MarketplaceAdmission.isFailure(response.code());
+            return response;
+        } finally {
+            admission.release(success);
+        }
+    }
+
+    /**
+     * Sends a request to the marketplace. The request body is written directly into the connection, e.g. a streamed
+     * {@link GraphQLRequest}.
+     *
+     * @param body
+     * @param callback
+     */
+    public void request(final RequestBody body, Callback callback) {
+        admitAsync(priorityOf(body), callback, new AdmittedRequest() {
+            @Override
+            public void send(Callback admittedCallback) {
+                httpClient.post(marketplaceGraphQLUri, authorizationHeaders(), admittedCallback, body);
+            }
+        });
+    }
+
+    public Response request(RequestBody body) throws IOException {
+        admission.acquire(priorityOf(body));
+        boolean success = false;
+        try {
+            Response response = httpClient.post(marketplaceGraphQLUri, authorizationHeaders(), body);
+            success = !MarketplaceAdmission.isFailure(response.code());
+            return response;
+        } finally {
+            admission.release(success);
+        }
+    }
+
+    private static Priority priorityOf(RequestBody body) {
+        return (body instanceof GraphQLRequest)
+                ? MarketplaceAdmission.priorityOf(((GraphQLRequest) body).getOperationName()) : Priority.NORMAL;
+    }
+
+    /**
+     * Asynchronous request, which is sent once it is admitted
+     */
+    private interface AdmittedRequest {
+        void send(Callback admittedCallback);
+    }
+
+    /**
+     * Queues an asynchronous request for admission. No thread waits for the admission, so a request held back by the
+     * admission control never delays the requests queued behind it beyond its own wait. A rejected request is
+     * reported to the callback as failure.
+     */
+    private void admitAsync(final Priority priority, final Callback callback, final AdmittedRequest request) {
+        final MarketplaceAdmission requestAdmission = admission;
+        requestAdmission.acquireAsync(priority, new MarketplaceAdmission.AdmissionCallback() {
+            @Override
+            public void onAdmitted() {
+                try {
+                    request.send(new Callback() {
+                        @Override
+                        public void onFailure(Call call, IOException e) {
+                            requestAdmission.release(false);
+                            callback.onFailure(call, e);
+                        }
+
+                        @Override
+                        public void onResponse(Call call, Response response) throws IOException {
+                            requestAdmission.release(!MarketplaceAdmission.isFailure(response.code()));
+                            callback.onResponse(call, response);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    logger.error("Sending marketplace request failed", e);
+                    requestAdmission.release(false);
+                    callback.onFailure(null, new IOException(e));
+                }
+            }
+
+            @Override
+            public void onRejected(MarketplaceRejectedException e) {
+                logger.warn("Marketplace request rejected: {}", e.getMessage());
+                callback.onFailure(null, e);
+            }
+        });
+    }
+
+    private Map<String, String> authorizationHeaders() {
         if (clientAccessToken == null) {
-            return httpClient.post(marketplaceGraphQLUri, json);
-        } else {
-            final HashMap<String, String> addHeaders = new HashMap<>();
-            addHeaders.put("Authorization", "Bearer " + clientAccessToken);
-            return httpClient.post(marketplaceGraphQLUri, addHeaders, json);
+            return null;
         }
+        final HashMap<String, String> addHeaders = new HashMap<>();
+        addHeaders.put("Authorization", "Bearer " + clientAccessToken);
+        return addHeaders;
     }
 
     public OfferingDescription getOfferingDescription(String offeringId) throws InvalidOfferingException, IOException {
@@ -227,6 +343,23 @@ public class MarketplaceClient {
         return false;
     }
 
+    /**
+     * Returns the admission control of marketplace requests, which also provides metrics on rejected requests and the
+     * circuit breaker state
+     */
+    public MarketplaceAdmission getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Replaces the admission control of marketplace requests, e.g. to adapt rate and concurrency limits
+     *
+     * @param admission
+     */
+    public void setAdmission(MarketplaceAdmission admission) {
+        this.admission = admission;
+    }
+
     public String getClientSecret() {
         return clientSecret;
     }
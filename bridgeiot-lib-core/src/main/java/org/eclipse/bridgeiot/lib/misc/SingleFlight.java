@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent executions of identical work: while a computation for a key is in flight, further callers for
+ * the same key wait for and share its result instead of starting their own computation. Asynchronous executions are
+ * coalesced by registering a {@link Listener} with {@link #join(String, Listener)}.
+ *
+ * @param <V>
+ *            result type
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentMap<String, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Flight<V>> asyncInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public static <V> SingleFlight<V> create() {
+        return new SingleFlight<>();
+    }
+
+    /**
+     * Executes the callable in the calling thread, unless an execution for the same key is already in flight. In that
+     * case the result of the execution in flight is returned.
+     *
+     * @param key
+     * @param callable
+     * @return
+     * @throws ExecutionException
+     *             if the (shared) execution failed
+     * @throws InterruptedException
+     */
+    public V execute(String key, Callable<V> callable) throws ExecutionException, InterruptedException {
+        FutureTask<V> task = new FutureTask<>(callable);
+        FutureTask<V> running = inFlight.putIfAbsent(key, task);
+        if (running != null) {
+            coalescedCount.incrementAndGet();
+            return running.get();
+        }
+        try {
+            task.run();
+            return task.get();
+        } finally {
+            inFlight.remove(key, task);
+        }
+    }
+
+    /**
+     * Registers a listener for the asynchronous execution in flight for the key. If there is none, a new execution is
+     * registered and true is returned: the caller has to start it and to finish it with
+     * {@link #complete(String, Object)} or {@link #fail(String, Throwable)}. All registered listeners, including the
+     * one of the caller starting the execution, are notified when it is finished.
+     *
+     * @param key
+     * @param listener
+     * @return true if the caller has to start the execution
+     */
+    public boolean join(String key, Listener<V> listener) {
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            flight.add(listener);
+            Flight<V> running = asyncInFlight.putIfAbsent(key, flight);
+            if (running == null) {
+                return true;
+            }
+            if (running.add(listener)) {
+                coalescedCount.incrementAndGet();
+                return false;
+            }
+            // finished meanwhile
+            asyncInFlight.remove(key, running);
+        }
+    }
+
+    /**
+     * Finishes the asynchronous execution for the key successfully and notifies its listeners
+     *
+     * @param key
+     * @param value
+     */
+    public void complete(String key, V value) {
+        for (Listener<V> listener : finish(key)) {
+            listener.onSuccess(value);
+        }
+    }
+
+    /**
+     * Finishes the asynchronous execution for the key with a failure and notifies its listeners
+     *
+     * @param key
+     * @param failure
+     */
+    public void fail(String key, Throwable failure) {
+        for (Listener<V> listener : finish(key)) {
+            listener.onFailure(failure);
+        }
+    }
+
+    /**
+     * Withdraws the listener of the caller which started the asynchronous execution for the key, e.g. because it
+     * cancelled the execution. If other listeners joined meanwhile, the execution stays registered and the first of them
+     * is returned: its caller takes over and has to start the execution anew. Otherwise the execution is removed.
+     *
+     * @param key
+     * @param listener
+     * @return listener of the caller taking over, or null if no other caller joined
+     */
+    public Listener<V> handOver(String key, Listener<V> listener) {
+        Flight<V> flight = asyncInFlight.get(key);
+        if (flight == null) {
+            return null;
+        }
+        Listener<V> next = flight.remove(listener);
+        if (next == null) {
+            asyncInFlight.remove(key, flight);
+        }
+        return next;
+    }
+
+    private List<Listener<V>> finish(String key) {
+        Flight<V> flight = asyncInFlight.remove(key);
+        return (flight != null) ? flight.finish() : Collections.<Listener<V>>emptyList();
+    }
+
+    /**
+     * Returns the number of calls which shared the result of an execution in flight
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size() + asyncInFlight.size();
+    }
+
+    /**
+     * Is notified when an asynchronous execution is finished
+     *
+     * @param <V>
+     *            result type
+     */
+    public interface Listener<V> {
+
+        void onSuccess(V value);
+
+        void onFailure(Throwable failure);
+    }
+
+    private static class Flight<V> {
+
+        private final List<Listener<V>> listeners = new ArrayList<>();
+        private boolean finished = false;
+
+        synchronized boolean add(Listener<V> listener) {
+            if (finished) {
+                return false;
+            }
+            listeners.add(listener);
+            return true;
+        }
+
+        synchronized Listener<V> remove(Listener<V> listener) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                finished = true;
+                return null;
+            }
+            return listeners.get(0);
+        }
+
+        synchronized List<Listener<V>> finish() {
+            finished = true;
+            return new ArrayList<>(listeners);
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of subscribing to a set of offerings at once: the access objects of the successfully subscribed offerings and
+ * the failure per offering ID of the others.
+ *
+ * @param <T>
+ *            type of the offering access objects
+ */
+public class BulkSubscriptionResult<T extends OfferingCore> {
+
+    private final List<T> offerings = new ArrayList<>();
+    private final Map<String, Exception> failures = new LinkedHashMap<>();
+
+    public synchronized void addOffering(T offering) {
+        offerings.add(offering);
+    }
+
+    public synchronized void addFailure(String offeringId, Exception failure) {
+        failures.put(offeringId, failure);
+    }
+
+    /**
+     * Returns the access objects of the successfully subscribed offerings
+     */
+    public synchronized List<T> getOfferings() {
+        return Collections.unmodifiableList(new ArrayList<>(offerings));
+    }
+
+    /**
+     * Returns the failures per offering ID
+     */
+    public synchronized Map<String, Exception> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    public synchronized boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BulkSubscriptionResult[subscribed=" + offerings.size() + ", failed=" + failures.keySet() + "]";
+    }
+
+}
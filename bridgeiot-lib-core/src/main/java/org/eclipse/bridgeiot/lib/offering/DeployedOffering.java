@@ -16,16 +16,25 @@
 package org.eclipse.bridgeiot.lib.offering;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
+import org.eclipse.bridgeiot.lib.offering.SubscriptionRateLimiter.SubscriptionMetrics;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
 import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
 import org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer;
+import org.eclipse.bridgeiot.lib.serverwrapper.PrecomputedAccessRequestHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,14 +47,38 @@ public class DeployedOffering extends RegisteredOffering {
 
     static ObjectMapper mapper = new ObjectMapper();
 
+    // releases the rate limiter permits of asynchronous accesses without response
+    private static ScheduledThreadPoolExecutor permitTimeouts = null;
+
     protected EmbededdedRouteBasedServer server;
     protected AccessRequestHandler accessRequestHandler;
+    protected AsyncAccessRequestHandler asyncAccessRequestHandler;
+    protected ProviderResponseCache responseCache;
+    protected PrecomputedAccessRequestHandler sampleDataAccessRequestHandler;
+    protected PrecomputedAccessRequestHandler metaDataAccessRequestHandler;
+    protected SubscriptionRateLimiter rateLimiter;
     protected Accounting accounting;
 
     public DeployedOffering(RegistrableOfferingDescription offeringDescription, EmbededdedRouteBasedServer server) {
         super(offeringDescription);
         this.server = server;
         this.accessRequestHandler = offeringDescription.getAccessRequestHandler();
+        this.asyncAccessRequestHandler = offeringDescription.getAsyncAccessRequestHandler();
+        this.responseCache = offeringDescription.getResponseCache();
+        if (offeringDescription.getSampleDataAccessRequestHandler() != null) {
+            this.sampleDataAccessRequestHandler = PrecomputedAccessRequestHandler.create(
+                    offeringDescription.getSampleDataAccessRequestHandler(),
+                    offeringDescription.getSampleAndMetaDataTimeToLive());
+        }
+        if (offeringDescription.getMetaDataAccessRequestHandler() != null) {
+            this.metaDataAccessRequestHandler = PrecomputedAccessRequestHandler.create(
+                    offeringDescription.getMetaDataAccessRequestHandler(),
+                    offeringDescription.getSampleAndMetaDataTimeToLive());
+        }
+        SubscriptionRateLimiter limiter = SubscriptionRateLimiter.create(
+                offeringDescription.requestsPerSecondPerSubscription, offeringDescription.requestBurstPerSubscription,
+                offeringDescription.maxConcurrentRequestsPerSubscription);
+        this.rateLimiter = limiter.isUnlimited() ? null : limiter;
         this.deploy();
         accounting = Accounting.create(offeringDescription.getId());
     }
@@ -62,22 +95,23 @@ public class DeployedOffering extends RegisteredOffering {
     public void deploy() {
         // NOTE: Offerings on Provider Lib currently just have one Endpoint
         if (server != null) {
-            if (accessRequestHandler != null) {
+            if (asyncAccessRequestHandler != null) {
+                server.addRoute(registrableOfferingDescription.getRoute(), internalAsyncAccessRequestHandler,
+                        registrableOfferingDescription, true);
+            } else if (accessRequestHandler != null) {
                 server.addRoute(registrableOfferingDescription.getRoute(), internalAccessRequestHandler,
                         registrableOfferingDescription, true);
             } else {
                 server.addRoute(registrableOfferingDescription.getRoute(), internalAccessStreamRequestHandler,
                         registrableOfferingDescription, true);
             }
-            if (registrableOfferingDescription.getSampleDataAccessRequestHandler() != null) {
+            if (sampleDataAccessRequestHandler != null) {
                 server.addRoute(Constants.SAMPLEDATA_ROUTE + registrableOfferingDescription.getRoute(),
-                        registrableOfferingDescription.getSampleDataAccessRequestHandler(),
-                        registrableOfferingDescription, false);
+                        sampleDataAccessRequestHandler, registrableOfferingDescription, false);
             }
-            if (registrableOfferingDescription.getMetaDataAccessRequestHandler() != null) {
+            if (metaDataAccessRequestHandler != null) {
                 server.addRoute(Constants.METADATA_ROUTE + registrableOfferingDescription.getRoute(),
-                        registrableOfferingDescription.getMetaDataAccessRequestHandler(),
-                        registrableOfferingDescription, false);
+                        metaDataAccessRequestHandler, registrableOfferingDescription, false);
             }
         } else {
             logger.info("Deployment server not defined!");
@@ -103,6 +137,72 @@ public class DeployedOffering extends RegisteredOffering {
         }
     }
 
+    /**
+     * Invalidates the precomputed sample data and meta data responses, e.g. after the provider changed them. The
+     * handlers are invoked again on the next request.
+     */
+    public void invalidateSampleAndMetaData() {
+        if (sampleDataAccessRequestHandler != null) {
+            sampleDataAccessRequestHandler.invalidate();
+        }
+        if (metaDataAccessRequestHandler != null) {
+            metaDataAccessRequestHandler.invalidate();
+        }
+    }
+
+    /**
+     * Returns the response cache of the offering or null if responses are not cached
+     */
+    public ProviderResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Returns the access metrics per subscription id, or an empty map if the accesses of the subscriptions are not
+     * limited
+     */
+    public Map<String, SubscriptionMetrics> getSubscriptionMetrics() {
+        return (rateLimiter != null) ? rateLimiter.getMetrics() : new HashMap<String, SubscriptionMetrics>();
+    }
+
+    /**
+     * Releases the permit of an asynchronous access once the server gave up waiting for its response
+     */
+    private ScheduledFuture<?> schedulePermitTimeout(final String subscriptionId, final AtomicBoolean permitHeld) {
+        final long timeoutMillis = server.getAsyncResponseTimeoutMillis();
+        return getPermitTimeouts().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (permitHeld.compareAndSet(true, false)) {
+                    logger.warn("No response to access request of subscription {} within {} ms", subscriptionId,
+                            timeoutMillis);
+                    rateLimiter.release(subscriptionId);
+                }
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getPermitTimeouts() {
+        if (permitTimeouts == null) {
+            permitTimeouts = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "access-permit-timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            permitTimeouts.setRemoveOnCancelPolicy(true);
+        }
+        return permitTimeouts;
+    }
+
+    private BridgeIotHttpResponse tooManyRequests(String subscriptionId) {
+        return new BridgeIotHttpResponse(BridgeIotHttpResponse.TOO_MANY_REQUESTS_STATUS)
+                .addHeader("Retry-After", String.valueOf(rateLimiter.getRetryAfterSeconds(subscriptionId)))
+                .asTextPlain().withBody("Too many requests of subscription, retry later");
+    }
+
     public List<AccountingReport> getAccountingReports() {
         return accounting.getCurrentReports();
     }
@@ -113,10 +213,26 @@ public class DeployedOffering extends RegisteredOffering {
         public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
                 Map<String, Object> inputData, String subscriptionId, String sessionId) {
 
-            BridgeIotHttpResponse response = accessRequestHandler.processRequestHandler(offeringDescription, inputData,
-                    subscriptionId, sessionId);
+            if ((rateLimiter != null) && !rateLimiter.tryAcquire(subscriptionId)) {
+                return tooManyRequests(subscriptionId);
+            }
+            BridgeIotHttpResponse response;
+            try {
+                if (responseCache != null) {
+                    // cache hits are accounted for each subscriber like calls of the handler
+                    response = responseCache.get(accessRequestHandler, offeringDescription, inputData,
+                            subscriptionId, sessionId);
+                } else {
+                    response = accessRequestHandler.processRequestHandler(offeringDescription, inputData,
+                            subscriptionId, sessionId);
+                }
+            } finally {
+                if (rateLimiter != null) {
+                    rateLimiter.release(subscriptionId);
+                }
+            }
 
-            if (response.getStatus() == BridgeIotHttpResponse.OK_STATUS) {
+            if (BridgeIotHttpResponse.OK_STATUS.equals(response.getStatus())) {
                 accounting.addEvent(subscriptionId, sessionId, response);
             }
 
@@ -125,12 +241,72 @@ public class DeployedOffering extends RegisteredOffering {
 
     };
 
+    protected AsyncAccessRequestHandler internalAsyncAccessRequestHandler = new AsyncAccessRequestHandler() {
+
+        @Override
+        public void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+                final String subscriptionId, final String sessionId, final ResponseCallback callback) {
+
+            if ((rateLimiter != null) && !rateLimiter.tryAcquire(subscriptionId)) {
+                callback.onResponse(tooManyRequests(subscriptionId));
+                return;
+            }
+            // the permit is returned exactly once: on the response, on a failure or when the handler does not call
+            // back in time
+            final AtomicBoolean permitHeld = new AtomicBoolean(rateLimiter != null);
+            final ScheduledFuture<?> permitTimeout = (rateLimiter != null)
+                    ? schedulePermitTimeout(subscriptionId, permitHeld) : null;
+            final ResponseCallback limitedCallback = new ResponseCallback() {
+
+                @Override
+                public void onResponse(BridgeIotHttpResponse response) {
+                    release();
+                    if (BridgeIotHttpResponse.OK_STATUS.equals(response.getStatus())) {
+                        accounting.addEvent(subscriptionId, sessionId, response);
+                    }
+                    callback.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Throwable failure) {
+                    release();
+                    callback.onFailure(failure);
+                }
+
+                private void release() {
+                    if (permitHeld.compareAndSet(true, false)) {
+                        permitTimeout.cancel(false);
+                        rateLimiter.release(subscriptionId);
+                    }
+                }
+
+            };
+
+            try {
+                asyncAccessRequestHandler.processRequestHandler(offeringDescription, inputData, subscriptionId,
+                        sessionId, limitedCallback);
+            } catch (RuntimeException e) {
+                logger.error("Access request processing failed", e);
+                limitedCallback.onFailure(e);
+            }
+        }
+
+    };
+
     protected AccessRequestHandler internalAccessStreamRequestHandler = new AccessRequestHandler() {
 
         @Override
         public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
                 Map<String, Object> inputData, String subscriptionId, String sessionId) {
 
+            if ((rateLimiter != null) && !rateLimiter.tryAcquire(subscriptionId)) {
+                return tooManyRequests(subscriptionId);
+            }
+            // the stream is polled synchronously, i.e. only the request rate is limited
+            if (rateLimiter != null) {
+                rateLimiter.release(subscriptionId);
+            }
+
             // BridgeIotHttpResponse errorResponse =
             // BridgeIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(422).asJsonType();
 
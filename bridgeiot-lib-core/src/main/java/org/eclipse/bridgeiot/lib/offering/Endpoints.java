@@ -18,10 +18,12 @@ package org.eclipse.bridgeiot.lib.offering;
 import org.eclipse.bridgeiot.lib.IProvider;
 import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
 import org.eclipse.bridgeiot.lib.handlers.AccessStreamFilterHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
 import org.eclipse.bridgeiot.lib.model.EndPoint;
+import org.eclipse.bridgeiot.lib.serverwrapper.PrecomputedAccessRequestHandler;
 
 public class Endpoints {
 
@@ -32,9 +34,12 @@ public class Endpoints {
     private String route;
 
     private AccessRequestHandler accessRequestHandler = null;
+    private AsyncAccessRequestHandler asyncAccessRequestHandler = null;
     private AccessStreamFilterHandler accessStreamFilterHandler = null;
     private AccessRequestHandler sampleDataAccessRequestHandler = null;
     private AccessRequestHandler metaDataAccessRequestHandler = null;
+    private ProviderResponseCache responseCache = null;
+    private long sampleAndMetaDataTimeToLive = PrecomputedAccessRequestHandler.DEFAULT_TIME_TO_LIVE_MILLIS;
 
     // List<EndPoint> endpointList = new ArrayList();
     private EndPoint accessRequestEndpoint = null;
@@ -54,6 +59,16 @@ public class Endpoints {
         return this;
     }
 
+    public Endpoints withAsyncAccessRequestHandler(AsyncAccessRequestHandler callback) {
+        this.asyncAccessRequestHandler = callback;
+        return this;
+    }
+
+    public Endpoints withResponseCache(long timeToLiveMillis, int maxEntries, long maxBytes) {
+        this.responseCache = ProviderResponseCache.create(timeToLiveMillis, maxEntries, maxBytes);
+        return this;
+    }
+
     public Endpoints withAccessStreamFilterHandler(AccessStreamFilterHandler filterCallback) {
         this.accessStreamFilterHandler = filterCallback;
         return this;
@@ -91,6 +106,11 @@ public class Endpoints {
         return this;
     }
 
+    public Endpoints withSampleAndMetaDataTimeToLive(long timeToLiveMillis) {
+        this.sampleAndMetaDataTimeToLive = timeToLiveMillis;
+        return this;
+    }
+
     public Endpoints withRoute(String route) {
         this.route = route;
         return this;
@@ -119,6 +139,30 @@ public class Endpoints {
         this.accessRequestHandler = accessRequestHandler;
     }
 
+    public AsyncAccessRequestHandler getAsyncAccessRequestHandler() {
+        return asyncAccessRequestHandler;
+    }
+
+    public void setAsyncAccessRequestHandler(AsyncAccessRequestHandler asyncAccessRequestHandler) {
+        this.asyncAccessRequestHandler = asyncAccessRequestHandler;
+    }
+
+    public ProviderResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ProviderResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public long getSampleAndMetaDataTimeToLive() {
+        return sampleAndMetaDataTimeToLive;
+    }
+
+    public void setSampleAndMetaDataTimeToLive(long sampleAndMetaDataTimeToLive) {
+        this.sampleAndMetaDataTimeToLive = sampleAndMetaDataTimeToLive;
+    }
+
     public AccessStreamFilterHandler getAccessStreamFilterHandler() {
         return accessStreamFilterHandler;
     }
@@ -28,6 +28,7 @@ import org.eclipse.bridgeiot.lib.ConsumerCore;
 import org.eclipse.bridgeiot.lib.IConsumer;
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonSubscribedOfferingException;
 import org.eclipse.bridgeiot.lib.feed.AccessFeed;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting;
 import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
 import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
@@ -41,12 +42,17 @@ public abstract class OfferingCore implements IOfferingCore {
 
     protected SubscribableOfferingDescriptionCore offeringDescription;
     protected IConsumer consumer;
+    protected volatile ResponseCache responseCache = null;
+    protected volatile boolean requestCoalescing = false;
     protected LinkedList<AccessFeed> feeds;
     protected Accounting accounting;
-    private String offeringToken;
+    private volatile String offeringToken;
 
-    // scheduled executor to re-register the offering prior to expiration
-    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    // scheduled executor to re-register the offering prior to expiration, only created without renewal manager
+    private ScheduledExecutorService executor = null;
+    private volatile boolean terminated = false;
+    // actions deferred until the offering access token has been renewed, e.g. resuming feeds of a restored subscription
+    private final List<Runnable> renewalActions = new LinkedList<>();
 
     protected OfferingCore() {
     }
@@ -75,9 +81,14 @@ public abstract class OfferingCore implements IOfferingCore {
         if (offeringToken != null) {
             this.offeringToken = offeringToken;
             // Create schedule for timely re-registration - to avoid expiration of the offering
+            SubscriptionRenewalManager renewalManager = getRenewalManager();
+            if (renewalManager != null) {
+                renewalManager.scheduleRenewal(this, AccessToken.getExpirationTime(offeringToken));
+                return;
+            }
             Long timeToResubscribe = Math
                     .max(AccessToken.getExpirationTime(offeringToken) - new Date().getTime() - 60000L, 1000);
-            executor.schedule(subscriptionRunnable, timeToResubscribe, TimeUnit.MILLISECONDS);
+            scheduleResubscription(timeToResubscribe);
         } else {
             // offeringToken will be NULL in the following situations:
             // 1. The initial subscribe to the offering failed
@@ -95,11 +106,59 @@ public abstract class OfferingCore implements IOfferingCore {
         // Re-subscription will be attempted 30 seconds later.
         if (offeringToken != null) {
             setOfferingToken(offeringToken);
+            runRenewalActions();
         } else {
             logger.error("Subscription failed - attempt to resubscribe in 30 seconds!");
-            executor.schedule(subscriptionRunnable, 30000L, TimeUnit.MILLISECONDS); // attempt to resubscribe in 30
-            // seconds
+            SubscriptionRenewalManager renewalManager = getRenewalManager();
+            if (renewalManager != null) {
+                renewalManager.scheduleRetry(this);
+                return;
+            }
+            scheduleResubscription(30000L); // attempt to resubscribe in 30 seconds
+        }
+    }
+
+    /**
+     * Defers an action until the offering access token has been renewed
+     *
+     * @param action
+     */
+    void runAfterRenewal(Runnable action) {
+        synchronized (renewalActions) {
+            renewalActions.add(action);
+        }
+    }
+
+    private void runRenewalActions() {
+        List<Runnable> actions;
+        synchronized (renewalActions) {
+            if (renewalActions.isEmpty()) {
+                return;
+            }
+            actions = new LinkedList<>(renewalActions);
+            renewalActions.clear();
         }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    private synchronized void scheduleResubscription(long delayMillis) {
+        if (terminated) {
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor();
+        }
+        executor.schedule(subscriptionRunnable, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the batched renewal manager of the consumer or null if subscriptions are renewed individually
+     */
+    private SubscriptionRenewalManager getRenewalManager() {
+        IConsumer owner = (offeringDescription != null) ? offeringDescription.getConsumer() : null;
+        return (owner != null) ? owner.getSubscriptionRenewalManager() : null;
     }
 
     private Runnable subscriptionRunnable = new Runnable() {
@@ -127,10 +186,67 @@ public abstract class OfferingCore implements IOfferingCore {
         return accounting.getCurrentReports();
     }
 
+    /**
+     * Enables a consumer-side cache for one-time accesses of this offering (null disables caching)
+     *
+     * @param responseCache
+     */
+    public OfferingCore withResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Enables or disables coalescing of identical one-time accesses in flight: concurrent accesses with the same
+     * parameters share a single request and receive the same response
+     *
+     * @param requestCoalescing
+     */
+    public OfferingCore withRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Returns the number of one-time accesses which shared the request of an identical access in flight
+     */
+    public long getCoalescedAccessCount() {
+        return 0;
+    }
+
+    /**
+     * Returns the access statistics of the consumer or null if not available
+     */
+    protected AccessStatistics getAccessStatistics() {
+        IConsumer owner = consumer;
+        if ((owner == null) && (offeringDescription != null)) {
+            owner = offeringDescription.getConsumer();
+        }
+        return (owner != null) ? owner.getAccessStatistics() : null;
+    }
+
     // Compare with unsubscribe
     protected void terminate() {
-        if (executor != null) {
-            executor.shutdownNow();
+        SubscriptionRenewalManager renewalManager = getRenewalManager();
+        if (renewalManager != null) {
+            renewalManager.remove(this);
+        }
+        synchronized (this) {
+            terminated = true;
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        synchronized (renewalActions) {
+            renewalActions.clear();
         }
     }
 
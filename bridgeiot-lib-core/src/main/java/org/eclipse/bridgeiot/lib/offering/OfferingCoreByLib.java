@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -33,12 +35,15 @@ import java.util.concurrent.Future;
 
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.MediaType;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 import org.eclipse.bridgeiot.lib.configuration.LibConfiguration;
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonActivatedOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonSubscribedOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.exceptions.HttpErrorException;
 import org.eclipse.bridgeiot.lib.exceptions.IllegalAccessParameterException;
 import org.eclipse.bridgeiot.lib.exceptions.IllegalEndpointException;
 import org.eclipse.bridgeiot.lib.exceptions.IncompleteOfferingDescriptionException;
@@ -51,11 +56,14 @@ import org.eclipse.bridgeiot.lib.handlers.FeedNotificationSuccessHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
 import org.eclipse.bridgeiot.lib.misc.GraphQLQueries;
 import org.eclipse.bridgeiot.lib.misc.HttpClient;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.misc.SingleFlight;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.FeedTypes;
 import org.eclipse.bridgeiot.lib.model.EndPoint;
 import org.eclipse.bridgeiot.lib.offering.encoder.ParameterEncoder;
 import org.eclipse.bridgeiot.lib.offering.encoder.ParameterEncoderQuery;
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics;
 import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
@@ -75,8 +83,10 @@ public class OfferingCoreByLib extends OfferingCore {
 
     private ExecutorService executorPool = Executors.newFixedThreadPool(LibConfiguration.EXECUTOR_POOL_SIZE);
     private LinkedList<AccessFeed> accessFeeds = new LinkedList<>();
+    private SingleFlight<AccessResponse> inFlightAccesses = SingleFlight.create();
 
     private static final String DEFAULT_PEM_CERTIFICATE_FILE = "keystore/bigiot-lib-cert.pem";
+    private static final int HTTP_NOT_MODIFIED = 304;
 
     protected OfferingCoreByLib() {
         super();
@@ -159,26 +169,93 @@ public class OfferingCoreByLib extends OfferingCore {
                     AccessToNonActivatedOfferingException, AccessToNonSubscribedOfferingException {
 
                 final String accessSessionId = String.valueOf(new Date().getTime());
-                final String responseString = accessOneTimeInternal(httpClient, offeringDescription, accessParameters,
-                        accessSessionId, offeringAccessToken);
-                addAccountingEvent(accessSessionId, responseString);
-                return new AccessResponse(responseString, offeringDescription);
+                return accessOneTimeBlocking(accessSessionId, accessParameters, offeringAccessToken);
             }
         });
     }
 
+    /**
+     * Retrieves data from an Offering in a request/response manner and blocks until the response is received. If a
+     * response cache is enabled, fresh cached responses are served without a call, hence without an accounting event.
+     * If request coalescing is enabled, identical accesses in flight (same offering and encoded URL) share one call.
+     */
+    protected AccessResponse accessOneTimeBlocking(final String accessSessionId, AccessParameters accessParameters,
+            final String offeringAccessToken) {
+
+        final Map<String, Object> parametersMap = toParametersMap(offeringDescription, accessParameters);
+        final ResponseCache cache = this.responseCache;
+        if (cache != null) {
+            final String cachedResponse = cache.getFresh(ResponseCache.key(parametersMap));
+            if (cachedResponse != null) {
+                logger.debug("Serving access to {} from response cache", offeringDescription.getId());
+                return new AccessResponse(cachedResponse, offeringDescription);
+            }
+        }
+
+        final List<EndPoint> endPoints = offeringDescription.getEndpoints();
+        if (requestCoalescing && (endPoints != null) && !endPoints.isEmpty()) {
+            final String key = offeringDescription.getId() + " "
+                    + prepareUrlWithParameters(endPoints.get(0).getUri(), parametersMap);
+            try {
+                return inFlightAccesses.execute(key, new Callable<AccessResponse>() {
+                    @Override
+                    public AccessResponse call() {
+                        return accessOneTimeUncached(accessSessionId, parametersMap, offeringAccessToken, cache);
+                    }
+                });
+            } catch (ExecutionException e) {
+                throw new BridgeIoTException("Coalesced access failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BridgeIoTException("Coalesced access interrupted", e);
+            }
+        }
+
+        return accessOneTimeUncached(accessSessionId, parametersMap, offeringAccessToken, cache);
+    }
+
+    private AccessResponse accessOneTimeUncached(String accessSessionId, Map<String, Object> parametersMap,
+            String offeringAccessToken, ResponseCache cache) {
+        final String responseString = accessOneTimeInternal(httpClient, offeringDescription, parametersMap,
+                accessSessionId, offeringAccessToken, getAccessStatistics(), cache);
+        addAccountingEvent(accessSessionId, responseString);
+        return new AccessResponse(responseString, offeringDescription);
+    }
+
+    @Override
+    public long getCoalescedAccessCount() {
+        return inFlightAccesses.getCoalescedCount();
+    }
+
     protected static String accessOneTimeInternal(HttpClient httpClient, OfferingDescription offeringDescription,
             AccessParameters accessParameters, String accessSessionId, final String offeringAccessToken) {
+        return accessOneTimeInternal(httpClient, offeringDescription, accessParameters, accessSessionId,
+                offeringAccessToken, null);
+    }
 
-        String emtpyResponse = "";
-        Map<String, Object> parametersMap = null;
+    protected static String accessOneTimeInternal(HttpClient httpClient, OfferingDescription offeringDescription,
+            AccessParameters accessParameters, String accessSessionId, final String offeringAccessToken,
+            AccessStatistics accessStatistics) {
+        return accessOneTimeInternal(httpClient, offeringDescription,
+                toParametersMap(offeringDescription, accessParameters), accessSessionId, offeringAccessToken,
+                accessStatistics, null);
+    }
+
+    static Map<String, Object> toParametersMap(OfferingDescription offeringDescription,
+            AccessParameters accessParameters) {
         try {
-            parametersMap = accessParameters.toNameMap(offeringDescription.getInputs(),
-                    LibConfiguration.JSON_MAPPING_DEPTH);
+            return accessParameters.toNameMap(offeringDescription.getInputs(), LibConfiguration.JSON_MAPPING_DEPTH);
         } catch (IllegalAccessParameterException e) {
             logger.warn("IllegalAccessParameterException {}", (e.getMessage() != null ? e.getMessage() : ""));
-            parametersMap = new HashMap<>();
+            return new HashMap<>();
         }
+    }
+
+    static String accessOneTimeInternal(HttpClient httpClient, OfferingDescription offeringDescription,
+            Map<String, Object> parametersMap, String accessSessionId, final String offeringAccessToken,
+            AccessStatistics accessStatistics, ResponseCache responseCache) {
+
+        String emtpyResponse = "";
 
         List<EndPoint> epList = offeringDescription.getEndpoints();
         if (epList.isEmpty()) {
@@ -206,19 +283,45 @@ public class OfferingCoreByLib extends OfferingCore {
         String urlString = prepareUrlWithParameters(url.toString(), parametersMap);
         Map<String, String> addedHeaders = prepareHeaderWithAccessToken(offeringDescription.getAccessInterfaceType(),
                 offeringAccessToken, accessSessionId);
+
+        String cacheKey = null;
+        ResponseCache.Entry cachedEntry = null;
+        if (responseCache != null) {
+            cacheKey = ResponseCache.key(parametersMap);
+            cachedEntry = responseCache.get(cacheKey);
+            if ((cachedEntry != null) && (cachedEntry.getETag() != null)) {
+                if (addedHeaders == null) {
+                    addedHeaders = new HashMap<>();
+                }
+                addedHeaders.put("If-None-Match", cachedEntry.getETag());
+            }
+        }
+
         Response response;
         String responseString = "";
+        final long startTime = System.currentTimeMillis();
         try {
             response = httpClient.get(urlString, addedHeaders);
+            if ((cachedEntry != null) && (response.code() == HTTP_NOT_MODIFIED)) {
+                response.body().close();
+                recordAccess(accessStatistics, endPoint, startTime, true);
+                responseCache.revalidated(cachedEntry, response);
+                logger.debug("Cached response revalidated");
+                return cachedEntry.getBody();
+            }
             // Check 404
-            responseString = response.body().string();
-            response.body().close();
+            responseString = readBody(response, endPoint, accessStatistics);
+            recordAccess(accessStatistics, endPoint, startTime, response.isSuccessful());
             if (!response.isSuccessful()) {
                 logger.error("Got a {} HTTP code.Response body is \n{}", response.code(), responseString);
                 return emtpyResponse;
             }
             logger.debug("Response received: \n{}", responseString);
+            if (responseCache != null) {
+                responseCache.put(cacheKey, responseString, response);
+            }
         } catch (IOException e) {
+            recordAccess(accessStatistics, endPoint, startTime, false);
             logger.error("Access: HttpGet failed", e);
             return emtpyResponse;
         }
@@ -233,11 +336,45 @@ public class OfferingCoreByLib extends OfferingCore {
             final AccessResponseSuccessHandler onAccessSuccess, final AccessResponseFailureHandler onAccessFailure)
             throws IllegalAccessParameterException, AccessToNonActivatedOfferingException,
             AccessToNonSubscribedOfferingException {
+        enqueueAccess(accessSessionId, accessParameters, onAccessSuccess, onAccessFailure);
+    }
+
+    /**
+     * Retrieves data from an Offering in a request/response manner. Method call is nonblocking and returns the
+     * underlying HTTP call, which allows to cancel the access (e.g. the slower one of hedged accesses). A cancelled
+     * access is neither accounted nor reported to the handlers. As for blocking accesses, a fresh response of the
+     * response cache is served without a call and, if request coalescing is enabled, an identical access in flight is
+     * joined instead of issuing another call; null is returned in both cases. Cancelling a call joined by other
+     * accesses does not fail them, the call is sent anew on their behalf.
+     */
+    public Call enqueueAccess(final String accessSessionId, final AccessParameters accessParameters,
+            final AccessResponseSuccessHandler onAccessSuccess, final AccessResponseFailureHandler onAccessFailure)
+            throws IllegalAccessParameterException, AccessToNonActivatedOfferingException,
+            AccessToNonSubscribedOfferingException {
 
         final String offeringAccessToken = this.getOfferingToken();
 
         Map<String, Object> parametersMap = accessParameters.toNameMap(offeringDescription.getInputs(),
                 LibConfiguration.JSON_MAPPING_DEPTH);
+
+        final AccessListener listener = new AccessListener(accessSessionId, onAccessSuccess, onAccessFailure);
+        final ResponseCache cache = this.responseCache;
+        final String cacheKey = (cache != null) ? ResponseCache.key(parametersMap) : null;
+        if (cache != null) {
+            final String cachedResponse = cache.getFresh(cacheKey);
+            if (cachedResponse != null) {
+                logger.debug("Serving access to {} from response cache", offeringDescription.getId());
+                // handlers are called back asynchronously as for an actual call
+                httpClient.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onSuccess(new AccessResponse(cachedResponse, offeringDescription));
+                    }
+                });
+                return null;
+            }
+        }
+
         List<EndPoint> epList = offeringDescription.getEndpoints();
 
         if (epList.isEmpty()) {
@@ -257,45 +394,204 @@ public class OfferingCoreByLib extends OfferingCore {
             throw new AccessToNonActivatedOfferingException(e);
         }
 
-        String urlString = prepareUrlWithParameters(url.toString(), parametersMap);
-        Map<String, String> addedHeaders = prepareHeaderWithAccessToken(offeringDescription.getAccessInterfaceType(),
-                offeringAccessToken, accessSessionId);
+        final String urlString = prepareUrlWithParameters(url.toString(), parametersMap);
+        final ResponseCache.Entry cachedEntry = (cache != null) ? cache.get(cacheKey) : null;
 
-        final IOfferingCore offering = this;
+        final String flightKey = requestCoalescing ? offeringDescription.getId() + " " + urlString : null;
+        if ((flightKey != null) && !inFlightAccesses.join(flightKey, listener)) {
+            logger.debug("Access to {} joins identical access in flight", offeringDescription.getId());
+            return null;
+        }
 
-        httpClient.get(urlString, addedHeaders, new Callback() {
+        return new AccessCallback(offeringAccessToken, urlString, endPoint, cache, cacheKey, cachedEntry, flightKey)
+                .send(listener);
+    }
 
-            @Override
-            public void onFailure(Call call, IOException e) {
-                logger.info("Access Request failed!");
-                logger.debug("IOException: {}", e);
-                if (onAccessFailure != null) {
-                    onAccessFailure.processResponseOnFailure(offering,
-                            new AccessResponse("{ \"error\": \"Access request failed\" }", offeringDescription));
+    /**
+     * Handles the response of an asynchronous access. With request coalescing, a cancelled call does not fail the
+     * callers which joined it: the access is sent anew on behalf of the first of them.
+     */
+    private class AccessCallback implements Callback {
+
+        private final String offeringAccessToken;
+        private final String urlString;
+        private final EndPoint endPoint;
+        private final ResponseCache cache;
+        private final String cacheKey;
+        private final ResponseCache.Entry cachedEntry;
+        private final String flightKey;
+        private AccessListener listener;
+        private long startTime;
+
+        AccessCallback(String offeringAccessToken, String urlString, EndPoint endPoint, ResponseCache cache,
+                String cacheKey, ResponseCache.Entry cachedEntry, String flightKey) {
+            this.offeringAccessToken = offeringAccessToken;
+            this.urlString = urlString;
+            this.endPoint = endPoint;
+            this.cache = cache;
+            this.cacheKey = cacheKey;
+            this.cachedEntry = cachedEntry;
+            this.flightKey = flightKey;
+        }
+
+        Call send(AccessListener listener) {
+            Map<String, String> addedHeaders = prepareHeaderWithAccessToken(
+                    offeringDescription.getAccessInterfaceType(), offeringAccessToken, listener.accessSessionId);
+            if ((cachedEntry != null) && (cachedEntry.getETag() != null)) {
+                if (addedHeaders == null) {
+                    addedHeaders = new HashMap<>();
                 }
+                addedHeaders.put("If-None-Match", cachedEntry.getETag());
             }
+            this.listener = listener;
+            this.startTime = System.currentTimeMillis();
+            return httpClient.get(urlString, addedHeaders, this);
+        }
 
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    if (onAccessFailure != null) {
-                        onAccessFailure.processResponseOnFailure(offering,
-                                new AccessResponse(response.message(), offeringDescription));
-                    }
-                } else {
-                    String responseString = response.body().string();
-                    response.body().close();
-                    try {
-                        addAccountingEvent(accessSessionId, responseString);
-                        onAccessSuccess.processResponseOnSuccess(offering,
-                                new AccessResponse(responseString, offeringDescription));
-                    } catch (ExecutionException | InterruptedException e) {
-                        logger.error(e.getMessage(), e);
-                    }
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if ((call != null) && call.isCanceled()) {
+                logger.debug("Access Request cancelled");
+                listener.cancel();
+                handOver();
+                return;
+            }
+            recordAccess(getAccessStatistics(), endPoint, startTime, false);
+            logger.info("Access Request failed!");
+            logger.debug("IOException: {}", e);
+            fail(e);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if ((cachedEntry != null) && (response.code() == HTTP_NOT_MODIFIED)) {
+                response.body().close();
+                recordAccess(getAccessStatistics(), endPoint, startTime, true);
+                cache.revalidated(cachedEntry, response);
+                logger.debug("Cached response revalidated");
+                succeed(cachedEntry.getBody());
+                return;
+            }
+            recordAccess(getAccessStatistics(), endPoint, startTime, response.isSuccessful());
+            if (!response.isSuccessful()) {
+                fail(new HttpErrorException(response.code(), response.message()));
+            } else {
+                String responseString = readBody(response, endPoint, getAccessStatistics());
+                if (cache != null) {
+                    cache.put(cacheKey, responseString, response);
                 }
+                succeed(responseString);
             }
-        });
+        }
+
+        private void handOver() {
+            if (flightKey == null) {
+                return;
+            }
+            AccessListener next = (AccessListener) inFlightAccesses.handOver(flightKey, listener);
+            if (next != null) {
+                logger.debug("Cancelled access to {} is sent anew for joined access", offeringDescription.getId());
+                new AccessCallback(offeringAccessToken, urlString, endPoint, cache, cacheKey, cachedEntry, flightKey)
+                        .send(next);
+            }
+        }
 
+        private void succeed(String responseString) {
+            addAccountingEvent(listener.accessSessionId, responseString);
+            AccessResponse accessResponse = new AccessResponse(responseString, offeringDescription);
+            if (flightKey != null) {
+                inFlightAccesses.complete(flightKey, accessResponse);
+            } else {
+                listener.onSuccess(accessResponse);
+            }
+        }
+
+        private void fail(Throwable failure) {
+            if (flightKey != null) {
+                inFlightAccesses.fail(flightKey, failure);
+            } else {
+                listener.onFailure(failure);
+            }
+        }
+    }
+
+    /**
+     * Reports the outcome of an asynchronous access to the handlers of one caller. With request coalescing, the outcome
+     * is shared by all callers of identical accesses in flight.
+     */
+    private class AccessListener implements SingleFlight.Listener<AccessResponse> {
+
+        private final String accessSessionId;
+        private final AccessResponseSuccessHandler onAccessSuccess;
+        private final AccessResponseFailureHandler onAccessFailure;
+        private volatile boolean cancelled = false;
+
+        AccessListener(String accessSessionId, AccessResponseSuccessHandler onAccessSuccess,
+                AccessResponseFailureHandler onAccessFailure) {
+            this.accessSessionId = accessSessionId;
+            this.onAccessSuccess = onAccessSuccess;
+            this.onAccessFailure = onAccessFailure;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void onSuccess(AccessResponse accessResponse) {
+            if (cancelled || (onAccessSuccess == null)) {
+                return;
+            }
+            try {
+                onAccessSuccess.processResponseOnSuccess(OfferingCoreByLib.this, accessResponse);
+            } catch (ExecutionException | InterruptedException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable failure) {
+            if (cancelled || (onAccessFailure == null)) {
+                return;
+            }
+            String message = (failure instanceof HttpErrorException) ? ((HttpErrorException) failure).getResponse()
+                    : "{ \"error\": \"Access request failed\" }";
+            onAccessFailure.processResponseOnFailure(OfferingCoreByLib.this,
+                    new AccessResponse(message, offeringDescription));
+        }
+    }
+
+    /**
+     * Reads and decodes a (compressed) response body and records the bytes on the wire and after decoding in the
+     * consumer's access statistics (if available).
+     */
+    static String readBody(Response response, EndPoint endPoint, AccessStatistics accessStatistics)
+            throws IOException {
+        try (ResponseBody body = response.body()) {
+            MediaType contentType = body.contentType();
+            byte[] wireBytes = body.bytes();
+            byte[] bytes = HttpCompression.decode(wireBytes, response.header("Content-Encoding"));
+            if (accessStatistics != null) {
+                accessStatistics.recordTransfer(endPoint.getUri(), wireBytes.length, bytes.length);
+            }
+            Charset charset = (contentType != null) ? contentType.charset(StandardCharsets.UTF_8)
+                    : StandardCharsets.UTF_8;
+            return new String(bytes, charset);
+        }
+    }
+
+    /**
+     * Records latency and outcome of an access in the consumer's access statistics (if available).
+     *
+     * @param accessStatistics
+     * @param endPoint
+     * @param startTime
+     * @param success
+     */
+    static void recordAccess(AccessStatistics accessStatistics, EndPoint endPoint, long startTime, boolean success) {
+        if (accessStatistics != null) {
+            accessStatistics.record(endPoint.getUri(), System.currentTimeMillis() - startTime, success);
+        }
     }
 
     /**
@@ -330,6 +626,8 @@ public class OfferingCoreByLib extends OfferingCore {
             addedHeaders = new HashMap<>();
             addedHeaders.put("Authorization", "Bearer " + offeringAccessToken);
             logger.debug("-- Add Authorization Header with OfferingAccessToken: Bearer {}", offeringAccessToken);
+            // decoded by readBody(), which disables the transparent gzip decoding of OkHttp
+            addedHeaders.put("Accept-Encoding", HttpCompression.ACCEPT_ENCODING);
             if (accessSessionId != null) {
                 addedHeaders.put("AccessSessionId", accessSessionId);
             }
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.misc.SingleFlight;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional provider-side cache for the responses of an {@link AccessRequestHandler}. Responses are keyed by the
+ * normalized input data of the access (see {@link ResponseCache#key(Map)}) and kept at most for the configured time to
+ * live. The number of entries and the total size of the cached bodies are bounded; the least recently used entries are
+ * evicted first. Concurrent misses for the same input data invoke the handler only once.
+ * <p>
+ * Only successful responses with an in-memory body are cached. As the handler is invoked for one consumer only, the
+ * cache must only be enabled for offerings whose responses do not depend on the subscription or session.
+ */
+public class ProviderResponseCache {
+
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 1000;
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderResponseCache.class);
+
+    private final long timeToLiveMillis;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+
+    private final SingleFlight<Entry> inFlight = SingleFlight.create();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Cached response of an access
+     */
+    static class Entry {
+
+        private final String status;
+        private final Map<String, String> headers;
+        private final String body;
+        private final long size;
+        private final long expiresAt;
+
+        Entry(BridgeIotHttpResponse response, long expiresAt) {
+            this.status = response.getStatus();
+            this.headers = new HashMap<>(response.getHeaders());
+            this.body = response.getBody();
+            this.size = response.getContentLength();
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        BridgeIotHttpResponse toResponse() {
+            return new BridgeIotHttpResponse(new HashMap<>(headers), status, body);
+        }
+
+    }
+
+    public ProviderResponseCache(long timeToLiveMillis, int maxEntries, long maxBytes) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public static ProviderResponseCache create() {
+        return new ProviderResponseCache(DEFAULT_TIME_TO_LIVE_MILLIS, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public static ProviderResponseCache create(long timeToLiveMillis, int maxEntries, long maxBytes) {
+        return new ProviderResponseCache(timeToLiveMillis, maxEntries, maxBytes);
+    }
+
+    /**
+     * Returns the cached response for the input data or invokes the handler on a miss. Every caller gets its own
+     * response object.
+     *
+     * @param accessRequestHandler
+     * @param offeringDescription
+     * @param inputData
+     * @param subscriptionId
+     * @param sessionId
+     * @return
+     */
+    public BridgeIotHttpResponse get(final AccessRequestHandler accessRequestHandler,
+            final OfferingDescription offeringDescription, final Map<String, Object> inputData,
+            final String subscriptionId, final String sessionId) {
+
+        final String key = ResponseCache.key(inputData);
+        Entry entry = getFresh(key);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.toResponse();
+        }
+
+        final BridgeIotHttpResponse[] ownResponse = new BridgeIotHttpResponse[1];
+        try {
+            entry = inFlight.execute(key, new Callable<Entry>() {
+                @Override
+                public Entry call() {
+                    missCount.incrementAndGet();
+                    ownResponse[0] = accessRequestHandler.processRequestHandler(offeringDescription, inputData,
+                            subscriptionId, sessionId);
+                    return put(key, ownResponse[0]);
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BridgeIoTException("Access request handler failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeIoTException("Waiting for access request handler interrupted", e);
+        }
+
+        if (ownResponse[0] != null) {
+            return ownResponse[0];
+        } else if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.toResponse();
+        }
+        // the response of the coalesced call could not be shared
+        missCount.incrementAndGet();
+        return accessRequestHandler.processRequestHandler(offeringDescription, inputData, subscriptionId, sessionId);
+    }
+
+    private synchronized Entry getFresh(String key) {
+        Entry entry = entries.get(key);
+        if ((entry != null) && !entry.isFresh()) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private Entry put(String key, BridgeIotHttpResponse response) {
+        if ((response == null) || !BridgeIotHttpResponse.OK_STATUS.equals(response.getStatus())
+                || response.isStreamed() || (response.getContentLength() > maxBytes)) {
+            return null;
+        }
+        Entry entry = new Entry(response, System.currentTimeMillis() + timeToLiveMillis);
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            cachedBytes += entry.size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (((entries.size() > maxEntries) || (cachedBytes > maxBytes)) && eldest.hasNext()) {
+                cachedBytes -= eldest.next().size;
+                eldest.remove();
+            }
+        }
+        logger.debug("Cached response of {} bytes, {} bytes in cache", entry.size, cachedBytes);
+        return entry;
+    }
+
+    private synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            cachedBytes -= entry.size;
+        }
+    }
+
+    /**
+     * Invalidates all cached responses
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderResponseCache[size=" + size() + ", bytes=" + getCachedBytes() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + "]";
+    }
+
+}
@@ -33,8 +33,10 @@ import org.eclipse.bridgeiot.lib.exceptions.IncompleteOfferingDescriptionExcepti
 import org.eclipse.bridgeiot.lib.exceptions.InvalidOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.NotRegisteredException;
 import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.handlers.AccessStreamFilterHandler;
 import org.eclipse.bridgeiot.lib.misc.GraphQLQueries;
+import org.eclipse.bridgeiot.lib.misc.GraphQLRequest;
 import org.eclipse.bridgeiot.lib.misc.Helper;
 import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
 import org.eclipse.bridgeiot.lib.model.Activation;
@@ -42,6 +44,7 @@ import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
 import org.eclipse.bridgeiot.lib.model.EndPoint;
 import org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer;
+import org.eclipse.bridgeiot.lib.serverwrapper.PrecomputedAccessRequestHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +57,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class RegistrableOfferingDescription extends OfferingDescription implements IRegistrable {
 
     private static final long DEFAULT_OFFERING_EXPIRATION_INTERVAL = 10 * 60 * 1000L; // 10 min
+    private static final long REGISTRATION_RETRY_INTERVAL = 30 * 1000L; // 30 sec
+    private static final long MAX_REGISTRATION_RETRY_INTERVAL = 15 * 60 * 1000L; // 15 min
 
     private static final Logger logger = LoggerFactory.getLogger(RegistrableOfferingDescription.class);
     @JsonIgnore
@@ -67,6 +72,12 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
     @JsonIgnore
     protected AccessRequestHandler accessRequestHandler;
     @JsonIgnore
+    protected AsyncAccessRequestHandler asyncAccessRequestHandler;
+    @JsonIgnore
+    protected ProviderResponseCache responseCache;
+    @JsonIgnore
+    protected long sampleAndMetaDataTimeToLive = PrecomputedAccessRequestHandler.DEFAULT_TIME_TO_LIVE_MILLIS;
+    @JsonIgnore
     protected String route = "aone";
 
     @JsonIgnore
@@ -81,6 +92,8 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
     private OfferingId offeringId = null;
     @JsonIgnore
     private long expirationInterval = DEFAULT_OFFERING_EXPIRATION_INTERVAL;
+    @JsonIgnore
+    private int failedRegistrations = 0;
 
     // scheduled executor to re-register the offering prior to expiration
     @JsonIgnore
@@ -94,6 +107,12 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
     protected AccessRequestHandler metaDataAccessRequestHandler;
     @JsonIgnore
     protected Long accessStreamSessionTimeout = 0L;
+    @JsonIgnore
+    protected double requestsPerSecondPerSubscription = SubscriptionRateLimiter.UNLIMITED;
+    @JsonIgnore
+    protected int requestBurstPerSubscription = 1;
+    @JsonIgnore
+    protected int maxConcurrentRequestsPerSubscription = SubscriptionRateLimiter.UNLIMITED;
 
     public RegistrableOfferingDescription() {
     }
@@ -117,33 +136,22 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
     @Override
     public RegisteredOffering register() throws IncompleteOfferingDescriptionException, NotRegisteredException {
 
-        if (this.getProviderId() == null) {
-            throw new BridgeIoTException(
-                    "Provider not set! Use 'offeringDescription.register(provider, enpoints);'!!!");
-        }
+        checkProvider();
 
         if (registeredOffering != null) {
             logger.warn("A RegistrableOfferingDescription can be registered only once - skip registration!");
             return registeredOffering;
         }
 
-        registerOnMarketplace();
+        GraphQLRequest registration = prepareRegistration();
 
-        switch (getAccessInterfaceType()) {
-        case BRIDGEIOT_LIB:
-            registeredOffering = new DeployedOffering(this, server);
-            break;
-        case BRIDGEIOT_PROXY:
-        case EXTERNAL:
-            registeredOffering = new RegisteredOffering(this);
-            break;
-        default:
-            throw new BridgeIoTException("Unsupported integration mode");
+        Response response;
+        try {
+            response = marketplaceClient.request(registration);
+        } catch (IOException e) {
+            return completeRegistration(null, e);
         }
-
-        providerOfferingMap.put(this.offeringId, registeredOffering);
-
-        return registeredOffering;
+        return completeRegistration(response, null);
 
     }
 
@@ -161,7 +169,19 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
         return register();
     }
 
-    protected void registerOnMarketplace() throws IncompleteOfferingDescriptionException, NotRegisteredException {
+    /**
+     * First phase of a registration: validates the offering description and returns the registration request to be
+     * sent to the marketplace. Together with {@link #completeRegistration(Response, IOException)} this allows to
+     * register offerings without blocking a thread per registration.
+     *
+     * @return registration request
+     * @throws IncompleteOfferingDescriptionException
+     * @throws NotRegisteredException
+     */
+    public GraphQLRequest prepareRegistration()
+            throws IncompleteOfferingDescriptionException, NotRegisteredException {
+
+        checkProvider();
 
         if (marketplaceClient == null) {
             throw new NotRegisteredException();
@@ -174,14 +194,79 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
         this.extension1 = "{ \"inputs\":" + Helper.getPojoAsJsonCompact(this.inputs) + ", \"outputs\":"
                 + Helper.getPojoAsJsonCompact(this.outputs) + "}";
 
-        String registration = GraphQLQueries.getRegistrationString(this);
+        GraphQLRequest registration = GraphQLQueries.getRegistrationRequest(this);
+
+        logger.debug("Registration Request: {}", registration);
+
+        return registration;
+    }
+
+    /**
+     * Second phase of a registration: processes the response of the registration request and deploys the A1
+     * interface if applicable. If the registration request failed, the registration is retried in the background.
+     *
+     * @param response
+     *            response of the registration request or null if it failed
+     * @param failure
+     *            failure of the registration request or null
+     * @return RegisteredOffering object for lifecycle operations
+     * @throws NotRegisteredException
+     */
+    public RegisteredOffering completeRegistration(Response response, IOException failure)
+            throws NotRegisteredException {
+
+        if (registeredOffering != null) {
+            logger.warn("A RegistrableOfferingDescription can be registered only once - skip registration!");
+            return registeredOffering;
+        }
+
+        if (failure != null) {
+            retryRegistration(failure);
+        } else {
+            processRegistrationResponse(response);
+        }
+
+        switch (getAccessInterfaceType()) {
+        case BRIDGEIOT_LIB:
+            registeredOffering = new DeployedOffering(this, server);
+            break;
+        case BRIDGEIOT_PROXY:
+        case EXTERNAL:
+            registeredOffering = new RegisteredOffering(this);
+            break;
+        default:
+            throw new BridgeIoTException("Unsupported integration mode");
+        }
 
-        logger.info("Registration Request: {}", registration);
+        providerOfferingMap.put(this.offeringId, registeredOffering);
+
+        return registeredOffering;
+
+    }
+
+    private void checkProvider() {
+        if (this.getProviderId() == null) {
+            throw new BridgeIoTException(
+                    "Provider not set! Use 'offeringDescription.register(provider, enpoints);'!!!");
+        }
+    }
+
+    protected void registerOnMarketplace() throws IncompleteOfferingDescriptionException, NotRegisteredException {
+
+        GraphQLRequest registration = prepareRegistration();
 
         // Register offering on Marketplace
         try {
+            processRegistrationResponse(marketplaceClient.request(registration));
+        } catch (IOException e) {
+            retryRegistration(e);
+        }
+
+    }
+
+    private void processRegistrationResponse(Response response) throws NotRegisteredException {
 
-            Response response = marketplaceClient.request(registration);
+        try {
 
             String responseString = response.body().string();
 
@@ -203,6 +288,7 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
                     Helper.unixTimeToJoda(this.getActivation().getExpirationTime()));
 
             this.offeringId = new OfferingId(od.getId());
+            failedRegistrations = 0;
 
             // Create schedule for timely re-registration - to avoid expiration of the offering
             Long timeToReregister = Math.max(this.getActivation().getExpirationTime() - new Date().getTime() - 60000L,
@@ -211,11 +297,7 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
 
         } catch (IOException | HttpErrorException e) {
 
-            logger.error("ERROR: Registration failed ... try again in 30 seconds! \n ---> Exception: {}",
-                    e.getMessage());
-            logger.error(e.getMessage(), e);
-
-            executor.schedule(registrationRunnable, 30, TimeUnit.SECONDS);
+            retryRegistration(e);
 
         } catch (BridgeIoTException e) {
 
@@ -227,6 +309,31 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
 
     }
 
+    private void retryRegistration(Exception e) {
+
+        // Back off exponentially to not add load to an overloaded or unavailable eXchange
+        long retryDelay = registrationRetryDelay(++failedRegistrations);
+        logger.error("ERROR: Registration failed ... try again in {} seconds! \n ---> Exception: {}",
+                retryDelay / 1000, e.getMessage());
+        logger.error(e.getMessage(), e);
+
+        executor.schedule(registrationRunnable, retryDelay, TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * Returns the delay before the next registration attempt, which doubles with each failed attempt starting at 30
+     * seconds up to 15 minutes. A jitter of +/-20% avoids that providers retry in lockstep after an outage.
+     *
+     * @param failedAttempts
+     * @return delay in milliseconds
+     */
+    static long registrationRetryDelay(int failedAttempts) {
+        long delay = REGISTRATION_RETRY_INTERVAL << Math.min(Math.max(failedAttempts - 1, 0), 10);
+        delay = Math.min(delay, MAX_REGISTRATION_RETRY_INTERVAL);
+        return (long) (delay * (0.8 + 0.4 * Math.random()));
+    }
+
     protected void getOfferingDescription(String offeringId) throws InvalidOfferingException, IOException {
 
         OfferingDescription fetchedOfferingDescription = marketplaceClient.getOfferingDescription(offeringId);
@@ -338,6 +445,14 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
         return accessRequestHandler;
     }
 
+    protected AsyncAccessRequestHandler getAsyncAccessRequestHandler() {
+        return asyncAccessRequestHandler;
+    }
+
+    protected ProviderResponseCache getResponseCache() {
+        return responseCache;
+    }
+
     protected AccessRequestHandler getSampleDataAccessRequestHandler() {
         return sampleDataAccessRequestHandler;
     }
@@ -346,6 +461,10 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
         return metaDataAccessRequestHandler;
     }
 
+    protected long getSampleAndMetaDataTimeToLive() {
+        return sampleAndMetaDataTimeToLive;
+    }
+
     /**
      * Sets the server running the gateway service (only relevant in integration mode 2)
      *
@@ -363,6 +482,8 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
     public void internalOfferingDescriptionUpdate(Endpoints eps) {
         this.route = eps.getRoute();
         this.accessRequestHandler = eps.getAccessRequestHandler();
+        this.asyncAccessRequestHandler = eps.getAsyncAccessRequestHandler();
+        this.responseCache = eps.getResponseCache();
         if (eps.getAccessRequestEndpoint() != null) {
             this.endpoints.add(0, eps.getAccessRequestEndpoint());
             this.setAccessInterfaceType(eps.getAccessRequestEndpoint().getAccessInterfaceType());
@@ -372,6 +493,7 @@ public class RegistrableOfferingDescription extends OfferingDescription implemen
         this.metaDataEnpoint = eps.getMetaDataEnpoint();
         this.sampleDataAccessRequestHandler = eps.getSampleDataAccessRequestHandler();
         this.sampleDataEnpoint = eps.getSampleDataEnpoint();
+        this.sampleAndMetaDataTimeToLive = eps.getSampleAndMetaDataTimeToLive();
     }
 
     /**
@@ -25,6 +25,7 @@ import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.exceptions.InvalidOfferingException;
 import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
 import org.eclipse.bridgeiot.lib.handlers.AccessStreamFilterHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
 import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
 import org.eclipse.bridgeiot.lib.model.AccessList;
@@ -733,6 +734,43 @@ public class RegistrableOfferingDescriptionChain extends RegistrableOfferingDesc
         return this;
     }
 
+    /**
+     * Sets an asynchronous access callback method for Provider Lib hosted offerings, e.g. for offerings backed by a
+     * remote database or device. It takes precedence over the access callback set by
+     * {@link #withAccessRequestHandler(AccessRequestHandler)}.
+     * <p>
+     * Only EmbeddedNio processes asynchronous handlers without holding a request thread. Other server wrappers (e.g.
+     * EmbeddedSpark) wait on the request thread for the response.
+     *
+     * @param accessCallback
+     * @return
+     */
+    public RegistrableOfferingDescriptionChain withAsyncAccessRequestHandler(
+            AsyncAccessRequestHandler accessCallback) {
+        this.asyncAccessRequestHandler = accessCallback;
+        return this;
+    }
+
+    /**
+     * Enables a cache for the responses of the access callback set by
+     * {@link #withAccessRequestHandler(AccessRequestHandler)}. Accesses with the same input data are served from the
+     * cache (and accounted) without calling the access callback. Only use it if the responses do not depend on the
+     * subscription or session of the consumer.
+     *
+     * @param timeToLiveMillis
+     *            time a response is served from the cache
+     * @param maxEntries
+     *            maximum number of cached responses
+     * @param maxBytes
+     *            maximum total size of the cached responses
+     * @return
+     */
+    public RegistrableOfferingDescriptionChain withResponseCache(long timeToLiveMillis, int maxEntries,
+            long maxBytes) {
+        this.responseCache = ProviderResponseCache.create(timeToLiveMillis, maxEntries, maxBytes);
+        return this;
+    }
+
     /**
      * Sets the callback method for filtering access stream outputs
      *
@@ -786,6 +824,47 @@ public class RegistrableOfferingDescriptionChain extends RegistrableOfferingDesc
         return this;
     }
 
+    /**
+     * Limits the request rate of each subscription with a token bucket. Requests over the limit are rejected with
+     * status 429 (Too Many Requests) before the access callback is called.
+     *
+     * @param requestsPerSecond
+     *            sustained request rate per subscription
+     * @param burst
+     *            number of requests a subscription may send at once after being idle
+     * @return
+     */
+    public RegistrableOfferingDescriptionChain withRateLimitPerSubscription(double requestsPerSecond, int burst) {
+        this.requestsPerSecondPerSubscription = requestsPerSecond;
+        this.requestBurstPerSubscription = burst;
+        return this;
+    }
+
+    /**
+     * Limits the number of requests of each subscription processed concurrently. Requests over the limit are rejected
+     * with status 429 (Too Many Requests) before the access callback is called. The limit has no effect on offerings
+     * served from an access stream, which is polled without calling back the provider.
+     *
+     * @param maxConcurrentRequests
+     * @return
+     */
+    public RegistrableOfferingDescriptionChain withMaxConcurrentRequestsPerSubscription(int maxConcurrentRequests) {
+        this.maxConcurrentRequestsPerSubscription = maxConcurrentRequests;
+        return this;
+    }
+
+    /**
+     * Sets the time the responses of the sample data and meta data callbacks are served without calling them again
+     * (see {@link DeployedOffering#invalidateSampleAndMetaData()})
+     *
+     * @param timeToLiveMillis
+     * @return
+     */
+    public RegistrableOfferingDescriptionChain withSampleAndMetaDataTimeToLive(long timeToLiveMillis) {
+        this.sampleAndMetaDataTimeToLive = timeToLiveMillis;
+        return this;
+    }
+
     /**
      * Sets the access stream timeout
      *
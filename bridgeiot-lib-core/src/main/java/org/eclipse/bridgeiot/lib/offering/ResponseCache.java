@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Response;
+
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional consumer-side cache for one-time accesses of an offering. Responses are keyed by the normalized parameter
+ * map of the access (see {@link AccessParameters#toNameMap}) and kept at most for the configured time to live. The
+ * number of entries is bounded; the least recently used entry is evicted first.
+ * <p>
+ * Provider cache headers are honored: <code>Cache-Control: no-store</code> prevents caching, <code>no-cache</code>
+ * requires revalidation on every access and <code>max-age</code> shortens the time to live. Expired entries carrying
+ * an <code>ETag</code> are revalidated with <code>If-None-Match</code>; a <code>304 Not Modified</code> response
+ * refreshes the cached entry.
+ */
+public class ResponseCache {
+
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 1000;
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    /**
+     * Cached response of an access
+     */
+    public static class Entry {
+
+        private final String body;
+        private final String eTag;
+        private volatile long expiresAt;
+
+        Entry(String body, String eTag, long expiresAt) {
+            this.body = body;
+            this.eTag = eTag;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+    }
+
+    public ResponseCache(long timeToLiveMillis, final int maxEntries) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static ResponseCache create() {
+        return new ResponseCache(DEFAULT_TIME_TO_LIVE_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public static ResponseCache create(long timeToLiveMillis, int maxEntries) {
+        return new ResponseCache(timeToLiveMillis, maxEntries);
+    }
+
+    /**
+     * Returns the normalized cache key of a parameter map, i.e. independent of the order of the map entries
+     *
+     * @param parametersMap
+     * @return
+     */
+    public static String key(Map<String, Object> parametersMap) {
+        return String.valueOf(normalize(parametersMap));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object normalize(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), normalize(entry.getValue()));
+            }
+            return sorted;
+        }
+        if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            Object[] normalized = new Object[list.size()];
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] = normalize(list.get(i));
+            }
+            return Arrays.asList(normalized);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached response body if it is still fresh; counts a hit or a miss
+     *
+     * @param key
+     * @return cached body or null
+     */
+    public String getFresh(String key) {
+        Entry entry = get(key);
+        if ((entry != null) && entry.isFresh()) {
+            hitCount.incrementAndGet();
+            return entry.getBody();
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the cached entry (fresh or expired) or null
+     *
+     * @param key
+     * @return
+     */
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Stores a successful response according to its cache headers
+     *
+     * @param key
+     * @param body
+     * @param response
+     */
+    public void put(String key, String body, Response response) {
+        String eTag = response.header("ETag");
+        long ttl = timeToLive(response);
+        if ((ttl < 0) || ((ttl == 0) && (eTag == null))) {
+            logger.debug("Response not cached due to Cache-Control: {}", response.header("Cache-Control"));
+            remove(key);
+            return;
+        }
+        synchronized (this) {
+            entries.put(key, new Entry(body, eTag, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Refreshes an entry after a <code>304 Not Modified</code> response
+     *
+     * @param entry
+     * @param response
+     */
+    public void revalidated(Entry entry, Response response) {
+        revalidationCount.incrementAndGet();
+        entry.expiresAt = System.currentTimeMillis() + Math.max(0, timeToLive(response));
+    }
+
+    /**
+     * Returns the time to live of a response w.r.t. its Cache-Control header, or -1 if it must not be stored
+     */
+    private long timeToLive(Response response) {
+        String cacheControl = response.header("Cache-Control");
+        long ttl = timeToLiveMillis;
+        if (cacheControl == null) {
+            return ttl;
+        }
+        for (String directive : cacheControl.toLowerCase().split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-store")) {
+                return -1;
+            } else if (directive.equals("no-cache")) {
+                ttl = 0;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    ttl = Math.min(ttl, Long.parseLong(directive.substring("max-age=".length())) * 1000);
+                } catch (NumberFormatException e) {
+                    logger.debug("Ignoring invalid Cache-Control: {}", cacheControl);
+                }
+            }
+        }
+        return ttl;
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", revalidations=" + getRevalidationCount() + "]";
+    }
+
+}
@@ -16,8 +16,12 @@
 package org.eclipse.bridgeiot.lib.offering;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -30,7 +34,10 @@ import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.exceptions.IllegalEndpointException;
 import org.eclipse.bridgeiot.lib.exceptions.IncompleteOfferingDescriptionException;
 import org.eclipse.bridgeiot.lib.misc.GraphQLQueries;
+import org.eclipse.bridgeiot.lib.misc.GraphQLRequest;
+import org.eclipse.bridgeiot.lib.misc.GraphQLWriter.Fragment;
 import org.eclipse.bridgeiot.lib.misc.Helper;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
 import org.eclipse.bridgeiot.lib.model.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +59,8 @@ public class SubscribableOfferingDescriptionCore extends OfferingDescription {
     protected String queryId = null;
     protected String subscriptionId = null;
 
+    static final int MAX_SUBSCRIPTIONS_PER_MUTATION = 100;
+
     private static final Logger logger = LoggerFactory.getLogger(SubscribableOfferingDescriptionCore.class);
 
     protected SubscribableOfferingDescriptionCore() {
@@ -105,12 +114,127 @@ public class SubscribableOfferingDescriptionCore extends OfferingDescription {
      */
     public OfferingCore subscribeBlocking() throws IllegalEndpointException, IncompleteOfferingDescriptionException {
         final String offeringToken = subscribeAtMarketplace();
+        OfferingCore subscribedOffering = createOffering(offeringToken);
+        consumer.addSubscribedOffering(subscribedOffering);
+        return subscribedOffering;
+    }
+
+    /**
+     * Subscribes to a set of offerings with a single (batched) mutation at the marketplace and creates the access
+     * objects of the subscribed offerings in parallel. The subscribed offerings are registered at their consumer.
+     *
+     * @param offeringDescriptions
+     *            offering descriptions of the same consumer
+     * @return subscribed offerings and failures per offering
+     */
+    public static BulkSubscriptionResult<OfferingCore> subscribeAllBlocking(
+            List<? extends SubscribableOfferingDescriptionCore> offeringDescriptions) {
+
+        final BulkSubscriptionResult<OfferingCore> result = new BulkSubscriptionResult<>();
+        if (offeringDescriptions.isEmpty()) {
+            return result;
+        }
+
+        final IConsumer consumer = offeringDescriptions.get(0).getConsumer();
+        final List<String> offeringTokens = subscribeAllAtMarketplace(offeringDescriptions,
+                consumer.getMarketplaceClient(), "subscribeToOfferings");
+
+        final List<Callable<OfferingCore>> creations = new ArrayList<>();
+        for (int i = 0; i < offeringDescriptions.size(); i++) {
+            final SubscribableOfferingDescriptionCore offeringDescription = offeringDescriptions.get(i);
+            final String offeringToken = offeringTokens.get(i);
+            creations.add(new Callable<OfferingCore>() {
+                @Override
+                public OfferingCore call() throws IllegalEndpointException, IncompleteOfferingDescriptionException {
+                    if (offeringToken == null) {
+                        throw new BridgeIoTException(
+                                "Subscription failed - no valid OfferingAccessToken obtained from Marketplace!");
+                    }
+                    return offeringDescription.createOffering(offeringToken);
+                }
+            });
+        }
+
+        final ExecutorService creationPool = Executors
+                .newFixedThreadPool(Math.min(creations.size(), LibConfiguration.EXECUTOR_POOL_SIZE));
+        try {
+            final List<Future<OfferingCore>> futures = creationPool.invokeAll(creations);
+            for (int i = 0; i < futures.size(); i++) {
+                final String offeringId = offeringDescriptions.get(i).getId();
+                try {
+                    final OfferingCore offering = futures.get(i).get();
+                    consumer.addSubscribedOffering(offering);
+                    result.addOffering(offering);
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    result.addFailure(offeringId, (cause instanceof Exception) ? (Exception) cause : e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeIoTException("Subscription interrupted", e);
+        } finally {
+            creationPool.shutdown();
+        }
+
+        logger.info("Subscribed to {} of {} offerings", result.getOfferings().size(), offeringDescriptions.size());
+        return result;
+    }
+
+    /**
+     * Subscribes to a set of offerings with batched mutations (one alias per offering)
+     *
+     * @param offeringDescriptions
+     * @param marketplaceClient
+     * @param mutationName
+     * @return offering access tokens in the order of the offering descriptions; null if a subscription failed
+     */
+    static List<String> subscribeAllAtMarketplace(List<? extends SubscribableOfferingDescriptionCore> offeringDescriptions,
+            MarketplaceClient marketplaceClient, String mutationName) {
+
+        final List<String> offeringTokens = new ArrayList<>(offeringDescriptions.size());
+        for (int start = 0; start < offeringDescriptions.size(); start += MAX_SUBSCRIPTIONS_PER_MUTATION) {
+            final List<? extends SubscribableOfferingDescriptionCore> batch = offeringDescriptions.subList(start,
+                    Math.min(start + MAX_SUBSCRIPTIONS_PER_MUTATION, offeringDescriptions.size()));
+
+            final List<Fragment> fields = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                fields.add(batch.get(i).getSubscriptionField("s" + i));
+            }
+            final GraphQLRequest request = GraphQLQueries.getBatchedMutationRequest(mutationName, fields);
+            logger.debug("Batched Subscription Request: {}", request);
+
+            Map<String, Subscription> subscriptions = Collections.emptyMap();
+            try {
+                Response response = marketplaceClient.request(request);
+                String responseString = response.body().string();
+                response.close();
+                subscriptions = Helper.unmarshallAliasesFromQueryResponse(responseString, Subscription.class);
+            } catch (IOException | BridgeIoTException e) {
+                logger.error("Batched subscription of {} offerings failed: {}", batch.size(), e.getMessage());
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                offeringTokens.add(batch.get(i).acceptSubscription(subscriptions.get("s" + i)));
+            }
+        }
+        return offeringTokens;
+    }
+
+    /**
+     * Creates the access object for a subscribed offering
+     *
+     * @param offeringToken
+     * @return
+     * @throws IllegalEndpointException
+     * @throws IncompleteOfferingDescriptionException
+     */
+    protected OfferingCore createOffering(String offeringToken)
+            throws IllegalEndpointException, IncompleteOfferingDescriptionException {
         switch (getAccessInterfaceType()) {
         case BRIDGEIOT_LIB:
         case BRIDGEIOT_PROXY:
-            OfferingCoreByLib subscribedOffering = new OfferingCoreByLib(this, offeringToken);
-            consumer.addSubscribedOffering(subscribedOffering);
-            return subscribedOffering;
+            return new OfferingCoreByLib(this, offeringToken);
         case EXTERNAL:
             throw new BridgeIoTException("Unsupported integration mode");
         default:
@@ -179,16 +303,8 @@ public class SubscribableOfferingDescriptionCore extends OfferingDescription {
 
         String accessToken = null;
 
-        final String queryName;
-        final String subscriptionRequest;
-        if (this.getQueryId() != null) {
-            subscriptionRequest = GraphQLQueries.getSubscribtionWithQueryString(this.getId(), this.getQueryId());
-            queryName = "subscribeQueryToOffering";
-        } else {
-            subscriptionRequest = GraphQLQueries.getSubscribtionWithConsumerString(this.getId(),
-                    this.getConsumer().getClientId().asString());
-            queryName = "subscribeConsumerToOffering";
-        }
+        final String queryName = getSubscriptionQueryName();
+        final String subscriptionRequest = getSubscriptionRequest();
         logger.info("Subscription Request: {}", subscriptionRequest);
 
         try {
@@ -201,10 +317,7 @@ public class SubscribableOfferingDescriptionCore extends OfferingDescription {
             Subscription subscription = Helper.unmarshallSingleFromQueryResponse(queryName, responseString,
                     Subscription.class);
 
-            if (subscription.getId().contains(this.getId())) {
-                this.subscriptionId = subscription.getId();
-                accessToken = subscription.getAccessToken();
-            }
+            accessToken = acceptSubscription(subscription);
 
             if (accessToken == null) {
                 throw new BridgeIoTException(
@@ -223,6 +336,52 @@ public class SubscribableOfferingDescriptionCore extends OfferingDescription {
 
     }
 
+    /**
+     * Returns the subscription request of this offering
+     */
+    String getSubscriptionRequest() {
+        if (this.getQueryId() != null) {
+            return GraphQLQueries.getSubscribtionWithQueryString(this.getId(), this.getQueryId());
+        }
+        return GraphQLQueries.getSubscribtionWithConsumerString(this.getId(),
+                this.getConsumer().getClientId().asString());
+    }
+
+    /**
+     * Returns the name of the subscription mutation in the response to the subscription request
+     */
+    String getSubscriptionQueryName() {
+        return (this.getQueryId() != null) ? "subscribeQueryToOffering" : "subscribeConsumerToOffering";
+    }
+
+    /**
+     * Returns the aliased subscription field of this offering for a batched subscription mutation
+     *
+     * @param alias
+     * @return
+     */
+    Fragment getSubscriptionField(String alias) {
+        if (this.getQueryId() != null) {
+            return GraphQLQueries.getSubscriptionWithQueryFragment(alias, this.getId(), this.getQueryId());
+        }
+        return GraphQLQueries.getSubscriptionWithConsumerFragment(alias, this.getId(),
+                this.getConsumer().getClientId().asString());
+    }
+
+    /**
+     * Takes over the subscription ID of a marketplace subscription of this offering
+     *
+     * @param subscription
+     * @return the offering access token or null if the subscription does not belong to this offering
+     */
+    String acceptSubscription(Subscription subscription) {
+        if ((subscription != null) && (subscription.getId() != null) && subscription.getId().contains(this.getId())) {
+            this.subscriptionId = subscription.getId();
+            return subscription.getAccessToken();
+        }
+        return null;
+    }
+
     /**
      * Terminates automatic renewal and implicitly unsubscribes offering
      */
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.bridgeiot.lib.misc.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the accesses of each subscription to an offering, so that a single subscriber cannot starve the others. The
+ * request rate is limited by a token bucket (refilled with the configured rate, holding at most the burst size) and
+ * the number of concurrent requests by a cap. Requests over a limit are rejected right away instead of being queued.
+ * <p>
+ * The accepted and rejected requests are counted per subscription (see {@link #getMetrics()}).
+ */
+public class SubscriptionRateLimiter {
+
+    public static final int UNLIMITED = 0;
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionRateLimiter.class);
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int maxConcurrentRequests;
+    private final ConcurrentMap<String, SubscriptionState> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Access metrics of a subscription
+     */
+    public static class SubscriptionMetrics {
+
+        private final long acceptedRequests;
+        private final long rateLimitedRequests;
+        private final long concurrencyLimitedRequests;
+        private final int activeRequests;
+
+        SubscriptionMetrics(long acceptedRequests, long rateLimitedRequests, long concurrencyLimitedRequests,
+                int activeRequests) {
+            this.acceptedRequests = acceptedRequests;
+            this.rateLimitedRequests = rateLimitedRequests;
+            this.concurrencyLimitedRequests = concurrencyLimitedRequests;
+            this.activeRequests = activeRequests;
+        }
+
+        public long getAcceptedRequests() {
+            return acceptedRequests;
+        }
+
+        /**
+         * Returns the number of requests rejected because the request rate was exceeded
+         */
+        public long getRateLimitedRequests() {
+            return rateLimitedRequests;
+        }
+
+        /**
+         * Returns the number of requests rejected because too many requests were in progress
+         */
+        public long getConcurrencyLimitedRequests() {
+            return concurrencyLimitedRequests;
+        }
+
+        public long getRejectedRequests() {
+            return rateLimitedRequests + concurrencyLimitedRequests;
+        }
+
+        public int getActiveRequests() {
+            return activeRequests;
+        }
+
+        @Override
+        public String toString() {
+            return "SubscriptionMetrics[accepted=" + acceptedRequests + ", rateLimited=" + rateLimitedRequests
+                    + ", concurrencyLimited=" + concurrencyLimitedRequests + ", active=" + activeRequests + "]";
+        }
+
+    }
+
+    private class SubscriptionState {
+
+        private double tokens = burst;
+        private long lastRefillNanos = System.nanoTime();
+        private int activeRequests = 0;
+        private long acceptedRequests = 0;
+        private long rateLimitedRequests = 0;
+        private long concurrencyLimitedRequests = 0;
+
+        synchronized boolean tryAcquire() {
+            if ((maxConcurrentRequests > UNLIMITED) && (activeRequests >= maxConcurrentRequests)) {
+                concurrencyLimitedRequests++;
+                return false;
+            }
+            if (requestsPerSecond > UNLIMITED) {
+                refill();
+                if (tokens < 1.0) {
+                    rateLimitedRequests++;
+                    return false;
+                }
+                tokens -= 1.0;
+            }
+            activeRequests++;
+            acceptedRequests++;
+            return true;
+        }
+
+        synchronized void release() {
+            activeRequests = Math.max(0, activeRequests - 1);
+        }
+
+        synchronized long getRetryAfterSeconds() {
+            if (requestsPerSecond <= UNLIMITED) {
+                return 1;
+            }
+            refill();
+            return Math.max(1, (long) Math.ceil((1.0 - tokens) / requestsPerSecond));
+        }
+
+        synchronized SubscriptionMetrics getMetrics() {
+            return new SubscriptionMetrics(acceptedRequests, rateLimitedRequests, concurrencyLimitedRequests,
+                    activeRequests);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double refilled = (now - lastRefillNanos) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(burst, tokens + refilled);
+            lastRefillNanos = now;
+        }
+
+    }
+
+    private SubscriptionRateLimiter(double requestsPerSecond, int burst, int maxConcurrentRequests) {
+        this.requestsPerSecond = Math.max(UNLIMITED, requestsPerSecond);
+        this.burst = Math.max(1, burst);
+        this.maxConcurrentRequests = Math.max(UNLIMITED, maxConcurrentRequests);
+    }
+
+    /**
+     * Creates a limiter
+     *
+     * @param requestsPerSecond
+     *            sustained request rate per subscription ({@link #UNLIMITED} disables the rate limit)
+     * @param burst
+     *            number of requests a subscription may send at once after being idle
+     * @param maxConcurrentRequests
+     *            maximum number of concurrent requests per subscription ({@link #UNLIMITED} disables the cap)
+     */
+    public static SubscriptionRateLimiter create(double requestsPerSecond, int burst, int maxConcurrentRequests) {
+        return new SubscriptionRateLimiter(requestsPerSecond, burst, maxConcurrentRequests);
+    }
+
+    public boolean isUnlimited() {
+        return (requestsPerSecond <= UNLIMITED) && (maxConcurrentRequests <= UNLIMITED);
+    }
+
+    /**
+     * Admits a request of a subscription if it is within the limits
+     *
+     * @param subscriptionId
+     * @return true if the request has been admitted; it has to be finished with {@link #release(String)}
+     */
+    public boolean tryAcquire(String subscriptionId) {
+        if (getState(subscriptionId).tryAcquire()) {
+            return true;
+        }
+        logger.warn("Request of subscription {} rejected: {}", subscriptionId, getMetrics(subscriptionId));
+        return false;
+    }
+
+    /**
+     * Finishes an admitted request
+     *
+     * @param subscriptionId
+     */
+    public void release(String subscriptionId) {
+        getState(subscriptionId).release();
+    }
+
+    /**
+     * Returns the number of seconds after which a rejected subscription should retry
+     *
+     * @param subscriptionId
+     */
+    public long getRetryAfterSeconds(String subscriptionId) {
+        return getState(subscriptionId).getRetryAfterSeconds();
+    }
+
+    /**
+     * Returns the metrics of a subscription or null if the subscription has not accessed the offering yet
+     *
+     * @param subscriptionId
+     */
+    public SubscriptionMetrics getMetrics(String subscriptionId) {
+        SubscriptionState state = subscriptions.get(key(subscriptionId));
+        return (state != null) ? state.getMetrics() : null;
+    }
+
+    /**
+     * Returns the metrics of all subscriptions that accessed the offering, keyed by subscription id
+     */
+    public Map<String, SubscriptionMetrics> getMetrics() {
+        Map<String, SubscriptionMetrics> metrics = new HashMap<>();
+        for (Map.Entry<String, SubscriptionState> entry : subscriptions.entrySet()) {
+            metrics.put(entry.getKey(), entry.getValue().getMetrics());
+        }
+        return metrics;
+    }
+
+    private SubscriptionState getState(String subscriptionId) {
+        String key = key(subscriptionId);
+        SubscriptionState state = subscriptions.get(key);
+        if (state == null) {
+            subscriptions.putIfAbsent(key, new SubscriptionState());
+            state = subscriptions.get(key);
+        }
+        return state;
+    }
+
+    private static String key(String subscriptionId) {
+        return (subscriptionId != null) ? subscriptionId : Constants.UNKNOWN_SUBSCRIPTION_ID;
+    }
+
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renews the offering subscriptions of a consumer in batches. Instead of one timer and one subscription mutation per
+ * offering, all subscriptions whose tokens have to be renewed within the grouping window are renewed together in a
+ * single batched GraphQL mutation (up to the maximum batch size per mutation).
+ * <p>
+ * Renewal times are spread by a random jitter (renewals only happen earlier, never later) to avoid synchronized waves
+ * of requests at the marketplace, e.g. after many subscriptions were created at the same time. Renewed tokens replace
+ * the token of an offering in a single step, i.e. accesses in flight keep using the token they started with.
+ * <p>
+ * A batch that fails unexpectedly is retried later. Offerings removed while their renewal is in flight are not
+ * scheduled again.
+ */
+public class SubscriptionRenewalManager {
+
+    public static final long DEFAULT_RENEWAL_MARGIN_MILLIS = 60000L;
+    public static final long DEFAULT_WINDOW_MILLIS = 60000L;
+    public static final long DEFAULT_JITTER_MILLIS = 15000L;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final long RETRY_DELAY_MILLIS = 30000L;
+
+    private static final long MIN_DELAY_MILLIS = 1000L;
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionRenewalManager.class);
+
+    private final IConsumer consumer;
+    private final Map<OfferingCore, Long> renewalTimes = new HashMap<>();
+    private final Set<OfferingCore> inFlight = new HashSet<>();
+    private final Set<OfferingCore> removedInFlight = new HashSet<>();
+    private final Random random = new Random();
+
+    private long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private long jitterMillis = DEFAULT_JITTER_MILLIS;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    private ScheduledExecutorService executor = null;
+    private ScheduledFuture<?> wakeup = null;
+    private long wakeupTime = Long.MAX_VALUE;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong renewalCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    public SubscriptionRenewalManager(IConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    public static SubscriptionRenewalManager create(IConsumer consumer) {
+        return new SubscriptionRenewalManager(consumer);
+    }
+
+    /**
+     * Sets the window in which expiring subscriptions are grouped into one renewal
+     *
+     * @param windowMillis
+     */
+    public SubscriptionRenewalManager withWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum random advancement of renewal times
+     *
+     * @param jitterMillis
+     */
+    public SubscriptionRenewalManager withJitter(long jitterMillis) {
+        this.jitterMillis = jitterMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of subscriptions renewed in one mutation
+     *
+     * @param maxBatchSize
+     */
+    public SubscriptionRenewalManager withMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        return this;
+    }
+
+    /**
+     * Schedules the renewal of an offering subscription ahead of the expiration of its token
+     *
+     * @param offering
+     * @param expirationTime
+     *            expiration time of the current token in milliseconds since epoch
+     */
+    public synchronized void scheduleRenewal(OfferingCore offering, long expirationTime) {
+        schedule(offering, expirationTime - DEFAULT_RENEWAL_MARGIN_MILLIS - jitter());
+    }
+
+    /**
+     * Schedules another renewal attempt after a failed renewal
+     *
+     * @param offering
+     */
+    public synchronized void scheduleRetry(OfferingCore offering) {
+        schedule(offering, System.currentTimeMillis() + RETRY_DELAY_MILLIS + jitter());
+    }
+
+    /**
+     * Deactivates the renewal of an offering subscription
+     *
+     * @param offering
+     */
+    public synchronized void remove(OfferingCore offering) {
+        renewalTimes.remove(offering);
+        if (inFlight.contains(offering)) {
+            removedInFlight.add(offering);
+        }
+    }
+
+    public synchronized int size() {
+        return renewalTimes.size();
+    }
+
+    /**
+     * Returns the number of batched renewal mutations sent to the marketplace
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Returns the number of successfully renewed subscriptions
+     */
+    public long getRenewalCount() {
+        return renewalCount.get();
+    }
+
+    /**
+     * Returns the number of failed subscription renewals
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Returns the time of the next scheduled renewal or Long.MAX_VALUE if no renewal is scheduled
+     */
+    synchronized long getWakeupTime() {
+        return ((wakeup != null) && !wakeup.isDone()) ? wakeupTime : Long.MAX_VALUE;
+    }
+
+    public synchronized void terminate() {
+        renewalTimes.clear();
+        removedInFlight.addAll(inFlight);
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private long jitter() {
+        return (jitterMillis > 0) ? (long) (random.nextDouble() * jitterMillis) : 0L;
+    }
+
+    private void schedule(OfferingCore offering, long renewalTime) {
+        if (removedInFlight.contains(offering)) {
+            logger.debug("Renewal of removed offering {} ignored", offering);
+            return;
+        }
+        renewalTimes.put(offering, Math.max(renewalTime, System.currentTimeMillis() + MIN_DELAY_MILLIS));
+        rescheduleWakeup();
+    }
+
+    private void rescheduleWakeup() {
+        long next = Long.MAX_VALUE;
+        for (Long renewalTime : renewalTimes.values()) {
+            next = Math.min(next, renewalTime);
+        }
+        if ((next == Long.MAX_VALUE) || ((wakeup != null) && !wakeup.isDone() && (wakeupTime <= next))) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        wakeupTime = next;
+        wakeup = getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                renewDue();
+            }
+        }, Math.max(0L, next - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "subscription-renewal");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Renews all subscriptions due within the grouping window
+     */
+    void renewDue() {
+        final List<OfferingCore> due = new ArrayList<>();
+        synchronized (this) {
+            wakeup = null;
+            wakeupTime = Long.MAX_VALUE;
+            long horizon = System.currentTimeMillis() + windowMillis;
+            Iterator<Map.Entry<OfferingCore, Long>> iterator = renewalTimes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<OfferingCore, Long> entry = iterator.next();
+                if (entry.getValue() <= horizon) {
+                    due.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+            inFlight.addAll(due);
+        }
+
+        try {
+            for (int start = 0; start < due.size(); start += maxBatchSize) {
+                List<OfferingCore> batch = due.subList(start, Math.min(start + maxBatchSize, due.size()));
+                try {
+                    renew(batch);
+                } catch (RuntimeException e) {
+                    logger.error("Renewal of {} subscriptions failed - retry in {} ms", batch.size(),
+                            RETRY_DELAY_MILLIS, e);
+                    failureCount.addAndGet(batch.size());
+                    for (OfferingCore offering : batch) {
+                        scheduleRetry(offering);
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                inFlight.removeAll(due);
+                removedInFlight.removeAll(due);
+                if (executor != null) {
+                    rescheduleWakeup();
+                }
+            }
+        }
+    }
+
+    private synchronized boolean isRemoved(OfferingCore offering) {
+        return removedInFlight.contains(offering);
+    }
+
+    /**
+     * Renews a batch of subscriptions with a single mutation and hands over the renewed tokens
+     *
+     * @param batch
+     */
+    void renew(List<OfferingCore> batch) {
+        final List<SubscribableOfferingDescriptionCore> offeringDescriptions = new ArrayList<>(batch.size());
+        for (OfferingCore offering : batch) {
+            offeringDescriptions.add(offering.getOfferingDescription());
+        }
+        batchCount.incrementAndGet();
+        final List<String> offeringTokens = SubscribableOfferingDescriptionCore
+                .subscribeAllAtMarketplace(offeringDescriptions, consumer.getMarketplaceClient(), "renewSubscriptions");
+
+        int renewed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            // a missing token counts as failed renewal
+            String offeringToken = ((offeringTokens != null) && (i < offeringTokens.size())) ? offeringTokens.get(i)
+                    : null;
+            if (offeringToken != null) {
+                renewed++;
+            }
+            if (!isRemoved(batch.get(i))) {
+                batch.get(i).setRenewedOfferingToken(offeringToken);
+            }
+        }
+        renewalCount.addAndGet(renewed);
+        failureCount.addAndGet(batch.size() - renewed);
+        logger.info("Renewed {} of {} subscriptions", renewed, batch.size());
+    }
+
+}
@@ -0,0 +1,345 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.exceptions.AccessToNonActivatedOfferingException;
+import org.eclipse.bridgeiot.lib.exceptions.AccessToNonSubscribedOfferingException;
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.exceptions.IllegalEndpointException;
+import org.eclipse.bridgeiot.lib.exceptions.IncompleteOfferingDescriptionException;
+import org.eclipse.bridgeiot.lib.feed.AccessFeed;
+import org.eclipse.bridgeiot.lib.feed.AccessFeedSync;
+import org.eclipse.bridgeiot.lib.feed.FeedStatus;
+import org.eclipse.bridgeiot.lib.handlers.FeedNotificationFailureHandler;
+import org.eclipse.bridgeiot.lib.handlers.FeedNotificationSuccessHandler;
+import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
+import org.eclipse.bridgeiot.lib.offering.internal.AccountingRecord;
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParametersTuple;
+import org.eclipse.bridgeiot.lib.security.AccessToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Snapshot of the subscriptions of a consumer for a warm restart. A snapshot contains per subscribed offering the
+ * offering description, the subscription, the offering access token with its expiration time, the definitions of the
+ * synchronous feeds and the accounting state. Feed handlers cannot be persisted; they are passed on restore.
+ * <p>
+ * As the offering access tokens are credentials, the snapshot file is only readable and writable by its owner (on file
+ * systems supporting POSIX permissions); it should be kept in a location not shared with other users.
+ * <p>
+ * On restore, still valid offering access tokens are reused and feeds are resumed at once. Subscriptions with expired
+ * tokens are renewed in the background, i.e. in a single batch by the {@link SubscriptionRenewalManager} of the
+ * consumer (or individually, if the consumer has no renewal manager); their feeds are resumed after the renewal.
+ */
+public class SubscriptionSnapshot {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionSnapshot.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(Include.NON_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    // accounting records have no setters, hence they are persisted field by field
+    private static final ObjectMapper recordMapper = new ObjectMapper().setVisibility(PropertyAccessor.ALL,
+            Visibility.NONE).setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+
+    private final long createdAt;
+    private final List<ObjectNode> subscriptions;
+
+    private SubscriptionSnapshot(long createdAt, List<ObjectNode> subscriptions) {
+        this.createdAt = createdAt;
+        this.subscriptions = subscriptions;
+    }
+
+    /**
+     * Takes a snapshot of subscribed offerings
+     *
+     * @param offerings
+     * @return
+     */
+    public static SubscriptionSnapshot create(Collection<? extends OfferingCore> offerings) {
+        List<ObjectNode> subscriptions = new ArrayList<>(offerings.size());
+        for (OfferingCore offering : offerings) {
+            if (offering.getOfferingToken() == null) {
+                logger.warn("Offering {} has no valid subscription - not included in snapshot",
+                        offering.getOfferingDescription().getId());
+                continue;
+            }
+            try {
+                subscriptions.add(toNode(offering));
+            } catch (IOException e) {
+                logger.error("Offering {} cannot be included in snapshot: {}",
+                        offering.getOfferingDescription().getId(), e.getMessage());
+            }
+        }
+        return new SubscriptionSnapshot(System.currentTimeMillis(), subscriptions);
+    }
+
+    /**
+     * Reads a snapshot from a file
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static SubscriptionSnapshot read(File file) throws IOException {
+        JsonNode root = mapper.readTree(file);
+        if ((root == null) || (root.path("version").asInt() != FORMAT_VERSION)) {
+            throw new IOException("Unsupported subscription snapshot format in " + file);
+        }
+        List<ObjectNode> subscriptions = new ArrayList<>();
+        for (JsonNode subscription : root.path("subscriptions")) {
+            subscriptions.add((ObjectNode) subscription);
+        }
+        return new SubscriptionSnapshot(root.path("createdAt").asLong(), subscriptions);
+    }
+
+    /**
+     * Writes the snapshot to a file. The file is replaced atomically, i.e. a crash while writing leaves the previous
+     * snapshot intact, and is created with owner-only permissions as it contains the offering access tokens.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", FORMAT_VERSION);
+        root.put("createdAt", createdAt);
+        root.putArray("subscriptions").addAll(subscriptions);
+
+        Path tempFile = createPrivateTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName());
+        try {
+            mapper.writeValue(tempFile.toFile(), root);
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        logger.info("Wrote snapshot of {} subscriptions to {}", subscriptions.size(), file);
+    }
+
+    private static Path createPrivateTempFile(Path directory, String prefix) throws IOException {
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return Files.createTempFile(directory, prefix, ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Path tempFile = Files.createTempFile(directory, prefix, ".tmp");
+        File restricted = tempFile.toFile();
+        if (!(restricted.setReadable(false, false) && restricted.setReadable(true, true)
+                && restricted.setWritable(false, false) && restricted.setWritable(true, true))) {
+            logger.warn("Cannot restrict access to subscription snapshot {}", tempFile);
+        }
+        return tempFile;
+    }
+
+    /**
+     * Restores the subscriptions of the snapshot at a consumer. The restored offerings are registered at the consumer.
+     *
+     * @param consumer
+     * @param onSuccess
+     *            notification handler of resumed feeds; feeds are not resumed if null
+     * @param onFailure
+     *            failure handler of resumed feeds
+     * @return restored offerings
+     */
+    public List<OfferingCore> restore(IConsumer consumer, final FeedNotificationSuccessHandler onSuccess,
+            final FeedNotificationFailureHandler onFailure) {
+        List<OfferingCore> offerings = new ArrayList<>(subscriptions.size());
+        int expired = 0;
+        for (final ObjectNode subscription : subscriptions) {
+            try {
+                final OfferingCore offering = restoreOffering(consumer, subscription);
+                consumer.addSubscribedOffering(offering);
+                offerings.add(offering);
+                if (isExpired(offering.getOfferingToken())) {
+                    expired++;
+                    if (onSuccess != null) {
+                        // feeds would fail with the expired token
+                        offering.runAfterRenewal(new Runnable() {
+                            @Override
+                            public void run() {
+                                restoreFeeds(offering, subscription.path("feeds"), onSuccess, onFailure);
+                            }
+                        });
+                    }
+                } else if (onSuccess != null) {
+                    restoreFeeds(offering, subscription.path("feeds"), onSuccess, onFailure);
+                }
+            } catch (IOException | IllegalEndpointException | IncompleteOfferingDescriptionException
+                    | BridgeIoTException e) {
+                logger.error("Restoring subscription of offering {} failed: {}",
+                        subscription.path("offeringDescription").path("id").asText(), e.getMessage());
+            }
+        }
+        logger.info("Restored {} of {} subscriptions ({} to be renewed)", offerings.size(), subscriptions.size(),
+                expired);
+        return offerings;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Returns the IDs of the offerings in the snapshot
+     */
+    public List<String> getOfferingIds() {
+        List<String> offeringIds = new ArrayList<>(subscriptions.size());
+        for (ObjectNode subscription : subscriptions) {
+            offeringIds.add(subscription.path("offeringDescription").path("id").asText());
+        }
+        return Collections.unmodifiableList(offeringIds);
+    }
+
+    public int size() {
+        return subscriptions.size();
+    }
+
+    static boolean isExpired(String offeringToken) {
+        return AccessToken.getExpirationTime(offeringToken) <= System.currentTimeMillis();
+    }
+
+    private static ObjectNode toNode(OfferingCore offering) throws IOException {
+        SubscribableOfferingDescriptionCore offeringDescription = offering.getOfferingDescription();
+        ObjectNode node = mapper.createObjectNode();
+        // only the offering description itself, not the consumer-side state of the subscribable description
+        node.set("offeringDescription", mapper
+                .readTree(mapper.writerFor(OfferingDescription.class).writeValueAsBytes(offeringDescription)));
+        node.put("queryId", offeringDescription.getQueryId());
+        node.put("subscriptionId", offeringDescription.getSubscriptionId());
+        node.put("offeringToken", offering.getOfferingToken());
+        node.put("expirationTime", AccessToken.getExpirationTime(offering.getOfferingToken()));
+
+        ArrayNode feeds = node.putArray("feeds");
+        for (AccessFeed feed : offering.getMyAccessFeeds()) {
+            FeedStatus status = feed.getStatus();
+            if ((feed instanceof AccessFeedSync) && !status.isTerminated()) {
+                ObjectNode feedNode = feeds.addObject();
+                feedNode.set("parameters", toNode(((AccessFeedSync) feed).getAccessParameters()));
+                feedNode.put("expirationTime", feed.getExpirationDate().getMillis());
+                feedNode.put("intervalMillis", status.getInterval().getMillis());
+            }
+        }
+
+        ArrayNode accounting = node.putArray("accounting");
+        for (AccountingReport report : offering.accounting.getReports()) {
+            ObjectNode reportNode = accounting.addObject();
+            reportNode.put("subscriptionId", report.getSubscriptionId());
+            reportNode.put("accessSessionId", report.getAccessSessionId());
+            reportNode.set("record", recordMapper.<JsonNode> valueToTree(report.getRecord()));
+        }
+        return node;
+    }
+
+    private static ArrayNode toNode(AccessParameters accessParameters) {
+        ArrayNode parameters = mapper.createArrayNode();
+        if ((accessParameters == null) || (accessParameters.getMembers() == null)) {
+            return parameters;
+        }
+        for (AccessParametersTuple tuple : accessParameters.getMembers()) {
+            ObjectNode parameter = parameters.addObject();
+            if (tuple instanceof AccessParametersTuple.Name) {
+                parameter.put("name", ((AccessParametersTuple.Name) tuple).getName());
+            } else {
+                parameter.put("rdfType", ((AccessParametersTuple.Type) tuple).getRdfAnnotation());
+            }
+            if (tuple.getValue() instanceof AccessParameters) {
+                parameter.set("parameters", toNode((AccessParameters) tuple.getValue()));
+            } else {
+                parameter.set("value", mapper.valueToTree(tuple.getValue()));
+            }
+        }
+        return parameters;
+    }
+
+    private static AccessParameters toAccessParameters(JsonNode parameters) throws IOException {
+        AccessParameters accessParameters = AccessParameters.create();
+        for (JsonNode parameter : parameters) {
+            Object value = parameter.has("parameters") ? toAccessParameters(parameter.get("parameters"))
+                    : mapper.treeToValue(parameter.path("value"), Object.class);
+            if (parameter.has("name")) {
+                accessParameters.addNameValue(parameter.get("name").asText(), value);
+            } else {
+                accessParameters.addRdfTypeValue(parameter.path("rdfType").asText(), value);
+            }
+        }
+        return accessParameters;
+    }
+
+    private static OfferingCore restoreOffering(IConsumer consumer, ObjectNode subscription)
+            throws IOException, IllegalEndpointException, IncompleteOfferingDescriptionException {
+        SubscribableOfferingDescriptionCore offeringDescription = SubscribableOfferingDescriptionCore
+                .create(consumer);
+        offeringDescription.updateOfferingDescription(
+                mapper.treeToValue(subscription.get("offeringDescription"), OfferingDescription.class));
+        offeringDescription.setQueryId(textOrNull(subscription.get("queryId")));
+        offeringDescription.subscriptionId = textOrNull(subscription.get("subscriptionId"));
+
+        // an expired token is handed over as well: its renewal is then due immediately
+        OfferingCore offering = offeringDescription.createOffering(subscription.path("offeringToken").asText());
+
+        for (JsonNode report : subscription.path("accounting")) {
+            offering.accounting.restoreReport(report.path("subscriptionId").asText(),
+                    report.path("accessSessionId").asText(),
+                    recordMapper.treeToValue(report.path("record"), AccountingRecord.class));
+        }
+        return offering;
+    }
+
+    private static void restoreFeeds(OfferingCore offering, JsonNode feeds, FeedNotificationSuccessHandler onSuccess,
+            FeedNotificationFailureHandler onFailure) {
+        for (JsonNode feed : feeds) {
+            long lifetimeMillis = feed.path("expirationTime").asLong() - System.currentTimeMillis();
+            if (lifetimeMillis <= 0) {
+                continue;
+            }
+            try {
+                offering.accessContinuous(toAccessParameters(feed.path("parameters")), lifetimeMillis,
+                        feed.path("intervalMillis").asLong(), onSuccess, onFailure);
+            } catch (IOException | AccessToNonActivatedOfferingException | AccessToNonSubscribedOfferingException e) {
+                logger.warn("Feed of offering {} cannot be resumed: {}", offering.getOfferingDescription().getId(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return ((node == null) || node.isNull()) ? null : node.asText();
+    }
+
+}
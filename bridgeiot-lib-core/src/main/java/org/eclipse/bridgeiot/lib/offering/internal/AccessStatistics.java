@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rolling latency and error rate statistics per offering endpoint as observed by a consumer. Each endpoint keeps the
+ * outcome of its last {@link #WINDOW_SIZE} accesses. The bytes transferred are counted in total, on the wire and after
+ * decoding compressed responses, to report the bandwidth saved by compression.
+ */
+public class AccessStatistics {
+
+    public static final int WINDOW_SIZE = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessStatistics.class);
+
+    private ConcurrentMap<String, EndpointStatistics> statisticsMap = new ConcurrentHashMap<>();
+
+    /**
+     * Statistics of a single endpoint
+     */
+    public static class EndpointStatistics {
+
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private final boolean[] failures = new boolean[WINDOW_SIZE];
+        private int next = 0;
+        private int count = 0;
+        private long totalAccesses = 0;
+        private long totalFailures = 0;
+        private long totalWireBytes = 0;
+        private long totalBytes = 0;
+
+        synchronized void add(long latencyMillis, boolean success) {
+            latencies[next] = latencyMillis;
+            failures[next] = !success;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+            totalAccesses++;
+            if (!success) {
+                totalFailures++;
+            }
+        }
+
+        synchronized void addTransfer(long wireBytes, long bytes) {
+            totalWireBytes += wireBytes;
+            totalBytes += bytes;
+        }
+
+        /**
+         * Returns the number of accesses in the current window
+         */
+        public synchronized int getSampleCount() {
+            return count;
+        }
+
+        public synchronized long getTotalAccesses() {
+            return totalAccesses;
+        }
+
+        public synchronized long getTotalFailures() {
+            return totalFailures;
+        }
+
+        /**
+         * Returns the number of response body bytes received on the wire (compressed)
+         */
+        public synchronized long getTotalWireBytes() {
+            return totalWireBytes;
+        }
+
+        /**
+         * Returns the number of response body bytes after decoding
+         */
+        public synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * Returns the ratio of bytes saved on the wire by compression (0.0 to 1.0)
+         */
+        public synchronized double getBandwidthSaved() {
+            return (totalBytes > 0) ? (double) (totalBytes - totalWireBytes) / totalBytes : 0.0;
+        }
+
+        /**
+         * Returns the mean latency of the successful accesses in the current window in milliseconds, or -1 if there
+         * was no successful access
+         */
+        public synchronized double getMeanLatency() {
+            long sum = 0;
+            int successes = 0;
+            for (int i = 0; i < count; i++) {
+                if (!failures[i]) {
+                    sum += latencies[i];
+                    successes++;
+                }
+            }
+            return (successes > 0) ? (double) sum / successes : -1;
+        }
+
+        /**
+         * Returns a latency percentile of the successful accesses in the current window in milliseconds, or -1 if
+         * there was no successful access
+         *
+         * @param percentile
+         *            percentile between 0 and 100
+         */
+        public synchronized long getLatencyPercentile(double percentile) {
+            long[] sorted = new long[count];
+            int successes = 0;
+            for (int i = 0; i < count; i++) {
+                if (!failures[i]) {
+                    sorted[successes++] = latencies[i];
+                }
+            }
+            if (successes == 0) {
+                return -1;
+            }
+            Arrays.sort(sorted, 0, successes);
+            int index = (int) Math.ceil(Math.max(0.0, Math.min(100.0, percentile)) / 100.0 * successes) - 1;
+            return sorted[Math.max(0, index)];
+        }
+
+        /**
+         * Returns the ratio of failed accesses in the current window (0.0 to 1.0)
+         */
+        public synchronized double getErrorRate() {
+            if (count == 0) {
+                return 0.0;
+            }
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (failures[i]) {
+                    failed++;
+                }
+            }
+            return (double) failed / count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "EndpointStatistics[samples=" + count + ", meanLatency=" + getMeanLatency() + ", errorRate="
+                    + getErrorRate() + ", bandwidthSaved=" + getBandwidthSaved() + "]";
+        }
+
+    }
+
+    public static AccessStatistics create() {
+        return new AccessStatistics();
+    }
+
+    /**
+     * Records the outcome of an access to an endpoint
+     *
+     * @param endpointUri
+     * @param latencyMillis
+     * @param success
+     */
+    public void record(String endpointUri, long latencyMillis, boolean success) {
+        if (endpointUri == null) {
+            return;
+        }
+        EndpointStatistics statistics = getOrCreate(endpointUri);
+        statistics.add(latencyMillis, success);
+        logger.debug("Access statistics for {}: {}", endpointUri, statistics);
+    }
+
+    /**
+     * Records the size of a response body received from an endpoint
+     *
+     * @param endpointUri
+     * @param wireBytes
+     *            bytes received on the wire
+     * @param bytes
+     *            bytes after decoding
+     */
+    public void recordTransfer(String endpointUri, long wireBytes, long bytes) {
+        if (endpointUri == null) {
+            return;
+        }
+        getOrCreate(endpointUri).addTransfer(wireBytes, bytes);
+    }
+
+    /**
+     * Returns the statistics of an endpoint or null if the endpoint has not been accessed yet
+     *
+     * @param endpointUri
+     * @return
+     */
+    public EndpointStatistics get(String endpointUri) {
+        return (endpointUri != null) ? statisticsMap.get(endpointUri) : null;
+    }
+
+    private EndpointStatistics getOrCreate(String endpointUri) {
+        EndpointStatistics statistics = statisticsMap.get(endpointUri);
+        if (statistics == null) {
+            statisticsMap.putIfAbsent(endpointUri, new EndpointStatistics());
+            statistics = statisticsMap.get(endpointUri);
+        }
+        return statistics;
+    }
+
+    public void clear() {
+        statisticsMap.clear();
+    }
+
+}
@@ -102,16 +102,31 @@ public class Accounting {
 
     public void addEvent(String subscriptionId, String accessSessionId, BridgeIotHttpResponse response) {
 
-        AccountingReport report;
-        if (reportMap.containsKey(subscriptionId + accessSessionId)) {
-            report = reportMap.get(subscriptionId + accessSessionId);
-        } else {
-            report = new AccountingReport(this.offeringId, subscriptionId, accessSessionId);
-            reportMap.put(subscriptionId + accessSessionId, report);
+        final AccountingReport report = getReport(subscriptionId, accessSessionId);
+
+        final boolean streamed = response.isStreamed();
+        // bytes on the wire are known once the (possibly compressed) body has been written
+        response.addBodyListener(new BridgeIotHttpResponse.BodyListener() {
+            @Override
+            public void bodyWritten(long byteCount, long wireByteCount) {
+                if (streamed) {
+                    report.getRecord().addBytes(byteCount);
+                }
+                report.getRecord().addWireBytes(wireByteCount);
+                logger.debug("Add accounting event: # of written Bytes = {}; # of Bytes on wire = {}; SessionId = {}; "
+                        + "Subscription = {}", byteCount, wireByteCount, report.getAccessSessionId(),
+                        report.getSubscriptionId());
+            }
+        });
+
+        if (streamed) {
+            // count the access now and the bytes as they are written, data records are not counted for streams
+            report.getRecord().addBytesAndRecords(0, 0);
+            return;
         }
 
         // compute # of bytes
-        int byteCount = response.getBody().length();
+        int byteCount = (int) response.getContentLength();
 
         // compute # of data records
         int recordCount = 0;
@@ -156,6 +171,39 @@ public class Accounting {
         return reportList;
     }
 
+    /**
+     * Returns copies of all reports without starting a new reporting period, e.g. to persist the accounting state
+     */
+    public List<AccountingReport> getReports() {
+        List<AccountingReport> reportList = new ArrayList<>();
+        for (AccountingReport report : reportMap.values()) {
+            reportList.add(new AccountingReport(this.offeringId, report.getSubscriptionId(),
+                    report.getAccessSessionId(), new AccountingRecord(report.getRecord())));
+        }
+        return reportList;
+    }
+
+    /**
+     * Restores a (persisted) report of an access session. An existing report of the session is replaced.
+     *
+     * @param subscriptionId
+     * @param accessSessionId
+     * @param accountingRecord
+     */
+    public void restoreReport(String subscriptionId, String accessSessionId, AccountingRecord accountingRecord) {
+        reportMap.put(subscriptionId + accessSessionId,
+                new AccountingReport(this.offeringId, subscriptionId, accessSessionId, accountingRecord));
+    }
+
+    private synchronized AccountingReport getReport(String subscriptionId, String accessSessionId) {
+        AccountingReport report = reportMap.get(subscriptionId + accessSessionId);
+        if (report == null) {
+            report = new AccountingReport(this.offeringId, subscriptionId, accessSessionId);
+            reportMap.put(subscriptionId + accessSessionId, report);
+        }
+        return report;
+    }
+
     private int countJsonArrayElements(String json) {
         try {
             JsonNode jsonNode = mapper.reader().readTree(json);
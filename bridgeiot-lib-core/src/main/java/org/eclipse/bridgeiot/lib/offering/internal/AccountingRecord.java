@@ -30,6 +30,9 @@ public class AccountingRecord {
     private Long totalBytes;
     private Long currentDataRecords;
     private Long totalDataRecords;
+    // bytes sent on the wire, i.e. after compression (counted by providers only)
+    private long currentWireBytes;
+    private long totalWireBytes;
 
     public AccountingRecord() {
         tsFirstUpdate = new Date().getTime() - 1; // ensure that the first update (that may be triggered in same msec
@@ -54,6 +57,8 @@ public class AccountingRecord {
         this.totalBytes = record.totalBytes;
         this.currentDataRecords = record.currentDataRecords;
         this.totalDataRecords = record.totalDataRecords;
+        this.currentWireBytes = record.currentWireBytes;
+        this.totalWireBytes = record.totalWireBytes;
         this.currentAccesses = record.currentAccesses;
         this.totalAccesses = record.totalAccesses;
     }
@@ -64,12 +69,18 @@ public class AccountingRecord {
         tsLastUpdate = new Date().getTime();
     }
 
-    public synchronized void addBytes(int bytes) {
+    public synchronized void addBytes(long bytes) {
         currentBytes += bytes;
         totalBytes += bytes;
         tsLastUpdate = new Date().getTime();
     }
 
+    public synchronized void addWireBytes(long bytes) {
+        currentWireBytes += bytes;
+        totalWireBytes += bytes;
+        tsLastUpdate = new Date().getTime();
+    }
+
     public synchronized void addDataRecords(int records) {
         currentDataRecords += records;
         totalDataRecords += records;
@@ -94,6 +105,7 @@ public class AccountingRecord {
         this.currentAccesses = 0L;
         this.currentBytes = 0L;
         this.currentDataRecords = 0L;
+        this.currentWireBytes = 0L;
         return clone;
     }
 
@@ -129,6 +141,21 @@ public class AccountingRecord {
         return totalBytes;
     }
 
+    public Long getCurrentWireBytes() {
+        return currentWireBytes;
+    }
+
+    public Long getTotalWireBytes() {
+        return totalWireBytes;
+    }
+
+    /**
+     * Returns the number of bytes saved by compression in total
+     */
+    public Long getTotalBytesSaved() {
+        return (totalWireBytes > 0) ? totalBytes - totalWireBytes : 0L;
+    }
+
     public Long getCurrentDataRecords() {
         return currentDataRecords;
     }
@@ -0,0 +1,483 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Persistent cache of offering descriptions keyed by offering ID, which allows a restarting consumer to subscribe to
+ * known offerings without fetching their descriptions from the marketplace first.
+ * <p>
+ * The cache is an append-only file of binary records, each holding the offering ID, a version stamp, the time of the
+ * last validation and the deflated JSON encoding of the offering description. On opening, the file is read in one
+ * go and only the record headers are parsed; descriptions are inflated and decoded on access. The file is not kept
+ * memory-mapped, so that {@link #compact()} can replace it on every platform. A file with corrupt records is reset.
+ * <p>
+ * The version stamp is a 64-bit hash of the encoded description without volatile fields like the expiration time of
+ * the activation, so that a revalidated description which has not changed is recognized without comparing fields and
+ * is not written again. Changes of volatile fields only are kept in memory and persisted by {@link #compact()}, which
+ * also drops superseded records.
+ */
+public class OfferingDescriptionCache {
+
+    public static final long DEFAULT_REVALIDATION_INTERVAL = 60 * 60 * 1000L; // 1 hour
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferingDescriptionCache.class);
+
+    private static final int MAGIC = 0x42494f43; // "BIOC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(Include.NON_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    /**
+     * Cache entry of an offering description
+     */
+    public static class Entry {
+
+        private final long versionStamp;
+        private volatile long validatedAt;
+        private final ByteBuffer encoded;
+
+        Entry(long versionStamp, long validatedAt, ByteBuffer encoded) {
+            this.versionStamp = versionStamp;
+            this.validatedAt = validatedAt;
+            this.encoded = encoded;
+        }
+
+        public long getVersionStamp() {
+            return versionStamp;
+        }
+
+        /**
+         * Returns the time the description was last fetched from the marketplace (milliseconds since epoch)
+         */
+        public long getValidatedAt() {
+            return validatedAt;
+        }
+
+        ByteBuffer encoded() {
+            return encoded.duplicate();
+        }
+
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long writePosition;
+    private int supersededRecords = 0;
+    private long revalidationInterval = DEFAULT_REVALIDATION_INTERVAL;
+
+    private OfferingDescriptionCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens a cache file, which is created if it does not exist
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static OfferingDescriptionCache open(File file) throws IOException {
+        OfferingDescriptionCache cache = new OfferingDescriptionCache(file);
+        cache.load();
+        return cache;
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_LENGTH) {
+            writeHeader();
+            return;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            reset("is too large");
+            return;
+        }
+        ByteBuffer content = ByteBuffer.allocate((int) size);
+        while (content.hasRemaining() && (channel.read(content, content.position()) >= 0)) {
+            // read the whole file
+        }
+        content.flip();
+        if ((content.getInt() != MAGIC) || (content.getInt() != FORMAT_VERSION)) {
+            reset("has an unknown format");
+            return;
+        }
+
+        try {
+            while (content.remaining() >= 4) {
+                int recordStart = content.position();
+                int recordLength = content.getInt();
+                if ((recordLength <= 0) || (recordLength > content.remaining())) {
+                    // incomplete record, e.g. after a crash while writing
+                    content.position(recordStart);
+                    break;
+                }
+                ByteBuffer record = content.slice();
+                record.limit(recordLength);
+                content.position(content.position() + recordLength);
+                readRecord(record);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // a record whose fields do not fit into its length
+            reset("has a corrupt record");
+            return;
+        }
+
+        writePosition = content.position();
+        if (writePosition < size) {
+            logger.warn("Offering description cache {} has an incomplete record - record is dropped", file);
+            channel.truncate(writePosition);
+        }
+        logger.info("Offering description cache {} opened with {} offering descriptions", file, entries.size());
+    }
+
+    private void reset(String reason) throws IOException {
+        logger.warn("Offering description cache {} {} - cache is reset", file, reason);
+        entries.clear();
+        supersededRecords = 0;
+        channel.truncate(0);
+        writeHeader();
+    }
+
+    private void readRecord(ByteBuffer record) {
+        byte type = record.get();
+        long versionStamp = record.getLong();
+        long validatedAt = record.getLong();
+        byte[] id = new byte[record.getShort() & 0xffff];
+        record.get(id);
+        String offeringId = new String(id, UTF8);
+        Entry superseded;
+        if (type == PUT) {
+            int payloadLength = record.getInt();
+            ByteBuffer payload = record.slice();
+            payload.limit(payloadLength);
+            superseded = entries.put(offeringId, new Entry(versionStamp, validatedAt, payload));
+        } else {
+            superseded = entries.remove(offeringId);
+            supersededRecords++;
+        }
+        if (superseded != null) {
+            supersededRecords++;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+        channel.write(header, 0);
+        writePosition = HEADER_LENGTH;
+    }
+
+    /**
+     * Returns the cached offering description. Each call decodes a new instance.
+     *
+     * @param offeringId
+     * @return offering description or null if it is not cached
+     */
+    public OfferingDescription get(String offeringId) {
+        Entry entry = entries.get(offeringId);
+        return (entry != null) ? decode(entry) : null;
+    }
+
+    public Entry getEntry(String offeringId) {
+        return entries.get(offeringId);
+    }
+
+    /**
+     * Returns true if the cached offering description has not been validated against the marketplace within the
+     * revalidation interval
+     *
+     * @param offeringId
+     * @return
+     */
+    public boolean needsRevalidation(String offeringId) {
+        Entry entry = entries.get(offeringId);
+        return (entry == null) || (System.currentTimeMillis() - entry.getValidatedAt() >= revalidationInterval);
+    }
+
+    /**
+     * Stores an offering description fetched from the marketplace. If the cached description has the same version
+     * stamp, only its validation time is updated.
+     *
+     * @param offeringDescription
+     * @return true if the offering description is new or has changed
+     */
+    public synchronized boolean put(OfferingDescription offeringDescription) {
+        String offeringId = offeringDescription.getId();
+        if (offeringId == null) {
+            throw new BridgeIoTException("Offering description without offering ID cannot be cached");
+        }
+        long now = System.currentTimeMillis();
+        byte[] json;
+        long versionStamp;
+        try {
+            JsonNode tree = mapper.valueToTree(offeringDescription);
+            json = mapper.writeValueAsBytes(tree);
+            versionStamp = versionStamp(mapper.writeValueAsBytes(withoutVolatileFields(tree)));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BridgeIoTException("Cannot encode offering description " + offeringId, e);
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(deflate(json));
+        Entry cached = entries.get(offeringId);
+        if ((cached != null) && (cached.getVersionStamp() == versionStamp)) {
+            // volatile fields may have changed, they are persisted by the next compaction
+            entries.put(offeringId, new Entry(versionStamp, now, payload));
+            return false;
+        }
+
+        try {
+            append(PUT, offeringId, versionStamp, now, payload.duplicate());
+        } catch (IOException e) {
+            logger.error("Cannot write offering description {} to cache {}: {}", offeringId, file, e.getMessage());
+        }
+        if (entries.put(offeringId, new Entry(versionStamp, now, payload)) != null) {
+            supersededRecords++;
+        }
+        return true;
+    }
+
+    /**
+     * Removes an offering description, e.g. because the offering has been deactivated
+     *
+     * @param offeringId
+     */
+    public synchronized void remove(String offeringId) {
+        if (entries.remove(offeringId) == null) {
+            return;
+        }
+        supersededRecords += 2;
+        try {
+            append(REMOVE, offeringId, 0, System.currentTimeMillis(), null);
+        } catch (IOException e) {
+            logger.error("Cannot remove offering description {} from cache {}: {}", offeringId, file, e.getMessage());
+        }
+    }
+
+    public Set<String> getOfferingIds() {
+        return Collections.unmodifiableSet(new HashSet<>(entries.keySet()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Rewrites the cache file with the current offering descriptions and validation times only
+     *
+     * @throws IOException
+     */
+    public synchronized void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".tmp");
+        long previousWritePosition = writePosition;
+        FileChannel previousChannel = channel;
+        channel = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeHeader();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                append(PUT, entry.getKey(), entry.getValue().getVersionStamp(), entry.getValue().getValidatedAt(),
+                        entry.getValue().encoded());
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            writePosition = previousWritePosition;
+            throw e;
+        } finally {
+            // an open file cannot be replaced on all platforms
+            channel.close();
+            channel = previousChannel;
+        }
+        long compactedWritePosition = writePosition;
+        writePosition = previousWritePosition;
+
+        previousChannel.close();
+        try {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            writePosition = compactedWritePosition;
+        } finally {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        supersededRecords = 0;
+        logger.debug("Offering description cache {} compacted to {} bytes", file, writePosition);
+    }
+
+    /**
+     * Closes the cache file. Superseded records are dropped and validation times are persisted.
+     */
+    public synchronized void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.error("Cannot compact offering description cache {}: {}", file, e.getMessage());
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Cannot close offering description cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    public long getRevalidationInterval() {
+        return revalidationInterval;
+    }
+
+    /**
+     * Sets the interval after which a cached offering description is revalidated against the marketplace
+     *
+     * @param revalidationInterval
+     *            in milliseconds
+     */
+    public OfferingDescriptionCache withRevalidationInterval(long revalidationInterval) {
+        this.revalidationInterval = revalidationInterval;
+        return this;
+    }
+
+    int getSupersededRecords() {
+        return supersededRecords;
+    }
+
+    private void append(byte type, String offeringId, long versionStamp, long validatedAt, ByteBuffer payload)
+            throws IOException {
+        byte[] id = offeringId.getBytes(UTF8);
+        int payloadLength = (payload != null) ? payload.remaining() : 0;
+        int recordLength = 1 + 8 + 8 + 2 + id.length + ((payload != null) ? 4 + payloadLength : 0);
+        ByteBuffer record = ByteBuffer.allocate(4 + recordLength);
+        record.putInt(recordLength).put(type).putLong(versionStamp).putLong(validatedAt).putShort((short) id.length)
+                .put(id);
+        if (payload != null) {
+            record.putInt(payloadLength).put(payload);
+        }
+        record.flip();
+        while (record.hasRemaining()) {
+            writePosition += channel.write(record, writePosition);
+        }
+    }
+
+    private static OfferingDescription decode(Entry entry) {
+        ByteBuffer encoded = entry.encoded();
+        byte[] deflated = new byte[encoded.remaining()];
+        encoded.get(deflated);
+        try {
+            return mapper.readValue(inflate(deflated), OfferingDescription.class);
+        } catch (IOException | DataFormatException e) {
+            throw new BridgeIoTException("Cannot decode cached offering description", e);
+        }
+    }
+
+    /**
+     * Returns the encoded offering description without the fields changing on every revalidation
+     */
+    private static JsonNode withoutVolatileFields(JsonNode tree) {
+        JsonNode activation = tree.get("activation");
+        if (activation instanceof ObjectNode) {
+            JsonNode stable = tree.deepCopy();
+            ((ObjectNode) stable.get("activation")).remove("expirationTime");
+            return stable;
+        }
+        return tree;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the encoded offering description
+     */
+    static long versionStamp(byte[] encoded) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : encoded) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if ((inflated == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated offering description");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
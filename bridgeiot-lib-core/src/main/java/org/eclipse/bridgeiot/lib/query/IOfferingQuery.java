@@ -32,6 +32,15 @@ public interface IOfferingQuery {
      */
     String toOfferingQueryString(BridgeIotClientId consumerId);
 
+    /**
+     * Compiles a Offering Query message accepted by the Marketplace, which also selects the matching offerings
+     * 
+     * @param consumerId
+     *            Consumer identifier issued by Marketplace
+     * @return Offering Query string
+     */
+    String toDiscoveryQueryString(BridgeIotClientId consumerId);
+
     /**
      * Internal use only
      * 
@@ -62,4 +71,11 @@ public interface IOfferingQuery {
      */
     boolean sameQuery(IOfferingQuery query);
 
+    /**
+     * Internal use only
+     * 
+     * @return canonical form of the query content
+     */
+    String getFingerprint();
+
 }
\ No newline at end of file
@@ -0,0 +1,342 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.LicenseType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.PricingModel;
+import org.eclipse.bridgeiot.lib.model.Region;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process catalog of offering descriptions, e.g. fed by discovery results. The catalog allows to re-evaluate
+ * (narrowed) offering queries locally without a round trip to the marketplace.
+ * <p>
+ * Offering descriptions are indexed by
+ * <ul>
+ * <li>an R-tree over the bounding box of their spatial extent and a hash index on city names</li>
+ * <li>hash indexes on RDF category and license type</li>
+ * <li>a hash index on the pricing model with a sorted price structure per pricing model (offerings with a price, but
+ * without a pricing model are not indexed, as they match no price filter)</li>
+ * </ul>
+ * A query is answered by taking the smallest candidate set of all applicable indexes and evaluating the compiled
+ * {@link OfferingQueryMatcher} on these candidates.
+ * <p>
+ * The result of a discovery replaces the previous result of the same query: offerings dropping out of it are removed,
+ * unless they are part of the current result of another query.
+ *
+ * @param <T>
+ *            type of the cataloged offering descriptions
+ */
+public class OfferingCatalog<T extends OfferingDescription> {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferingCatalog.class);
+
+    private final Map<String, T> offerings = new LinkedHashMap<>();
+    private final Map<String, Set<String>> categoryIndex = new HashMap<>();
+    private final Map<LicenseType, Set<String>> licenseIndex = new EnumMap<>(LicenseType.class);
+    private final Map<PricingModel, TreeMap<Double, Set<String>>> priceIndex = new EnumMap<>(PricingModel.class);
+    private final Map<String, Set<String>> cityIndex = new HashMap<>();
+    private final Set<String> unrestrictedRegion = new HashSet<>();
+    private final SpatialIndex<String> spatialIndex = new SpatialIndex<>();
+    private final Map<String, Set<String>> queryResults = new HashMap<>();
+
+    public OfferingCatalog() {
+    }
+
+    public static <T extends OfferingDescription> OfferingCatalog<T> create() {
+        return new OfferingCatalog<>();
+    }
+
+    /**
+     * Adds an offering description to the catalog. An offering description with the same offering ID is replaced.
+     *
+     * @param offeringDescription
+     */
+    public synchronized void add(T offeringDescription) {
+        String offeringId = offeringDescription.getId();
+        if (offeringId == null) {
+            logger.warn("Offering description without offering ID cannot be cataloged");
+            return;
+        }
+
+        remove(offeringId);
+        offerings.put(offeringId, offeringDescription);
+
+        if (offeringDescription.getRdfType() != null && offeringDescription.getRdfType().getUri() != null) {
+            index(categoryIndex, offeringDescription.getRdfType().getUri(), offeringId);
+        }
+        if (offeringDescription.getLicense() != null) {
+            index(licenseIndex, offeringDescription.getLicense(), offeringId);
+        }
+        PricingModel pricingModel = priceModel(offeringDescription);
+        if (pricingModel != null) {
+            index(priceBucket(pricingModel), priceAmount(offeringDescription), offeringId);
+        }
+
+        Region region = offeringDescription.getRegion();
+        if (!OfferingQueryMatcher.isSpatiallyRestricted(region)) {
+            unrestrictedRegion.add(offeringId);
+        } else {
+            // a region may carry both, a bounding box for area queries and a name for city queries
+            if (region.getBoundingBox() != null) {
+                spatialIndex.put(offeringId, region.getBoundingBox());
+            }
+            if ((region.getName() != null) && !region.getName().isEmpty()) {
+                index(cityIndex, region.getName().toLowerCase(), offeringId);
+            }
+        }
+    }
+
+    /**
+     * Adds offering descriptions, e.g. the result of a discovery, to the catalog
+     *
+     * @param offeringDescriptions
+     */
+    public synchronized void addAll(Collection<? extends T> offeringDescriptions) {
+        for (T offeringDescription : offeringDescriptions) {
+            add(offeringDescription);
+        }
+    }
+
+    /**
+     * Replaces the offering descriptions discovered for a query by the result of its latest discovery. Offering
+     * descriptions of the previous result, which are neither part of the new result nor of the result of another
+     * query, are removed.
+     *
+     * @param queryId
+     * @param offeringDescriptions
+     */
+    public synchronized void replaceQueryResult(String queryId, Collection<? extends T> offeringDescriptions) {
+        Set<String> offeringIds = new HashSet<>();
+        for (T offeringDescription : offeringDescriptions) {
+            if (offeringDescription.getId() != null) {
+                offeringIds.add(offeringDescription.getId());
+            }
+        }
+        Set<String> previousIds = queryResults.put(queryId, offeringIds);
+        if (previousIds != null) {
+            for (String offeringId : previousIds) {
+                if (!offeringIds.contains(offeringId) && !isQueryResult(offeringId)) {
+                    remove(offeringId);
+                }
+            }
+        }
+        addAll(offeringDescriptions);
+    }
+
+    private boolean isQueryResult(String offeringId) {
+        for (Set<String> offeringIds : queryResults.values()) {
+            if (offeringIds.contains(offeringId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes an offering description from the catalog
+     *
+     * @param offeringId
+     * @return the removed offering description or null if the offering is not cataloged
+     */
+    public synchronized T remove(String offeringId) {
+        T offeringDescription = offerings.remove(offeringId);
+        if (offeringDescription == null) {
+            return null;
+        }
+
+        if (offeringDescription.getRdfType() != null && offeringDescription.getRdfType().getUri() != null) {
+            unindex(categoryIndex, offeringDescription.getRdfType().getUri(), offeringId);
+        }
+        if (offeringDescription.getLicense() != null) {
+            unindex(licenseIndex, offeringDescription.getLicense(), offeringId);
+        }
+        PricingModel pricingModel = priceModel(offeringDescription);
+        if (pricingModel != null) {
+            unindex(priceIndex.get(pricingModel), priceAmount(offeringDescription), offeringId);
+        }
+
+        Region region = offeringDescription.getRegion();
+        unrestrictedRegion.remove(offeringId);
+        spatialIndex.remove(offeringId);
+        if ((region != null) && (region.getName() != null)) {
+            unindex(cityIndex, region.getName().toLowerCase(), offeringId);
+        }
+
+        return offeringDescription;
+    }
+
+    public synchronized T get(String offeringId) {
+        return offerings.get(offeringId);
+    }
+
+    public synchronized int size() {
+        return offerings.size();
+    }
+
+    public synchronized void clear() {
+        offerings.clear();
+        categoryIndex.clear();
+        licenseIndex.clear();
+        priceIndex.clear();
+        cityIndex.clear();
+        unrestrictedRegion.clear();
+        spatialIndex.clear();
+        queryResults.clear();
+    }
+
+    /**
+     * Returns all cataloged offering descriptions matching the offering query
+     *
+     * @param query
+     * @return
+     */
+    public List<T> query(OfferingQueryChain query) {
+        return query(OfferingQueryMatcher.compile(query));
+    }
+
+    /**
+     * Returns all cataloged offering descriptions matching the compiled offering query
+     *
+     * @param matcher
+     * @return
+     */
+    public synchronized List<T> query(OfferingQueryMatcher matcher) {
+
+        Collection<String> candidates = offerings.keySet();
+
+        if (matcher.category != null) {
+            candidates = smallest(candidates, lookup(categoryIndex, matcher.category));
+        }
+
+        if (matcher.licenseTypes != null) {
+            Set<String> licenseCandidates = new HashSet<>();
+            for (LicenseType licenseType : matcher.licenseTypes) {
+                licenseCandidates.addAll(lookup(licenseIndex, licenseType));
+            }
+            candidates = smallest(candidates, licenseCandidates);
+        }
+
+        if (matcher.pricingModel != null) {
+            Set<String> priceCandidates = new HashSet<>();
+            collect(priceIndex.get(PricingModel.FREE), priceCandidates);
+            if (matcher.pricingModel != PricingModel.FREE) {
+                TreeMap<Double, Set<String>> prices = priceIndex.get(matcher.pricingModel);
+                if (prices != null) {
+                    for (Set<String> bucket : prices
+                            .subMap(matcher.minPrice, true, matcher.maxPrice, true).values()) {
+                        priceCandidates.addAll(bucket);
+                    }
+                }
+            }
+            candidates = smallest(candidates, priceCandidates);
+        }
+
+        if (matcher.boundingBox != null) {
+            Set<String> spatialCandidates = new HashSet<>(unrestrictedRegion);
+            spatialCandidates.addAll(spatialIndex.search(matcher.boundingBox));
+            candidates = smallest(candidates, spatialCandidates);
+        } else if (matcher.city != null) {
+            Set<String> cityCandidates = new HashSet<>(unrestrictedRegion);
+            cityCandidates.addAll(lookup(cityIndex, matcher.city.toLowerCase()));
+            candidates = smallest(candidates, cityCandidates);
+        }
+
+        List<T> result = new ArrayList<>();
+        for (String offeringId : candidates) {
+            T offeringDescription = offerings.get(offeringId);
+            if (matcher.matches(offeringDescription)) {
+                result.add(offeringDescription);
+            }
+        }
+        return result;
+    }
+
+    private TreeMap<Double, Set<String>> priceBucket(PricingModel pricingModel) {
+        TreeMap<Double, Set<String>> prices = priceIndex.get(pricingModel);
+        if (prices == null) {
+            prices = new TreeMap<>();
+            priceIndex.put(pricingModel, prices);
+        }
+        return prices;
+    }
+
+    /**
+     * Returns the pricing model an offering is indexed with, or null if it has a price without pricing model
+     */
+    private static PricingModel priceModel(OfferingDescription offeringDescription) {
+        return OfferingQueryMatcher.isFree(offeringDescription.getPrice()) ? PricingModel.FREE
+                : offeringDescription.getPrice().getPricingModel();
+    }
+
+    private static double priceAmount(OfferingDescription offeringDescription) {
+        return OfferingQueryMatcher.isFree(offeringDescription.getPrice()) ? 0.0
+                : offeringDescription.getPrice().getAmount();
+    }
+
+    private static <K> void index(Map<K, Set<String>> index, K key, String offeringId) {
+        Set<String> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new HashSet<>();
+            index.put(key, bucket);
+        }
+        bucket.add(offeringId);
+    }
+
+    private static <K> void unindex(Map<K, Set<String>> index, K key, String offeringId) {
+        if (index == null) {
+            return;
+        }
+        Set<String> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(offeringId);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> Set<String> lookup(Map<K, Set<String>> index, K key) {
+        Set<String> bucket = index.get(key);
+        return (bucket != null) ? bucket : new HashSet<String>();
+    }
+
+    private static void collect(Map<Double, Set<String>> index, Set<String> target) {
+        if (index != null) {
+            for (Set<String> bucket : index.values()) {
+                target.addAll(bucket);
+            }
+        }
+    }
+
+    private static Collection<String> smallest(Collection<String> current, Collection<String> candidates) {
+        return (candidates.size() < current.size()) ? candidates : current;
+    }
+
+}
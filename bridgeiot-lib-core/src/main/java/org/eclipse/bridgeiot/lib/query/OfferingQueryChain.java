@@ -364,6 +364,10 @@ public class OfferingQueryChain extends OfferingQuery {
         return acceptedLicenseTypes;
     }
 
+    public TimePeriod getTimePeriod() {
+        return timePeriod;
+    }
+
     @Override
     public String toString() {
         return toOfferingQueryString(new BridgeIotClientId("unspecified"));
@@ -371,7 +375,20 @@ public class OfferingQueryChain extends OfferingQuery {
 
     @Override
     public boolean sameQuery(IOfferingQuery query) {
-        return this.getId().equals(query.getId()) && this.toString().equals(query.toString());
+        return this.getId().equals(query.getId()) && this.getFingerprint().equals(query.getFingerprint());
+    }
+
+    /**
+     * Returns a canonical form of the query criteria (without consumer ID). The fingerprint is computed on each call,
+     * since the criteria can also be modified through the objects returned by the getters.
+     */
+    @Override
+    public String getFingerprint() {
+        StringBuilder builder = new StringBuilder();
+        for (String element : toQueryElements()) {
+            builder.append(element).append(' ');
+        }
+        return builder.toString();
     }
 
     /**
@@ -383,10 +400,31 @@ public class OfferingQueryChain extends OfferingQuery {
      */
     @Override
     public String toOfferingQueryString(BridgeIotClientId consumerId) {
+        LinkedList<String> queryElements = toQueryElements();
+        queryElements.addFirst(consumerId.toQueryElement());
+        return new OfferingQueryRequestTemplate(queryElements).fillout();
+    }
+
+    /**
+     * Compiles a Offering Query message, which also selects the offerings matching the new query. This allows to
+     * create the query and discover the matching offerings in a single round trip.
+     * 
+     * @param consumerId
+     *            Consumer identifier issued by Marketplace
+     * @return
+     */
+    @Override
+    public String toDiscoveryQueryString(BridgeIotClientId consumerId) {
+        LinkedList<String> queryElements = toQueryElements();
+        queryElements.addFirst(consumerId.toQueryElement());
+        return new OfferingQueryRequestTemplate(GraphQLQueries.getQueryWithMatchingOfferingsTemplateString(),
+                queryElements).fillout();
+    }
+
+    private LinkedList<String> toQueryElements() {
 
         LinkedList<String> queryElements = new LinkedList<>();
 
-        queryElements.add(consumerId.toQueryElement());
         queryElements.add("localId: \\\"" + this.localId + "\\\"");
         if (information != null) {
             if (information.getName() != null) {
@@ -430,8 +468,7 @@ public class OfferingQueryChain extends OfferingQuery {
             queryElements.add("outputs: [ " + outputDataString + " ] ");
         }
 
-        return new OfferingQueryRequestTemplate(queryElements).fillout();
-
+        return queryElements;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.query;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.eclipse.bridgeiot.lib.model.BoundingBox;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.LicenseType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.PricingModel;
+import org.eclipse.bridgeiot.lib.model.Price;
+import org.eclipse.bridgeiot.lib.model.Region;
+import org.eclipse.bridgeiot.lib.model.TimePeriod;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.eclipse.bridgeiot.lib.query.elements.PriceFilter;
+import org.eclipse.bridgeiot.lib.query.elements.PriceFilter.PriceFilterBetween;
+import org.eclipse.bridgeiot.lib.query.elements.PriceFilter.PriceFilterMax;
+import org.eclipse.bridgeiot.lib.query.elements.PriceFilter.PriceFilterMin;
+
+/**
+ * Compiled form of the criteria of an {@link OfferingQueryChain}. The criteria are copied on compilation, i.e. later
+ * modifications of the query do not affect the matcher.
+ * <p>
+ * The semantics follow the query sent to the marketplace:
+ * <ul>
+ * <li>category: the RDF type URI has to be equal</li>
+ * <li>license: the license has to be one of the accepted license types</li>
+ * <li>price: free offerings always match; otherwise the pricing model has to be equal and the amount within the
+ * filter</li>
+ * <li>region: a bounding box has to intersect the queried bounding box, a city name has to be equal (ignoring case);
+ * offerings without spatial extent are not spatially restricted and match every region</li>
+ * <li>time period: periods have to overlap; open (zero) periods match every period</li>
+ * </ul>
+ */
+public class OfferingQueryMatcher {
+
+    final String category;
+    final Set<LicenseType> licenseTypes;
+    final PricingModel pricingModel;
+    final double minPrice;
+    final double maxPrice;
+    final BoundingBox boundingBox;
+    final String city;
+    final TimePeriod timePeriod;
+
+    private OfferingQueryMatcher(OfferingQueryChain query) {
+
+        if ((query.getInformation() != null) && (query.getInformation().getRdfType() != null)
+                && (query.getInformation().getRdfType().getUri() != null)
+                && !query.getInformation().getRdfType().getUri().isEmpty()) {
+            category = query.getInformation().getRdfType().getUri();
+        } else {
+            category = null;
+        }
+
+        if ((query.getAcceptedLicenseTypes() != null) && !query.getAcceptedLicenseTypes().isEmpty()) {
+            licenseTypes = EnumSet.copyOf(query.getAcceptedLicenseTypes());
+        } else {
+            licenseTypes = null;
+        }
+
+        PriceFilter priceFilter = query.getPriceFilter();
+        if (priceFilter instanceof PriceFilterMax) {
+            pricingModel = priceFilter.getPricingModel();
+            minPrice = Double.NEGATIVE_INFINITY;
+            maxPrice = ((PriceFilterMax) priceFilter).getMax().getAmount();
+        } else if (priceFilter instanceof PriceFilterMin) {
+            pricingModel = priceFilter.getPricingModel();
+            minPrice = ((PriceFilterMin) priceFilter).getMin().getAmount();
+            maxPrice = Double.POSITIVE_INFINITY;
+        } else if (priceFilter instanceof PriceFilterBetween) {
+            pricingModel = priceFilter.getPricingModel();
+            minPrice = ((PriceFilterBetween) priceFilter).getMin().getAmount();
+            maxPrice = ((PriceFilterBetween) priceFilter).getMax().getAmount();
+        } else {
+            pricingModel = null;
+            minPrice = Double.NEGATIVE_INFINITY;
+            maxPrice = Double.POSITIVE_INFINITY;
+        }
+
+        Region region = query.getRegion();
+        if ((region != null) && (region.getBoundingBox() != null)) {
+            boundingBox = region.getBoundingBox();
+            city = null;
+        } else if ((region != null) && (region.getName() != null) && !region.getName().isEmpty()) {
+            boundingBox = null;
+            city = region.getName();
+        } else {
+            boundingBox = null;
+            city = null;
+        }
+
+        timePeriod = query.getTimePeriod();
+    }
+
+    /**
+     * Compiles the criteria of an offering query
+     *
+     * @param query
+     * @return
+     */
+    public static OfferingQueryMatcher compile(OfferingQueryChain query) {
+        return new OfferingQueryMatcher(query);
+    }
+
+    /**
+     * Evaluates the compiled criteria on an offering description
+     *
+     * @param offeringDescription
+     * @return true if the offering description matches all criteria
+     */
+    public boolean matches(OfferingDescription offeringDescription) {
+        return matchesCategory(offeringDescription) && matchesLicense(offeringDescription)
+                && matchesPrice(offeringDescription.getPrice()) && matchesRegion(offeringDescription.getRegion())
+                && matchesTimePeriod(offeringDescription.getTimePeriod());
+    }
+
+    private boolean matchesCategory(OfferingDescription offeringDescription) {
+        return (category == null) || ((offeringDescription.getRdfType() != null)
+                && category.equals(offeringDescription.getRdfType().getUri()));
+    }
+
+    private boolean matchesLicense(OfferingDescription offeringDescription) {
+        return (licenseTypes == null) || licenseTypes.contains(offeringDescription.getLicense());
+    }
+
+    boolean matchesPrice(Price price) {
+        if (pricingModel == null) {
+            return true;
+        }
+        if (isFree(price)) {
+            return true;
+        }
+        return (pricingModel == price.getPricingModel()) && (price.getAmount() >= minPrice)
+                && (price.getAmount() <= maxPrice);
+    }
+
+    boolean matchesRegion(Region region) {
+        if ((boundingBox == null) && (city == null)) {
+            return true;
+        }
+        if (!isSpatiallyRestricted(region)) {
+            return true;
+        }
+        if (boundingBox != null) {
+            return (region.getBoundingBox() != null) && intersects(boundingBox, region.getBoundingBox());
+        }
+        return (region.getName() != null) && city.equalsIgnoreCase(region.getName());
+    }
+
+    private boolean matchesTimePeriod(TimePeriod period) {
+        if (isOpen(timePeriod) || isOpen(period)) {
+            return true;
+        }
+        return (period.getFrom() <= timePeriod.getTo()) && (period.getTo() >= timePeriod.getFrom());
+    }
+
+    static boolean isFree(Price price) {
+        return (price == null) || (price.getPricingModel() == PricingModel.FREE);
+    }
+
+    static boolean isSpatiallyRestricted(Region region) {
+        return (region != null) && ((region.getBoundingBox() != null)
+                || ((region.getName() != null) && !region.getName().isEmpty()));
+    }
+
+    private static boolean isOpen(TimePeriod period) {
+        return (period == null) || (period.getFrom() == null) || (period.getTo() == null)
+                || ((period.getFrom() == 0L) && (period.getTo() == 0L));
+    }
+
+    private static boolean intersects(BoundingBox b1, BoundingBox b2) {
+        return (min(b1, true) <= max(b2, true)) && (max(b1, true) >= min(b2, true))
+                && (min(b1, false) <= max(b2, false)) && (max(b1, false) >= min(b2, false));
+    }
+
+    private static double min(BoundingBox box, boolean latitude) {
+        return latitude ? Math.min(box.getL1().getLatitude(), box.getL2().getLatitude())
+                : Math.min(box.getL1().getLongitude(), box.getL2().getLongitude());
+    }
+
+    private static double max(BoundingBox box, boolean latitude) {
+        return latitude ? Math.max(box.getL1().getLatitude(), box.getL2().getLatitude())
+                : Math.max(box.getL1().getLongitude(), box.getL2().getLongitude());
+    }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bridgeiot.lib.model.BoundingBox;
+
+/**
+ * R-tree over bounding boxes. The tree is bulk loaded with the Sort-Tile-Recursive algorithm on the first search after
+ * a modification, which fits the usage pattern of the offering catalog (batches of discovery results followed by many
+ * searches).
+ *
+ * @param <T>
+ *            key type of the indexed elements
+ */
+class SpatialIndex<T> {
+
+    static final int NODE_CAPACITY = 16;
+
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+    private Node root = null;
+    private boolean dirty = false;
+
+    /**
+     * Axis aligned rectangle in latitude/longitude coordinates
+     */
+    abstract static class Bounds {
+
+        double minLat;
+        double minLng;
+        double maxLat;
+        double maxLng;
+
+        boolean intersects(double minLat, double minLng, double maxLat, double maxLng) {
+            return this.minLat <= maxLat && this.maxLat >= minLat && this.minLng <= maxLng && this.maxLng >= minLng;
+        }
+
+        double centerLat() {
+            return (minLat + maxLat) / 2;
+        }
+
+        double centerLng() {
+            return (minLng + maxLng) / 2;
+        }
+
+    }
+
+    static class Entry<T> extends Bounds {
+
+        final T key;
+
+        Entry(T key, BoundingBox boundingBox) {
+            this.key = key;
+            this.minLat = Math.min(boundingBox.getL1().getLatitude(), boundingBox.getL2().getLatitude());
+            this.maxLat = Math.max(boundingBox.getL1().getLatitude(), boundingBox.getL2().getLatitude());
+            this.minLng = Math.min(boundingBox.getL1().getLongitude(), boundingBox.getL2().getLongitude());
+            this.maxLng = Math.max(boundingBox.getL1().getLongitude(), boundingBox.getL2().getLongitude());
+        }
+
+    }
+
+    static class Node extends Bounds {
+
+        final List<Bounds> children;
+        final boolean leaf;
+
+        Node(List<? extends Bounds> children, boolean leaf) {
+            this.children = new ArrayList<Bounds>(children);
+            this.leaf = leaf;
+            minLat = Double.POSITIVE_INFINITY;
+            minLng = Double.POSITIVE_INFINITY;
+            maxLat = Double.NEGATIVE_INFINITY;
+            maxLng = Double.NEGATIVE_INFINITY;
+            for (Bounds child : children) {
+                minLat = Math.min(minLat, child.minLat);
+                minLng = Math.min(minLng, child.minLng);
+                maxLat = Math.max(maxLat, child.maxLat);
+                maxLng = Math.max(maxLng, child.maxLng);
+            }
+        }
+
+    }
+
+    private static final Comparator<Bounds> BY_LONGITUDE = new Comparator<Bounds>() {
+        @Override
+        public int compare(Bounds b1, Bounds b2) {
+            return Double.compare(b1.centerLng(), b2.centerLng());
+        }
+    };
+
+    private static final Comparator<Bounds> BY_LATITUDE = new Comparator<Bounds>() {
+        @Override
+        public int compare(Bounds b1, Bounds b2) {
+            return Double.compare(b1.centerLat(), b2.centerLat());
+        }
+    };
+
+    /**
+     * Adds or replaces the bounding box of an element
+     *
+     * @param key
+     * @param boundingBox
+     */
+    void put(T key, BoundingBox boundingBox) {
+        entries.put(key, new Entry<>(key, boundingBox));
+        dirty = true;
+    }
+
+    /**
+     * Removes an element from the index
+     *
+     * @param key
+     */
+    void remove(T key) {
+        if (entries.remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        root = null;
+        dirty = false;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the keys of all elements whose bounding box intersects the bounding box
+     *
+     * @param boundingBox
+     * @return
+     */
+    List<T> search(BoundingBox boundingBox) {
+        Entry<T> query = new Entry<>(null, boundingBox);
+        return search(query.minLat, query.minLng, query.maxLat, query.maxLng);
+    }
+
+    List<T> search(double minLat, double minLng, double maxLat, double maxLng) {
+        if (dirty) {
+            root = build(new ArrayList<Bounds>(entries.values()), true);
+            dirty = false;
+        }
+        List<T> result = new ArrayList<>();
+        if (root != null) {
+            search(root, minLat, minLng, maxLat, maxLng, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(Node node, double minLat, double minLng, double maxLat, double maxLng, List<T> result) {
+        for (Bounds child : node.children) {
+            if (child.intersects(minLat, minLng, maxLat, maxLng)) {
+                if (node.leaf) {
+                    result.add(((Entry<T>) child).key);
+                } else {
+                    search((Node) child, minLat, minLng, maxLat, maxLng, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort-Tile-Recursive packing of one tree level; recurses until a single root node remains
+     */
+    private static Node build(List<Bounds> level, boolean leaf) {
+        if (level.isEmpty()) {
+            return null;
+        }
+        if (level.size() <= NODE_CAPACITY) {
+            return new Node(level, leaf);
+        }
+
+        int nodeCount = (int) Math.ceil(level.size() / (double) NODE_CAPACITY);
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+
+        Collections.sort(level, BY_LONGITUDE);
+        List<Bounds> parents = new ArrayList<>(nodeCount);
+        for (int sliceStart = 0; sliceStart < level.size(); sliceStart += sliceSize) {
+            List<Bounds> slice = new ArrayList<>(level.subList(sliceStart,
+                    Math.min(sliceStart + sliceSize, level.size())));
+            Collections.sort(slice, BY_LATITUDE);
+            for (int nodeStart = 0; nodeStart < slice.size(); nodeStart += NODE_CAPACITY) {
+                parents.add(new Node(slice.subList(nodeStart, Math.min(nodeStart + NODE_CAPACITY, slice.size())),
+                        leaf));
+            }
+        }
+
+        return build(parents, false);
+    }
+
+}
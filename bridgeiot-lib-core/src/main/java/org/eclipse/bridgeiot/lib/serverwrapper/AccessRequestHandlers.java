@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler.ResponseCallback;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapters between synchronous and asynchronous access request handlers
+ */
+public class AccessRequestHandlers {
+
+    public static final String GATEWAY_TIMEOUT_STATUS = "504";
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessRequestHandlers.class);
+
+    private AccessRequestHandlers() {
+    }
+
+    /**
+     * Wraps a synchronous handler, which responds on the calling thread
+     *
+     * @param accessCallback
+     * @return
+     */
+    public static AsyncAccessRequestHandler toAsync(final AccessRequestHandler accessCallback) {
+        return new AsyncAccessRequestHandler() {
+            @Override
+            public void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+                    String subscriptionId, String sessionId, ResponseCallback callback) {
+                BridgeIotHttpResponse response;
+                try {
+                    response = accessCallback.processRequestHandler(offeringDescription, inputData, subscriptionId,
+                            sessionId);
+                } catch (RuntimeException e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onResponse(response);
+            }
+        };
+    }
+
+    /**
+     * Wraps an asynchronous handler for server wrappers without asynchronous request processing. The calling thread
+     * waits for the response. If the response is not available in time, the request is answered with 504 (Gateway
+     * Timeout); if the handler fails, with 500 (Internal Server Error).
+     *
+     * @param accessCallback
+     * @param timeoutMillis
+     * @return
+     */
+    public static AccessRequestHandler toBlocking(final AsyncAccessRequestHandler accessCallback,
+            final long timeoutMillis) {
+        return new AccessRequestHandler() {
+            @Override
+            public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                    Map<String, Object> inputData, String subscriptionId, String sessionId) {
+
+                final CountDownLatch done = new CountDownLatch(1);
+                final AtomicReference<BridgeIotHttpResponse> result = new AtomicReference<>();
+
+                accessCallback.processRequestHandler(offeringDescription, inputData, subscriptionId, sessionId,
+                        new ResponseCallback() {
+                            @Override
+                            public void onResponse(BridgeIotHttpResponse response) {
+                                result.set(response);
+                                done.countDown();
+                            }
+
+                            @Override
+                            public void onFailure(Throwable failure) {
+                                logger.error("Access request processing failed", failure);
+                                result.set(BridgeIotHttpResponse.error().withBody("Internal server error"));
+                                done.countDown();
+                            }
+                        });
+
+                try {
+                    if (done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return result.get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.warn("No response to access request within {} ms", timeoutMillis);
+                return new BridgeIotHttpResponse(GATEWAY_TIMEOUT_STATUS).withBody("Gateway timeout");
+            }
+        };
+    }
+
+}
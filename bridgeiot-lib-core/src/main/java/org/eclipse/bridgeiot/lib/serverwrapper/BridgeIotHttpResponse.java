@@ -15,36 +15,91 @@
  */
 package org.eclipse.bridgeiot.lib.serverwrapper;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.misc.Helper;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.MimeType;
 import org.eclipse.bridgeiot.lib.offering.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 
 /**
  * Encapsulation for Offering Response in Bridge.IoT Message Format
+ * <p>
+ * The body is either held in memory (String, byte array or byte buffer) or streamed (input stream or
+ * {@link BodyWriter}). Streamed bodies are written with chunked transfer encoding, i.e. a large body never has to be
+ * held in memory. A streamed body can be written only once.
  */
 public class BridgeIotHttpResponse {
 
     private static final Logger logger = LoggerFactory.getLogger(BridgeIotHttpResponse.class);
 
+    private static final int COPY_BUFFER_SIZE = 8192;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
     Map<String, String> headers = new HashMap<>();
     String status;
     String body;
     Boolean mimeTypeDefined = false;
 
+    private byte[] bodyBytes;
+    private ByteBuffer bodyBuffer;
+    private InputStream bodyStream;
+    private BodyWriter bodyWriter;
+    private Map<String, byte[]> precompressedBodies;
+    private final List<BodyListener> bodyListeners = new ArrayList<>();
+
+    /**
+     * Writes a streamed response body
+     */
+    public interface BodyWriter {
+
+        /**
+         * Writes the body to the output stream of the response. The stream must not be closed.
+         *
+         * @param out
+         * @throws IOException
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+    }
+
+    /**
+     * Gets notified after the response body has been written
+     */
+    public interface BodyListener {
+
+        /**
+         * @param byteCount
+         *            number of body bytes written (less than the body size if writing failed)
+         * @param wireByteCount
+         *            number of bytes sent after applying the content coding (equal to byteCount if uncompressed)
+         */
+        void bodyWritten(long byteCount, long wireByteCount);
+
+    }
+
     static ObjectMapper mapper = new ObjectMapper();
 
     public static final String OK_STATUS = "200";
+    public static final String NOT_MODIFIED_STATUS = "304";
     public static final String BAD_REQUEST_STATUS = "400";
+    public static final String TOO_MANY_REQUESTS_STATUS = "429";
     public static final String ERROR_STATUS = "500";
 
     /**
@@ -106,33 +161,159 @@ public class BridgeIotHttpResponse {
      * @return
      */
     public BridgeIotHttpResponse withBody(String body) {
+        clearBody();
         this.body = body;
         return this;
     }
 
     /**
-     * Set the body from a json-array string representation
+     * Set the body as a byte array
+     * 
+     * @param body
+     * @return
+     */
+    public BridgeIotHttpResponse withBody(byte[] body) {
+        clearBody();
+        this.bodyBytes = body;
+        return this;
+    }
+
+    /**
+     * Set the body as the remaining bytes of a byte buffer
+     * 
+     * @param body
+     * @return
+     */
+    public BridgeIotHttpResponse withBody(ByteBuffer body) {
+        clearBody();
+        this.bodyBuffer = body;
+        return this;
+    }
+
+    /**
+     * Set the body as an input stream, which is copied to the response and closed afterwards
+     * 
+     * @param body
+     * @return
+     */
+    public BridgeIotHttpResponse withBody(InputStream body) {
+        clearBody();
+        this.bodyStream = body;
+        return this;
+    }
+
+    /**
+     * Set a writer producing the body while the response is sent
+     * 
+     * @param body
+     * @return
+     */
+    public BridgeIotHttpResponse withBody(BodyWriter body) {
+        clearBody();
+        this.bodyWriter = body;
+        return this;
+    }
+
+    /**
+     * Adds the body compressed with a content coding, which is sent instead of compressing the body while writing it
+     * 
+     * @param contentEncoding
+     *            {@link HttpCompression#GZIP} or {@link HttpCompression#DEFLATE}
+     * @param compressedBody
+     * @return
+     */
+    public BridgeIotHttpResponse withPrecompressedBody(String contentEncoding, byte[] compressedBody) {
+        if (precompressedBodies == null) {
+            precompressedBodies = new HashMap<>();
+        }
+        precompressedBodies.put(contentEncoding, compressedBody);
+        return this;
+    }
+
+    /**
+     * Adds a listener notified after the body has been written
+     * 
+     * @param listener
+     * @return
+     */
+    public BridgeIotHttpResponse addBodyListener(BodyListener listener) {
+        bodyListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Set the body from a json-array string representation. A single json value is wrapped into an array. The raw
+     * json is not parsed, only its first token is checked.
      * 
      * @param rawJsonArray
      * @return
      */
     public BridgeIotHttpResponse withJsonArrayBody(String rawJsonArray) {
-        try {
-            JsonNode jsonObject = mapper.reader().readTree(rawJsonArray);
-            if (jsonObject.isArray()) {
-                // jsonResult = mapper.writeValueAsString(jsonObject);
-                this.body = rawJsonArray;
-            } else {
-                ArrayNode arrayNode = mapper.getNodeFactory().arrayNode();
-                arrayNode.add(jsonObject);
-                this.body = mapper.writeValueAsString(arrayNode);
+        return withJsonArrayBody(rawJsonArray, false);
+    }
+
+    /**
+     * Set the body from a json-array string representation. A single json value is wrapped into an array. A leading
+     * byte order mark is skipped; a blank body is rejected.
+     * 
+     * @param rawJsonArray
+     * @param validate
+     *            if true, the raw json is checked with a streaming parser, which stops at the first syntax error
+     * @return
+     */
+    public BridgeIotHttpResponse withJsonArrayBody(String rawJsonArray, boolean validate) {
+        if (rawJsonArray == null) {
+            throw new BridgeIoTException("Processing Json body failed: body missing");
+        }
+        final String rawJson = (!rawJsonArray.isEmpty() && (rawJsonArray.charAt(0) == BYTE_ORDER_MARK))
+                ? rawJsonArray.substring(1)
+                : rawJsonArray;
+        final int firstToken = indexOfFirstToken(rawJson);
+        if (firstToken < 0) {
+            throw new BridgeIoTException("Processing Json body failed: body is blank");
+        }
+        if (validate) {
+            validateJson(rawJson);
+        }
+        if (rawJson.charAt(firstToken) == '[') {
+            return withBody(rawJson);
+        }
+        byte[] value = rawJson.getBytes(StandardCharsets.UTF_8);
+        byte[] array = new byte[value.length + 2];
+        array[0] = '[';
+        System.arraycopy(value, 0, array, 1, value.length);
+        array[array.length - 1] = ']';
+        return withBody(array);
+    }
+
+    /**
+     * Returns the index of the first character which is not json whitespace, or -1 if there is none
+     */
+    private static int indexOfFirstToken(String rawJson) {
+        for (int i = 0; i < rawJson.length(); i++) {
+            char c = rawJson.charAt(i);
+            if ((c != ' ') && (c != '\t') && (c != '\n') && (c != '\r')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void validateJson(String rawJson) {
+        try (JsonParser parser = mapper.getFactory().createParser(rawJson)) {
+            if (parser.nextToken() == null) {
+                throw new BridgeIoTException("Processing Json body failed: body empty");
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                throw new BridgeIoTException("Processing Json body failed: trailing content at "
+                        + parser.getCurrentLocation());
             }
         } catch (IOException e) {
             String errorMsg = "Processing Json body failed!";
             logger.error(errorMsg);
             throw new BridgeIoTException(errorMsg, e);
         }
-        return this;
     }
 
     /**
@@ -142,8 +323,7 @@ public class BridgeIotHttpResponse {
      * @return
      */
     public BridgeIotHttpResponse withBody(JsonObject jsonObject) {
-        this.body = jsonObject.write();
-        return this;
+        return withBody(jsonObject.write());
     }
 
     /**
@@ -244,10 +424,225 @@ public class BridgeIotHttpResponse {
     /**
      * Get response body as string.
      * 
-     * @return
+     * @return the body or null if the body is streamed
      */
     public String getBody() {
+        if (bodyBytes != null) {
+            return new String(bodyBytes, StandardCharsets.UTF_8);
+        } else if (bodyBuffer != null) {
+            return StandardCharsets.UTF_8.decode(bodyBuffer.duplicate()).toString();
+        }
         return body;
     }
 
+    /**
+     * Returns true if the body is streamed, i.e. its size is unknown before it has been written
+     * 
+     * @return
+     */
+    public boolean isStreamed() {
+        return (bodyStream != null) || (bodyWriter != null);
+    }
+
+    /**
+     * Get the size of the body in bytes
+     * 
+     * @return the number of bytes or -1 if the body is streamed
+     */
+    public long getContentLength() {
+        if (isStreamed()) {
+            return -1;
+        } else if (bodyBytes != null) {
+            return bodyBytes.length;
+        } else if (bodyBuffer != null) {
+            return bodyBuffer.remaining();
+        } else if (body != null) {
+            return utf8Length(body);
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the body to an output stream and notifies the body listeners. The output stream is not closed.
+     * 
+     * @param out
+     * @return the number of bytes written
+     * @throws IOException
+     */
+    public long writeBodyTo(OutputStream out) throws IOException {
+        return writeBodyTo(out, null);
+    }
+
+    /**
+     * Writes the body compressed with a content coding to an output stream and notifies the body listeners. The
+     * output stream is not closed.
+     * 
+     * @param out
+     * @param contentEncoding
+     *            {@link HttpCompression#GZIP}, {@link HttpCompression#DEFLATE} or null to write the body uncompressed
+     * @return the number of (uncompressed) bytes written
+     * @throws IOException
+     */
+    public long writeBodyTo(OutputStream out, String contentEncoding) throws IOException {
+        byte[] precompressedBody = ((contentEncoding != null) && (precompressedBodies != null))
+                ? precompressedBodies.get(contentEncoding) : null;
+        if (precompressedBody != null) {
+            long byteCount = getContentLength();
+            long wireByteCount = 0;
+            try {
+                out.write(precompressedBody);
+                out.flush();
+                wireByteCount = precompressedBody.length;
+            } finally {
+                notifyBodyListeners((wireByteCount > 0) ? byteCount : 0, wireByteCount);
+            }
+            return byteCount;
+        }
+
+        CountingOutputStream wireOut = new CountingOutputStream(out);
+        OutputStream encodingOut = HttpCompression.encode(wireOut, contentEncoding);
+        CountingOutputStream countingOut = new CountingOutputStream(encodingOut);
+        try {
+            if (bodyBytes != null) {
+                countingOut.write(bodyBytes);
+            } else if (bodyBuffer != null) {
+                Channels.newChannel(countingOut).write(bodyBuffer.duplicate());
+            } else if (bodyStream != null) {
+                try (InputStream in = bodyStream) {
+                    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        countingOut.write(buffer, 0, n);
+                    }
+                }
+            } else if (bodyWriter != null) {
+                bodyWriter.writeTo(countingOut);
+            } else if (body != null) {
+                countingOut.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            if (encodingOut != wireOut) {
+                // writes the trailer of the compressed data, the wire stream does not close the response stream
+                encodingOut.close();
+            }
+            countingOut.flush();
+        } finally {
+            notifyBodyListeners(countingOut.count, wireOut.count);
+        }
+        return countingOut.count;
+    }
+
+    private void notifyBodyListeners(long byteCount, long wireByteCount) {
+        for (BodyListener listener : bodyListeners) {
+            listener.bodyWritten(byteCount, wireByteCount);
+        }
+    }
+
+    /**
+     * Evaluates the conditional headers of a request against the ETag and Last-Modified headers of this response
+     * 
+     * @param ifNoneMatch
+     *            If-None-Match header of the request (may be null)
+     * @param ifModifiedSince
+     *            If-Modified-Since header of the request (may be null), only evaluated without If-None-Match
+     * @return true if the consumer's copy is still valid, i.e. the response can be answered with
+     *         {@link #NOT_MODIFIED_STATUS}
+     */
+    public boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+        if (!OK_STATUS.equals(status)) {
+            return false;
+        }
+        if (ifNoneMatch != null) {
+            String eTag = getHeader("ETag");
+            if (eTag == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if ("*".equals(candidate) || weakTag(candidate).equals(weakTag(eTag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String lastModified = getHeader("Last-Modified");
+        if ((ifModifiedSince == null) || (lastModified == null)) {
+            return false;
+        }
+        try {
+            return Helper.parseHttpDate(lastModified) <= Helper.parseHttpDate(ifModifiedSince);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String getHeader(String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    // If-None-Match uses the weak comparison
+    private static String weakTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private void clearBody() {
+        body = null;
+        bodyBytes = null;
+        bodyBuffer = null;
+        bodyStream = null;
+        bodyWriter = null;
+        precompressedBodies = null;
+    }
+
+    static long utf8Length(String string) {
+        long length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && (i + 1 < string.length())
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the underlying response stream is closed by the server wrapper
+            flush();
+        }
+
+    }
+
 }
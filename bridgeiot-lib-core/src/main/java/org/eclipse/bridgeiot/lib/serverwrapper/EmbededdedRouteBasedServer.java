@@ -25,7 +25,10 @@ import java.util.Map.Entry;
 
 import org.eclipse.bridgeiot.lib.configuration.LibConfiguration;
 import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.security.AccessToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +43,12 @@ public abstract class EmbededdedRouteBasedServer implements IServerWrapper, IRou
     private static final String DEFAULT_KEYSTORE_FILE = "keystore/keystore.jks";
     private static final String DEFAULT_KEYSTORE_PASSWORD = "12345678";
 
+    /**
+     * Time a server wrapper without asynchronous request processing waits for the response of an
+     * {@link AsyncAccessRequestHandler}
+     */
+    public static final long DEFAULT_ASYNC_RESPONSE_TIMEOUT_MILLIS = 60000;
+
     protected String domain;
     protected int port;
     protected String baseRoute;
@@ -56,6 +65,29 @@ public abstract class EmbededdedRouteBasedServer implements IServerWrapper, IRou
 
     protected abstract String getProtocolName();
 
+    /**
+     * Adds a route served by an asynchronous access request handler. This implementation waits on the request thread
+     * for the response; server wrappers with asynchronous request processing override it.
+     *
+     * @param route
+     * @param accessCallback
+     * @param offeringDescription
+     * @param authorizationRequired
+     */
+    public void addRoute(final String route, final AsyncAccessRequestHandler accessCallback,
+            final RegistrableOfferingDescription offeringDescription, final boolean authorizationRequired) {
+        addRoute(route, AccessRequestHandlers.toBlocking(accessCallback, getAsyncResponseTimeoutMillis()),
+                offeringDescription, authorizationRequired);
+    }
+
+    /**
+     * Returns the time the server waits for the response of an {@link AsyncAccessRequestHandler} before it answers with
+     * 504 (Gateway Timeout)
+     */
+    public long getAsyncResponseTimeoutMillis() {
+        return DEFAULT_ASYNC_RESPONSE_TIMEOUT_MILLIS;
+    }
+
     public String getBaseUrl() {
         return getProtocolName() + "://" + domain + ":" + port + "/" + baseRoute;
     }
@@ -82,6 +114,88 @@ public abstract class EmbededdedRouteBasedServer implements IServerWrapper, IRou
         return DEFAULT_KEYSTORE_PASSWORD;
     }
 
+    protected boolean checkAccessToken(final boolean authorizationRequired, final String authHeader,
+            final RegistrableOfferingDescription offeringDescription) {
+
+        if ((authHeader != null) && (authHeader.startsWith("Bearer "))) {
+            final String token = authHeader.substring(authHeader.indexOf(" ") + 1);
+            // Check if token is valid, if not, halt
+            if (!AccessToken.validateOfferingAccessToken(token,
+                    offeringDescription.getMarketplaceClient().getClientSecret(), offeringDescription.getId())) {
+                return false;
+            }
+        } else {
+            if (authorizationRequired) {
+                if (LibConfiguration.ACCESS_TOKEN_VALIDATION_REQUIRED) {
+                    return false;
+                }
+                logger.info("Warning: Debug-Mode without access token!!!");
+            }
+        }
+
+        return true;
+    }
+
+    protected String getSubscriptionId(final String authHeader) {
+
+        String subscriptionId = Constants.UNKNOWN_SUBSCRIPTION_ID;
+        if ((authHeader != null) && (authHeader.startsWith("Bearer "))) {
+            subscriptionId = AccessToken.getSubscriptionId(authHeader.substring(authHeader.indexOf(" ") + 1));
+        }
+
+        return subscriptionId;
+    }
+
+    protected String getSubscriberId(final String authHeader) {
+
+        String subscriberId = "";
+        if ((authHeader != null) && (authHeader.startsWith("Bearer "))) {
+            subscriberId = AccessToken.getOfferingAccessTokenInfo(authHeader.substring(authHeader.indexOf(" ") + 1));
+        }
+
+        return subscriberId;
+    }
+
+    /**
+     * Returns the access session id of a request. If the consumer did not provide one (as header or input data), it
+     * is derived from the IP address, the subscriber (or, for anonymous consumers, the server side session) and the
+     * input data.
+     * <p>
+     * Note: derived ids use the hash code of the input data map instead of the hash code of its string representation
+     * (as in earlier versions), i.e. they differ from the ids derived by earlier versions for the same request.
+     *
+     * @param accessSessionId
+     *            AccessSessionId header of the request (may be null)
+     * @param subscriberId
+     * @param reqIpAddress
+     * @param reqSessionId
+     *            id of the server side session, null in sessionless mode
+     * @param inputData
+     * @return
+     */
+    protected String createAccessSessionId(String accessSessionId, final String subscriberId, final String reqIpAddress,
+            final String reqSessionId, final Map<String, Object> inputData) {
+
+        if (accessSessionId != null) {
+            return accessSessionId;
+        }
+        if ((inputData != null) && inputData.containsKey("accessSessionId")) {
+            return String.valueOf(inputData.get("accessSessionId"));
+        }
+
+        // auto-generate the id. The hash code of the input map does not depend on the iteration order of its entries
+        // and, unlike its string representation, needs no allocation
+        String client = ((subscriberId != null) && !subscriberId.isEmpty()) ? subscriberId : reqSessionId;
+        StringBuilder id = new StringBuilder(64).append(reqIpAddress);
+        if (client != null) {
+            id.append('_').append(client);
+        }
+        if (inputData != null) {
+            id.append('_').append(inputData.hashCode());
+        }
+        return id.toString();
+    }
+
     protected Map<String, Object> extractInputDataMap(Map<String, String[]> queryMap) {
         Map<String, Object> inputData = new HashMap<>();
         if (queryMap.containsKey(Constants.COMPLEX_PARAMETER_KEY)) {
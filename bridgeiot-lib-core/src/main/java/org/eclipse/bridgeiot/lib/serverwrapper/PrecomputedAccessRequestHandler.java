@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.misc.Helper;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access request handler for rarely changing content, e.g. sample data and meta data. The response of the wrapped
+ * handler is serialized and compressed once and served with a strong ETag and a Last-Modified header, which allows the
+ * server wrappers to answer conditional requests with 304 (Not Modified). The wrapped handler is only invoked again
+ * after the time to live has passed or the response has been invalidated.
+ * <p>
+ * The response must not depend on the input data, subscription or session of the request.
+ */
+public class PrecomputedAccessRequestHandler implements AccessRequestHandler {
+
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 5 * 60 * 1000L;
+
+    private static final Logger logger = LoggerFactory.getLogger(PrecomputedAccessRequestHandler.class);
+
+    private final AccessRequestHandler accessCallback;
+    private final long timeToLiveMillis;
+    private Snapshot snapshot;
+    private final AtomicLong invocationCount = new AtomicLong();
+
+    private static class Snapshot {
+
+        private final String status;
+        private final Map<String, String> headers;
+        private final String body;
+        private final byte[] gzipBody;
+        private final byte[] deflateBody;
+        private final String eTag;
+        private final long lastModified;
+        private volatile long expiresAt;
+
+        Snapshot(BridgeIotHttpResponse response, Snapshot previous, long expiresAt) throws IOException {
+            this.status = response.getStatus();
+            this.headers = new HashMap<>(response.getHeaders());
+            this.body = (response.getBody() != null) ? response.getBody() : "";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            this.gzipBody = compress(bytes, HttpCompression.GZIP);
+            this.deflateBody = compress(bytes, HttpCompression.DEFLATE);
+            this.eTag = eTag(bytes);
+            // an unchanged body keeps its modification time
+            this.lastModified = ((previous != null) && previous.eTag.equals(eTag)) ? previous.lastModified
+                    : System.currentTimeMillis();
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        BridgeIotHttpResponse toResponse() {
+            BridgeIotHttpResponse response = new BridgeIotHttpResponse(new HashMap<>(headers), status, body)
+                    .addHeader("ETag", eTag).addHeader("Last-Modified", Helper.formatHttpDate(lastModified));
+            return response.withPrecompressedBody(HttpCompression.GZIP, gzipBody)
+                    .withPrecompressedBody(HttpCompression.DEFLATE, deflateBody);
+        }
+
+        private static byte[] compress(byte[] bytes, String contentEncoding) throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (OutputStream out = HttpCompression.encode(compressed, contentEncoding)) {
+                out.write(bytes);
+            }
+            return compressed.toByteArray();
+        }
+
+        private static String eTag(byte[] bytes) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+                StringBuilder eTag = new StringBuilder("\"");
+                for (int i = 0; i < 16; i++) {
+                    eTag.append(String.format("%02x", digest[i]));
+                }
+                return eTag.append('"').toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new BridgeIoTException("SHA-256 not available", e);
+            }
+        }
+
+    }
+
+    public PrecomputedAccessRequestHandler(AccessRequestHandler accessCallback, long timeToLiveMillis) {
+        this.accessCallback = accessCallback;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    public static PrecomputedAccessRequestHandler create(AccessRequestHandler accessCallback) {
+        return new PrecomputedAccessRequestHandler(accessCallback, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    public static PrecomputedAccessRequestHandler create(AccessRequestHandler accessCallback,
+            long timeToLiveMillis) {
+        return new PrecomputedAccessRequestHandler(accessCallback, timeToLiveMillis);
+    }
+
+    @Override
+    public synchronized BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+            Map<String, Object> inputData, String subscriptionId, String sessionId) {
+
+        if ((snapshot != null) && snapshot.isFresh()) {
+            return snapshot.toResponse();
+        }
+
+        BridgeIotHttpResponse response = accessCallback.processRequestHandler(offeringDescription, inputData,
+                subscriptionId, sessionId);
+        invocationCount.incrementAndGet();
+        if ((response == null) || !BridgeIotHttpResponse.OK_STATUS.equals(response.getStatus())
+                || response.isStreamed()) {
+            // errors and streams are passed on, the previous response is discarded
+            snapshot = null;
+            return response;
+        }
+
+        try {
+            snapshot = new Snapshot(response, snapshot, System.currentTimeMillis() + timeToLiveMillis);
+        } catch (IOException e) {
+            logger.warn("Precomputing response failed: {}", e.getMessage());
+            snapshot = null;
+            return response;
+        }
+        logger.debug("Precomputed response with ETag {}", snapshot.eTag);
+        return snapshot.toResponse();
+    }
+
+    /**
+     * Invalidates the precomputed response, i.e. the next request invokes the wrapped handler again. The ETag and
+     * Last-Modified headers only change if the new response differs.
+     */
+    public void invalidate() {
+        Snapshot current;
+        synchronized (this) {
+            current = snapshot;
+        }
+        if (current != null) {
+            current.expiresAt = 0;
+        }
+    }
+
+    /**
+     * Returns the number of invocations of the wrapped handler
+     */
+    public long getInvocationCount() {
+        return invocationCount.get();
+    }
+
+}
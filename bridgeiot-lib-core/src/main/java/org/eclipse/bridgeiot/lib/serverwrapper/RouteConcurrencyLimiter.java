@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounds the number of requests processed concurrently per route. A request is admitted only if a permit of its route
+ * is available right away, i.e. excess requests are shed instead of queued.
+ */
+public class RouteConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteConcurrencyLimiter.class);
+
+    private final int maxConcurrentRequests;
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    private RouteConcurrencyLimiter(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Creates a limiter
+     *
+     * @param maxConcurrentRequests
+     *            maximum number of concurrent requests per route ({@link ServerOptions#UNLIMITED} admits all requests)
+     */
+    public static RouteConcurrencyLimiter create(int maxConcurrentRequests) {
+        return new RouteConcurrencyLimiter(maxConcurrentRequests);
+    }
+
+    public static RouteConcurrencyLimiter create(ServerOptions serverOptions) {
+        return create((serverOptions != null) ? serverOptions.getMaxConcurrentRequestsPerRoute()
+                : ServerOptions.UNLIMITED);
+    }
+
+    public boolean isUnlimited() {
+        return maxConcurrentRequests <= ServerOptions.UNLIMITED;
+    }
+
+    /**
+     * Admits a request to a route if the route has a free permit
+     *
+     * @param route
+     * @return true if the request has been admitted; the permit has to be returned with {@link #release(String)}
+     */
+    public boolean tryAcquire(String route) {
+        if (isUnlimited()) {
+            return true;
+        }
+        if (getPermits(route).tryAcquire()) {
+            return true;
+        }
+        logger.warn("Request for route {} rejected, {} requests in progress", route, maxConcurrentRequests);
+        return false;
+    }
+
+    /**
+     * Returns the permit of an admitted request
+     *
+     * @param route
+     */
+    public void release(String route) {
+        if (!isUnlimited()) {
+            getPermits(route).release();
+        }
+    }
+
+    /**
+     * Returns the number of requests currently processed for a route
+     *
+     * @param route
+     */
+    public int getActiveRequests(String route) {
+        Semaphore semaphore = permits.get(route);
+        return (semaphore != null) ? maxConcurrentRequests - semaphore.availablePermits() : 0;
+    }
+
+    private Semaphore getPermits(String route) {
+        Semaphore semaphore = permits.get(route);
+        if (semaphore == null) {
+            permits.putIfAbsent(route, new Semaphore(maxConcurrentRequests));
+            semaphore = permits.get(route);
+        }
+        return semaphore;
+    }
+
+}
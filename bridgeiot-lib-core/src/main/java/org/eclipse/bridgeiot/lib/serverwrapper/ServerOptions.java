@@ -15,6 +15,68 @@
  */
 package org.eclipse.bridgeiot.lib.serverwrapper;
 
+/**
+ * Options of an embedded server wrapper. The options common to all server wrappers control the load shedding of
+ * access requests: if more than {@link #getMaxConcurrentRequestsPerRoute()} requests are processed for a route,
+ * further requests are rejected immediately with 503 (Service Unavailable) and a Retry-After header instead of being
+ * queued.
+ * <p>
+ * Access responses of at least {@link #getCompressionThreshold()} bytes (and all streamed responses) are compressed
+ * with gzip or deflate if the consumer accepts it.
+ */
 public class ServerOptions {
 
+    public static final int UNLIMITED = 0;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    public static final int NO_COMPRESSION = -1;
+
+    private int maxConcurrentRequestsPerRoute = UNLIMITED;
+    private int retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * Sets the maximum number of requests processed concurrently per route ({@link #UNLIMITED} to disable load
+     * shedding)
+     *
+     * @param maxConcurrentRequestsPerRoute
+     */
+    public ServerOptions withMaxConcurrentRequestsPerRoute(int maxConcurrentRequestsPerRoute) {
+        this.maxConcurrentRequestsPerRoute = Math.max(UNLIMITED, maxConcurrentRequestsPerRoute);
+        return this;
+    }
+
+    /**
+     * Sets the delay in seconds a consumer is asked to wait before retrying a rejected request
+     *
+     * @param retryAfterSeconds
+     */
+    public ServerOptions withRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        return this;
+    }
+
+    /**
+     * Sets the minimum size in bytes of a response body to be compressed ({@link #NO_COMPRESSION} to disable
+     * compression)
+     *
+     * @param compressionThreshold
+     */
+    public ServerOptions withCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = Math.max(NO_COMPRESSION, compressionThreshold);
+        return this;
+    }
+
+    public int getMaxConcurrentRequestsPerRoute() {
+        return maxConcurrentRequestsPerRoute;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
 }
@@ -33,7 +33,11 @@ public class OfferingQueryRequestTemplate extends FilloutTemplate {
     static final String DEFAULT_REQUEST_TEMPLATE = GraphQLQueries.getQueryBaseTemplateString();
 
     public OfferingQueryRequestTemplate(final List<String> queryElements) {
-        super(DEFAULT_REQUEST_TEMPLATE, new HashMap<String, String>() {
+        this(DEFAULT_REQUEST_TEMPLATE, queryElements);
+    }
+
+    public OfferingQueryRequestTemplate(String template, final List<String> queryElements) {
+        super(template, new HashMap<String, String>() {
             private static final long serialVersionUID = 1L;
             {
                 String queryElementsString = "";
@@ -59,12 +59,14 @@ import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
 import org.eclipse.bridgeiot.lib.model.Activation;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
 import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.ValueType;
 import org.eclipse.bridgeiot.lib.model.EndPoint;
 import org.eclipse.bridgeiot.lib.offering.OfferingCore;
 import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.SubscribableOfferingDescriptionCore;
 import org.eclipse.bridgeiot.lib.query.IOfferingQuery;
 import org.eclipse.bridgeiot.lib.query.OfferingQuery;
+import org.eclipse.bridgeiot.lib.query.OfferingQueryChain;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -82,6 +84,7 @@ import org.mockito.stubbing.Answer;
 public class ConsumerCoreTest {
 
     private final static String JSON_ADD_OFFERING = "{\"data\":{\"addOfferingQuery\":{\"id\":\"superman\"}}}";
+    private final static String JSON_ADD_OFFERING_WITH_MATCHING_OFFERINGS = "{\"data\":{\"addOfferingQuery\":{\"id\":\"superman\",\"matchingOfferings\":[]}}}";
     private final static String JSON_MATCHING_OFFERINGS_EMPTY = "{\"data\":{\"matchingOfferings\":[]}}";
     private final static String JSON_MATCHING_OFFERINGS_TEMPLATE = "{\"data\":{\"matchingOfferings\":[{\"id\":\"%s\",\"activation\":{\"status\":true,\"expirationTime\":1513672278599} }]}}";
     private final static String JSON_SUBSCRIBE_CONSUMER_TEMPLATE = "{\"data\":{\"subscribeConsumerToOffering\":{\"id\":\"%s\",\"accessToken\":\"%s\"}}}";
@@ -217,6 +220,61 @@ public class ConsumerCoreTest {
         assertThat(resp).isEqualTo(JSON_MATCHING_OFFERINGS_EMPTY);
     }
 
+    @Test
+    public void discoverCallNewQueryInSingleRoundTrip()
+            throws IOException, NotRegisteredException, FailedDiscoveryException, IncompleteOfferingQueryException {
+        // Arrange client response
+        Response respMock = createResponseMock(JSON_ADD_OFFERING_WITH_MATCHING_OFFERINGS, SUCCESS);
+        when(marketMock.request(anyString())).thenReturn(respMock);
+        OfferingQuery queryFixture = OfferingQuery.create("SingleRoundTrip");
+
+        // Act
+        String resp = consumerUnderTest.discoverCall(queryFixture);
+
+        // Assert
+        verify(marketMock, times(1)).request(contains("addOfferingQuery"));
+        assertThat(resp).isEqualTo(JSON_MATCHING_OFFERINGS_EMPTY);
+        assertThat(queryFixture.getId()).isEqualTo("superman");
+    }
+
+    @Test
+    public void discoverCallModifiedQueryIsCreatedAgain()
+            throws IOException, NotRegisteredException, FailedDiscoveryException, IncompleteOfferingQueryException {
+        // Arrange client response
+        Response respMock = createResponseMock(JSON_ADD_OFFERING_WITH_MATCHING_OFFERINGS, SUCCESS);
+        when(marketMock.request(anyString())).thenReturn(respMock);
+        OfferingQueryChain queryFixture = OfferingQuery.create("ModifiedQuery");
+        consumerUnderTest.discoverCall(queryFixture);
+        String fingerprint = queryFixture.getFingerprint();
+
+        // Act
+        queryFixture.withCategory("urn:big-iot:ParkingSpaceCategory");
+        consumerUnderTest.discoverCall(queryFixture);
+
+        // Assert
+        verify(marketMock, times(2)).request(contains("addOfferingQuery"));
+        assertThat(queryFixture.getFingerprint()).isNotEqualTo(fingerprint).contains("ParkingSpaceCategory");
+    }
+
+    @Test
+    public void discoverCallQueryModifiedThroughGetterIsCreatedAgain()
+            throws IOException, NotRegisteredException, FailedDiscoveryException, IncompleteOfferingQueryException {
+        // Arrange client response
+        Response respMock = createResponseMock(JSON_ADD_OFFERING_WITH_MATCHING_OFFERINGS, SUCCESS);
+        when(marketMock.request(anyString())).thenReturn(respMock);
+        OfferingQueryChain queryFixture = OfferingQuery.create("ModifiedThroughGetter");
+        consumerUnderTest.discoverCall(queryFixture);
+        String fingerprint = queryFixture.getFingerprint();
+
+        // Act
+        queryFixture.getInputData().addMember(null, "schema:longitude", ValueType.NUMBER);
+        consumerUnderTest.discoverCall(queryFixture);
+
+        // Assert
+        verify(marketMock, times(2)).request(contains("addOfferingQuery"));
+        assertThat(queryFixture.getFingerprint()).isNotEqualTo(fingerprint).contains("schema:longitude");
+    }
+
     @Test(expected = FailedDiscoveryException.class)
     public void discoverByIdCallFailedDiscoveryException() throws FailedDiscoveryException, IOException {
         // Arrange client response
@@ -746,19 +804,19 @@ public class ConsumerCoreTest {
 
     private static void mockMarketEmptyResponse(MarketplaceClient marketMock, boolean isSuccessful) throws IOException {
         // Arrange client response
-        Response respMock = createResponseMock(JSON_ADD_OFFERING, isSuccessful);
-        when(marketMock.request(contains("addOfferingQuery"))).thenReturn(respMock);
         Response matchingRespMock = createResponseMock(JSON_MATCHING_OFFERINGS_EMPTY, isSuccessful);
         when(marketMock.request(contains("matchingOfferings"))).thenReturn(matchingRespMock);
+        Response respMock = createResponseMock(JSON_ADD_OFFERING, isSuccessful);
+        when(marketMock.request(contains("addOfferingQuery"))).thenReturn(respMock);
     }
 
     private static void mockMarketResponse(MarketplaceClient marketMock, String queryId, boolean isSuccessful)
             throws IOException {
         // Arrange client response
-        Response respMock = createResponseMock(JSON_ADD_OFFERING, isSuccessful);
-        when(marketMock.request(contains("addOfferingQuery"))).thenReturn(respMock);
         Response matchingRespMock = createResponseMock(String.format(JSON_MATCHING_OFFERINGS_TEMPLATE, queryId), true);
         when(marketMock.request(contains("matchingOfferings"))).thenReturn(matchingRespMock);
+        Response respMock = createResponseMock(JSON_ADD_OFFERING, isSuccessful);
+        when(marketMock.request(contains("addOfferingQuery"))).thenReturn(respMock);
     }
 
     private static Response createResponseMock(String body, boolean isSuccessful) throws IOException {
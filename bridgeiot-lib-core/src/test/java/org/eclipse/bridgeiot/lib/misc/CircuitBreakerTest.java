@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.bridgeiot.lib.misc.CircuitBreaker.State;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void breakerOpensAfterConsecutiveFailures() {
+        // Arrange
+        CircuitBreaker breakerUnderTest = CircuitBreaker.create(3, 60000);
+
+        // Act
+        breakerUnderTest.recordFailure();
+        breakerUnderTest.recordFailure();
+        breakerUnderTest.recordSuccess();
+        breakerUnderTest.recordFailure();
+        breakerUnderTest.recordFailure();
+        State stateBeforeThreshold = breakerUnderTest.getState();
+        breakerUnderTest.recordFailure();
+
+        // Assert
+        assertThat(stateBeforeThreshold).isEqualTo(State.CLOSED);
+        assertThat(breakerUnderTest.getState()).isEqualTo(State.OPEN);
+        assertThat(breakerUnderTest.allowRequest()).isFalse();
+        assertThat(breakerUnderTest.getRejectionCount()).isEqualTo(1);
+        assertThat(breakerUnderTest.getOpenCount()).isEqualTo(1);
+        assertThat(breakerUnderTest.getRemainingOpenMillis()).isPositive();
+    }
+
+    @Test
+    public void halfOpenBreakerLetsSingleProbePass() throws Exception {
+        // Arrange
+        CircuitBreaker breakerUnderTest = CircuitBreaker.create(1, 20);
+        breakerUnderTest.recordFailure();
+        Thread.sleep(40);
+
+        // Act
+        boolean probe = breakerUnderTest.allowRequest();
+        boolean secondRequest = breakerUnderTest.allowRequest();
+        State probingState = breakerUnderTest.getState();
+        breakerUnderTest.recordSuccess();
+
+        // Assert
+        assertThat(probe).isTrue();
+        assertThat(secondRequest).isFalse();
+        assertThat(probingState).isEqualTo(State.HALF_OPEN);
+        assertThat(breakerUnderTest.getState()).isEqualTo(State.CLOSED);
+        assertThat(breakerUnderTest.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void failedProbeReopensBreaker() throws Exception {
+        // Arrange
+        CircuitBreaker breakerUnderTest = CircuitBreaker.create(1, 20);
+        breakerUnderTest.recordFailure();
+        Thread.sleep(40);
+
+        // Act
+        breakerUnderTest.allowRequest();
+        breakerUnderTest.recordFailure();
+
+        // Assert
+        assertThat(breakerUnderTest.getState()).isEqualTo(State.OPEN);
+        assertThat(breakerUnderTest.getOpenCount()).isEqualTo(2);
+        assertThat(breakerUnderTest.allowRequest()).isFalse();
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Date;
+
+import okio.Buffer;
+
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.LicenseType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.PricingModel;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.ValueType;
+import org.eclipse.bridgeiot.lib.model.Price.Euros;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescriptionChain;
+import org.eclipse.bridgeiot.lib.offering.parameters.ObjectParameter;
+import org.junit.Test;
+
+public class GraphQLQueriesTest {
+
+    @Test
+    public void registrationMatchesStringBuilder() {
+        // Arrange
+        RegistrableOfferingDescription offering = createOffering();
+
+        // Act
+        String streamed = GraphQLQueries.getRegistrationRequest(offering).toString();
+        String built = buildRegistrationString(offering);
+
+        // Assert
+        assertThat(withoutExpirationTime(streamed)).isEqualTo(withoutExpirationTime(built));
+        assertThat(streamed).contains("extension1: \\\"{ $inputs$:");
+    }
+
+    @Test
+    public void subscriptionMatchesPreviousFormat() {
+        // Act
+        String subscription = GraphQLQueries.getSubscribtionWithQueryString("offering", "query");
+
+        // Assert
+        assertThat(subscription).isEqualTo("{ \"query\" : \"mutation subscribeQueryToOffering { "
+                + "subscribeQueryToOffering ( input: { id: \\\"query\\\" offeringId: \\\"offering\\\"  } ) "
+                + "{ id accessToken } }\" }");
+    }
+
+    @Test
+    public void stringValuesAreEscapedForGraphQlAndJson() throws IOException {
+        // Arrange
+        Buffer buffer = new Buffer();
+
+        // Act
+        GraphQLWriter.create(buffer).field("name", "a \"quoted\" \\ name\n");
+
+        // Assert
+        assertThat(buffer.readUtf8()).isEqualTo("name: \\\"a \\\\\\\"quoted\\\\\\\" \\\\\\\\ name\\\\n\\\" ");
+    }
+
+    @Test
+    public void registrationIsWrittenAnewOnEachTransmission() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription offering = createOffering();
+        GraphQLRequest request = GraphQLQueries.getRegistrationRequest(offering);
+        Buffer first = new Buffer();
+        Buffer second = new Buffer();
+
+        // Act
+        request.writeTo(first);
+        request.writeTo(second);
+
+        // Assert
+        String written = first.readUtf8();
+        assertThat(written).isEqualTo(second.readUtf8());
+        assertThat(withoutExpirationTime(written)).isEqualTo(withoutExpirationTime(buildRegistrationString(offering)));
+    }
+
+    private RegistrableOfferingDescription createOffering() {
+        RegistrableOfferingDescriptionChain offering = new RegistrableOfferingDescriptionChain()
+                .withName("Parking \"Downtown\"").withCategory("urn:big-iot:ParkingSpaceCategory")
+                .addInputData("longitude", "schema:longitude", ValueType.NUMBER)
+                .addInputData("latitude", "schema:latitude", ValueType.NUMBER)
+                .addOutputData("available", "datex:availableparking", ValueType.BOOLEAN)
+                .addOutputData("name", "schema:name", ValueType.TEXT).inCity("Barcelona")
+                .withPrice(Euros.amount(0.001)).withPricingModel(PricingModel.PER_ACCESS)
+                .withLicenseType(LicenseType.OPEN_DATA_LICENSE).withAccessList("orgA", "orgB")
+                .addEndPoint(AccessInterfaceType.BRIDGEIOT_LIB, "https://localhost:9443/parking");
+        offering.setProviderId("Org-Provider");
+        offering.setLocalId("Parking");
+        offering.setExtension1("{ \"inputs\":" + Helper.getPojoAsJsonCompact(offering.getInputs())
+                + ", \"outputs\":" + Helper.getPojoAsJsonCompact(offering.getOutputs()) + "}");
+        return offering;
+    }
+
+    private static String withoutExpirationTime(String request) {
+        return request.replaceAll("expirationTime: \\d+", "expirationTime: 0");
+    }
+
+    /**
+     * Registration request as built by concatenating strings, which is the reference for the streaming writer
+     */
+    private static String buildRegistrationString(RegistrableOfferingDescription offering) {
+
+        final Long expirationTime = new Date().getTime() + offering.getExpirationInterval();
+
+        String registration = "{ \"query\" : \"mutation addOffering { addOffering ( input: { "
+                + Helper.formatString("id: \\\"%s\\\" ", offering.getProviderId())
+                + Helper.formatString("localId: \\\"%s\\\" ", offering.getLocalId())
+                + Helper.formatString("name: \\\"%s\\\" ",
+                        offering.getDescription().getName().replaceAll("\"", "\\\\\\\\\\\\\""))
+                + Helper.formatString("activation: {status: %s, expirationTime: %d} ", true, expirationTime)
+                + Helper.formatString("rdfUri: \\\"%s\\\" ", offering.getDescription().getRdfType().getUri());
+
+        String inputDataString = Helper
+                .convertJsonToGraphQl(
+                        Helper.getPojoAsJsonCompact(((ObjectParameter) offering.getInputs()).getMembers()))
+                .replaceAll("'", "\\\\'").replaceAll("\"", "\\\\\"");
+        registration += Helper.formatString("inputs: ") + inputDataString + Helper.formatString(" ");
+
+        String outputDataString = Helper
+                .convertJsonToGraphQl(
+                        Helper.getPojoAsJsonCompact(((ObjectParameter) offering.getOutputs()).getMembers()))
+                .replaceAll("'", "\\\\'").replaceAll("\"", "\\\\\"");
+        registration += Helper.formatString("outputs: ") + outputDataString + Helper.formatString(" ");
+
+        registration += Helper.formatString("endpoints: {uri: \\\"%s\\\", endpointType: %s, accessInterfaceType: %s} ",
+                offering.getEndpoints().get(0).getUri(), offering.getEndpoints().get(0).getEndpointType().toString(),
+                offering.getEndpoints().get(0).getAccessInterfaceType().toString());
+
+        registration += Helper.formatString("license: %s ", offering.getLicense().toString());
+
+        registration += Helper.formatString("price: {money: {amount: %f, currency: EUR}, pricingModel: %s } ",
+                offering.getPrice().getAmount(), offering.getPrice().getPricingModel().toString());
+
+        registration += offering.getRegion().toQueryElement() + " ";
+        registration += offering.getAccessList().toQueryElement() + " ";
+
+        registration += Helper.formatString("extension1: \\\"%s\\\" ",
+                offering.getExtension1().replaceAll("\"", "\\" + Constants.DOUBLE_QUOTE_ESCAPE).replaceAll("\\\\",
+                        "\\" + Constants.BACKSLASH_ESCAPE));
+
+        registration += " } ) { id activation { status expirationTime } } " + "}\" }";
+
+        return registration;
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class HttpCompressionTest {
+
+    @Test
+    public void negotiatesPreferredEncoding() {
+        // Act & Assert
+        assertThat(HttpCompression.negotiate("gzip, deflate")).isEqualTo(HttpCompression.GZIP);
+        assertThat(HttpCompression.negotiate("gzip;q=0.5, deflate")).isEqualTo(HttpCompression.DEFLATE);
+        assertThat(HttpCompression.negotiate("br, *;q=0.1")).isEqualTo(HttpCompression.GZIP);
+        assertThat(HttpCompression.negotiate("gzip;q=0, identity")).isNull();
+        assertThat(HttpCompression.negotiate(null)).isNull();
+    }
+
+    @Test
+    public void compressesOnlyBodiesAboveThreshold() {
+        // Act & Assert
+        assertThat(HttpCompression.selectEncoding("gzip", 2048, 1024)).isEqualTo(HttpCompression.GZIP);
+        assertThat(HttpCompression.selectEncoding("gzip", 100, 1024)).isNull();
+        assertThat(HttpCompression.selectEncoding("gzip", -1, 1024)).isEqualTo(HttpCompression.GZIP);
+        assertThat(HttpCompression.selectEncoding("gzip", 2048, -1)).isNull();
+    }
+
+    @Test
+    public void decodesEncodedBody() throws IOException {
+        // Arrange
+        byte[] body = "[ { \"value\": 1 }, { \"value\": 1 }, { \"value\": 1 } ]".getBytes(StandardCharsets.UTF_8);
+
+        for (String encoding : new String[] { HttpCompression.GZIP, HttpCompression.DEFLATE }) {
+            ByteArrayOutputStream wire = new ByteArrayOutputStream();
+            try (OutputStream out = HttpCompression.encode(wire, encoding)) {
+                out.write(body);
+            }
+
+            // Act
+            byte[] decoded = HttpCompression.decode(wire.toByteArray(), encoding);
+
+            // Assert
+            assertThat(decoded).isEqualTo(body);
+        }
+        assertThat(HttpCompression.decode(body, null)).isSameAs(body);
+    }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.bridgeiot.lib.exceptions.MarketplaceRejectedException;
+import org.eclipse.bridgeiot.lib.exceptions.MarketplaceRejectedException.Reason;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceAdmission.Priority;
+import org.junit.Test;
+
+public class MarketplaceAdmissionTest {
+
+    @Test
+    public void operationsAreClassifiedByPriority() {
+        // Arrange
+        String registration = "{ \"query\" : \"mutation addOffering { addOffering ( input: { } ) { id } }\" }";
+        String discovery = GraphQLQueries.getQueryBaseTemplateString();
+        String matching = GraphQLQueries.getFindMatchingOfferingsString("query");
+        String unsubscription = GraphQLQueries.getUnsubscribtionString("offering");
+
+        // Act & Assert
+        assertThat(MarketplaceAdmission.priorityOf(MarketplaceAdmission.operationName(registration)))
+                .isEqualTo(Priority.HIGH);
+        assertThat(MarketplaceAdmission.priorityOf(MarketplaceAdmission.operationName(discovery)))
+                .isEqualTo(Priority.LOW);
+        assertThat(MarketplaceAdmission.priorityOf(MarketplaceAdmission.operationName(matching)))
+                .isEqualTo(Priority.LOW);
+        assertThat(MarketplaceAdmission.priorityOf(MarketplaceAdmission.operationName(unsubscription)))
+                .isEqualTo(Priority.NORMAL);
+        assertThat(MarketplaceAdmission.priorityOf("renewSubscriptions")).isEqualTo(Priority.HIGH);
+        assertThat(MarketplaceAdmission.operationName("not a request")).isNull();
+    }
+
+    @Test
+    public void requestsBeyondBurstAreRateLimited() throws Exception {
+        // Arrange
+        MarketplaceAdmission admissionUnderTest = MarketplaceAdmission.create(0.001, 2, 10, 0,
+                CircuitBreaker.create());
+
+        // Act
+        admissionUnderTest.acquireNow(Priority.HIGH);
+        admissionUnderTest.release(true);
+        admissionUnderTest.acquireNow(Priority.HIGH);
+        admissionUnderTest.release(true);
+        Reason reason = rejection(admissionUnderTest, Priority.HIGH);
+
+        // Assert
+        assertThat(reason).isEqualTo(Reason.RATE_LIMIT);
+        assertThat(admissionUnderTest.getRejectionCount(Reason.RATE_LIMIT)).isEqualTo(1);
+        assertThat(admissionUnderTest.getAdmittedCount(Priority.HIGH)).isEqualTo(2);
+    }
+
+    @Test
+    public void concurrencySlotsAreReservedForHigherPriorities() throws Exception {
+        // Arrange
+        MarketplaceAdmission admissionUnderTest = MarketplaceAdmission.create(1000, 100, 4, 0,
+                CircuitBreaker.create());
+
+        // Act
+        admissionUnderTest.acquireNow(Priority.LOW);
+        admissionUnderTest.acquireNow(Priority.LOW);
+        Reason lowReason = rejection(admissionUnderTest, Priority.LOW);
+        admissionUnderTest.acquireNow(Priority.NORMAL);
+        Reason normalReason = rejection(admissionUnderTest, Priority.NORMAL);
+        admissionUnderTest.acquireNow(Priority.HIGH);
+        Reason highReason = rejection(admissionUnderTest, Priority.HIGH);
+
+        // Assert
+        assertThat(lowReason).isEqualTo(Reason.CONCURRENCY_LIMIT);
+        assertThat(normalReason).isEqualTo(Reason.CONCURRENCY_LIMIT);
+        assertThat(highReason).isEqualTo(Reason.CONCURRENCY_LIMIT);
+        assertThat(admissionUnderTest.getInFlight()).isEqualTo(4);
+        assertThat(admissionUnderTest.getRejectionCount(Reason.CONCURRENCY_LIMIT)).isEqualTo(3);
+    }
+
+    @Test
+    public void waitingHighPriorityRequestIsAdmittedFirst() throws Exception {
+        // Arrange
+        final MarketplaceAdmission admissionUnderTest = MarketplaceAdmission.create(1000, 100, 1, 5000,
+                CircuitBreaker.create());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        admissionUnderTest.acquire(Priority.HIGH);
+
+        // Act
+        Future<Void> low = executor.submit(acquire(admissionUnderTest, Priority.LOW));
+        Future<Void> high = executor.submit(acquire(admissionUnderTest, Priority.HIGH));
+        while ((admissionUnderTest.getWaitingCount(Priority.LOW) < 1)
+                || (admissionUnderTest.getWaitingCount(Priority.HIGH) < 1)) {
+            Thread.sleep(5);
+        }
+        admissionUnderTest.release(true);
+        high.get(5, TimeUnit.SECONDS);
+        boolean lowAdmittedBeforeRelease = low.isDone();
+        admissionUnderTest.release(true);
+        low.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(lowAdmittedBeforeRelease).isFalse();
+        assertThat(admissionUnderTest.getAdmittedCount(Priority.HIGH)).isEqualTo(2);
+        assertThat(admissionUnderTest.getAdmittedCount(Priority.LOW)).isEqualTo(1);
+        executor.shutdown();
+    }
+
+    @Test
+    public void openCircuitBreakerRejectsRequests() throws Exception {
+        // Arrange
+        MarketplaceAdmission admissionUnderTest = MarketplaceAdmission.create(1000, 100, 4, 0,
+                CircuitBreaker.create(2, 60000));
+
+        // Act
+        admissionUnderTest.acquireNow(Priority.NORMAL);
+        admissionUnderTest.release(false);
+        admissionUnderTest.acquireNow(Priority.NORMAL);
+        admissionUnderTest.release(false);
+        Reason reason = rejection(admissionUnderTest, Priority.HIGH);
+
+        // Assert
+        assertThat(reason).isEqualTo(Reason.CIRCUIT_OPEN);
+        assertThat(admissionUnderTest.getCircuitBreakerState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(admissionUnderTest.getRejectionCount(Reason.CIRCUIT_OPEN)).isEqualTo(1);
+        assertThat(admissionUnderTest.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void asyncRequestsAreAdmittedByPriorityWhenSlotIsReleased() throws Exception {
+        // Arrange
+        MarketplaceAdmission admissionUnderTest = MarketplaceAdmission.create(1000, 100, 1, 5000,
+                CircuitBreaker.create());
+        List<String> admittedOrder = new CopyOnWriteArrayList<>();
+        admissionUnderTest.acquire(Priority.HIGH);
+
+        // Act
+        admissionUnderTest.acquireAsync(Priority.LOW, recording("low", admittedOrder));
+        admissionUnderTest.acquireAsync(Priority.HIGH, recording("high", admittedOrder));
+        int waitingBeforeRelease = admissionUnderTest.getWaitingCount(Priority.LOW)
+                + admissionUnderTest.getWaitingCount(Priority.HIGH);
+        admissionUnderTest.release(true);
+        List<String> admittedAfterFirstRelease = new ArrayList<>(admittedOrder);
+        admissionUnderTest.release(true);
+
+        // Assert
+        assertThat(waitingBeforeRelease).isEqualTo(2);
+        assertThat(admittedAfterFirstRelease).containsExactly("high");
+        assertThat(admittedOrder).containsExactly("high", "low");
+        assertThat(admissionUnderTest.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void asyncRequestIsRejectedAfterMaxWaitTime() throws Exception {
+        // Arrange
+        MarketplaceAdmission admissionUnderTest = MarketplaceAdmission.create(1000, 100, 1, 100,
+                CircuitBreaker.create());
+        final ArrayBlockingQueue<MarketplaceRejectedException> rejections = new ArrayBlockingQueue<>(1);
+        admissionUnderTest.acquire(Priority.NORMAL);
+
+        // Act
+        admissionUnderTest.acquireAsync(Priority.NORMAL, new MarketplaceAdmission.AdmissionCallback() {
+            @Override
+            public void onAdmitted() {
+                fail("Request has been admitted");
+            }
+
+            @Override
+            public void onRejected(MarketplaceRejectedException e) {
+                rejections.add(e);
+            }
+        });
+        MarketplaceRejectedException rejection = rejections.poll(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(rejection).isNotNull();
+        assertThat(rejection.getReason()).isEqualTo(Reason.CONCURRENCY_LIMIT);
+        assertThat(admissionUnderTest.getWaitingCount(Priority.NORMAL)).isEqualTo(0);
+        assertThat(admissionUnderTest.getInFlight()).isEqualTo(1);
+    }
+
+    Reason rejection(MarketplaceAdmission admission, Priority priority) throws Exception {
+        try {
+            admission.acquireNow(priority);
+        } catch (MarketplaceRejectedException e) {
+            return e.getReason();
+        }
+        fail("Request has not been rejected");
+        return null;
+    }
+
+    MarketplaceAdmission.AdmissionCallback recording(final String name, final List<String> admittedOrder) {
+        return new MarketplaceAdmission.AdmissionCallback() {
+            @Override
+            public void onAdmitted() {
+                admittedOrder.add(name);
+            }
+
+            @Override
+            public void onRejected(MarketplaceRejectedException e) {
+                fail("Request has been rejected");
+            }
+        };
+    }
+
+    Callable<Void> acquire(final MarketplaceAdmission admission, final Priority priority) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                admission.acquire(priority);
+                return null;
+            }
+        };
+    }
+
+}
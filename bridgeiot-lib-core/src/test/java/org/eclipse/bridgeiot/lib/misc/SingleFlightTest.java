@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        // Arrange
+        final SingleFlight<String> singleFlightUnderTest = SingleFlight.create();
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> slowCall = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                executions.incrementAndGet();
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "response";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return singleFlightUnderTest.execute("key", slowCall);
+            }
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return singleFlightUnderTest.execute("key", slowCall);
+                }
+            }));
+        }
+        while (singleFlightUnderTest.getCoalescedCount() < 3) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("response");
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(singleFlightUnderTest.getInFlightCount()).isEqualTo(0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void sequentialCallsExecuteAgain() throws Exception {
+        // Arrange
+        SingleFlight<Integer> singleFlightUnderTest = SingleFlight.create();
+        final AtomicInteger executions = new AtomicInteger();
+        Callable<Integer> call = new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return executions.incrementAndGet();
+            }
+        };
+
+        // Act
+        int first = singleFlightUnderTest.execute("key", call);
+        int second = singleFlightUnderTest.execute("key", call);
+
+        // Assert
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(2);
+        assertThat(singleFlightUnderTest.getCoalescedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void asyncListenersShareOneExecution() {
+        // Arrange
+        SingleFlight<String> singleFlightUnderTest = SingleFlight.create();
+        final List<String> results = new ArrayList<>();
+        SingleFlight.Listener<String> listener = new SingleFlight.Listener<String>() {
+            @Override
+            public void onSuccess(String value) {
+                results.add(value);
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                results.add(failure.getMessage());
+            }
+        };
+
+        // Act
+        boolean first = singleFlightUnderTest.join("key", listener);
+        boolean second = singleFlightUnderTest.join("key", listener);
+        singleFlightUnderTest.complete("key", "response");
+        boolean third = singleFlightUnderTest.join("key", listener);
+        singleFlightUnderTest.fail("key", new IllegalStateException("failed"));
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(third).isTrue();
+        assertThat(results).containsExactly("response", "response", "failed");
+        assertThat(singleFlightUnderTest.getCoalescedCount()).isEqualTo(1);
+        assertThat(singleFlightUnderTest.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void handOverPassesExecutionToJoinedListener() {
+        // Arrange
+        SingleFlight<String> singleFlightUnderTest = SingleFlight.create();
+        final List<String> results = new ArrayList<>();
+        SingleFlight.Listener<String> leader = new SingleFlight.Listener<String>() {
+            @Override
+            public void onSuccess(String value) {
+                results.add("leader " + value);
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                results.add("leader " + failure.getMessage());
+            }
+        };
+        SingleFlight.Listener<String> joiner = new SingleFlight.Listener<String>() {
+            @Override
+            public void onSuccess(String value) {
+                results.add("joiner " + value);
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                results.add("joiner " + failure.getMessage());
+            }
+        };
+        singleFlightUnderTest.join("key", leader);
+        singleFlightUnderTest.join("key", joiner);
+
+        // Act
+        SingleFlight.Listener<String> next = singleFlightUnderTest.handOver("key", leader);
+        singleFlightUnderTest.complete("key", "response");
+        SingleFlight.Listener<String> none = singleFlightUnderTest.handOver("key", leader);
+
+        // Assert
+        assertThat(next).isSameAs(joiner);
+        assertThat(none).isNull();
+        assertThat(results).containsExactly("joiner response");
+        assertThat(singleFlightUnderTest.getInFlightCount()).isEqualTo(0);
+    }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler.ResponseCallback;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class DeployedOfferingTest {
+
+    @Test
+    public void pendingAsyncAccessHoldsPermitForServerResponseTimeout() throws InterruptedException {
+        // Arrange
+        EmbededdedRouteBasedServer serverMock = mock(EmbededdedRouteBasedServer.class);
+        when(serverMock.getAsyncResponseTimeoutMillis()).thenReturn(300L);
+        AsyncAccessRequestHandler pendingHandler = mock(AsyncAccessRequestHandler.class);
+        RegistrableOfferingDescriptionChain offeringDescription = new RegistrableOfferingDescriptionChain()
+                .withName("Pending").withRoute("pending").withAsyncAccessRequestHandler(pendingHandler)
+                .withMaxConcurrentRequestsPerSubscription(1);
+        DeployedOffering offeringUnderTest = new DeployedOffering(offeringDescription, serverMock);
+        Map<String, Object> inputData = new HashMap<>();
+        ResponseCallback first = mock(ResponseCallback.class);
+        ResponseCallback second = mock(ResponseCallback.class);
+
+        // Act
+        offeringUnderTest.internalAsyncAccessRequestHandler.processRequestHandler(offeringDescription, inputData,
+                "subscription", "session1", first);
+        offeringUnderTest.internalAsyncAccessRequestHandler.processRequestHandler(offeringDescription, inputData,
+                "subscription", "session2", second);
+        int activeBeforeTimeout = offeringUnderTest.getSubscriptionMetrics().get("subscription").getActiveRequests();
+        Thread.sleep(600);
+        int activeAfterTimeout = offeringUnderTest.getSubscriptionMetrics().get("subscription").getActiveRequests();
+
+        // Assert
+        assertThat(activeBeforeTimeout).isEqualTo(1);
+        assertThat(activeAfterTimeout).isEqualTo(0);
+        ArgumentCaptor<BridgeIotHttpResponse> rejected = ArgumentCaptor.forClass(BridgeIotHttpResponse.class);
+        verify(second).onResponse(rejected.capture());
+        assertThat(rejected.getValue().getStatus()).isEqualTo(BridgeIotHttpResponse.TOO_MANY_REQUESTS_STATUS);
+    }
+
+}
@@ -34,11 +34,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
+import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.MediaType;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.configuration.LibConfiguration;
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonActivatedOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.AccessToNonSubscribedOfferingException;
 import org.eclipse.bridgeiot.lib.exceptions.IllegalAccessParameterException;
@@ -63,6 +66,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
@@ -697,11 +701,177 @@ public class OfferingCoreByLibTest {
         verify(failureHandler, times(1)).processResponseOnFailure(any(IOfferingCore.class), any(AccessResponse.class));
     }
 
+    @Test
+    public void enqueueAccessCancelledIsNotReported() throws IllegalAccessParameterException,
+            AccessToNonActivatedOfferingException, AccessToNonSubscribedOfferingException {
+        // Arrange OfferingDescription
+        SubscribableOfferingDescriptionCore offeringDescriptionMock = createOfferingDescriptionMock(Boolean.TRUE,
+                AccessInterfaceType.BRIDGEIOT_LIB, EndpointType.HTTP_GET, supermanUrl, superUniqueKey);
+        // Arrange HttpClient
+        HttpClient httpClientMock = mock(HttpClient.class);
+        // Arrange Failure Handler
+        AccessResponseFailureHandler failureHandler = mock(AccessResponseFailureHandler.class);
+        // Arrange cancelled Call
+        final Call callMock = mock(Call.class);
+        when(callMock.isCanceled()).thenReturn(true);
+        doAnswer(new Answer<Call>() {
+            public Call answer(InvocationOnMock invocation) throws IOException {
+                Callback callback = (Callback) invocation.getArguments()[2];
+                callback.onFailure(callMock, new IOException("Canceled"));
+                return callMock;
+            }
+        }).when(httpClientMock).get(contains(superUniqueKey), ArgumentMatchers.<Map<String, String>>any(),
+                any(Callback.class));
+        // Object Under Test: setup with mocked httpClient
+        OfferingCoreByLib oUnderTest = new OfferingCoreByLib(offeringDescriptionMock, someAccessToken, httpClientMock);
+
+        // Act
+        Call call = oUnderTest.enqueueAccess("session", createAccessParamsFixture(superUniqueKey, superUniqueValue),
+                null, failureHandler);
+
+        // Assert
+        assertThat(call).isSameAs(callMock);
+        verify(failureHandler, never()).processResponseOnFailure(any(IOfferingCore.class), any(AccessResponse.class));
+    }
+
+    @Test
+    public void enqueueAccessStoresAndServesResponseCache() throws IllegalAccessParameterException,
+            AccessToNonActivatedOfferingException, AccessToNonSubscribedOfferingException, InterruptedException,
+            ExecutionException {
+        // Arrange OfferingDescription
+        SubscribableOfferingDescriptionCore offeringDescriptionMock = createOfferingDescriptionMock(Boolean.TRUE,
+                AccessInterfaceType.BRIDGEIOT_LIB, EndpointType.HTTP_GET, supermanUrl, superUniqueKey);
+        // Arrange HttpClient
+        HttpClient httpClientMock = mock(HttpClient.class);
+        // Arrange Success Handler
+        AccessResponseSuccessHandler successHandler = mock(AccessResponseSuccessHandler.class);
+        // Arrange Callback
+        final Call callMock = mock(Call.class);
+        doAnswer(new Answer<Call>() {
+            public Call answer(InvocationOnMock invocation) throws IOException {
+                Callback callback = (Callback) invocation.getArguments()[2];
+                callback.onResponse(callMock, createResponseMock("[1,2]", Boolean.TRUE));
+                return callMock;
+            }
+        }).when(httpClientMock).get(contains(superUniqueKey), ArgumentMatchers.<Map<String, String>>any(),
+                any(Callback.class));
+        // Object Under Test: setup with mocked httpClient
+        OfferingCoreByLib oUnderTest = new OfferingCoreByLib(offeringDescriptionMock, someAccessToken, httpClientMock);
+        ResponseCache cache = ResponseCache.create(60000, 10);
+        oUnderTest.withResponseCache(cache);
+
+        // Act
+        Call first = oUnderTest.enqueueAccess("session", createAccessParamsFixture(superUniqueKey, superUniqueValue),
+                successHandler, null);
+        Call second = oUnderTest.enqueueAccess("session", createAccessParamsFixture(superUniqueKey, superUniqueValue),
+                successHandler, null);
+
+        // Assert
+        assertThat(first).isSameAs(callMock);
+        assertThat(second).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        verify(httpClientMock, times(1)).get(anyString(), ArgumentMatchers.<Map<String, String>>any(),
+                any(Callback.class));
+        // cached response is not served on the calling thread
+        verify(successHandler, times(1)).processResponseOnSuccess(any(IOfferingCore.class),
+                argThat(Matchers.<AccessResponse>hasToString("[1,2]")));
+        ArgumentCaptor<Runnable> dispatched = ArgumentCaptor.forClass(Runnable.class);
+        verify(httpClientMock).dispatch(dispatched.capture());
+        dispatched.getValue().run();
+        verify(successHandler, times(2)).processResponseOnSuccess(any(IOfferingCore.class),
+                argThat(Matchers.<AccessResponse>hasToString("[1,2]")));
+    }
+
+    @Test
+    public void enqueueAccessRevalidatesStaleResponseCacheEntry() throws IllegalAccessParameterException,
+            AccessToNonActivatedOfferingException, AccessToNonSubscribedOfferingException, InterruptedException,
+            ExecutionException, IOException {
+        // Arrange OfferingDescription
+        SubscribableOfferingDescriptionCore offeringDescriptionMock = createOfferingDescriptionMock(Boolean.TRUE,
+                AccessInterfaceType.BRIDGEIOT_LIB, EndpointType.HTTP_GET, supermanUrl, superUniqueKey);
+        // Arrange HttpClient
+        HttpClient httpClientMock = mock(HttpClient.class);
+        // Arrange Success Handler
+        AccessResponseSuccessHandler successHandler = mock(AccessResponseSuccessHandler.class);
+        // Arrange stale cache entry with ETag
+        AccessParameters accessParameters = createAccessParamsFixture(superUniqueKey, superUniqueValue);
+        Response staleResponse = mock(Response.class);
+        when(staleResponse.header("ETag")).thenReturn("\"v1\"");
+        when(staleResponse.header("Cache-Control")).thenReturn("no-cache");
+        ResponseCache cache = ResponseCache.create(60000, 10);
+        cache.put(ResponseCache.key(
+                accessParameters.toNameMap(offeringDescriptionMock.getInputs(), LibConfiguration.JSON_MAPPING_DEPTH)),
+                "[1,2]", staleResponse);
+        // Arrange Callback answering Not Modified
+        final Response notModified = createResponseMock("", Boolean.FALSE);
+        when(notModified.code()).thenReturn(304);
+        doAnswer(new Answer<Call>() {
+            public Call answer(InvocationOnMock invocation) throws IOException {
+                Callback callback = (Callback) invocation.getArguments()[2];
+                callback.onResponse(null, notModified);
+                return null;
+            }
+        }).when(httpClientMock).get(contains(superUniqueKey),
+                (Map<String, String>) argThat(Matchers.hasEntry("If-None-Match", "\"v1\"")), any(Callback.class));
+        // Object Under Test: setup with mocked httpClient
+        OfferingCoreByLib oUnderTest = new OfferingCoreByLib(offeringDescriptionMock, someAccessToken, httpClientMock);
+        oUnderTest.withResponseCache(cache);
+
+        // Act
+        oUnderTest.enqueueAccess("session", accessParameters, successHandler, null);
+
+        // Assert
+        assertThat(cache.getRevalidationCount()).isEqualTo(1);
+        verify(successHandler, times(1)).processResponseOnSuccess(any(IOfferingCore.class),
+                argThat(Matchers.<AccessResponse>hasToString("[1,2]")));
+    }
+
+    @Test
+    public void enqueueAccessCoalescesIdenticalAccessesInFlight() throws IllegalAccessParameterException,
+            AccessToNonActivatedOfferingException, AccessToNonSubscribedOfferingException, InterruptedException,
+            ExecutionException, IOException {
+        // Arrange OfferingDescription
+        SubscribableOfferingDescriptionCore offeringDescriptionMock = createOfferingDescriptionMock(Boolean.TRUE,
+                AccessInterfaceType.BRIDGEIOT_LIB, EndpointType.HTTP_GET, supermanUrl, superUniqueKey);
+        // Arrange HttpClient keeping the callback pending
+        HttpClient httpClientMock = mock(HttpClient.class);
+        final List<Callback> callbacks = new ArrayList<>();
+        final Call callMock = mock(Call.class);
+        doAnswer(new Answer<Call>() {
+            public Call answer(InvocationOnMock invocation) {
+                callbacks.add((Callback) invocation.getArguments()[2]);
+                return callMock;
+            }
+        }).when(httpClientMock).get(contains(superUniqueKey), ArgumentMatchers.<Map<String, String>>any(),
+                any(Callback.class));
+        // Arrange Success Handlers
+        AccessResponseSuccessHandler firstHandler = mock(AccessResponseSuccessHandler.class);
+        AccessResponseSuccessHandler secondHandler = mock(AccessResponseSuccessHandler.class);
+        // Object Under Test: setup with mocked httpClient
+        OfferingCoreByLib oUnderTest = new OfferingCoreByLib(offeringDescriptionMock, someAccessToken, httpClientMock);
+        oUnderTest.withRequestCoalescing(true);
+
+        // Act
+        Call first = oUnderTest.enqueueAccess("session1", createAccessParamsFixture(superUniqueKey, superUniqueValue),
+                firstHandler, null);
+        Call second = oUnderTest.enqueueAccess("session2", createAccessParamsFixture(superUniqueKey, superUniqueValue),
+                secondHandler, null);
+        callbacks.get(0).onResponse(callMock, createResponseMock("[1,2]", Boolean.TRUE));
+
+        // Assert
+        assertThat(first).isSameAs(callMock);
+        assertThat(second).isNull();
+        assertThat(callbacks).hasSize(1);
+        assertThat(oUnderTest.getCoalescedAccessCount()).isEqualTo(1);
+        verify(firstHandler, times(1)).processResponseOnSuccess(any(IOfferingCore.class),
+                argThat(Matchers.<AccessResponse>hasToString("[1,2]")));
+        verify(secondHandler, times(1)).processResponseOnSuccess(any(IOfferingCore.class),
+                argThat(Matchers.<AccessResponse>hasToString("[1,2]")));
+    }
+
     private static Response createResponseMock(String body, boolean isSuccessful) throws IOException {
         Response respMock = mock(Response.class);
-        ResponseBody bodyMock = mock(ResponseBody.class);
-        when(bodyMock.string()).thenReturn(body);
-        when(respMock.body()).thenReturn(bodyMock);
+        when(respMock.body()).thenReturn(ResponseBody.create(MediaType.parse("application/json"), body));
         when(respMock.message()).thenReturn("{}");
         when(respMock.isSuccessful()).thenReturn(isSuccessful);
 
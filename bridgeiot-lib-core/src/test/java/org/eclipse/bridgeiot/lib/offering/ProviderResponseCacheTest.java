@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.junit.Test;
+
+public class ProviderResponseCacheTest {
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    AccessRequestHandler handler = new AccessRequestHandler() {
+        @Override
+        public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                Map<String, Object> inputData, String subscriptionId, String sessionId) {
+            calls.incrementAndGet();
+            return BridgeIotHttpResponse.okay().asJsonType().withBody("[ \"" + inputData.get("city") + "\" ]");
+        }
+    };
+
+    @Test
+    public void servesHitsWithoutCallingHandler() {
+        // Arrange
+        ProviderResponseCache cacheUnderTest = ProviderResponseCache.create(60000, 10, 1024);
+
+        // Act
+        BridgeIotHttpResponse first = cacheUnderTest.get(handler, null, input("Barcelona"), "sub1", "s1");
+        BridgeIotHttpResponse second = cacheUnderTest.get(handler, null, input("Barcelona"), "sub2", "s2");
+        BridgeIotHttpResponse other = cacheUnderTest.get(handler, null, input("Berlin"), "sub1", "s1");
+
+        // Assert
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getBody()).isEqualTo("[ \"Barcelona\" ]");
+        assertThat(second.getHeaders()).isEqualTo(first.getHeaders());
+        assertThat(other.getBody()).isEqualTo("[ \"Berlin\" ]");
+        assertThat(cacheUnderTest.getHitCount()).isEqualTo(1);
+        assertThat(cacheUnderTest.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntriesBeyondMaxBytes() {
+        // Arrange
+        ProviderResponseCache cacheUnderTest = ProviderResponseCache.create(60000, 10, 40);
+
+        // Act
+        cacheUnderTest.get(handler, null, input("Barcelona"), "sub", "s");
+        cacheUnderTest.get(handler, null, input("Berlin"), "sub", "s");
+        cacheUnderTest.get(handler, null, input("Barcelona"), "sub", "s");
+        cacheUnderTest.get(handler, null, input("Stuttgart"), "sub", "s");
+
+        // Assert
+        assertThat(cacheUnderTest.size()).isEqualTo(2);
+        assertThat(cacheUnderTest.getCachedBytes()).isLessThanOrEqualTo(40);
+        cacheUnderTest.get(handler, null, input("Barcelona"), "sub", "s");
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void concurrentMissesCallHandlerOnce() throws InterruptedException {
+        // Arrange
+        final CountDownLatch release = new CountDownLatch(1);
+        final AccessRequestHandler slowHandler = new AccessRequestHandler() {
+            @Override
+            public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                    Map<String, Object> inputData, String subscriptionId, String sessionId) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return handler.processRequestHandler(offeringDescription, inputData, subscriptionId, sessionId);
+            }
+        };
+        final ProviderResponseCache cacheUnderTest = ProviderResponseCache.create(60000, 10, 1024);
+        final List<BridgeIotHttpResponse> responses = Collections
+                .synchronizedList(new ArrayList<BridgeIotHttpResponse>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    responses.add(cacheUnderTest.get(slowHandler, null, input("Barcelona"), "sub", "s"));
+                }
+            }));
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        // Assert
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(responses).hasSize(5);
+        for (BridgeIotHttpResponse response : responses) {
+            assertThat(response.getBody()).isEqualTo("[ \"Barcelona\" ]");
+        }
+    }
+
+    static Map<String, Object> input(String city) {
+        Map<String, Object> inputData = new HashMap<>();
+        inputData.put("city", city);
+        return inputData;
+    }
+
+}
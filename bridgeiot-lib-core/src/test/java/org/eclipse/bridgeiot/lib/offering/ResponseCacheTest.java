@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.Response;
+
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void keyIsIndependentOfParameterOrder() {
+        // Arrange
+        Map<String, Object> parameters1 = new LinkedHashMap<>();
+        parameters1.put("latitude", 42.0);
+        parameters1.put("longitude", 9.0);
+        Map<String, Object> parameters2 = new LinkedHashMap<>();
+        parameters2.put("longitude", 9.0);
+        parameters2.put("latitude", 42.0);
+
+        // Act & Assert
+        assertThat(ResponseCache.key(parameters1)).isEqualTo(ResponseCache.key(parameters2));
+        assertThat(ResponseCache.key(parameters1)).isNotEqualTo(ResponseCache.key(new HashMap<String, Object>()));
+    }
+
+    @Test
+    public void servesFreshEntriesAndCountsHitsAndMisses() {
+        // Arrange
+        ResponseCache cacheUnderTest = ResponseCache.create(60000, 10);
+
+        // Act
+        String miss = cacheUnderTest.getFresh("k");
+        cacheUnderTest.put("k", "[1,2]", createResponseMock(null, null));
+        String hit = cacheUnderTest.getFresh("k");
+
+        // Assert
+        assertThat(miss).isNull();
+        assertThat(hit).isEqualTo("[1,2]");
+        assertThat(cacheUnderTest.getHitCount()).isEqualTo(1);
+        assertThat(cacheUnderTest.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void honorsCacheControl() {
+        // Arrange
+        ResponseCache cacheUnderTest = ResponseCache.create(60000, 10);
+
+        // Act
+        cacheUnderTest.put("noStore", "[]", createResponseMock("no-store", null));
+        cacheUnderTest.put("noCache", "[]", createResponseMock("no-cache", "\"v1\""));
+        cacheUnderTest.put("maxAge", "[]", createResponseMock("public, max-age=0", null));
+
+        // Assert
+        assertThat(cacheUnderTest.get("noStore")).isNull();
+        assertThat(cacheUnderTest.get("maxAge")).isNull();
+        assertThat(cacheUnderTest.get("noCache").isFresh()).isFalse();
+        assertThat(cacheUnderTest.get("noCache").getETag()).isEqualTo("\"v1\"");
+    }
+
+    @Test
+    public void revalidationRefreshesEntry() {
+        // Arrange
+        ResponseCache cacheUnderTest = ResponseCache.create(60000, 10);
+        cacheUnderTest.put("k", "[]", createResponseMock("no-cache", "\"v1\""));
+        ResponseCache.Entry entry = cacheUnderTest.get("k");
+
+        // Act
+        cacheUnderTest.revalidated(entry, createResponseMock(null, "\"v1\""));
+
+        // Assert
+        assertThat(entry.isFresh()).isTrue();
+        assertThat(cacheUnderTest.getRevalidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntry() {
+        // Arrange
+        ResponseCache cacheUnderTest = ResponseCache.create(60000, 2);
+        cacheUnderTest.put("a", "a", createResponseMock(null, null));
+        cacheUnderTest.put("b", "b", createResponseMock(null, null));
+        cacheUnderTest.getFresh("a");
+
+        // Act
+        cacheUnderTest.put("c", "c", createResponseMock(null, null));
+
+        // Assert
+        assertThat(cacheUnderTest.size()).isEqualTo(2);
+        assertThat(cacheUnderTest.get("a")).isNotNull();
+        assertThat(cacheUnderTest.get("b")).isNull();
+    }
+
+    private static Response createResponseMock(String cacheControl, String eTag) {
+        Response respMock = mock(Response.class);
+        when(respMock.header("Cache-Control")).thenReturn(cacheControl);
+        when(respMock.header("ETag")).thenReturn(eTag);
+        return respMock;
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.misc.HttpClient;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
+import org.eclipse.bridgeiot.lib.security.AccessToken;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class SubscribableOfferingDescriptionCoreTest {
+
+    IConsumer consumerMock;
+    MarketplaceClient marketplaceClientMock;
+
+    @Before
+    public void setUp() {
+        consumerMock = mock(IConsumer.class);
+        marketplaceClientMock = mock(MarketplaceClient.class);
+        when(consumerMock.getMarketplaceClient()).thenReturn(marketplaceClientMock);
+    }
+
+    @Test
+    public void subscribeAllWithSingleMutation() throws IOException {
+        // Arrange
+        List<SubscribableOfferingDescriptionCore> offeringDescriptions = new ArrayList<>();
+        offeringDescriptions.add(createOfferingDescription("o1"));
+        offeringDescriptions.add(createOfferingDescription("o2"));
+        offeringDescriptions.add(createOfferingDescription("o3"));
+        String token1 = AccessToken.generate("c", "o1");
+        String token3 = AccessToken.generate("c", "o3");
+        mockMarketplaceResponse("{ \"data\" : { \"s0\" : { \"id\" : \"q-o1\", \"accessToken\" : \"" + token1
+                + "\" }, \"s1\" : null, \"s2\" : { \"id\" : \"q-o3\", \"accessToken\" : \"" + token3
+                + "\" } }, \"errors\" : [ { \"message\" : \"failed\" } ] }");
+
+        // Act
+        BulkSubscriptionResult<OfferingCore> result = SubscribableOfferingDescriptionCore
+                .subscribeAllBlocking(offeringDescriptions);
+
+        // Assert
+        ArgumentCaptor<RequestBody> request = ArgumentCaptor.forClass(RequestBody.class);
+        verify(marketplaceClientMock, times(1)).request(request.capture());
+        assertThat(request.getValue().toString()).contains("s0: subscribeQueryToOffering")
+                .contains("s2: subscribeQueryToOffering");
+        assertThat(result.getOfferings()).hasSize(2);
+        assertThat(result.getOfferings().get(0).getOfferingToken()).isEqualTo(token1);
+        assertThat(result.getOfferings().get(1).getOfferingToken()).isEqualTo(token3);
+        assertThat(result.getFailures()).containsOnlyKeys("o2");
+        assertThat(result.isComplete()).isFalse();
+        verify(consumerMock, times(2)).addSubscribedOffering(any(OfferingCore.class));
+    }
+
+    @Test
+    public void subscribeAllSplitsLargeBatches() throws IOException {
+        // Arrange
+        List<SubscribableOfferingDescriptionCore> offeringDescriptions = new ArrayList<>();
+        for (int i = 0; i < SubscribableOfferingDescriptionCore.MAX_SUBSCRIPTIONS_PER_MUTATION + 1; i++) {
+            offeringDescriptions.add(createOfferingDescription("o" + i));
+        }
+        mockMarketplaceResponse("{ \"data\" : { } }");
+
+        // Act
+        BulkSubscriptionResult<OfferingCore> result = SubscribableOfferingDescriptionCore
+                .subscribeAllBlocking(offeringDescriptions);
+
+        // Assert
+        verify(marketplaceClientMock, times(2)).request(any(RequestBody.class));
+        assertThat(result.getOfferings()).isEmpty();
+        assertThat(result.getFailures()).hasSize(offeringDescriptions.size());
+    }
+
+    private SubscribableOfferingDescriptionCore createOfferingDescription(String offeringId) {
+        SubscribableOfferingDescriptionCore offeringDescription = new SubscribableOfferingDescriptionCore() {
+            @Override
+            protected OfferingCore createOffering(String offeringToken) {
+                return new OfferingCoreByLib(this, offeringToken, mock(HttpClient.class));
+            }
+        };
+        offeringDescription.setConsumer(consumerMock);
+        offeringDescription.setId(offeringId);
+        offeringDescription.setQueryId("q");
+        return offeringDescription;
+    }
+
+    private void mockMarketplaceResponse(String body) throws IOException {
+        Response responseMock = mock(Response.class);
+        ResponseBody bodyMock = mock(ResponseBody.class);
+        when(bodyMock.string()).thenReturn(body);
+        when(responseMock.body()).thenReturn(bodyMock);
+        when(marketplaceClientMock.request(any(RequestBody.class))).thenReturn(responseMock);
+    }
+
+}
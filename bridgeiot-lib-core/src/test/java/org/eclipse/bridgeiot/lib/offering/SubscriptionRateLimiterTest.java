@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.bridgeiot.lib.offering.SubscriptionRateLimiter.SubscriptionMetrics;
+import org.junit.Test;
+
+public class SubscriptionRateLimiterTest {
+
+    @Test
+    public void limitsRatePerSubscription() {
+        // Arrange
+        SubscriptionRateLimiter limiterUnderTest = SubscriptionRateLimiter.create(0.01, 2,
+                SubscriptionRateLimiter.UNLIMITED);
+
+        // Act
+        boolean first = acquireAndRelease(limiterUnderTest, "greedy");
+        boolean second = acquireAndRelease(limiterUnderTest, "greedy");
+        boolean third = acquireAndRelease(limiterUnderTest, "greedy");
+        boolean other = acquireAndRelease(limiterUnderTest, "polite");
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(other).isTrue();
+        assertThat(limiterUnderTest.getRetryAfterSeconds("greedy")).isGreaterThan(1);
+        SubscriptionMetrics metrics = limiterUnderTest.getMetrics("greedy");
+        assertThat(metrics.getAcceptedRequests()).isEqualTo(2);
+        assertThat(metrics.getRateLimitedRequests()).isEqualTo(1);
+        assertThat(limiterUnderTest.getMetrics().keySet()).containsOnly("greedy", "polite");
+    }
+
+    @Test
+    public void refillsTokensOverTime() throws InterruptedException {
+        // Arrange
+        SubscriptionRateLimiter limiterUnderTest = SubscriptionRateLimiter.create(100, 1,
+                SubscriptionRateLimiter.UNLIMITED);
+        acquireAndRelease(limiterUnderTest, "sub");
+
+        // Act
+        Thread.sleep(50);
+        boolean refilled = acquireAndRelease(limiterUnderTest, "sub");
+
+        // Assert
+        assertThat(refilled).isTrue();
+    }
+
+    @Test
+    public void capsConcurrentRequestsPerSubscription() {
+        // Arrange
+        SubscriptionRateLimiter limiterUnderTest = SubscriptionRateLimiter.create(SubscriptionRateLimiter.UNLIMITED,
+                1, 1);
+
+        // Act
+        boolean first = limiterUnderTest.tryAcquire("sub");
+        boolean concurrent = limiterUnderTest.tryAcquire("sub");
+        int active = limiterUnderTest.getMetrics("sub").getActiveRequests();
+        limiterUnderTest.release("sub");
+        boolean afterRelease = limiterUnderTest.tryAcquire("sub");
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(concurrent).isFalse();
+        assertThat(active).isEqualTo(1);
+        assertThat(afterRelease).isTrue();
+        assertThat(limiterUnderTest.getMetrics("sub").getConcurrencyLimitedRequests()).isEqualTo(1);
+        assertThat(limiterUnderTest.getMetrics("unknown")).isNull();
+    }
+
+    boolean acquireAndRelease(SubscriptionRateLimiter limiter, String subscriptionId) {
+        if (!limiter.tryAcquire(subscriptionId)) {
+            return false;
+        }
+        limiter.release(subscriptionId);
+        return true;
+    }
+
+}
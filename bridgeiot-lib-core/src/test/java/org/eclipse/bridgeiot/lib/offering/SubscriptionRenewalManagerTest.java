@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.misc.HttpClient;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
+import org.eclipse.bridgeiot.lib.security.AccessToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class SubscriptionRenewalManagerTest {
+
+    IConsumer consumerMock;
+    MarketplaceClient marketplaceClientMock;
+    SubscriptionRenewalManager managerUnderTest;
+
+    @Before
+    public void setUp() {
+        consumerMock = mock(IConsumer.class);
+        marketplaceClientMock = mock(MarketplaceClient.class);
+        managerUnderTest = SubscriptionRenewalManager.create(consumerMock).withJitter(0);
+        when(consumerMock.getMarketplaceClient()).thenReturn(marketplaceClientMock);
+        when(consumerMock.getSubscriptionRenewalManager()).thenReturn(managerUnderTest);
+    }
+
+    @After
+    public void tearDown() {
+        managerUnderTest.terminate();
+    }
+
+    @Test
+    public void renewsBatchWithSingleMutation() throws IOException {
+        // Arrange
+        OfferingCoreByLib offering1 = createOffering("o1", AccessToken.generate("c", "o1"));
+        OfferingCoreByLib offering2 = createOffering("o2", AccessToken.generate("c", "o2"));
+        String renewedToken = AccessToken.generate("c", "o1-renewed");
+        mockMarketplaceResponse("{ \"data\" : { \"s0\" : { \"id\" : \"q-o1\", \"accessToken\" : \"" + renewedToken
+                + "\" }, \"s1\" : null }, \"errors\" : [ { \"message\" : \"failed\" } ] }");
+        String previousToken2 = offering2.getOfferingToken();
+
+        // Act
+        managerUnderTest.renew(Arrays.<OfferingCore> asList(offering1, offering2));
+
+        // Assert
+        ArgumentCaptor<RequestBody> request = ArgumentCaptor.forClass(RequestBody.class);
+        verify(marketplaceClientMock, times(1)).request(request.capture());
+        assertThat(request.getValue().toString()).contains("s0: subscribeQueryToOffering")
+                .contains("s1: subscribeQueryToOffering");
+        assertThat(offering1.getOfferingToken()).isEqualTo(renewedToken);
+        assertThat(offering1.getOfferingDescription().getSubscriptionId()).isEqualTo("q-o1");
+        assertThat(offering2.getOfferingToken()).isEqualTo(previousToken2);
+        assertThat(managerUnderTest.getBatchCount()).isEqualTo(1);
+        assertThat(managerUnderTest.getRenewalCount()).isEqualTo(1);
+        assertThat(managerUnderTest.getFailureCount()).isEqualTo(1);
+        assertThat(managerUnderTest.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void groupsSubscriptionsDueWithinWindow() throws IOException {
+        // Arrange
+        OfferingCoreByLib offering1 = createOffering("o1", AccessToken.generate("c", "o1"));
+        OfferingCoreByLib offering2 = createOffering("o2", AccessToken.generate("c", "o2"));
+        OfferingCoreByLib offering3 = createOffering("o3", AccessToken.generate("c", "o3"));
+        long now = System.currentTimeMillis();
+        managerUnderTest.scheduleRenewal(offering1, now + SubscriptionRenewalManager.DEFAULT_RENEWAL_MARGIN_MILLIS);
+        managerUnderTest.scheduleRenewal(offering2,
+                now + SubscriptionRenewalManager.DEFAULT_RENEWAL_MARGIN_MILLIS + 30000L);
+        mockMarketplaceResponse("{ \"data\" : { } }");
+
+        // Act
+        managerUnderTest.renewDue();
+
+        // Assert
+        ArgumentCaptor<RequestBody> request = ArgumentCaptor.forClass(RequestBody.class);
+        verify(marketplaceClientMock, times(1)).request(request.capture());
+        assertThat(request.getValue().toString()).contains("s0:").contains("s1:").doesNotContain("s2:");
+        assertThat(managerUnderTest.size()).isEqualTo(3);
+        offering3.terminate();
+        assertThat(managerUnderTest.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void retriesBatchAfterUnexpectedFailure() throws IOException {
+        // Arrange
+        long now = System.currentTimeMillis();
+        managerUnderTest.scheduleRenewal(createOffering("o1", AccessToken.generate("c", "o1")), now);
+        managerUnderTest.scheduleRenewal(createOffering("o2", AccessToken.generate("c", "o2")), now);
+        when(marketplaceClientMock.request(any(RequestBody.class))).thenThrow(new IllegalStateException("broken"));
+
+        // Act
+        managerUnderTest.renewDue();
+
+        // Assert
+        assertThat(managerUnderTest.getFailureCount()).isEqualTo(2);
+        assertThat(managerUnderTest.size()).isEqualTo(2);
+        assertThat(managerUnderTest.getWakeupTime()).isGreaterThan(System.currentTimeMillis());
+        assertThat(managerUnderTest.getWakeupTime()).isLessThan(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void doesNotRescheduleOfferingRemovedWhileInFlight() throws IOException {
+        // Arrange
+        final OfferingCoreByLib offering = createOffering("o1", AccessToken.generate("c", "o1"));
+        String previousToken = offering.getOfferingToken();
+        managerUnderTest.scheduleRenewal(offering, System.currentTimeMillis());
+        final String renewedToken = AccessToken.generate("c", "o1-renewed");
+        final Response responseMock = mock(Response.class);
+        ResponseBody bodyMock = mock(ResponseBody.class);
+        when(bodyMock.string()).thenReturn("{ \"data\" : { \"s0\" : { \"id\" : \"q-o1\", \"accessToken\" : \""
+                + renewedToken + "\" } } }");
+        when(responseMock.body()).thenReturn(bodyMock);
+        when(marketplaceClientMock.request(any(RequestBody.class))).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                offering.terminate();
+                return responseMock;
+            }
+        });
+
+        // Act
+        managerUnderTest.renewDue();
+
+        // Assert
+        assertThat(managerUnderTest.size()).isEqualTo(0);
+        assertThat(offering.getOfferingToken()).isEqualTo(previousToken);
+    }
+
+    private OfferingCoreByLib createOffering(String offeringId, String offeringToken) {
+        SubscribableOfferingDescriptionCore offeringDescription = SubscribableOfferingDescriptionCore
+                .create(consumerMock);
+        offeringDescription.setId(offeringId);
+        offeringDescription.setQueryId("q");
+        return new OfferingCoreByLib(offeringDescription, offeringToken, mock(HttpClient.class));
+    }
+
+    private void mockMarketplaceResponse(String body) throws IOException {
+        Response responseMock = mock(Response.class);
+        ResponseBody bodyMock = mock(ResponseBody.class);
+        when(bodyMock.string()).thenReturn(body);
+        when(responseMock.body()).thenReturn(bodyMock);
+        when(marketplaceClientMock.request(any(RequestBody.class))).thenReturn(responseMock);
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.eclipse.bridgeiot.lib.IConsumer;
+import org.eclipse.bridgeiot.lib.feed.AccessFeedSync;
+import org.eclipse.bridgeiot.lib.handlers.FeedNotificationFailureHandler;
+import org.eclipse.bridgeiot.lib.handlers.FeedNotificationSuccessHandler;
+import org.eclipse.bridgeiot.lib.misc.HttpClient;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
+import org.eclipse.bridgeiot.lib.model.Activation;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
+import org.eclipse.bridgeiot.lib.model.EndPoint;
+import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
+import org.eclipse.bridgeiot.lib.offering.parameters.AccessParameters;
+import org.eclipse.bridgeiot.lib.security.AccessToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+public class SubscriptionSnapshotTest {
+
+    static final String EXPIRED_TOKEN = "expired";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    IConsumer consumerMock;
+    MarketplaceClient marketplaceClientMock;
+    SubscriptionRenewalManager renewalManager;
+    File snapshotFile;
+
+    @Before
+    public void setUp() {
+        consumerMock = mock(IConsumer.class);
+        marketplaceClientMock = mock(MarketplaceClient.class);
+        renewalManager = SubscriptionRenewalManager.create(consumerMock).withJitter(0);
+        when(consumerMock.getMarketplaceClient()).thenReturn(marketplaceClientMock);
+        when(consumerMock.getSubscriptionRenewalManager()).thenReturn(renewalManager);
+        snapshotFile = new File(folder.getRoot(), "subscriptions.json");
+    }
+
+    @After
+    public void tearDown() {
+        renewalManager.terminate();
+    }
+
+    @Test
+    public void restoresTokensAndAccounting() throws IOException {
+        // Arrange
+        String validToken = AccessToken.generate("c", "o1");
+        OfferingCoreByLib offering1 = createOffering("o1", validToken);
+        OfferingCoreByLib offering2 = createOffering("o2", EXPIRED_TOKEN);
+        offering1.addAccountingEvent("session", "[ 1, 2, 3 ]");
+        SubscriptionSnapshot.create(Arrays.<OfferingCore> asList(offering1, offering2)).write(snapshotFile);
+        offering1.terminate();
+        offering2.terminate();
+
+        // Act
+        List<OfferingCore> restored = SubscriptionSnapshot.read(snapshotFile).restore(consumerMock, null, null);
+
+        // Assert
+        assertThat(restored).hasSize(2);
+        assertThat(restored.get(0).getOfferingToken()).isEqualTo(validToken);
+        assertThat(restored.get(0).getOfferingDescription().getId()).isEqualTo("o1");
+        assertThat(restored.get(0).getOfferingDescription().getQueryId()).isEqualTo("q");
+        assertThat(restored.get(0).getOfferingDescription().getSubscriptionId()).isEqualTo("q-o1");
+        assertThat(restored.get(0).getOfferingDescription().getActivation().getStatus()).isTrue();
+        List<AccountingReport> reports = restored.get(0).getCurrentAccountingReports();
+        assertThat(reports).hasSize(1);
+        assertThat(reports.get(0).getAccessSessionId()).isEqualTo("session");
+        assertThat(reports.get(0).getRecord().getTotalDataRecords()).isEqualTo(3L);
+        assertThat(restored.get(1).getOfferingToken()).isEqualTo(EXPIRED_TOKEN);
+        verify(consumerMock, times(2)).addSubscribedOffering(any(OfferingCore.class));
+        terminate(restored);
+    }
+
+    @Test
+    public void writesSnapshotReadableByOwnerOnly() throws IOException {
+        // Arrange
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        OfferingCoreByLib offering = createOffering("o1", AccessToken.generate("c", "o1"));
+
+        // Act
+        SubscriptionSnapshot.create(Arrays.<OfferingCore> asList(offering)).write(snapshotFile);
+
+        // Assert
+        assertThat(Files.getPosixFilePermissions(snapshotFile.toPath()))
+                .containsOnly(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+        offering.terminate();
+    }
+
+    @Test
+    public void renewsOnlyExpiredTokensInOneBatch() throws IOException {
+        // Arrange
+        String validToken = AccessToken.generate("c", "o1");
+        String renewedToken = AccessToken.generate("c", "o2-renewed");
+        List<OfferingCore> offerings = Arrays.<OfferingCore> asList(createOffering("o1", validToken),
+                createOffering("o2", EXPIRED_TOKEN));
+        SubscriptionSnapshot.create(offerings).write(snapshotFile);
+        terminate(offerings);
+        mockMarketplaceResponse(
+                "{ \"data\" : { \"s0\" : { \"id\" : \"q-o2\", \"accessToken\" : \"" + renewedToken + "\" } } }");
+        List<OfferingCore> restored = SubscriptionSnapshot.read(snapshotFile).restore(consumerMock, null, null);
+
+        // Act
+        renewalManager.renewDue();
+
+        // Assert
+        ArgumentCaptor<RequestBody> request = ArgumentCaptor.forClass(RequestBody.class);
+        verify(marketplaceClientMock, times(1)).request(request.capture());
+        assertThat(request.getValue().toString()).contains("offeringId: \\\"o2\\\"").doesNotContain("s1:");
+        assertThat(restored.get(0).getOfferingToken()).isEqualTo(validToken);
+        assertThat(restored.get(1).getOfferingToken()).isEqualTo(renewedToken);
+        assertThat(renewalManager.getRenewalCount()).isEqualTo(1);
+        assertThat(renewalManager.size()).isEqualTo(2);
+        terminate(restored);
+    }
+
+    @Test
+    public void resumesFeeds() throws Exception {
+        // Arrange
+        OfferingCoreByLib offering = createOffering("o1", AccessToken.generate("c", "o1"));
+        offering.accessContinuous(AccessParameters.create().addNameValue("radius", 500)
+                .addNameValue("area", AccessParameters.create().addNameValue("city", "Barcelona")), 3600000L, 60000L,
+                mock(FeedNotificationSuccessHandler.class), mock(FeedNotificationFailureHandler.class));
+        SubscriptionSnapshot.create(Arrays.<OfferingCore> asList(offering)).write(snapshotFile);
+        offering.terminate();
+
+        // Act
+        List<OfferingCore> restored = SubscriptionSnapshot.read(snapshotFile).restore(consumerMock,
+                mock(FeedNotificationSuccessHandler.class), mock(FeedNotificationFailureHandler.class));
+
+        // Assert
+        assertThat(restored.get(0).getMyAccessFeeds()).hasSize(1);
+        AccessFeedSync feed = (AccessFeedSync) restored.get(0).getMyAccessFeeds().get(0);
+        assertThat(feed.getStatus().isTerminated()).isFalse();
+        assertThat(feed.getStatus().getInterval().getMillis()).isEqualTo(60000L);
+        assertThat(feed.getExpirationDate().getMillis() - System.currentTimeMillis()).isBetween(3500000L, 3600000L);
+        assertThat(feed.getAccessParameters().getMembers()).hasSize(2);
+        assertThat(feed.getAccessParameters().getMembers().get(0).getValue()).isEqualTo(500);
+        assertThat(feed.getAccessParameters().getMembers().get(1).getValue()).isInstanceOf(AccessParameters.class);
+        terminate(restored);
+    }
+
+    @Test
+    public void resumesFeedsOfExpiredSubscriptionsAfterRenewal() throws Exception {
+        // Arrange
+        String renewedToken = AccessToken.generate("c", "o1-renewed");
+        OfferingCoreByLib offering = createOffering("o1", EXPIRED_TOKEN);
+        offering.accessContinuous(AccessParameters.create(), 3600000L, 60000L,
+                mock(FeedNotificationSuccessHandler.class), mock(FeedNotificationFailureHandler.class));
+        SubscriptionSnapshot.create(Arrays.<OfferingCore> asList(offering)).write(snapshotFile);
+        offering.terminate();
+        mockMarketplaceResponse(
+                "{ \"data\" : { \"s0\" : { \"id\" : \"q-o1\", \"accessToken\" : \"" + renewedToken + "\" } } }");
+        List<OfferingCore> restored = SubscriptionSnapshot.read(snapshotFile).restore(consumerMock,
+                mock(FeedNotificationSuccessHandler.class), mock(FeedNotificationFailureHandler.class));
+        assertThat(restored.get(0).getMyAccessFeeds()).isEmpty();
+
+        // Act
+        renewalManager.renewDue();
+
+        // Assert
+        assertThat(restored.get(0).getOfferingToken()).isEqualTo(renewedToken);
+        assertThat(restored.get(0).getMyAccessFeeds()).hasSize(1);
+        terminate(restored);
+    }
+
+    private OfferingCoreByLib createOffering(String offeringId, String offeringToken) {
+        SubscribableOfferingDescriptionCore offeringDescription = SubscribableOfferingDescriptionCore
+                .create(consumerMock);
+        offeringDescription.setId(offeringId);
+        offeringDescription.setQueryId("q");
+        offeringDescription.subscriptionId = "q-" + offeringId;
+        offeringDescription.setAccessInterfaceType(AccessInterfaceType.BRIDGEIOT_LIB);
+        offeringDescription.setEndpoints(Arrays.asList(new EndPoint(EndpointType.HTTP_GET,
+                AccessInterfaceType.BRIDGEIOT_LIB, "http://localhost:1/" + offeringId)));
+        offeringDescription.setActivation(new Activation(true, 0L));
+        return new OfferingCoreByLib(offeringDescription, offeringToken, mock(HttpClient.class));
+    }
+
+    private void mockMarketplaceResponse(String body) throws IOException {
+        Response responseMock = mock(Response.class);
+        ResponseBody bodyMock = mock(ResponseBody.class);
+        when(bodyMock.string()).thenReturn(body);
+        when(responseMock.body()).thenReturn(bodyMock);
+        when(marketplaceClientMock.request(any(RequestBody.class))).thenReturn(responseMock);
+    }
+
+    private void terminate(List<OfferingCore> offerings) {
+        for (OfferingCore offering : offerings) {
+            offering.terminate();
+        }
+    }
+
+}
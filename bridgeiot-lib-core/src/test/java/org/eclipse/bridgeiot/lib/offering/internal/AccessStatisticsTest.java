@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.bridgeiot.lib.offering.internal.AccessStatistics.EndpointStatistics;
+import org.junit.Test;
+
+public class AccessStatisticsTest {
+
+    static final String ENDPOINT = "https://localhost:9443/parking";
+
+    @Test
+    public void recordsLatencyAndErrorRate() {
+        // Arrange
+        AccessStatistics accessStatistics = AccessStatistics.create();
+
+        // Act
+        accessStatistics.record(ENDPOINT, 10, true);
+        accessStatistics.record(ENDPOINT, 30, true);
+        accessStatistics.record(ENDPOINT, 500, false);
+        accessStatistics.record(ENDPOINT, 20, true);
+        EndpointStatistics statistics = accessStatistics.get(ENDPOINT);
+
+        // Assert
+        assertThat(statistics.getSampleCount()).isEqualTo(4);
+        assertThat(statistics.getMeanLatency()).isEqualTo(20.0);
+        assertThat(statistics.getLatencyPercentile(50)).isEqualTo(20);
+        assertThat(statistics.getLatencyPercentile(100)).isEqualTo(30);
+        assertThat(statistics.getErrorRate()).isEqualTo(0.25);
+        assertThat(accessStatistics.get("https://localhost:9443/other")).isNull();
+    }
+
+    @Test
+    public void keepsRollingWindow() {
+        // Arrange
+        AccessStatistics accessStatistics = AccessStatistics.create();
+
+        // Act
+        for (int i = 0; i < AccessStatistics.WINDOW_SIZE; i++) {
+            accessStatistics.record(ENDPOINT, 1000, false);
+        }
+        for (int i = 0; i < AccessStatistics.WINDOW_SIZE; i++) {
+            accessStatistics.record(ENDPOINT, 5, true);
+        }
+        EndpointStatistics statistics = accessStatistics.get(ENDPOINT);
+
+        // Assert
+        assertThat(statistics.getSampleCount()).isEqualTo(AccessStatistics.WINDOW_SIZE);
+        assertThat(statistics.getTotalAccesses()).isEqualTo(2 * AccessStatistics.WINDOW_SIZE);
+        assertThat(statistics.getTotalFailures()).isEqualTo(AccessStatistics.WINDOW_SIZE);
+        assertThat(statistics.getErrorRate()).isEqualTo(0.0);
+        assertThat(statistics.getMeanLatency()).isEqualTo(5.0);
+    }
+
+}
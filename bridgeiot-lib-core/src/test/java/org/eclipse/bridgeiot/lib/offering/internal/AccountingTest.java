@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.bridgeiot.lib.offering.internal.Accounting.AccountingReport;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.junit.Test;
+
+public class AccountingTest {
+
+    @Test
+    public void countsBytesAndRecordsOfInMemoryBody() {
+        // Arrange
+        Accounting accounting = Accounting.create("Provider-Parking");
+        BridgeIotHttpResponse response = BridgeIotHttpResponse.okay().asJsonType().withBody("[ 1, 2, 3 ]");
+
+        // Act
+        accounting.addEvent("sub", "session", response);
+
+        // Assert
+        AccountingRecord record = accounting.getReports().get(0).getRecord();
+        assertThat(record.getTotalAccesses()).isEqualTo(1);
+        assertThat(record.getTotalBytes()).isEqualTo(11);
+        assertThat(record.getTotalDataRecords()).isEqualTo(3);
+    }
+
+    @Test
+    public void countsBytesOfStreamedBodyWhenWritten() throws IOException {
+        // Arrange
+        Accounting accounting = Accounting.create("Provider-Parking");
+        BridgeIotHttpResponse response = BridgeIotHttpResponse.okay()
+                .withBody(new ByteArrayInputStream(new byte[4096]));
+
+        // Act
+        accounting.addEvent("sub", "session", response);
+        long bytesBeforeWrite = accounting.getReports().get(0).getRecord().getTotalBytes();
+        response.writeBodyTo(new ByteArrayOutputStream());
+
+        // Assert
+        List<AccountingReport> reports = accounting.getReports();
+        assertThat(bytesBeforeWrite).isEqualTo(0);
+        assertThat(reports).hasSize(1);
+        assertThat(reports.get(0).getRecord().getTotalAccesses()).isEqualTo(1);
+        assertThat(reports.get(0).getRecord().getTotalBytes()).isEqualTo(4096);
+    }
+
+}
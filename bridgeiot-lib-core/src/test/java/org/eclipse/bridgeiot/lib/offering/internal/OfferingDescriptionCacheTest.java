@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.offering.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.eclipse.bridgeiot.lib.model.Activation;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.LicenseType;
+import org.eclipse.bridgeiot.lib.model.Price;
+import org.eclipse.bridgeiot.lib.model.RDFType;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OfferingDescriptionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void offeringDescriptionsSurviveReopening() throws Exception {
+        // Arrange
+        File file = folder.newFile("offerings.cache");
+        OfferingDescriptionCache cacheUnderTest = OfferingDescriptionCache.open(file);
+        cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:ParkingSpaceCategory"));
+        cacheUnderTest.put(createOffering("Provider-weather", "urn:big-iot:WeatherCategory"));
+        long versionStamp = cacheUnderTest.getEntry("Provider-parking").getVersionStamp();
+        cacheUnderTest.close();
+
+        // Act
+        OfferingDescriptionCache reopenedCache = OfferingDescriptionCache.open(file);
+        OfferingDescription parking = reopenedCache.get("Provider-parking");
+
+        // Assert
+        assertThat(reopenedCache.getOfferingIds()).containsOnly("Provider-parking", "Provider-weather");
+        assertThat(parking.getRdfType().getUri()).isEqualTo("urn:big-iot:ParkingSpaceCategory");
+        assertThat(parking.getLicense()).isEqualTo(LicenseType.OPEN_DATA_LICENSE);
+        assertThat(parking.getActivation().getStatus()).isTrue();
+        assertThat(reopenedCache.getEntry("Provider-parking").getVersionStamp()).isEqualTo(versionStamp);
+        assertThat(reopenedCache.get("Provider-unknown")).isNull();
+        reopenedCache.close();
+    }
+
+    @Test
+    public void unchangedOfferingDescriptionIsNotWrittenAgain() throws Exception {
+        // Arrange
+        File file = folder.newFile("offerings.cache");
+        OfferingDescriptionCache cacheUnderTest = OfferingDescriptionCache.open(file);
+        cacheUnderTest.withRevalidationInterval(60000);
+
+        // Act
+        boolean added = cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:ParkingSpaceCategory"));
+        long sizeAfterAdd = file.length();
+        boolean unchanged = cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:ParkingSpaceCategory"));
+        long sizeAfterRevalidation = file.length();
+        boolean changed = cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:WeatherCategory"));
+
+        // Assert
+        assertThat(added).isTrue();
+        assertThat(unchanged).isFalse();
+        assertThat(sizeAfterRevalidation).isEqualTo(sizeAfterAdd);
+        assertThat(changed).isTrue();
+        assertThat(cacheUnderTest.needsRevalidation("Provider-parking")).isFalse();
+        assertThat(cacheUnderTest.get("Provider-parking").getRdfType().getUri())
+                .isEqualTo("urn:big-iot:WeatherCategory");
+        assertThat(cacheUnderTest.getSupersededRecords()).isEqualTo(1);
+        cacheUnderTest.close();
+    }
+
+    @Test
+    public void removedAndTruncatedRecordsAreDropped() throws Exception {
+        // Arrange
+        File file = folder.newFile("offerings.cache");
+        OfferingDescriptionCache cacheUnderTest = OfferingDescriptionCache.open(file);
+        cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:ParkingSpaceCategory"));
+        cacheUnderTest.put(createOffering("Provider-weather", "urn:big-iot:WeatherCategory"));
+        cacheUnderTest.remove("Provider-weather");
+        long validLength = file.length();
+        cacheUnderTest.put(createOffering("Provider-traffic", "urn:big-iot:TrafficCategory"));
+        // simulate a crash while writing the last record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 5);
+        }
+
+        // Act
+        OfferingDescriptionCache reopenedCache = OfferingDescriptionCache.open(file);
+
+        // Assert
+        assertThat(reopenedCache.getOfferingIds()).containsOnly("Provider-parking");
+        assertThat(file.length()).isEqualTo(validLength);
+        reopenedCache.close();
+    }
+
+    @Test
+    public void corruptRecordResetsCache() throws Exception {
+        // Arrange
+        File file = folder.newFile("offerings.cache");
+        byte[] id = "Provider-parking".getBytes("UTF-8");
+        ByteBuffer content = ByteBuffer.allocate(8 + 4 + 1 + 8 + 8 + 2 + id.length + 4);
+        content.putInt(0x42494f43).putInt(1);
+        // the payload length exceeds the record
+        content.putInt(1 + 8 + 8 + 2 + id.length + 4).put((byte) 1).putLong(1L).putLong(0L)
+                .putShort((short) id.length).put(id).putInt(1000);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.array());
+        }
+
+        // Act
+        OfferingDescriptionCache cacheUnderTest = OfferingDescriptionCache.open(file);
+        cacheUnderTest.put(createOffering("Provider-weather", "urn:big-iot:WeatherCategory"));
+        cacheUnderTest.close();
+        OfferingDescriptionCache reopenedCache = OfferingDescriptionCache.open(file);
+
+        // Assert
+        assertThat(reopenedCache.getOfferingIds()).containsOnly("Provider-weather");
+        reopenedCache.close();
+    }
+
+    @Test
+    public void activationExpirationDoesNotChangeVersionStamp() throws Exception {
+        // Arrange
+        File file = folder.newFile("offerings.cache");
+        OfferingDescriptionCache cacheUnderTest = OfferingDescriptionCache.open(file);
+        OfferingDescription offering = createOffering("Provider-parking", "urn:big-iot:ParkingSpaceCategory");
+        cacheUnderTest.put(offering);
+        long sizeAfterAdd = file.length();
+
+        // Act
+        offering.setActivation(new Activation(true, 1234L));
+        boolean changed = cacheUnderTest.put(offering);
+        long sizeAfterRevalidation = file.length();
+        cacheUnderTest.close();
+        OfferingDescriptionCache reopenedCache = OfferingDescriptionCache.open(file);
+
+        // Assert
+        assertThat(changed).isFalse();
+        assertThat(sizeAfterRevalidation).isEqualTo(sizeAfterAdd);
+        assertThat(reopenedCache.get("Provider-parking").getActivation().getExpirationTime()).isEqualTo(1234L);
+        reopenedCache.close();
+    }
+
+    @Test
+    public void compactedCacheRemainsWritable() throws Exception {
+        // Arrange
+        File file = folder.newFile("offerings.cache");
+        OfferingDescriptionCache cacheUnderTest = OfferingDescriptionCache.open(file);
+        cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:ParkingSpaceCategory"));
+        cacheUnderTest.put(createOffering("Provider-parking", "urn:big-iot:WeatherCategory"));
+
+        // Act
+        cacheUnderTest.compact();
+        OfferingDescription compacted = cacheUnderTest.get("Provider-parking");
+        cacheUnderTest.put(createOffering("Provider-traffic", "urn:big-iot:TrafficCategory"));
+        cacheUnderTest.close();
+        OfferingDescriptionCache reopenedCache = OfferingDescriptionCache.open(file);
+
+        // Assert
+        assertThat(compacted.getRdfType().getUri()).isEqualTo("urn:big-iot:WeatherCategory");
+        assertThat(reopenedCache.getOfferingIds()).containsOnly("Provider-parking", "Provider-traffic");
+        assertThat(new File(file.getPath() + ".tmp")).doesNotExist();
+        reopenedCache.close();
+    }
+
+    OfferingDescription createOffering(String id, String category) {
+        OfferingDescription offeringDescription = new OfferingDescription();
+        offeringDescription.setId(id);
+        offeringDescription.setName(id);
+        offeringDescription.setRdfType(new RDFType(category));
+        offeringDescription.setLicense(LicenseType.OPEN_DATA_LICENSE);
+        offeringDescription.setPrice(Price.free());
+        offeringDescription.setActivation(new Activation(true, 0L));
+        return offeringDescription;
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.bridgeiot.lib.model.BoundingBox;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.LicenseType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.PricingModel;
+import org.eclipse.bridgeiot.lib.model.Location;
+import org.eclipse.bridgeiot.lib.model.Price;
+import org.eclipse.bridgeiot.lib.model.Price.Euros;
+import org.eclipse.bridgeiot.lib.model.RDFType;
+import org.eclipse.bridgeiot.lib.model.Region;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OfferingCatalogTest {
+
+    static final String PARKING = "urn:big-iot:ParkingSpaceCategory";
+    static final String WEATHER = "urn:big-iot:WeatherCategory";
+
+    OfferingCatalog<OfferingDescription> catalogUnderTest;
+
+    @Before
+    public void setUp() {
+        catalogUnderTest = OfferingCatalog.create();
+    }
+
+    @Test
+    public void queryByCategoryAndLicense() {
+        // Arrange
+        catalogUnderTest.add(createOffering("p1", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+        catalogUnderTest.add(createOffering("p2", PARKING, LicenseType.CREATIVE_COMMONS, Price.free(), null));
+        catalogUnderTest.add(createOffering("w1", WEATHER, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+
+        // Act
+        List<OfferingDescription> result = catalogUnderTest.query(new OfferingQueryChain("q")
+                .withCategory(PARKING).withLicenseType(LicenseType.OPEN_DATA_LICENSE));
+
+        // Assert
+        assertThat(ids(result)).containsExactly("p1");
+    }
+
+    @Test
+    public void queryByMaxPrice() {
+        // Arrange
+        catalogUnderTest.add(createOffering("cheap", PARKING, LicenseType.OPEN_DATA_LICENSE,
+                new Price(Euros.amount(0.001), PricingModel.PER_ACCESS), null));
+        catalogUnderTest.add(createOffering("expensive", PARKING, LicenseType.OPEN_DATA_LICENSE,
+                new Price(Euros.amount(0.01), PricingModel.PER_ACCESS), null));
+        catalogUnderTest.add(createOffering("monthly", PARKING, LicenseType.OPEN_DATA_LICENSE,
+                new Price(Euros.amount(0.001), PricingModel.PER_MONTH), null));
+        catalogUnderTest.add(createOffering("free", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+
+        // Act
+        List<OfferingDescription> result = catalogUnderTest.query(new OfferingQueryChain("q")
+                .withPricingModel(PricingModel.PER_ACCESS).withMaxPrice(Euros.amount(0.005)));
+        List<OfferingDescription> freeOnly = catalogUnderTest.query(new OfferingQueryChain("q"));
+
+        // Assert
+        assertThat(ids(result)).containsOnly("cheap", "free");
+        assertThat(ids(freeOnly)).containsOnly("free");
+    }
+
+    @Test
+    public void queryByBoundingBoxAndCity() {
+        // Arrange
+        for (int i = 0; i < 200; i++) {
+            double lat = 40.0 + i * 0.1;
+            catalogUnderTest.add(createOffering("box" + i, PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(),
+                    Region.create(BoundingBox.create(Location.create(lat, 2.0), Location.create(lat + 0.05, 2.05)))));
+        }
+        catalogUnderTest.add(createOffering("barcelona", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(),
+                Region.create("Barcelona")));
+        catalogUnderTest.add(createOffering("anywhere", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+
+        // Act
+        List<OfferingDescription> inBox = catalogUnderTest.query(new OfferingQueryChain("q").inRegion(
+                BoundingBox.create(Location.create(41.02, 2.01), Location.create(41.22, 2.02))));
+        List<OfferingDescription> inCity = catalogUnderTest
+                .query(new OfferingQueryChain("q").inCity("barcelona"));
+
+        // Assert
+        assertThat(ids(inBox)).containsOnly("box10", "box11", "box12", "anywhere");
+        assertThat(ids(inCity)).containsOnly("barcelona", "anywhere");
+    }
+
+    @Test
+    public void queryRegionWithBoundingBoxAndName() {
+        // Arrange
+        Region region = Region.create("Barcelona");
+        region.setBoundingBox(BoundingBox.create(Location.create(41.3, 2.1), Location.create(41.5, 2.2)));
+        catalogUnderTest.add(createOffering("barcelona", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(),
+                region));
+
+        // Act
+        List<OfferingDescription> inBox = catalogUnderTest.query(new OfferingQueryChain("q").inRegion(
+                BoundingBox.create(Location.create(41.4, 2.15), Location.create(41.6, 2.3))));
+        List<OfferingDescription> inCity = catalogUnderTest
+                .query(new OfferingQueryChain("q").inCity("barcelona"));
+        catalogUnderTest.remove("barcelona");
+
+        // Assert
+        assertThat(ids(inBox)).containsExactly("barcelona");
+        assertThat(ids(inCity)).containsExactly("barcelona");
+        assertThat(catalogUnderTest.query(new OfferingQueryChain("q").inCity("barcelona"))).isEmpty();
+    }
+
+    @Test
+    public void addReplacesAndRemoveUnindexes() {
+        // Arrange
+        catalogUnderTest.add(createOffering("p1", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+        catalogUnderTest.add(createOffering("p1", WEATHER, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+
+        // Act
+        List<OfferingDescription> parking = catalogUnderTest.query(new OfferingQueryChain("q").withCategory(PARKING));
+        List<OfferingDescription> weather = catalogUnderTest.query(new OfferingQueryChain("q").withCategory(WEATHER));
+        catalogUnderTest.remove("p1");
+
+        // Assert
+        assertThat(parking).isEmpty();
+        assertThat(ids(weather)).containsExactly("p1");
+        assertThat(catalogUnderTest.size()).isEqualTo(0);
+        assertThat(catalogUnderTest.query(new OfferingQueryChain("q").withCategory(WEATHER))).isEmpty();
+    }
+
+    @Test
+    public void priceWithoutPricingModelIsNotPriceIndexed() {
+        // Arrange
+        List<OfferingDescription> discovered = Arrays.asList(
+                createOffering("unpriced", PARKING, LicenseType.OPEN_DATA_LICENSE,
+                        new Price(Euros.amount(0.001), null), null),
+                createOffering("free", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null));
+
+        // Act
+        catalogUnderTest.addAll(discovered);
+        List<OfferingDescription> priced = catalogUnderTest.query(new OfferingQueryChain("q")
+                .withPricingModel(PricingModel.PER_ACCESS).withMaxPrice(Euros.amount(0.005)));
+        catalogUnderTest.remove("unpriced");
+
+        // Assert
+        assertThat(ids(priced)).containsExactly("free");
+        assertThat(catalogUnderTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void queryResultReplacesPreviousResult() {
+        // Arrange
+        OfferingDescription p1 = createOffering("p1", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null);
+        OfferingDescription p2 = createOffering("p2", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null);
+        OfferingDescription p3 = createOffering("p3", PARKING, LicenseType.OPEN_DATA_LICENSE, Price.free(), null);
+        catalogUnderTest.replaceQueryResult("q1", Arrays.asList(p1, p2, p3));
+        catalogUnderTest.replaceQueryResult("q2", Arrays.asList(p2));
+
+        // Act
+        catalogUnderTest.replaceQueryResult("q1", Arrays.asList(p1));
+
+        // Assert
+        assertThat(ids(catalogUnderTest.query(new OfferingQueryChain("q").withCategory(PARKING))))
+                .containsOnly("p1", "p2");
+        assertThat(catalogUnderTest.get("p3")).isNull();
+    }
+
+    OfferingDescription createOffering(String id, String category, LicenseType license, Price price,
+            Region region) {
+        OfferingDescription offeringDescription = new OfferingDescription();
+        offeringDescription.setId(id);
+        offeringDescription.setRdfType(new RDFType(category));
+        offeringDescription.setLicense(license);
+        offeringDescription.setPrice(price);
+        offeringDescription.setRegion(region);
+        return offeringDescription;
+    }
+
+    List<String> ids(List<OfferingDescription> offeringDescriptions) {
+        List<String> ids = new ArrayList<>();
+        for (OfferingDescription offeringDescription : offeringDescriptions) {
+            ids.add(offeringDescription.getId());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler.ResponseCallback;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.junit.Test;
+
+public class AccessRequestHandlersTest {
+
+    @Test
+    public void blockingHandlerWaitsForAsyncResponse() {
+        // Arrange
+        AsyncAccessRequestHandler asyncHandler = new AsyncAccessRequestHandler() {
+            @Override
+            public void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+                    String subscriptionId, String sessionId, final ResponseCallback callback) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResponse(BridgeIotHttpResponse.okay().withBody("[ ]"));
+                    }
+                }).start();
+            }
+        };
+
+        // Act
+        BridgeIotHttpResponse response = AccessRequestHandlers.toBlocking(asyncHandler, 5000)
+                .processRequestHandler(null, new HashMap<String, Object>(), "subscription", "session");
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(BridgeIotHttpResponse.OK_STATUS);
+        assertThat(response.getBody()).isEqualTo("[ ]");
+    }
+
+    @Test
+    public void blockingHandlerTimesOutAndReportsFailures() {
+        // Arrange
+        AsyncAccessRequestHandler silentHandler = new AsyncAccessRequestHandler() {
+            @Override
+            public void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+                    String subscriptionId, String sessionId, ResponseCallback callback) {
+            }
+        };
+        AsyncAccessRequestHandler failingHandler = new AsyncAccessRequestHandler() {
+            @Override
+            public void processRequestHandler(OfferingDescription offeringDescription, Map<String, Object> inputData,
+                    String subscriptionId, String sessionId, ResponseCallback callback) {
+                callback.onFailure(new IllegalStateException("backend down"));
+            }
+        };
+
+        // Act
+        BridgeIotHttpResponse timeout = AccessRequestHandlers.toBlocking(silentHandler, 50)
+                .processRequestHandler(null, null, null, null);
+        BridgeIotHttpResponse failure = AccessRequestHandlers.toBlocking(failingHandler, 50)
+                .processRequestHandler(null, null, null, null);
+
+        // Assert
+        assertThat(timeout.getStatus()).isEqualTo(AccessRequestHandlers.GATEWAY_TIMEOUT_STATUS);
+        assertThat(failure.getStatus()).isEqualTo(BridgeIotHttpResponse.ERROR_STATUS);
+    }
+
+    @Test
+    public void asyncHandlerRespondsInline() {
+        // Arrange
+        AccessRequestHandler syncHandler = new AccessRequestHandler() {
+            @Override
+            public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                    Map<String, Object> inputData, String subscriptionId, String sessionId) {
+                throw new IllegalArgumentException("invalid input");
+            }
+        };
+        final AtomicReference<Throwable> result = new AtomicReference<>();
+
+        // Act
+        AccessRequestHandlers.toAsync(syncHandler).processRequestHandler(null, null, null, null,
+                new ResponseCallback() {
+                    @Override
+                    public void onResponse(BridgeIotHttpResponse response) {
+                    }
+
+                    @Override
+                    public void onFailure(Throwable failure) {
+                        result.set(failure);
+                    }
+                });
+
+        // Assert
+        assertThat(result.get()).isInstanceOf(IllegalArgumentException.class).hasMessage("invalid input");
+    }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse.BodyListener;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse.BodyWriter;
+import org.junit.Test;
+
+public class BridgeIotHttpResponseTest {
+
+    @Test
+    public void inMemoryBodiesHaveKnownLength() throws IOException {
+        // Arrange
+        BridgeIotHttpResponse stringResponse = BridgeIotHttpResponse.okay().withBody("[ \"ä\" ]");
+        BridgeIotHttpResponse bytesResponse = BridgeIotHttpResponse.okay()
+                .withBody("[ 1 ]".getBytes(StandardCharsets.UTF_8));
+        BridgeIotHttpResponse bufferResponse = BridgeIotHttpResponse.okay()
+                .withBody(ByteBuffer.wrap("[ 1, 2 ]".getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long written = bufferResponse.writeBodyTo(out);
+
+        // Assert
+        assertThat(stringResponse.getContentLength()).isEqualTo(8);
+        assertThat(bytesResponse.getContentLength()).isEqualTo(5);
+        assertThat(bytesResponse.getBody()).isEqualTo("[ 1 ]");
+        assertThat(bufferResponse.isStreamed()).isFalse();
+        assertThat(written).isEqualTo(8);
+        assertThat(out.toString("UTF-8")).isEqualTo("[ 1, 2 ]");
+        assertThat(bufferResponse.getBody()).isEqualTo("[ 1, 2 ]");
+    }
+
+    @Test
+    public void streamedBodiesAreCountedWhileWritten() throws IOException {
+        // Arrange
+        final AtomicLong notified = new AtomicLong(-1);
+        BridgeIotHttpResponse writerResponse = BridgeIotHttpResponse.okay().withBody(new BodyWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                for (int i = 0; i < 1000; i++) {
+                    out.write('x');
+                }
+            }
+        }).addBodyListener(new BodyListener() {
+            @Override
+            public void bodyWritten(long byteCount, long wireByteCount) {
+                notified.set(byteCount);
+            }
+        });
+        BridgeIotHttpResponse streamResponse = BridgeIotHttpResponse.okay()
+                .withBody(new ByteArrayInputStream(new byte[20000]));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long writerBytes = writerResponse.writeBodyTo(out);
+        long streamBytes = streamResponse.writeBodyTo(out);
+
+        // Assert
+        assertThat(writerResponse.isStreamed()).isTrue();
+        assertThat(writerResponse.getContentLength()).isEqualTo(-1);
+        assertThat(writerResponse.getBody()).isNull();
+        assertThat(writerBytes).isEqualTo(1000);
+        assertThat(notified.get()).isEqualTo(1000);
+        assertThat(streamBytes).isEqualTo(20000);
+        assertThat(out.size()).isEqualTo(21000);
+    }
+
+    @Test
+    public void compressedBodiesReportWireBytes() throws IOException {
+        // Arrange
+        final AtomicLong wireBytes = new AtomicLong(-1);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ", ").append("{ \"free\": true }");
+        }
+        String body = json.append("]").toString();
+        BridgeIotHttpResponse response = BridgeIotHttpResponse.okay().withBody(body)
+                .addBodyListener(new BodyListener() {
+                    @Override
+                    public void bodyWritten(long byteCount, long wireByteCount) {
+                        wireBytes.set(wireByteCount);
+                    }
+                });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long written = response.writeBodyTo(out, HttpCompression.GZIP);
+
+        // Assert
+        assertThat(written).isEqualTo(body.length());
+        assertThat(wireBytes.get()).isEqualTo(out.size()).isLessThan(body.length() / 10);
+        assertThat(new String(HttpCompression.decode(out.toByteArray(), HttpCompression.GZIP),
+                StandardCharsets.UTF_8)).isEqualTo(body);
+    }
+
+    @Test
+    public void jsonArrayBodyWrapsSingleValues() {
+        // Act
+        BridgeIotHttpResponse array = BridgeIotHttpResponse.okay().withJsonArrayBody(" \n[ { \"a\": 1 } ]");
+        BridgeIotHttpResponse object = BridgeIotHttpResponse.okay().withJsonArrayBody("{ \"a\": \"ä\" }");
+        BridgeIotHttpResponse number = BridgeIotHttpResponse.okay().withJsonArrayBody("42", true);
+
+        // Assert
+        assertThat(array.getBody()).isEqualTo(" \n[ { \"a\": 1 } ]");
+        assertThat(object.getBody()).isEqualTo("[{ \"a\": \"ä\" }]");
+        assertThat(object.getContentLength()).isEqualTo(15);
+        assertThat(number.getBody()).isEqualTo("[42]");
+    }
+
+    @Test
+    public void jsonArrayBodyIsNotValidatedByDefault() {
+        // Act
+        BridgeIotHttpResponse response = BridgeIotHttpResponse.okay().withJsonArrayBody("[ 1, ");
+
+        // Assert
+        assertThat(response.getBody()).isEqualTo("[ 1, ");
+    }
+
+    @Test(expected = BridgeIoTException.class)
+    public void jsonArrayBodyValidationStopsAtSyntaxError() {
+        // Act
+        BridgeIotHttpResponse.okay().withJsonArrayBody("[ 1, ", true);
+    }
+
+    @Test(expected = BridgeIoTException.class)
+    public void jsonArrayBodyValidationRejectsTrailingContent() {
+        // Act
+        BridgeIotHttpResponse.okay().withJsonArrayBody("{ } { }", true);
+    }
+
+    @Test(expected = BridgeIoTException.class)
+    public void jsonArrayBodyRejectsBlankBody() {
+        // Act
+        BridgeIotHttpResponse.okay().withJsonArrayBody(" \n\t ");
+    }
+
+    @Test
+    public void jsonArrayBodySkipsByteOrderMark() {
+        // Act
+        BridgeIotHttpResponse array = BridgeIotHttpResponse.okay().withJsonArrayBody("\uFEFF[ 1 ]", true);
+        BridgeIotHttpResponse object = BridgeIotHttpResponse.okay().withJsonArrayBody("\uFEFF{ }");
+
+        // Assert
+        assertThat(array.getBody()).isEqualTo("[ 1 ]");
+        assertThat(object.getBody()).isEqualTo("[{ }]");
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.misc.Helper;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+
+public class PrecomputedAccessRequestHandlerTest {
+
+    AccessRequestHandler handlerMock;
+    PrecomputedAccessRequestHandler handlerUnderTest;
+
+    @Before
+    public void setUp() {
+        handlerMock = mock(AccessRequestHandler.class);
+        handlerUnderTest = PrecomputedAccessRequestHandler.create(handlerMock, 60000);
+    }
+
+    @Test
+    public void servesPrecomputedResponseUntilInvalidated() {
+        // Arrange
+        when(handlerMock.processRequestHandler(any(OfferingDescription.class),
+                ArgumentMatchers.<String, Object> anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody("[ 1 ]"),
+                        BridgeIotHttpResponse.okay().withBody("[ 1 ]"),
+                        BridgeIotHttpResponse.okay().withBody("[ 2 ]"));
+
+        // Act
+        BridgeIotHttpResponse first = access();
+        BridgeIotHttpResponse cached = access();
+        handlerUnderTest.invalidate();
+        BridgeIotHttpResponse unchanged = access();
+        handlerUnderTest.invalidate();
+        BridgeIotHttpResponse changed = access();
+
+        // Assert
+        assertThat(cached.getBody()).isEqualTo("[ 1 ]");
+        assertThat(cached.getHeaders().get("ETag")).startsWith("\"").isEqualTo(first.getHeaders().get("ETag"));
+        assertThat(unchanged.getHeaders()).isEqualTo(first.getHeaders());
+        assertThat(changed.getBody()).isEqualTo("[ 2 ]");
+        assertThat(changed.getHeaders().get("ETag")).isNotEqualTo(first.getHeaders().get("ETag"));
+        assertThat(handlerUnderTest.getInvocationCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void expiresAfterTimeToLiveAndPassesErrorsOn() {
+        // Arrange
+        handlerUnderTest = PrecomputedAccessRequestHandler.create(handlerMock, 0);
+        when(handlerMock.processRequestHandler(any(OfferingDescription.class),
+                ArgumentMatchers.<String, Object> anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody("[ 1 ]"), BridgeIotHttpResponse.error());
+
+        // Act
+        access();
+        BridgeIotHttpResponse error = access();
+
+        // Assert
+        assertThat(error.getStatus()).isEqualTo("500");
+        assertThat(error.getHeaders()).doesNotContainKey("ETag");
+        assertThat(handlerUnderTest.getInvocationCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void answersConditionalRequests() {
+        // Arrange
+        when(handlerMock.processRequestHandler(any(OfferingDescription.class),
+                ArgumentMatchers.<String, Object> anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody("[ 1 ]"));
+        BridgeIotHttpResponse response = access();
+        String eTag = response.getHeaders().get("ETag");
+        String lastModified = response.getHeaders().get("Last-Modified");
+
+        // Act & Assert
+        assertThat(response.isNotModified(eTag, null)).isTrue();
+        assertThat(response.isNotModified("\"other\", W/" + eTag, null)).isTrue();
+        assertThat(response.isNotModified("\"other\"", lastModified)).isFalse();
+        assertThat(response.isNotModified(null, lastModified)).isTrue();
+        assertThat(response.isNotModified(null, Helper.formatHttpDate(0))).isFalse();
+        assertThat(response.isNotModified(null, null)).isFalse();
+    }
+
+    @Test
+    public void writesPrecompressedBody() throws IOException {
+        // Arrange
+        StringBuilder builder = new StringBuilder("[ ");
+        for (int i = 0; i < 500; i++) {
+            builder.append("{ \"free\": true }, ");
+        }
+        final String body = builder.append("{ } ]").toString();
+        when(handlerMock.processRequestHandler(any(OfferingDescription.class),
+                ArgumentMatchers.<String, Object> anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody(body));
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        ByteArrayOutputStream identity = new ByteArrayOutputStream();
+
+        // Act
+        access().writeBodyTo(gzip, HttpCompression.GZIP);
+        access().writeBodyTo(identity, null);
+
+        // Assert
+        assertThat(gzip.size()).isLessThan(body.length() / 10);
+        assertThat(new String(HttpCompression.decode(gzip.toByteArray(), HttpCompression.GZIP),
+                StandardCharsets.UTF_8)).isEqualTo(body);
+        assertThat(identity.toString("UTF-8")).isEqualTo(body);
+        assertThat(handlerUnderTest.getInvocationCount()).isEqualTo(1);
+    }
+
+    BridgeIotHttpResponse access() {
+        return handlerUnderTest.processRequestHandler(new OfferingDescription(),
+                Collections.<String, Object> emptyMap(), "subscription", "session");
+    }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.serverwrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class RouteConcurrencyLimiterTest {
+
+    @Test
+    public void shedsRequestsAboveLimitPerRoute() {
+        // Arrange
+        RouteConcurrencyLimiter limiterUnderTest = RouteConcurrencyLimiter.create(2);
+
+        // Act
+        boolean first = limiterUnderTest.tryAcquire("parking");
+        boolean second = limiterUnderTest.tryAcquire("parking");
+        boolean third = limiterUnderTest.tryAcquire("parking");
+        boolean otherRoute = limiterUnderTest.tryAcquire("weather");
+        limiterUnderTest.release("parking");
+        boolean afterRelease = limiterUnderTest.tryAcquire("parking");
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(otherRoute).isTrue();
+        assertThat(afterRelease).isTrue();
+        assertThat(limiterUnderTest.getActiveRequests("parking")).isEqualTo(2);
+        assertThat(limiterUnderTest.getActiveRequests("weather")).isEqualTo(1);
+    }
+
+    @Test
+    public void admitsAllRequestsWhenUnlimited() {
+        // Arrange
+        RouteConcurrencyLimiter limiterUnderTest = RouteConcurrencyLimiter.create(new ServerOptions());
+
+        // Act
+        boolean admitted = true;
+        for (int i = 0; i < 1000; i++) {
+            admitted &= limiterUnderTest.tryAcquire("parking");
+        }
+
+        // Assert
+        assertThat(admitted).isTrue();
+        assertThat(limiterUnderTest.isUnlimited()).isTrue();
+        assertThat(limiterUnderTest.getActiveRequests("parking")).isEqualTo(0);
+    }
+
+}
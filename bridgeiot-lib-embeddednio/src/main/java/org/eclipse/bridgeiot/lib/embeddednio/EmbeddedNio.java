@@ -0,0 +1,603 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.embeddednio;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler.ResponseCallback;
+import org.eclipse.bridgeiot.lib.handlers.ProxyAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.misc.Constants;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.serverwrapper.AccessRequestHandlers;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer;
+import org.eclipse.bridgeiot.lib.serverwrapper.RouteConcurrencyLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Event loop based alternative to the Spark server wrapper. Connections are multiplexed by a single selector thread of
+ * the JDK HTTP server (epoll based on Linux) which supports persistent HTTP/1.1 connections. Access request handlers
+ * run on a bounded pool of worker threads, i.e. they never block the I/O loop. If all workers are busy and the request
+ * queue is full, the I/O loop sheds load by answering further requests with 503 (Service Unavailable) and a
+ * Retry-After header.
+ * <p>
+ * Routes served by an {@link AsyncAccessRequestHandler} release their worker thread as soon as the handler returns;
+ * the request is answered from the thread calling the response callback. A small worker pool can therefore keep many
+ * slow backend calls in flight. Requests the handler does not answer within the async response timeout of the server
+ * options are answered with 504 (Gateway Timeout).
+ * <p>
+ * All routes are served by one dispatcher, which looks up the route of a request in a concurrent route table.
+ */
+public class EmbeddedNio extends EmbededdedRouteBasedServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedNio.class);
+
+    private static final String PROXY_ROUTE = "bigiot/proxy/access/";
+    private static final String REMOVED_OFFERING_MESSAGE = "This Offering has been removed!";
+    private static final String JSON_TYPE = "application/json";
+
+    // set while a request rejected by the worker pool is run on the I/O thread
+    private static final ThreadLocal<Boolean> overloaded = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ServerOptionsNio serverOptions;
+    private final RouteConcurrencyLimiter limiter;
+    private volatile ProxyAccessRequestHandler proxyHandler = null;
+    private HttpServer server = null;
+    private ThreadPoolExecutor workerPool = null;
+    private volatile ScheduledThreadPoolExecutor timeoutScheduler = null;
+
+    private static class Route {
+
+        final AsyncAccessRequestHandler accessCallback;
+        final RegistrableOfferingDescription offeringDescription;
+        final boolean authorizationRequired;
+
+        Route(AsyncAccessRequestHandler accessCallback, RegistrableOfferingDescription offeringDescription,
+                boolean authorizationRequired) {
+            this.accessCallback = accessCallback;
+            this.offeringDescription = offeringDescription;
+            this.authorizationRequired = authorizationRequired;
+        }
+
+        boolean isRemoved() {
+            return accessCallback == null;
+        }
+
+    }
+
+    public EmbeddedNio(String domain, int port) {
+        this(domain, port, "", ServerOptionsNio.defaultOptions);
+    }
+
+    public EmbeddedNio(String domain, int port, String baseRoute, ServerOptionsNio serverOptions) {
+        super(domain, baseRoute, port);
+        this.serverOptions = (serverOptions != null) ? serverOptions : ServerOptionsNio.create();
+        this.limiter = RouteConcurrencyLimiter.create(this.serverOptions);
+    }
+
+    /**
+     * Starts an HTTPS server with the keystore bundled with the lib
+     */
+    @Override
+    public void start() {
+        try (InputStream keyStore = getResourceKeystoreInputStream()) {
+            start(createSslContext(keyStore, getResourceKeystorePassword()));
+        } catch (IOException e) {
+            throw new BridgeIoTException("Loading server keystore failed", e);
+        }
+    }
+
+    @Override
+    public void start(String keyStoreFile, String keyStorePassword) {
+        if ((keyStoreFile == null) || keyStoreFile.isEmpty()) {
+            keyStoreFile = getDefaultKeystoreFile();
+        }
+        if ((keyStorePassword == null) || keyStorePassword.isEmpty()) {
+            keyStorePassword = getDefaultKeystorePassword();
+        }
+        try (InputStream keyStore = new FileInputStream(keyStoreFile)) {
+            start(createSslContext(keyStore, keyStorePassword));
+        } catch (IOException e) {
+            throw new BridgeIoTException("Loading server keystore " + keyStoreFile + " failed", e);
+        }
+    }
+
+    /**
+     * Starts a plain HTTP server
+     */
+    public void startHttp() {
+        start(null);
+    }
+
+    private synchronized void start(SSLContext sslContext) {
+        if (server != null) {
+            return;
+        }
+        try {
+            InetSocketAddress address = new InetSocketAddress(port);
+            if (sslContext != null) {
+                HttpsServer httpsServer = HttpsServer.create(address, serverOptions.getBacklog());
+                httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+                server = httpsServer;
+            } else {
+                server = HttpServer.create(address, serverOptions.getBacklog());
+            }
+        } catch (IOException e) {
+            throw new BridgeIoTException("Starting web service on port " + port + " failed", e);
+        }
+
+        workerPool = createWorkerPool(serverOptions);
+        timeoutScheduler = createTimeoutScheduler();
+        server.setExecutor(workerPool);
+        server.createContext("/", this::dispatch);
+        server.start();
+        port = server.getAddress().getPort();
+
+        logger.info("Start web service for A1 interface at: {} ({} worker threads)", getBaseUrl(),
+                serverOptions.getWorkerThreads());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            workerPool.shutdown();
+            timeoutScheduler.shutdownNow();
+            server = null;
+            workerPool = null;
+            timeoutScheduler = null;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on (the bound port if the server has been started with port 0)
+     */
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    protected String getProtocolName() {
+        return (server instanceof HttpsServer) ? "https" : "http";
+    }
+
+    @Override
+    public void addRoute(final String route, final AccessRequestHandler accessCallback,
+            final RegistrableOfferingDescription offeringDescription, final boolean authorizationRequired) {
+        addRoute(route, AccessRequestHandlers.toAsync(accessCallback), offeringDescription, authorizationRequired);
+    }
+
+    /**
+     * Adds a route served by an asynchronous access request handler. The request is completed when the handler
+     * responds; no worker thread is held while the response is pending.
+     */
+    @Override
+    public void addRoute(final String route, final AsyncAccessRequestHandler accessCallback,
+            final RegistrableOfferingDescription offeringDescription, final boolean authorizationRequired) {
+        Route previous = routes.put(route, new Route(accessCallback, offeringDescription, authorizationRequired));
+        if ((previous != null) && !previous.isRemoved()) {
+            logger.info("Adding a route a second Time: Check code!");
+        }
+    }
+
+    @Override
+    public long getAsyncResponseTimeoutMillis() {
+        return serverOptions.getAsyncResponseTimeoutMillis();
+    }
+
+    @Override
+    public void removeRoute(String route) {
+        Route previous = routes.replace(route, new Route(null, null, false));
+        if ((previous == null) || previous.isRemoved()) {
+            logger.error("ERROR: Cannot remove route ({}) for an undeployed Offering", route);
+        }
+    }
+
+    @Override
+    public List<String> getRoutes() {
+        List<String> activeRoutes = new ArrayList<>();
+        for (Entry<String, Route> entry : routes.entrySet()) {
+            if (!entry.getValue().isRemoved()) {
+                activeRoutes.add(entry.getKey());
+            }
+        }
+        return activeRoutes;
+    }
+
+    public void activateProxy(ProxyAccessRequestHandler accessCallback) {
+        this.proxyHandler = accessCallback;
+    }
+
+    /**
+     * Dispatches a request to its route; runs on a worker thread
+     */
+    void dispatch(HttpExchange exchange) throws IOException {
+        boolean pending = false;
+        try {
+            if (Boolean.TRUE.equals(overloaded.get())) {
+                logger.warn("Rejecting request {}: all worker threads are busy", exchange.getRequestURI());
+                send(exchange, 503, "text/plain", "Server overloaded, retry later", retryAfterHeader());
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "Method not allowed", null);
+                return;
+            }
+
+            String path = trimSlashes(exchange.getRequestURI().getPath());
+            String base = trimSlashes(baseRoute);
+            if (path.equals(base)) {
+                send(exchange, 200, JSON_TYPE, listRoutes(), null);
+            } else if ((proxyHandler != null) && path.startsWith(PROXY_ROUTE)) {
+                String offeringId = path.substring(path.lastIndexOf('/') + 1);
+                Map<String, Object> inputData = extractInputDataMap(
+                        parseQuery(exchange.getRequestURI().getRawQuery()));
+                send(exchange, 200, JSON_TYPE, proxyHandler.processRequestHandler(offeringId, inputData), null);
+            } else {
+                String routeName = base.isEmpty() ? path
+                        : path.startsWith(base + "/") ? path.substring(base.length() + 1) : null;
+                Route route = (routeName != null) ? routes.get(routeName) : null;
+                if (route == null) {
+                    send(exchange, 404, "text/plain", "Not found", null);
+                } else if (route.isRemoved()) {
+                    logger.info("Request received for Offering that has been removed: {}, {}", path,
+                            exchange.getRemoteAddress());
+                    send(exchange, 200, JSON_TYPE, REMOVED_OFFERING_MESSAGE, null);
+                } else {
+                    pending = access(exchange, routeName, route);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Processing request {} failed", exchange.getRequestURI(), e);
+            // once the headers are out, the response can only be cut short by closing the exchange
+            if (!isResponseStarted(exchange)) {
+                send(exchange, 500, "text/plain", "Internal server error", null);
+            }
+        } finally {
+            if (!pending) {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Hands a request over to its access request handler
+     *
+     * @return true if the handler has taken over the request, i.e. the exchange is closed when the handler responds
+     */
+    private boolean access(final HttpExchange exchange, final String routeName, Route route) throws IOException {
+        logger.info("Access Request received: {}, {}", exchange.getRequestURI(), exchange.getRemoteAddress());
+
+        final String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
+        if (!checkAccessToken(route.authorizationRequired, authHeader, route.offeringDescription)) {
+            send(exchange, 401, "text/plain", "OfferingAccessToken missing, invalid or expired!!!", null);
+            return false;
+        }
+
+        Map<String, Object> inputData = extractInputDataMap(parseQuery(exchange.getRequestURI().getRawQuery()));
+        String subscriptionId = getSubscriptionId(authHeader);
+        // without server side sessions, the connection (kept alive by the consumer) identifies the session
+        InetSocketAddress remoteAddress = exchange.getRemoteAddress();
+        String accessSessionId = createAccessSessionId(exchange.getRequestHeaders().getFirst("AccessSessionId"),
+                getSubscriberId(authHeader), remoteAddress.getAddress().getHostAddress(),
+                String.valueOf(remoteAddress.getPort()), inputData);
+
+        if (!limiter.tryAcquire(routeName)) {
+            send(exchange, 503, "text/plain", "Too many concurrent requests, retry later", retryAfterHeader());
+            return false;
+        }
+
+        PendingResponse callback = new PendingResponse(exchange, routeName);
+        ScheduledThreadPoolExecutor scheduler = timeoutScheduler;
+        if (scheduler != null) {
+            callback.timeout = scheduler.schedule(callback, serverOptions.getAsyncResponseTimeoutMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            route.accessCallback.processRequestHandler(route.offeringDescription, inputData, subscriptionId,
+                    accessSessionId, callback);
+        } catch (RuntimeException e) {
+            callback.onFailure(e);
+        }
+        return true;
+    }
+
+    /**
+     * Completes an exchange handed over to an access request handler exactly once: with the response of the handler,
+     * with 500 on a failure or with 504 when the handler does not respond in time
+     */
+    private class PendingResponse implements ResponseCallback, Runnable {
+
+        private final HttpExchange exchange;
+        private final String routeName;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        volatile ScheduledFuture<?> timeout = null;
+
+        PendingResponse(HttpExchange exchange, String routeName) {
+            this.exchange = exchange;
+            this.routeName = routeName;
+        }
+
+        @Override
+        public void onResponse(BridgeIotHttpResponse response) {
+            complete(JSON_TYPE, response);
+        }
+
+        @Override
+        public void onFailure(Throwable failure) {
+            logger.error("Processing request {} failed", exchange.getRequestURI(), failure);
+            complete("text/plain", BridgeIotHttpResponse.error().withBody("Internal server error"));
+        }
+
+        /**
+         * Answers the request with 504 when the async response timeout expires
+         */
+        @Override
+        public void run() {
+            if (!completed.get()) {
+                logger.warn("No response to request {} within {} ms", exchange.getRequestURI(),
+                        serverOptions.getAsyncResponseTimeoutMillis());
+                complete("text/plain", new BridgeIotHttpResponse(AccessRequestHandlers.GATEWAY_TIMEOUT_STATUS)
+                        .withBody("Gateway timeout"));
+            }
+        }
+
+        private void complete(String contentType, BridgeIotHttpResponse response) {
+            if (!completed.compareAndSet(false, true)) {
+                logger.warn("Request {} has already been answered", exchange.getRequestURI());
+                return;
+            }
+            ScheduledFuture<?> pendingTimeout = timeout;
+            if (pendingTimeout != null) {
+                pendingTimeout.cancel(false);
+            }
+            limiter.release(routeName);
+            try {
+                send(exchange, contentType, response, serverOptions.getCompressionThreshold());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Sending response to {} failed: {}", exchange.getRemoteAddress(), e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        }
+
+    }
+
+    private Map<String, String> retryAfterHeader() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", String.valueOf(serverOptions.getRetryAfterSeconds()));
+        return headers;
+    }
+
+    private static boolean isResponseStarted(HttpExchange exchange) {
+        return exchange.getResponseCode() != -1;
+    }
+
+    private String listRoutes() {
+        String baseUrl = getBaseUrl();
+        ObjectNode rootNode = mapper.createObjectNode();
+        ArrayNode arrayNode = rootNode.putArray("routes");
+        for (Map.Entry<String, Route> entry : routes.entrySet()) {
+            RegistrableOfferingDescription offeringDescription = entry.getValue().offeringDescription;
+            if (offeringDescription == null) {
+                continue;
+            }
+            ObjectNode childNode = arrayNode.addObject();
+            childNode.put("offering id", offeringDescription.getId());
+            if (entry.getKey().startsWith(Constants.SAMPLEDATA_ROUTE)) {
+                childNode.put("sampledata route", baseUrl + "/" + entry.getKey());
+            } else if (entry.getKey().startsWith(Constants.METADATA_ROUTE)) {
+                childNode.put("metadata route", baseUrl + "/" + entry.getKey());
+            } else if (offeringDescription.getEndpoints() != null) {
+                for (int i = 0; i < offeringDescription.getEndpoints().size(); i++) {
+                    childNode.put("access route" + i, offeringDescription.getEndpoints().get(i).getUri());
+                }
+            }
+        }
+        return rootNode.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body,
+            Map<String, String> headers) throws IOException {
+        byte[] bytes = (body != null) ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (headers != null) {
+            for (Entry<String, String> header : headers.entrySet()) {
+                exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+            }
+        }
+        // a known content length keeps the connection alive
+        exchange.sendResponseHeaders(status, (bytes.length > 0) ? bytes.length : -1);
+        if (bytes.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, String contentType, BridgeIotHttpResponse response,
+            int compressionThreshold) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        for (Entry<String, String> header : response.getHeaders().entrySet()) {
+            exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+        }
+        if (response.isNotModified(exchange.getRequestHeaders().getFirst("If-None-Match"),
+                exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+            exchange.sendResponseHeaders(Integer.parseInt(BridgeIotHttpResponse.NOT_MODIFIED_STATUS), -1);
+            return;
+        }
+        long contentLength = response.getContentLength();
+        int status = Integer.parseInt(response.getStatus());
+        if (contentLength == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        String contentEncoding = HttpCompression.selectEncoding(
+                exchange.getRequestHeaders().getFirst("Accept-Encoding"), contentLength, compressionThreshold);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (contentEncoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", contentEncoding);
+        }
+        // a length of 0 selects chunked transfer encoding for streamed and compressed bodies
+        exchange.sendResponseHeaders(status, (response.isStreamed() || (contentEncoding != null)) ? 0 : contentLength);
+        try (OutputStream os = exchange.getResponseBody()) {
+            response.writeBodyTo(os, contentEncoding);
+        }
+    }
+
+    /**
+     * Parses a raw query string into decoded parameter values (in the format of a servlet parameter map)
+     */
+    static Map<String, String[]> parseQuery(String rawQuery) {
+        Map<String, String[]> queryMap = new LinkedHashMap<>();
+        if ((rawQuery == null) || rawQuery.isEmpty()) {
+            return queryMap;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = decode((separator >= 0) ? pair.substring(0, separator) : pair);
+            String value = (separator >= 0) ? decode(pair.substring(separator + 1)) : "";
+            String[] values = queryMap.get(name);
+            if (values == null) {
+                queryMap.put(name, new String[] { value });
+            } else {
+                String[] extended = Arrays.copyOf(values, values.length + 1);
+                extended[values.length] = value;
+                queryMap.put(name, extended);
+            }
+        }
+        return queryMap;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = (path != null) ? path.length() : 0;
+        while ((start < end) && (path.charAt(start) == '/')) {
+            start++;
+        }
+        while ((end > start) && (path.charAt(end - 1) == '/')) {
+            end--;
+        }
+        return (start < end) ? path.substring(start, end) : "";
+    }
+
+    private static SSLContext createSslContext(InputStream keyStoreStream, String keyStorePassword) {
+        if (keyStoreStream == null) {
+            throw new BridgeIoTException("Server keystore not found");
+        }
+        try {
+            KeyStore keyStore = KeyStore.getInstance("JKS");
+            keyStore.load(keyStoreStream, keyStorePassword.toCharArray());
+            KeyManagerFactory keyManagerFactory = KeyManagerFactory
+                    .getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, keyStorePassword.toCharArray());
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+            return sslContext;
+        } catch (GeneralSecurityException | IOException e) {
+            throw new BridgeIoTException("Initializing TLS failed", e);
+        }
+    }
+
+    private static ThreadPoolExecutor createWorkerPool(ServerOptionsNio serverOptions) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(serverOptions.getWorkerThreads(),
+                serverOptions.getWorkerThreads(), 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(serverOptions.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "a1-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> {
+                    // load shedding: the I/O loop answers with 503 right away instead of waiting for a free slot
+                    if (!executor.isShutdown()) {
+                        overloaded.set(Boolean.TRUE);
+                        try {
+                            runnable.run();
+                        } finally {
+                            overloaded.remove();
+                        }
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "a1-response-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+}
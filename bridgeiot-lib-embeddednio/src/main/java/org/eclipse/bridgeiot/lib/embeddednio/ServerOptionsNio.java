@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.embeddednio;
+
+import org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer;
+import org.eclipse.bridgeiot.lib.serverwrapper.ServerOptions;
+
+/**
+ * Options of the {@link EmbeddedNio} server wrapper
+ */
+public class ServerOptionsNio extends ServerOptions {
+
+    public static final int DEFAULT_WORKER_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_BACKLOG = 0; // system default
+
+    public static ServerOptionsNio defaultOptions = create();
+
+    private int workerThreads = DEFAULT_WORKER_THREADS;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int backlog = DEFAULT_BACKLOG;
+    private long asyncResponseTimeoutMillis = EmbededdedRouteBasedServer.DEFAULT_ASYNC_RESPONSE_TIMEOUT_MILLIS;
+
+    public static ServerOptionsNio create() {
+        return new ServerOptionsNio();
+    }
+
+    /**
+     * Sets the number of worker threads running the access request handlers
+     *
+     * @param workerThreads
+     */
+    public ServerOptionsNio withWorkerThreads(int workerThreads) {
+        this.workerThreads = Math.max(1, workerThreads);
+        return this;
+    }
+
+    /**
+     * Sets the number of requests waiting for a free worker thread. If the queue is full, further requests are
+     * rejected with 503 (Service Unavailable) until a worker thread becomes available.
+     *
+     * @param queueCapacity
+     */
+    public ServerOptionsNio withQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        return this;
+    }
+
+    /**
+     * Sets the backlog of pending connections (0 for the system default)
+     *
+     * @param backlog
+     */
+    public ServerOptionsNio withBacklog(int backlog) {
+        this.backlog = Math.max(0, backlog);
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds an asynchronous access request handler has to respond before the request is
+     * answered with 504 (Gateway Timeout)
+     *
+     * @param asyncResponseTimeoutMillis
+     */
+    public ServerOptionsNio withAsyncResponseTimeout(long asyncResponseTimeoutMillis) {
+        this.asyncResponseTimeoutMillis = Math.max(1, asyncResponseTimeoutMillis);
+        return this;
+    }
+
+    @Override
+    public ServerOptionsNio withMaxConcurrentRequestsPerRoute(int maxConcurrentRequestsPerRoute) {
+        super.withMaxConcurrentRequestsPerRoute(maxConcurrentRequestsPerRoute);
+        return this;
+    }
+
+    @Override
+    public ServerOptionsNio withRetryAfterSeconds(int retryAfterSeconds) {
+        super.withRetryAfterSeconds(retryAfterSeconds);
+        return this;
+    }
+
+    @Override
+    public ServerOptionsNio withCompressionThreshold(int compressionThreshold) {
+        super.withCompressionThreshold(compressionThreshold);
+        return this;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public long getAsyncResponseTimeoutMillis() {
+        return asyncResponseTimeoutMillis;
+    }
+
+}
@@ -0,0 +1,378 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.embeddednio;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler.ResponseCallback;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
+import org.eclipse.bridgeiot.lib.misc.MarketplaceClient;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.eclipse.bridgeiot.lib.serverwrapper.PrecomputedAccessRequestHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class EmbeddedNioTest {
+
+    EmbeddedNio serverUnderTest;
+    OkHttpClient client;
+    AccessRequestHandler handlerMock;
+
+    @Before
+    public void setUp() {
+        serverUnderTest = new EmbeddedNio("localhost", 0, "bigiot/access", ServerOptionsNio.create()
+                .withWorkerThreads(2));
+        serverUnderTest.startHttp();
+        client = new OkHttpClient();
+        handlerMock = mock(AccessRequestHandler.class);
+    }
+
+    @After
+    public void tearDown() {
+        serverUnderTest.stop();
+    }
+
+    @Test
+    public void dispatchesRequestsOverPersistentConnection() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription offeringDescription = mock(RegistrableOfferingDescription.class);
+        serverUnderTest.addRoute("parking", handlerMock, offeringDescription, false);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> inputData = ArgumentCaptor.forClass(Map.class);
+        when(handlerMock.processRequestHandler(eq(offeringDescription), inputData.capture(), anyString(),
+                anyString())).thenReturn(BridgeIotHttpResponse.okay().withBody("[ 1 ]"));
+
+        // Act
+        Response first = get("bigiot/access/parking?radius=500&city=Bad%20Homburg");
+        String firstBody = first.body().string();
+        Response second = get("bigiot/access/parking");
+        String secondBody = second.body().string();
+
+        // Assert
+        assertThat(first.code()).isEqualTo(200);
+        assertThat(firstBody).isEqualTo("[ 1 ]");
+        assertThat(secondBody).isEqualTo("[ 1 ]");
+        assertThat(inputData.getAllValues().get(0)).containsEntry("radius", "500").containsEntry("city",
+                "Bad Homburg");
+        assertThat(client.connectionPool().connectionCount()).isEqualTo(1);
+        assertThat(serverUnderTest.getRoutes()).containsExactly("parking");
+    }
+
+    @Test
+    public void answersUnknownAndRemovedRoutes() throws IOException {
+        // Arrange
+        serverUnderTest.addRoute("parking", handlerMock, mock(RegistrableOfferingDescription.class), false);
+        serverUnderTest.removeRoute("parking");
+
+        // Act
+        Response removed = get("bigiot/access/parking");
+        Response unknown = get("bigiot/access/weather");
+
+        // Assert
+        assertThat(removed.body().string()).isEqualTo("This Offering has been removed!");
+        assertThat(unknown.code()).isEqualTo(404);
+        unknown.close();
+        assertThat(serverUnderTest.getRoutes()).isEmpty();
+    }
+
+    @Test
+    public void rejectsInvalidAccessToken() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription offeringDescription = mock(RegistrableOfferingDescription.class);
+        MarketplaceClient marketplaceClient = mock(MarketplaceClient.class);
+        when(offeringDescription.getMarketplaceClient()).thenReturn(marketplaceClient);
+        when(marketplaceClient.getClientSecret()).thenReturn("secret");
+        serverUnderTest.addRoute("parking", handlerMock, offeringDescription, true);
+
+        // Act
+        Response response = client.newCall(new Request.Builder().url(url("bigiot/access/parking"))
+                .header("Authorization", "Bearer invalid").build()).execute();
+
+        // Assert
+        assertThat(response.code()).isEqualTo(401);
+        response.close();
+    }
+
+    @Test
+    public void keepsAsyncRequestsInFlightWithoutWorkerThreads() throws Exception {
+        // Arrange
+        final List<ResponseCallback> pendingCallbacks = new CopyOnWriteArrayList<>();
+        AsyncAccessRequestHandler asyncHandler = (offeringDescription, inputData, subscriptionId, sessionId,
+                callback) -> pendingCallbacks.add(callback);
+        serverUnderTest.addRoute("parking", asyncHandler, mock(RegistrableOfferingDescription.class), false);
+        int requests = 10;
+        client = new OkHttpClient.Builder().readTimeout(10, TimeUnit.SECONDS).build();
+        client.dispatcher().setMaxRequestsPerHost(requests);
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < requests; i++) {
+            CompletableFuture<String> body = new CompletableFuture<>();
+            client.newCall(new Request.Builder().url(url("bigiot/access/parking")).build())
+                    .enqueue(new Callback() {
+                        @Override
+                        public void onFailure(Call call, IOException e) {
+                            body.completeExceptionally(e);
+                        }
+
+                        @Override
+                        public void onResponse(Call call, Response response) throws IOException {
+                            body.complete(response.body().string());
+                        }
+                    });
+            responses.add(body);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((pendingCallbacks.size() < requests) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+        int inFlight = pendingCallbacks.size();
+        for (ResponseCallback callback : pendingCallbacks) {
+            callback.onResponse(BridgeIotHttpResponse.okay().withBody("[ ]"));
+        }
+
+        // Assert
+        assertThat(inFlight).isEqualTo(requests);
+        for (CompletableFuture<String> body : responses) {
+            assertThat(body.get(10, TimeUnit.SECONDS)).isEqualTo("[ ]");
+        }
+    }
+
+    @Test
+    public void streamsBodyWithChunkedTransferEncoding() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription offeringDescription = mock(RegistrableOfferingDescription.class);
+        serverUnderTest.addRoute("parking", handlerMock, offeringDescription, false);
+        when(handlerMock.processRequestHandler(eq(offeringDescription), anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody(out -> {
+                    out.write('[');
+                    for (int i = 0; i < 10000; i++) {
+                        out.write((i == 0 ? "1" : ", 1").getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.write(']');
+                }));
+
+        // Act
+        Response response = get("bigiot/access/parking");
+        String body = response.body().string();
+
+        // Assert
+        assertThat(response.header("Transfer-Encoding")).isEqualToIgnoringCase("chunked");
+        assertThat(body).hasSize(2 + 1 + 9999 * 3).startsWith("[1, 1").endsWith("1]");
+    }
+
+    @Test
+    public void compressesLargeResponsesOnly() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription large = mock(RegistrableOfferingDescription.class);
+        RegistrableOfferingDescription small = mock(RegistrableOfferingDescription.class);
+        serverUnderTest.addRoute("large", handlerMock, large, false);
+        serverUnderTest.addRoute("small", handlerMock, small, false);
+        String largeBody = String.join(", ", Collections.nCopies(1000, "{ \"free\": true }"));
+        when(handlerMock.processRequestHandler(eq(large), anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody(largeBody));
+        when(handlerMock.processRequestHandler(eq(small), anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody("[ 1 ]"));
+
+        // Act
+        Response largeResponse = client.newCall(new Request.Builder().url(url("bigiot/access/large"))
+                .header("Accept-Encoding", HttpCompression.ACCEPT_ENCODING).build()).execute();
+        byte[] wireBytes = largeResponse.body().bytes();
+        Response smallResponse = client.newCall(new Request.Builder().url(url("bigiot/access/small"))
+                .header("Accept-Encoding", HttpCompression.ACCEPT_ENCODING).build()).execute();
+
+        // Assert
+        assertThat(largeResponse.header("Content-Encoding")).isEqualTo(HttpCompression.GZIP);
+        assertThat(wireBytes.length).isLessThan(largeBody.length() / 10);
+        assertThat(new String(HttpCompression.decode(wireBytes, HttpCompression.GZIP), StandardCharsets.UTF_8))
+                .isEqualTo(largeBody);
+        assertThat(smallResponse.header("Content-Encoding")).isNull();
+        assertThat(smallResponse.body().string()).isEqualTo("[ 1 ]");
+    }
+
+    @Test
+    public void answersConditionalRequestsWithNotModified() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription offeringDescription = mock(RegistrableOfferingDescription.class);
+        serverUnderTest.addRoute("sampledata/parking", PrecomputedAccessRequestHandler.create(handlerMock),
+                offeringDescription, false);
+        when(handlerMock.processRequestHandler(eq(offeringDescription), anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody("[ 1 ]"));
+
+        // Act
+        Response first = get("bigiot/access/sampledata/parking");
+        String firstBody = first.body().string();
+        Response second = client.newCall(new Request.Builder().url(url("bigiot/access/sampledata/parking"))
+                .header("If-None-Match", first.header("ETag")).build()).execute();
+        String secondBody = second.body().string();
+
+        // Assert
+        assertThat(firstBody).isEqualTo("[ 1 ]");
+        assertThat(first.header("Last-Modified")).isNotNull();
+        assertThat(second.code()).isEqualTo(304);
+        assertThat(secondBody).isEmpty();
+        assertThat(second.header("ETag")).isEqualTo(first.header("ETag"));
+    }
+
+    @Test
+    public void rejectsRequestsWhenWorkerPoolIsSaturated() throws Exception {
+        // Arrange
+        serverUnderTest.stop();
+        serverUnderTest = new EmbeddedNio("localhost", 0, "bigiot/access", ServerOptionsNio.create()
+                .withWorkerThreads(1).withQueueCapacity(1).withRetryAfterSeconds(3));
+        serverUnderTest.startHttp();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        serverUnderTest.addRoute("parking", (offeringDescription, inputData, subscriptionId, sessionId) -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return BridgeIotHttpResponse.okay().withBody("[ ]");
+        }, mock(RegistrableOfferingDescription.class), false);
+        client = new OkHttpClient.Builder().readTimeout(10, TimeUnit.SECONDS).build();
+        client.dispatcher().setMaxRequestsPerHost(3);
+        CompletableFuture<Integer> blocking = enqueue("bigiot/access/parking");
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        CompletableFuture<Integer> queued = enqueue("bigiot/access/parking");
+        CompletableFuture<Integer> rejected = enqueue("bigiot/access/parking");
+        CompletableFuture<Object> firstAnswered = CompletableFuture.anyOf(queued, rejected);
+        Object firstStatus = firstAnswered.get(10, TimeUnit.SECONDS);
+        release.countDown();
+
+        // Assert
+        assertThat(firstStatus).isEqualTo(503);
+        assertThat(blocking.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+        assertThat(Arrays.asList(queued.get(10, TimeUnit.SECONDS), rejected.get(10, TimeUnit.SECONDS)))
+                .containsExactlyInAnyOrder(200, 503);
+    }
+
+    @Test
+    public void answersGatewayTimeoutWhenAsyncHandlerDoesNotRespond() throws IOException {
+        // Arrange
+        serverUnderTest.stop();
+        serverUnderTest = new EmbeddedNio("localhost", 0, "bigiot/access", ServerOptionsNio.create()
+                .withAsyncResponseTimeout(200));
+        serverUnderTest.startHttp();
+        final List<ResponseCallback> pendingCallbacks = new CopyOnWriteArrayList<>();
+        AsyncAccessRequestHandler asyncHandler = (offeringDescription, inputData, subscriptionId, sessionId,
+                callback) -> pendingCallbacks.add(callback);
+        serverUnderTest.addRoute("parking", asyncHandler, mock(RegistrableOfferingDescription.class), false);
+
+        // Act
+        Response response = get("bigiot/access/parking");
+        String body = response.body().string();
+        pendingCallbacks.get(0).onResponse(BridgeIotHttpResponse.okay().withBody("[ ]"));
+
+        // Assert
+        assertThat(response.code()).isEqualTo(504);
+        assertThat(body).isEqualTo("Gateway timeout");
+    }
+
+    @Test
+    public void truncatesResponseWhenBodyFailsAfterHeaders() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription offeringDescription = mock(RegistrableOfferingDescription.class);
+        serverUnderTest.addRoute("parking", handlerMock, offeringDescription, false);
+        when(handlerMock.processRequestHandler(eq(offeringDescription), anyMap(), anyString(), anyString()))
+                .thenReturn(BridgeIotHttpResponse.okay().withBody(out -> {
+                    out.write("[ 1".getBytes(StandardCharsets.UTF_8));
+                    throw new IllegalStateException("backend gone");
+                }));
+
+        // Act
+        Response response = get("bigiot/access/parking");
+        Throwable failure = null;
+        try {
+            response.body().string();
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        // Assert
+        assertThat(response.code()).isEqualTo(200);
+        assertThat(failure).isNotNull();
+    }
+
+    @Test
+    public void parsesRepeatedQueryParameters() {
+        // Act
+        Map<String, String[]> queryMap = EmbeddedNio.parseQuery("a=1&b=x%2By&a=2&c");
+
+        // Assert
+        assertThat(queryMap.get("a")).containsExactly("1", "2");
+        assertThat(queryMap.get("b")).containsExactly("x+y");
+        assertThat(queryMap.get("c")).containsExactly("");
+    }
+
+    private CompletableFuture<Integer> enqueue(String path) {
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        client.newCall(new Request.Builder().url(url(path)).build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                status.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                status.complete(response.code());
+                response.close();
+            }
+        });
+        return status;
+    }
+
+    private Response get(String path) throws IOException {
+        return client.newCall(new Request.Builder().url(url(path)).build()).execute();
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + serverUnderTest.getPort() + "/" + path;
+    }
+
+}
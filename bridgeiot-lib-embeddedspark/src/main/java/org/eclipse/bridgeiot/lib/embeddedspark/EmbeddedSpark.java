@@ -21,73 +21,120 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.eclipse.bridgeiot.lib.configuration.LibConfiguration;
+import org.eclipse.bridgeiot.lib.exceptions.BridgeIoTException;
 import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.handlers.ProxyAccessRequestHandler;
 import org.eclipse.bridgeiot.lib.misc.Constants;
+import org.eclipse.bridgeiot.lib.misc.HttpCompression;
 import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
 import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
-import org.eclipse.bridgeiot.lib.security.AccessToken;
 import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
 import org.eclipse.bridgeiot.lib.serverwrapper.EmbededdedRouteBasedServer;
+import org.eclipse.bridgeiot.lib.serverwrapper.RouteConcurrencyLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import spark.Spark;
+import spark.Request;
+import spark.Response;
+import spark.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+/**
+ * Server wrapper for the A1 interface based on Spark. Each instance runs its own Spark service, i.e. several instances
+ * can run side by side in one JVM with their own port, TLS configuration, thread pool and routes.
+ * <p>
+ * All access requests are served by one catch-all Spark route, which looks up the offering route in a concurrent
+ * route table. Adding or removing an offering route only updates the table and takes effect immediately.
+ * <p>
+ * Asynchronous access request handlers are not processed asynchronously: Spark serializes and closes the response as
+ * soon as a route returns, so the request thread waits for the response (see
+ * {@link #addRoute(String, AsyncAccessRequestHandler, RegistrableOfferingDescription, boolean)}). Use EmbeddedNio for
+ * offerings with slow asynchronous backends.
+ */
 public class EmbeddedSpark extends EmbededdedRouteBasedServer {
 
-    private static boolean sparkInitialized = false;
+    private Service service = null;
 
-    Map<String, OfferingDescription> routes = new HashMap<>();
+    private static final String PROXY_ROUTE = "/bigiot/proxy/access/*";
+    private static final String REMOVED_OFFERING_MESSAGE = "This Offering has been removed!";
+
+    final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private volatile String routeListing = null;
+    private final Object routeListingLock = new Object();
+    private volatile ProxyAccessRequestHandler proxyHandler = null;
     ServerOptionsSpark serverOptions;
+    RouteConcurrencyLimiter limiter;
     String baseDomain;
     int basePort;
     boolean sslServer = false;
 
     private static final Logger logger = LoggerFactory.getLogger(EmbeddedSpark.class);
 
+    /**
+     * Entry of the route table. A removed offering route is kept as an entry without handler.
+     */
+    static class Route {
+
+        final AccessRequestHandler accessCallback;
+        final RegistrableOfferingDescription offeringDescription;
+        final boolean authorizationRequired;
+
+        Route(AccessRequestHandler accessCallback, RegistrableOfferingDescription offeringDescription,
+                boolean authorizationRequired) {
+            this.accessCallback = accessCallback;
+            this.offeringDescription = offeringDescription;
+            this.authorizationRequired = authorizationRequired;
+        }
+
+        boolean isRemoved() {
+            return accessCallback == null;
+        }
+
+    }
+
     public EmbeddedSpark(String domain, int port) {
         this(domain, port, "", ServerOptionsSpark.defaultOptions);
     }
 
     public EmbeddedSpark(String domain, int port, String baseRoute, ServerOptionsSpark serverOptions) {
         super(domain, port);
-        this.serverOptions = serverOptions;
+        this.serverOptions = (serverOptions != null) ? serverOptions : ServerOptionsSpark.create();
+        this.limiter = RouteConcurrencyLimiter.create(this.serverOptions);
         this.baseRoute = baseRoute;
         this.baseDomain = domain;
         this.basePort = port;
     }
 
     @Override
-    public void start() {
-        // Start the SparkServer for the first instance only
-        if (!sparkInitialized) {
-            sparkInitialized = true;
+    public synchronized void start() {
+        if (service == null) {
             // TODO: This is a temporary solution until SparkJava supports the stream-based secure method
             File keystoreFile = writeTempFile(this.getResourceKeystoreInputStream());
             start(true, keystoreFile.getPath(), this.getResourceKeystorePassword());
         }
     }
 
-    public void startHttp() {
-        if (!sparkInitialized) {
-            sparkInitialized = true;
+    public synchronized void startHttp() {
+        if (service == null) {
             start(false, null, null);
         }
     }
 
     @Override
-    public void start(String keyStoreFile, String keyStorePassword) {
+    public synchronized void start(String keyStoreFile, String keyStorePassword) {
+        if (service != null) {
+            return;
+        }
         if ((keyStoreFile == null) || (keyStoreFile.isEmpty())) {
             keyStoreFile = this.getDefaultKeystoreFile();
         }
@@ -99,174 +146,299 @@ public class EmbeddedSpark extends EmbededdedRouteBasedServer {
 
     private void start(boolean sslServer, String keyStoreLocation, String keyStorePassword) {
 
-        String baseUrl = "https://" + this.baseDomain + ":" + this.basePort + "/" + this.baseRoute;
+        service = Service.ignite();
+        service.threadPool(serverOptions.getMaxThreads(), serverOptions.getMinThreads(),
+                serverOptions.getIdleTimeoutMillis());
 
-        int maxThreads = 50;
-        int minThreads = 2;
-        int timeOutMillis = 30000;
-        Spark.threadPool(maxThreads, minThreads, timeOutMillis);
-
-        Spark.port(port);
+        service.port(port);
 
         if (sslServer) {
             this.sslServer = true;
-            Spark.secure(keyStoreLocation, keyStorePassword, null, null);
+            service.secure(keyStoreLocation, keyStorePassword, null, null);
         }
 
-        logger.info("Start web service for A1 interface at: {}", baseUrl);
+        logger.info("Start web service for A1 interface at: {}", getListingBaseUrl());
 
         prepareSwaggerSupport();
 
-        Spark.get(baseRoute, "application/json", (req, res) -> {
-            ObjectMapper mapper = new ObjectMapper();
-            ObjectNode rootNode = mapper.createObjectNode();
-            ArrayNode arrayNode = rootNode.putArray("routes");
-
+        service.get(PROXY_ROUTE, "application/json", this::proxy);
+        service.get(baseRoute, "application/json", (req, res) -> {
             logger.info("Request received: {}, {}, {}", req.pathInfo(), req.ip(), req.queryParams());
-
-            for (Map.Entry<String, OfferingDescription> entry : routes.entrySet()) {
-                ObjectNode childNode = mapper.createObjectNode();
-                childNode.put("offering id", entry.getValue().getId());
-                if (entry.getKey().startsWith(Constants.SAMPLEDATA_ROUTE)) {
-                    childNode.put("sampledata route", baseUrl + "/" + entry.getKey());
-                } else if (entry.getKey().startsWith(Constants.METADATA_ROUTE)) {
-                    childNode.put("metadata route", baseUrl + "/" + entry.getKey());
-                } else {
-                    for (int i = 0; i < entry.getValue().getEndpoints().size(); i++) {
-                        childNode.put("access route" + i, entry.getValue().getEndpoints().get(0).getUri());
-                    }
-                }
-                arrayNode.add(childNode);
-            }
-
             res.type("application/json");
-            return rootNode.toString();
+            return getRouteListing();
         });
+        final Service startedService = service;
+        service.get(baseRoute + "/*", "application/json", (req, res) -> dispatch(startedService, req, res));
 
-        Spark.awaitInitialization();
+        service.awaitInitialization();
+        // the actual port, if the service has been started on port 0
+        port = service.port();
 
     }
 
     private void prepareSwaggerSupport() {
 
-        Spark.staticFileLocation("/" + Constants.wwwFolder);
+        service.staticFileLocation("/" + Constants.wwwFolder);
         String folderName = Constants.wwwFolder + "/" + Constants.wwwBigIot;
         File f = new File(folderName);
         if (!f.exists() && !f.isDirectory()) {
             new File(folderName).mkdirs();
         }
-        Spark.externalStaticFileLocation(Constants.wwwFolder);
+        service.externalStaticFileLocation(Constants.wwwFolder);
 
     }
 
     @Override
-    public void stop() {
-        if (sparkInitialized) {
-            Spark.stop();
-            sparkInitialized = false;
+    public synchronized void stop() {
+        if (service != null) {
+            service.stop();
+            service = null;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on (the bound port if the server has been started with port 0)
+     */
+    public int getPort() {
+        return port;
+    }
+
+    private synchronized Service getService() {
+        if (service == null) {
+            throw new BridgeIoTException("Web service for A1 interface has not been started");
         }
+        return service;
     }
 
     @Override
     public void addRoute(final String route, final AccessRequestHandler accessCallback,
             final RegistrableOfferingDescription offeringDescription, final boolean authorizationRequired) {
-
-        String fullRoute = baseRoute + "/" + route;
-
-        if (routes.containsKey(route)) {
+        Route previous = routes.put(route, new Route(accessCallback, offeringDescription, authorizationRequired));
+        if ((previous != null) && !previous.isRemoved()) {
             logger.info("Adding a route a second Time: Check code!");
-            routes.remove(route);
         }
+        invalidateRouteListing();
+    }
 
-        Spark.get(fullRoute, "application/json", (req, res) -> {
+    /**
+     * Adds a route served by an asynchronous access request handler. The Jetty request thread waits for the response
+     * for at most {@link #DEFAULT_ASYNC_RESPONSE_TIMEOUT_MILLIS} and answers with 504 (Gateway Timeout) afterwards.
+     * Spark 2.7 completes the servlet response when the route returns, i.e. the response cannot be handed over to an
+     * {@link javax.servlet.AsyncContext}.
+     */
+    @Override
+    public void addRoute(final String route, final AsyncAccessRequestHandler accessCallback,
+            final RegistrableOfferingDescription offeringDescription, final boolean authorizationRequired) {
+        logger.info("Asynchronous handler of route {} holds a request thread while its response is pending", route);
+        super.addRoute(route, accessCallback, offeringDescription, authorizationRequired);
+    }
 
-            logger.debug("Session info: id {}, creationTime {}, isNew {}, lastAccessedTime {}, maxInactiveInt {}",
-                    req.session().id(), req.session().creationTime(), req.session().isNew(),
-                    req.session().lastAccessedTime(), req.session().maxInactiveInterval());
+    public void activateProxy(ProxyAccessRequestHandler accessCallback) {
+        this.proxyHandler = accessCallback;
+    }
 
-            logger.info("Access Request received: {}, {}, {}", req.pathInfo(), req.ip(), req.queryParams());
+    @Override
+    protected String getProtocolName() {
+        return "HTTP";
+    }
 
-            final String authHeader = req.headers("Authorization");
-            if (!checkAccessToken(authorizationRequired, authHeader, offeringDescription)) {
-                Spark.halt(401, "OfferingAccessToken missing, invalid or expired!!!");
+    @Override
+    public void removeRoute(String route) {
+        Route previous = routes.replace(route, new Route(null, null, false));
+        if ((previous == null) || previous.isRemoved()) {
+            logger.error("ERROR: Cannot remove route ({}) for an undeployed Offering", route);
+        }
+        invalidateRouteListing();
+    }
+
+    @Override
+    public List<String> getRoutes() {
+        List<String> activeRoutes = new ArrayList<>();
+        for (Entry<String, Route> entry : routes.entrySet()) {
+            if (!entry.getValue().isRemoved()) {
+                activeRoutes.add(entry.getKey());
             }
+        }
+        return activeRoutes;
+    }
 
-            Map<String, Object> inputData = extractInputDataMap(req.queryMap().toMap());
-            String subscriptionId = getSubscriptionId(authHeader);
-            String accessSessionId = createAccessSessionId(req.headers("AccessSessionId"), getSubscriberId(authHeader),
-                    req.ip(), req.session().id(), inputData);
+    /**
+     * Dispatches an access request to the handler of its offering route
+     */
+    private Object dispatch(Service startedService, Request req, Response res) {
+
+        String path = trimSlashes(req.pathInfo());
+        String base = trimSlashes(baseRoute);
+        String routeName = base.isEmpty() ? path : path.substring(Math.min(path.length(), base.length() + 1));
+        Route route = routes.get(routeName);
+
+        if (route == null) {
+            logger.info("Request received for unknown route: {}, {}", req.pathInfo(), req.ip());
+            res.status(404);
+            res.type("text/plain");
+            return "Not found";
+        }
 
-            BridgeIotHttpResponse response = accessCallback.processRequestHandler(offeringDescription, inputData,
-                    subscriptionId, accessSessionId);
+        if (route.isRemoved()) {
+            logger.info("Request received for Offering that has been removed: {}, {}, {}", req.pathInfo(), req.ip(),
+                    req.queryParams());
+            return REMOVED_OFFERING_MESSAGE;
+        }
 
-            res.type("application/json");
-            res.status(new Integer(response.getStatus()));
-            for (Entry<String, String> entry : response.getHeaders().entrySet()) {
-                res.header(entry.getKey(), entry.getValue());
-            }
+        logger.info("Access Request received: {}, {}, {}", req.pathInfo(), req.ip(), req.queryParams());
 
-            return response.getBody();
+        final String authHeader = req.headers("Authorization");
+        if (!checkAccessToken(route.authorizationRequired, authHeader, route.offeringDescription)) {
+            startedService.halt(401, "OfferingAccessToken missing, invalid or expired!!!");
+        }
 
-        });
+        Map<String, Object> inputData = extractInputDataMap(req.queryMap().toMap());
+        String subscriptionId = getSubscriptionId(authHeader);
+        // in sessionless mode, no servlet session is created for (anonymous) consumers
+        String reqSessionId = serverOptions.isSessionless() ? null : req.raw().getSession(true).getId();
+        String accessSessionId = createAccessSessionId(req.headers("AccessSessionId"), getSubscriberId(authHeader),
+                req.ip(), reqSessionId, inputData);
+        logger.debug("Access session: {}, servlet session: {}", accessSessionId, reqSessionId);
+
+        if (!limiter.tryAcquire(routeName)) {
+            res.header("Retry-After", String.valueOf(serverOptions.getRetryAfterSeconds()));
+            startedService.halt(503, "Too many concurrent requests, retry later");
+        }
 
-        routes.put(route, offeringDescription);
+        BridgeIotHttpResponse response;
+        try {
+            response = route.accessCallback.processRequestHandler(route.offeringDescription, inputData,
+                    subscriptionId, accessSessionId);
+        } finally {
+            limiter.release(routeName);
+        }
 
-    }
+        res.type("application/json");
+        res.status(new Integer(response.getStatus()));
+        for (Entry<String, String> entry : response.getHeaders().entrySet()) {
+            res.header(entry.getKey(), entry.getValue());
+        }
+        if (response.isNotModified(req.headers("If-None-Match"), req.headers("If-Modified-Since"))) {
+            res.status(new Integer(BridgeIotHttpResponse.NOT_MODIFIED_STATUS));
+            return "";
+        }
 
-    public void activateProxy(ProxyAccessRequestHandler accessCallback) {
+        // the body is written directly (instead of being returned to Spark) to count the bytes on the wire
+        String contentEncoding = HttpCompression.selectEncoding(req.headers("Accept-Encoding"),
+                response.getContentLength(), serverOptions.getCompressionThreshold());
+        res.header("Vary", "Accept-Encoding");
+        if (contentEncoding != null) {
+            res.header("Content-Encoding", contentEncoding);
+        } else if (!response.isStreamed()) {
+            res.raw().setContentLengthLong(response.getContentLength());
+        }
+        // without a content length, Jetty sends the body with chunked transfer encoding
+        try {
+            response.writeBodyTo(res.raw().getOutputStream(), contentEncoding);
+        } catch (IOException e) {
+            logger.warn("Writing response to {} failed: {}", req.ip(), e.getMessage());
+        }
+        return "";
+    }
 
-        String fullRoute = "/bigiot/proxy/access/*";
+    private Object proxy(Request req, Response res) {
 
-        Spark.get(fullRoute, "application/json", (req, res) -> {
-            logger.info("Request received: {}, {}, {}", req.pathInfo(), req.ip(), req.queryParams());
+        ProxyAccessRequestHandler accessCallback = proxyHandler;
+        if (accessCallback == null) {
+            res.status(404);
+            res.type("text/plain");
+            return "Not found";
+        }
 
-            Map<String, Object> inputData = extractInputDataMap(req.queryMap().toMap());
+        logger.info("Request received: {}, {}, {}", req.pathInfo(), req.ip(), req.queryParams());
 
-            res.type("application/json");
+        Map<String, Object> inputData = extractInputDataMap(req.queryMap().toMap());
 
-            int beginIndex = req.pathInfo().lastIndexOf("/");
-            String offeringId = req.pathInfo().substring(beginIndex + 1);
+        res.type("application/json");
 
-            return accessCallback.processRequestHandler(offeringId, inputData);
+        int beginIndex = req.pathInfo().lastIndexOf("/");
+        String offeringId = req.pathInfo().substring(beginIndex + 1);
 
-        });
+        return accessCallback.processRequestHandler(offeringId, inputData);
+    }
 
+    /**
+     * Returns the route listing of the base route. The listing is built on the first request after a route change.
+     * Building and publishing the listing holds the same lock as its invalidation, so that a listing built from the
+     * routes before a change cannot overwrite the invalidation.
+     */
+    private String getRouteListing() {
+        String listing = routeListing;
+        if (listing == null) {
+            synchronized (routeListingLock) {
+                listing = routeListing;
+                if (listing == null) {
+                    listing = buildRouteListing();
+                    routeListing = listing;
+                }
+            }
+        }
+        return listing;
     }
 
-    @Override
-    protected String getProtocolName() {
-        return "HTTP";
+    private void invalidateRouteListing() {
+        synchronized (routeListingLock) {
+            routeListing = null;
+        }
     }
 
-    @Override
-    public void removeRoute(String route) {
+    private String buildRouteListing() {
+        String baseUrl = getListingBaseUrl();
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode rootNode = mapper.createObjectNode();
+        ArrayNode arrayNode = rootNode.putArray("routes");
 
-        if (!routes.containsKey(route)) {
-            logger.error("ERROR: Cannot remove route ({}) for an undeployed Offering", route);
+        for (Map.Entry<String, Route> entry : routes.entrySet()) {
+            OfferingDescription offeringDescription = entry.getValue().offeringDescription;
+            if (offeringDescription == null) {
+                continue;
+            }
+            ObjectNode childNode = mapper.createObjectNode();
+            childNode.put("offering id", offeringDescription.getId());
+            if (entry.getKey().startsWith(Constants.SAMPLEDATA_ROUTE)) {
+                childNode.put("sampledata route", baseUrl + "/" + entry.getKey());
+            } else if (entry.getKey().startsWith(Constants.METADATA_ROUTE)) {
+                childNode.put("metadata route", baseUrl + "/" + entry.getKey());
+            } else {
+                for (int i = 0; i < offeringDescription.getEndpoints().size(); i++) {
+                    childNode.put("access route" + i, offeringDescription.getEndpoints().get(i).getUri());
+                }
+            }
+            arrayNode.add(childNode);
         }
 
-        Spark.get(baseRoute + "/" + route, "application/json", (req, res) -> {
-            logger.info("Request received for Offering that has been removed: {}, {}, {}", req.pathInfo(), req.ip(),
-                    req.queryParams());
-
-            return "This Offering has been removed!";
-        });
+        return rootNode.toString();
+    }
 
-        routes.remove(route);
+    private String getListingBaseUrl() {
+        return "https://" + this.baseDomain + ":" + this.basePort + "/" + this.baseRoute;
     }
 
-    @Override
-    public List<String> getRoutes() {
-        return new ArrayList<>(routes.keySet());
+    private static String trimSlashes(String path) {
+        int begin = 0;
+        int end = (path != null) ? path.length() : 0;
+        while ((begin < end) && (path.charAt(begin) == '/')) {
+            begin++;
+        }
+        while ((end > begin) && (path.charAt(end - 1) == '/')) {
+            end--;
+        }
+        return (begin < end) ? path.substring(begin, end) : "";
     }
 
-    public static void enableCorsAll() {
+    public void enableCorsAll() {
         enableCors("*", "GET,POST,HEAD", "X-Requested-With,Content-Type,Accept,Origin");
     }
 
-    public static void enableCors(final String origin, final String methods, final String headers) {
+    public void enableCors(final String origin, final String methods, final String headers) {
 
-        Spark.options("/*", (request, response) -> {
+        final Service startedService = getService();
+        startedService.options("/*", (request, response) -> {
 
             String accessControlRequestHeaders = request.headers("Access-Control-Request-Headers");
             if (accessControlRequestHeaders != null) {
@@ -281,7 +453,7 @@ public class EmbeddedSpark extends EmbededdedRouteBasedServer {
             return "OK";
         });
 
-        Spark.before((request, response) -> {
+        startedService.before((request, response) -> {
             response.header("Access-Control-Allow-Origin", origin);
             response.header("Access-Control-Request-Method", methods);
             response.header("Access-Control-Allow-Headers", headers);
@@ -291,76 +463,6 @@ public class EmbeddedSpark extends EmbededdedRouteBasedServer {
 
     }
 
-    private boolean checkAccessToken(final boolean authorizationRequired, final String authHeader,
-            final RegistrableOfferingDescription offeringDescription) {
-
-        if ((authHeader != null) && (authHeader.startsWith("Bearer "))) {
-            final String token = authHeader.substring(authHeader.indexOf(" ") + 1);
-            // Check if token is valid, if not, halt
-            if (!AccessToken.validateOfferingAccessToken(token,
-                    offeringDescription.getMarketplaceClient().getClientSecret(), offeringDescription.getId())) {
-                return false;
-            }
-        } else {
-            if (authorizationRequired) {
-                if (LibConfiguration.ACCESS_TOKEN_VALIDATION_REQUIRED) {
-                    return false;
-                }
-                logger.info("Warning: Debug-Mode without access token!!!");
-            }
-        }
-
-        return true;
-    }
-
-    private String getSubscriptionId(final String authHeader) {
-
-        String subscriptionId = Constants.UNKNOWN_SUBSCRIPTION_ID;
-        if ((authHeader != null) && (authHeader.startsWith("Bearer "))) {
-            subscriptionId = AccessToken.getSubscriptionId(authHeader.substring(authHeader.indexOf(" ") + 1));
-        }
-
-        return subscriptionId;
-    }
-
-    private String getSubscriberId(final String authHeader) {
-
-        String subscriberId = "";
-        if ((authHeader != null) && (authHeader.startsWith("Bearer "))) {
-            subscriberId = AccessToken.getOfferingAccessTokenInfo(authHeader.substring(authHeader.indexOf(" ") + 1));
-        }
-
-        return subscriberId;
-    }
-
-    private String createAccessSessionId(String accessSessionId, final String subscriberId, final String reqIpAddress,
-            final String reqSessionId, final Map<String, Object> inputData) {
-
-        if (accessSessionId == null) {
-            // Get accessSessionId from Input Data. If not available, auto-generate a unique ID
-            // from IP address, subscriberId, inputData Hash, etc.
-            if (inputData != null) {
-                if ((!inputData.isEmpty()) && inputData.containsKey("accessSessionId")) {
-                    return String.valueOf(inputData.get("accessSessionId"));
-                } else {
-                    if (!subscriberId.isEmpty()) {
-                        return reqIpAddress + "_" + subscriberId + "_" + inputData.toString().hashCode();
-                    } else {
-                        return reqIpAddress + "_" + reqSessionId + "_" + inputData.toString().hashCode();
-                    }
-                }
-            } else {
-                if (!subscriberId.isEmpty()) {
-                    return reqIpAddress + "_" + subscriberId;
-                } else {
-                    return reqIpAddress + "_" + reqSessionId;
-                }
-            }
-        }
-
-        return accessSessionId;
-    }
-
     private File writeTempFile(InputStream is) {
 
         final int BUFFER_SIZE = 500;
@@ -17,8 +17,92 @@ package org.eclipse.bridgeiot.lib.embeddedspark;
 
 import org.eclipse.bridgeiot.lib.serverwrapper.ServerOptions;
 
+/**
+ * Options of the {@link EmbeddedSpark} server wrapper
+ */
 public class ServerOptionsSpark extends ServerOptions {
 
-    public static ServerOptionsSpark defaultOptions;
+    public static final int DEFAULT_MAX_THREADS = 50;
+    public static final int DEFAULT_MIN_THREADS = 2;
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+
+    public static ServerOptionsSpark defaultOptions = create();
+
+    private int maxThreads = DEFAULT_MAX_THREADS;
+    private int minThreads = DEFAULT_MIN_THREADS;
+    private int idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private boolean sessionless = false;
+
+    public static ServerOptionsSpark create() {
+        return new ServerOptionsSpark();
+    }
+
+    /**
+     * Sets the bounds of the request thread pool
+     *
+     * @param minThreads
+     * @param maxThreads
+     */
+    public ServerOptionsSpark withThreadPool(int minThreads, int maxThreads) {
+        this.minThreads = Math.max(1, minThreads);
+        this.maxThreads = Math.max(this.minThreads, maxThreads);
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds after which idle threads above the minimum are released
+     *
+     * @param idleTimeoutMillis
+     */
+    public ServerOptionsSpark withIdleTimeoutMillis(int idleTimeoutMillis) {
+        this.idleTimeoutMillis = Math.max(1, idleTimeoutMillis);
+        return this;
+    }
+
+    /**
+     * Enables the sessionless mode, in which no servlet sessions are created. Access session ids of consumers that do
+     * not provide one are derived from subscriber, IP address and input data only, i.e. anonymous consumers behind
+     * the same IP address share their access sessions.
+     *
+     * @param sessionless
+     */
+    public ServerOptionsSpark withSessionless(boolean sessionless) {
+        this.sessionless = sessionless;
+        return this;
+    }
+
+    @Override
+    public ServerOptionsSpark withMaxConcurrentRequestsPerRoute(int maxConcurrentRequestsPerRoute) {
+        super.withMaxConcurrentRequestsPerRoute(maxConcurrentRequestsPerRoute);
+        return this;
+    }
+
+    @Override
+    public ServerOptionsSpark withRetryAfterSeconds(int retryAfterSeconds) {
+        super.withRetryAfterSeconds(retryAfterSeconds);
+        return this;
+    }
+
+    @Override
+    public ServerOptionsSpark withCompressionThreshold(int compressionThreshold) {
+        super.withCompressionThreshold(compressionThreshold);
+        return this;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public boolean isSessionless() {
+        return sessionless;
+    }
 
 }
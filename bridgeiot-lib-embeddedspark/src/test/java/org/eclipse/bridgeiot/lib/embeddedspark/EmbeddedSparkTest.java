@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.embeddedspark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.handlers.AsyncAccessRequestHandler;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.AccessInterfaceType;
+import org.eclipse.bridgeiot.lib.model.BridgeIotTypes.EndpointType;
+import org.eclipse.bridgeiot.lib.model.EndPoint;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+import org.eclipse.jetty.server.session.SessionHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spark.Service;
+import spark.embeddedserver.jetty.EmbeddedJettyServer;
+
+public class EmbeddedSparkTest {
+
+    EmbeddedSpark firstServer;
+    EmbeddedSpark secondServer;
+    OkHttpClient client;
+
+    @Before
+    public void setUp() {
+        firstServer = new EmbeddedSpark("localhost", 0, "bigiot/access", ServerOptionsSpark.defaultOptions);
+        secondServer = new EmbeddedSpark("localhost", 0, "bigiot/access", ServerOptionsSpark.defaultOptions);
+        firstServer.startHttp();
+        secondServer.startHttp();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        firstServer.stop();
+        secondServer.stop();
+    }
+
+    @Test
+    public void runsIndependentInstances() throws IOException {
+        // Arrange
+        firstServer.addRoute("parking", handler("[ \"parking\" ]"), mock(RegistrableOfferingDescription.class), false);
+        secondServer.addRoute("weather", handler("[ \"weather\" ]"), mock(RegistrableOfferingDescription.class),
+                false);
+
+        // Act
+        Response parking = get(firstServer, "bigiot/access/parking");
+        String parkingBody = parking.body().string();
+        Response weather = get(secondServer, "bigiot/access/weather");
+        String weatherBody = weather.body().string();
+        Response unknown = get(secondServer, "bigiot/access/parking");
+        unknown.close();
+
+        // Assert
+        assertThat(firstServer.getPort()).isGreaterThan(0).isNotEqualTo(secondServer.getPort());
+        assertThat(parkingBody).isEqualTo("[ \"parking\" ]");
+        assertThat(weatherBody).isEqualTo("[ \"weather\" ]");
+        assertThat(unknown.code()).isEqualTo(404);
+        assertThat(firstServer.getRoutes()).containsExactly("parking");
+        assertThat(secondServer.getRoutes()).containsExactly("weather");
+    }
+
+    @Test
+    public void stopsInstanceIndependently() throws IOException {
+        // Arrange
+        secondServer.addRoute("weather", handler("[ ]"), mock(RegistrableOfferingDescription.class), false);
+
+        // Act
+        firstServer.stop();
+        Response weather = get(secondServer, "bigiot/access/weather");
+
+        // Assert
+        assertThat(weather.code()).isEqualTo(200);
+        weather.close();
+    }
+
+    @Test
+    public void dispatchesAddedAndRemovedRoutes() throws IOException {
+        // Arrange
+        firstServer.addRoute("sampledata/parking", handler("[ \"sample\" ]"),
+                mock(RegistrableOfferingDescription.class), false);
+        RegistrableOfferingDescription parkingOffering = mock(RegistrableOfferingDescription.class);
+        when(parkingOffering.getId()).thenReturn("Provider-Parking");
+        firstServer.addRoute("parking", handler("[ ]"), parkingOffering, false);
+
+        // Act
+        String listingBefore = get(firstServer, "bigiot/access").body().string();
+        firstServer.removeRoute("parking");
+        String listingAfter = get(firstServer, "bigiot/access").body().string();
+        String sample = get(firstServer, "bigiot/access/sampledata/parking").body().string();
+        String removed = get(firstServer, "bigiot/access/parking").body().string();
+        Response unknown = get(firstServer, "bigiot/access/weather");
+        unknown.close();
+
+        // Assert
+        assertThat(sample).isEqualTo("[ \"sample\" ]");
+        assertThat(removed).isEqualTo("This Offering has been removed!");
+        assertThat(unknown.code()).isEqualTo(404);
+        assertThat(listingBefore).contains("sampledata route").contains("Provider-Parking");
+        assertThat(listingAfter).contains("sampledata route").doesNotContain("Provider-Parking");
+        assertThat(firstServer.getRoutes()).containsExactly("sampledata/parking");
+    }
+
+    @Test
+    public void listsAllEndpointsOfOffering() throws IOException {
+        // Arrange
+        RegistrableOfferingDescription parkingOffering = mock(RegistrableOfferingDescription.class);
+        when(parkingOffering.getId()).thenReturn("Provider-Parking");
+        when(parkingOffering.getEndpoints()).thenReturn(Arrays.asList(
+                new EndPoint(EndpointType.HTTP_GET, AccessInterfaceType.BRIDGEIOT_LIB, "http://first.org/parking"),
+                new EndPoint(EndpointType.HTTP_GET, AccessInterfaceType.BRIDGEIOT_LIB, "http://second.org/parking")));
+        firstServer.addRoute("parking", handler("[ ]"), parkingOffering, false);
+
+        // Act
+        String listing = get(firstServer, "bigiot/access").body().string();
+
+        // Assert
+        assertThat(listing).contains("\"access route0\":\"http://first.org/parking\"")
+                .contains("\"access route1\":\"http://second.org/parking\"");
+    }
+
+    @Test
+    public void answersAsynchronousRoutesFromRequestThread() throws IOException {
+        // Arrange
+        AsyncAccessRequestHandler asyncHandler = (offeringDescription, inputData, subscriptionId, sessionId,
+                callback) -> new Thread(() -> callback.onResponse(BridgeIotHttpResponse.okay().withBody("[ 2 ]")))
+                        .start();
+        firstServer.addRoute("parking", asyncHandler, mock(RegistrableOfferingDescription.class), false);
+
+        // Act
+        Response response = get(firstServer, "bigiot/access/parking");
+
+        // Assert
+        assertThat(response.code()).isEqualTo(200);
+        assertThat(response.body().string()).isEqualTo("[ 2 ]");
+    }
+
+    @Test
+    public void shedsRequestsAboveRouteLimit() throws Exception {
+        // Arrange
+        EmbeddedSpark limitedServer = new EmbeddedSpark("localhost", 0, "bigiot/access",
+                ServerOptionsSpark.create().withMaxConcurrentRequestsPerRoute(1).withRetryAfterSeconds(5));
+        limitedServer.startHttp();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        AccessRequestHandler blockingHandler = (offeringDescription, inputData, subscriptionId, consumerInfo) -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return BridgeIotHttpResponse.okay().withBody("[ ]");
+        };
+        limitedServer.addRoute("parking", blockingHandler, mock(RegistrableOfferingDescription.class), false);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act
+            Future<Integer> blocked = executor.submit(() -> {
+                try (Response response = get(limitedServer, "bigiot/access/parking")) {
+                    return response.code();
+                }
+            });
+            entered.await(10, TimeUnit.SECONDS);
+            Response shed = get(limitedServer, "bigiot/access/parking");
+            shed.close();
+            release.countDown();
+
+            // Assert
+            assertThat(shed.code()).isEqualTo(503);
+            assertThat(shed.header("Retry-After")).isEqualTo("5");
+            assertThat(blocked.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+            assertThat(limitedServer.limiter.getActiveRequests("parking")).isEqualTo(0);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            limitedServer.stop();
+        }
+    }
+
+    @Test
+    public void createsNoServletSessionsInSessionlessMode() throws IOException, ReflectiveOperationException {
+        // Arrange
+        EmbeddedSpark sessionlessServer = new EmbeddedSpark("localhost", 0, "bigiot/access",
+                ServerOptionsSpark.create().withSessionless(true));
+        sessionlessServer.startHttp();
+        sessionlessServer.addRoute("parking", handler("[ ]"), mock(RegistrableOfferingDescription.class), false);
+        firstServer.addRoute("parking", handler("[ ]"), mock(RegistrableOfferingDescription.class), false);
+        int cookies = 0;
+
+        try {
+            // Act
+            for (int i = 0; i < 5; i++) {
+                try (Response response = get(sessionlessServer, "bigiot/access/parking?client=" + i)) {
+                    if (response.header("Set-Cookie") != null) {
+                        cookies++;
+                    }
+                }
+            }
+            Response sessionResponse = get(firstServer, "bigiot/access/parking");
+            sessionResponse.close();
+
+            // Assert
+            assertThat(cookies).isEqualTo(0);
+            assertThat(sessionHandlerOf(sessionlessServer).getSessionsCreated()).isEqualTo(0);
+            assertThat(sessionHandlerOf(firstServer).getSessionsCreated()).isEqualTo(1);
+            assertThat(sessionResponse.header("Set-Cookie")).startsWith("JSESSIONID");
+        } finally {
+            sessionlessServer.stop();
+        }
+    }
+
+    /**
+     * Returns the Jetty session handler of a server, which Spark does not expose
+     */
+    private static SessionHandler sessionHandlerOf(EmbeddedSpark server) throws ReflectiveOperationException {
+        Object service = accessibleField(EmbeddedSpark.class, "service").get(server);
+        Object embeddedServer = accessibleField(Service.class, "server").get(service);
+        return (SessionHandler) accessibleField(EmbeddedJettyServer.class, "handler").get(embeddedServer);
+    }
+
+    private static Field accessibleField(Class<?> type, String name) throws NoSuchFieldException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    private AccessRequestHandler handler(String body) {
+        AccessRequestHandler handlerMock = mock(AccessRequestHandler.class);
+        when(handlerMock.processRequestHandler(any(RegistrableOfferingDescription.class), any(), anyString(),
+                anyString())).thenReturn(BridgeIotHttpResponse.okay().withBody(body));
+        return handlerMock;
+    }
+
+    private Response get(EmbeddedSpark server, String path) throws IOException {
+        return client.newCall(new Request.Builder().url("http://localhost:" + server.getPort() + "/" + path).build())
+                .execute();
+    }
+
+}
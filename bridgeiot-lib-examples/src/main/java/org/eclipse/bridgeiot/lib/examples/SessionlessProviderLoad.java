@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bridgeiot.lib.examples;
+
+import java.io.IOException;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.eclipse.bridgeiot.lib.embeddedspark.EmbeddedSpark;
+import org.eclipse.bridgeiot.lib.embeddedspark.ServerOptionsSpark;
+import org.eclipse.bridgeiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bridgeiot.lib.offering.OfferingDescription;
+import org.eclipse.bridgeiot.lib.offering.RegistrableOfferingDescription;
+import org.eclipse.bridgeiot.lib.serverwrapper.BridgeIotHttpResponse;
+
+/**
+ * Load driver for the sessionless mode of EmbeddedSpark: sends one-time accesses from many distinct anonymous clients
+ * to a local server and reports session cookies, heap growth and throughput. Run it with and without the sessionless
+ * mode to compare.
+ * <p>
+ * Arguments: [number of clients (default 10000)] [sessionless: true|false (default true)]
+ */
+public class SessionlessProviderLoad {
+
+    private static final String BASE_ROUTE = "bigiot/access";
+
+    private static AccessRequestHandler accessCallback = new AccessRequestHandler() {
+        @Override
+        public BridgeIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
+            return BridgeIotHttpResponse.okay().withBody("[ ]");
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+
+        int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        boolean sessionless = (args.length > 1) ? Boolean.parseBoolean(args[1]) : true;
+
+        EmbeddedSpark server = new EmbeddedSpark("localhost", 0, BASE_ROUTE,
+                ServerOptionsSpark.create().withSessionless(sessionless));
+        server.startHttp();
+        server.addRoute("parking", accessCallback, new RegistrableOfferingDescription(), false);
+
+        OkHttpClient client = new OkHttpClient();
+        int cookies = 0;
+        try {
+            long heapBefore = usedHeap();
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < clients; i++) {
+                Request request = new Request.Builder()
+                        .url("http://localhost:" + server.getPort() + "/" + BASE_ROUTE + "/parking?client=" + i).build();
+                try (Response response = client.newCall(request).execute()) {
+                    if (response.header("Set-Cookie") != null) {
+                        cookies++;
+                    }
+                }
+            }
+            long duration = Math.max(1, System.currentTimeMillis() - start);
+            long heapAfter = usedHeap();
+
+            System.out.println("Clients: " + clients + ", sessionless: " + sessionless);
+            System.out.println("Session cookies: " + cookies);
+            System.out.println("Heap growth: " + (heapAfter - heapBefore) / 1024 + " KB");
+            System.out.println("Throughput: " + (clients * 1000L / duration) + " requests/s");
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}